@@ -205,9 +205,8 @@ public class SimpleDemo {
 
         // 8. Test de mémoire
         System.out.println("\n   💾 Test d'utilisation mémoire:");
-        Runtime runtime = Runtime.getRuntime();
-        long usedMemory = (runtime.totalMemory() - runtime.freeMemory()) / 1024;
-        System.out.printf("      Mémoire utilisée: %d KB%n", usedMemory);
+        long usedMemory = middleware.getMemoryBudget().getUsedBytes() / 1024;
+        System.out.printf("      Mémoire retenue: %d KB%n", usedMemory);
         System.out.printf("      Limite configurée: %d KB%n", middleware.getMaxMemoryKB());
 
         if (usedMemory > middleware.getMaxMemoryKB() * 0.8) {
@@ -0,0 +1,56 @@
+package fr.telecom.middleware.benchmark;
+
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.core.Subscriber;
+import fr.telecom.middleware.core.Topic;
+import java.util.Arrays;
+
+/**
+ * Outils communs aux microbenchmarks JMH.
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Subscriber qui publie le dernier message reçu dans un champ volatile,
+     * pour que la JIT ne puisse pas éliminer la livraison.
+     */
+    static class SinkSubscriber implements Subscriber {
+        private final String id;
+        volatile Message last;
+
+        SinkSubscriber(int index) {
+            this.id = "jmh-sub-" + index;
+        }
+
+        @Override
+        public void onMessage(Message message) {
+            last = message;
+        }
+
+        @Override
+        public String getSubscriberId() {
+            return id;
+        }
+    }
+
+    /**
+     * Payload binaire de la taille demandée.
+     */
+    static byte[] payload(int size) {
+        byte[] payload = new byte[size];
+        Arrays.fill(payload, (byte) 'x');
+        return payload;
+    }
+
+    /**
+     * Abonne {@code count} subscribers au topic.
+     */
+    static void subscribe(Topic topic, int count) {
+        for (int i = 0; i < count; i++) {
+            topic.addSubscriber(new SinkSubscriber(i));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package fr.telecom.middleware.benchmark;
+
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.core.Topic;
+import fr.telecom.middleware.qos.QoS;
+import fr.telecom.middleware.realtime.DeadlineMonitor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Enregistrement des deadlines via {@code DeadlineMonitor.checkPublishDeadline}.
+ *
+ * <p>{@code register} mesure l'enregistrement seul (la deadline est
+ * complétée aussitôt pour borner la table active) ; {@code registerAndDeliver}
+ * mesure le cycle complet enregistrement + livraison + complétion.</p>
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeadlineBenchmarks {
+
+    @Param({"1", "10"})
+    int subscriberCount;
+
+    @Param({"64", "4096"})
+    int payloadSize;
+
+    private DeadlineMonitor deadlineMonitor;
+    private Topic topic;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        deadlineMonitor = new DeadlineMonitor();
+        topic = new Topic("jmh/deadline", new QoS.Builder()
+                .deadlineMs(10)
+                .priority(QoS.Priority.HIGH)
+                .build());
+        deadlineMonitor.monitorTopic(topic);
+        BenchmarkSupport.subscribe(topic, subscriberCount);
+        payload = BenchmarkSupport.payload(payloadSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        deadlineMonitor.shutdown();
+    }
+
+    @Benchmark
+    public Message register() {
+        Message message = new Message("jmh/deadline", payload);
+        deadlineMonitor.checkPublishDeadline(topic, message);
+        message.getDeadline().complete();
+        return message;
+    }
+
+    @Benchmark
+    public Message registerAndDeliver() {
+        Message message = new Message("jmh/deadline", payload);
+        deadlineMonitor.checkPublishDeadline(topic, message);
+        topic.publish(message);
+        return message;
+    }
+}
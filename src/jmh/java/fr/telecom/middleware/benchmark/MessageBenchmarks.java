@@ -0,0 +1,47 @@
+package fr.telecom.middleware.benchmark;
+
+import fr.telecom.middleware.api.Message;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Coût de construction d'un {@link Message} (UUID, map de headers).
+ *
+ * <p>Le nombre de subscribers n'intervient pas à la construction ; le
+ * nombre de headers applicatifs le remplace comme second paramètre.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageBenchmarks {
+
+    @Param({"64", "4096"})
+    int payloadSize;
+
+    @Param({"0", "4"})
+    int headerCount;
+
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        payload = BenchmarkSupport.payload(payloadSize);
+    }
+
+    @Benchmark
+    public Message construct() {
+        return new Message("jmh/message", payload);
+    }
+
+    @Benchmark
+    public Message build() {
+        Message.Builder builder = Message.builder("jmh/message").payload(payload);
+        for (int i = 0; i < headerCount; i++) {
+            builder.header("h" + i, i);
+        }
+        return builder.build();
+    }
+}
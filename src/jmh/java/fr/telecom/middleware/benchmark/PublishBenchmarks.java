@@ -0,0 +1,71 @@
+package fr.telecom.middleware.benchmark;
+
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.core.Middleware;
+import fr.telecom.middleware.core.Topic;
+import fr.telecom.middleware.qos.QoS;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Chemin de publication : {@code Middleware.publish} de bout en bout et
+ * {@code Topic.publish} seul, pour chaque niveau de fiabilité.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PublishBenchmarks {
+
+    @Param({"1", "10"})
+    int subscriberCount;
+
+    @Param({"64", "4096"})
+    int payloadSize;
+
+    @Param({"BEST_EFFORT", "AT_MOST_ONCE", "AT_LEAST_ONCE", "EXACTLY_ONCE"})
+    QoS.Reliability reliability;
+
+    private Middleware middleware;
+    private Topic topic;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        QoS qos = new QoS.Builder()
+                .reliability(reliability)
+                .build();
+
+        middleware = new Middleware();
+        middleware.createTopic("jmh/middleware", qos);
+        for (int i = 0; i < subscriberCount; i++) {
+            middleware.subscribe("jmh/middleware", new BenchmarkSupport.SinkSubscriber(i));
+        }
+
+        topic = new Topic("jmh/topic", qos);
+        BenchmarkSupport.subscribe(topic, subscriberCount);
+
+        payload = BenchmarkSupport.payload(payloadSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        middleware.shutdown();
+    }
+
+    @Benchmark
+    public Message middlewarePublish() {
+        Message message = new Message("jmh/middleware", payload);
+        middleware.publish("jmh/middleware", message);
+        return message;
+    }
+
+    @Benchmark
+    public Message topicPublish() {
+        Message message = new Message("jmh/topic", payload);
+        topic.publish(message);
+        return message;
+    }
+}
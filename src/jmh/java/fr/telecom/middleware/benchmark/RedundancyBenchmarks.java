@@ -0,0 +1,56 @@
+package fr.telecom.middleware.benchmark;
+
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.core.Topic;
+import fr.telecom.middleware.qos.QoS;
+import fr.telecom.middleware.qos.RedundancyManager;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Publication redondante via {@code RedundancyManager.sendWithRedundancy}.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RedundancyBenchmarks {
+
+    @Param({"1", "10"})
+    int subscriberCount;
+
+    @Param({"64", "4096"})
+    int payloadSize;
+
+    @Param({"1", "3"})
+    int redundancyLevel;
+
+    private RedundancyManager redundancyManager;
+    private Topic topic;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        redundancyManager = new RedundancyManager();
+        topic = new Topic("jmh/redundant", new QoS.Builder()
+                .reliability(QoS.Reliability.EXACTLY_ONCE)
+                .redundancyLevel(redundancyLevel)
+                .build());
+        BenchmarkSupport.subscribe(topic, subscriberCount);
+        payload = BenchmarkSupport.payload(payloadSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redundancyManager.shutdown();
+    }
+
+    @Benchmark
+    public Message sendWithRedundancy() {
+        Message message = new Message("jmh/redundant", payload);
+        redundancyManager.sendWithRedundancy(topic, message);
+        return message;
+    }
+}
@@ -1,5 +1,8 @@
 package fr.telecom.middleware.api;
 
+import fr.telecom.middleware.memory.MemoryFootprint;
+import fr.telecom.middleware.qos.Deadline;
+import fr.telecom.middleware.qos.RedundancyGroup;
 import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -16,6 +19,13 @@ public class Message implements Serializable {
     private final Map<String, Object> headers;
     private long publishTimestamp;
     private long receiveTimestamp;
+    private transient volatile Deadline deadline;
+    private transient long publishNanos;
+    private transient volatile long enqueueNanos;
+    private transient volatile int estimatedSize;
+    private transient volatile RedundancyGroup redundancyGroup;
+    private transient volatile long sequence;
+    private final transient int redundancyIndex;
 
     /**
      * Constructeur privé pour le Builder.
@@ -27,12 +37,56 @@ public class Message implements Serializable {
         this.headers = new ConcurrentHashMap<>();
         this.publishTimestamp = System.currentTimeMillis();
         this.receiveTimestamp = 0;
+        this.redundancyIndex = 0;
 
         // Headers par défaut
         this.headers.put("creation_timestamp", System.currentTimeMillis());
         this.headers.put("message_id", this.id);
     }
 
+    /**
+     * Enveloppe redondante : partage l'id, le payload, les headers et la
+     * deadline de l'original, sans copie.
+     */
+    private Message(Message original, int redundancyIndex) {
+        this.id = original.id;
+        this.topic = original.topic;
+        this.payload = original.payload;
+        this.headers = original.headers;
+        this.publishTimestamp = original.publishTimestamp;
+        this.receiveTimestamp = 0;
+        this.deadline = original.deadline;
+        this.publishNanos = original.publishNanos;
+        this.enqueueNanos = original.enqueueNanos;
+        this.estimatedSize = original.getEstimatedSize();
+        this.redundancyGroup = original.redundancyGroup;
+        this.redundancyIndex = redundancyIndex;
+    }
+
+    /**
+     * Reconstruction d'un message reçu d'un autre processus : garde son id,
+     * ses headers et sa date de publication d'origine.
+     */
+    private Message(String id, String topic, Object payload, Map<String, Object> headers,
+                    long publishTimestamp) {
+        this.id = id;
+        this.topic = topic;
+        this.payload = payload;
+        this.headers = new ConcurrentHashMap<>(headers);
+        this.publishTimestamp = publishTimestamp;
+        this.receiveTimestamp = 0;
+        this.redundancyIndex = 0;
+        this.headers.put("message_id", id);
+    }
+
+    /**
+     * Recrée un message décodé depuis un transport.
+     */
+    public static Message restore(String id, String topic, Object payload,
+                                  Map<String, Object> headers, long publishTimestamp) {
+        return new Message(id, topic, payload, headers, publishTimestamp);
+    }
+
     /**
      * Builder pattern pour création flexible.
      */
@@ -117,6 +171,72 @@ public class Message implements Serializable {
         return receiveTimestamp > 0;
     }
 
+    /**
+     * Attache la deadline de bout en bout, complétée par le Topic
+     * une fois la livraison terminée.
+     */
+    public void attachDeadline(Deadline deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Retourne la deadline attachée, ou null.
+     */
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Rattache le message à un groupe de copies redondantes.
+     */
+    public void attachRedundancyGroup(RedundancyGroup redundancyGroup) {
+        this.redundancyGroup = redundancyGroup;
+    }
+
+    /**
+     * Groupe de copies redondantes du message, ou null.
+     */
+    public RedundancyGroup getRedundancyGroup() {
+        return redundancyGroup;
+    }
+
+    /**
+     * Crée la copie redondante {@code redundancyIndex} du message. Les
+     * headers sont partagés : un header ajouté sur une copie est visible
+     * sur toutes.
+     */
+    public Message createRedundantEnvelope(int redundancyIndex) {
+        return new Message(this, redundancyIndex);
+    }
+
+    /**
+     * Numéro de séquence attribué par le topic à la publication, 0 si le
+     * message n'a pas encore été publié. Une copie redondante porte celui
+     * de son groupe.
+     */
+    public long getSequence() {
+        long value = sequence;
+        if (value == 0 && redundancyGroup != null) {
+            value = redundancyGroup.getSequence();
+        }
+        return value;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+        RedundancyGroup group = redundancyGroup;
+        if (group != null) {
+            group.setSequence(sequence);
+        }
+    }
+
+    /**
+     * Rang de la copie redondante, 0 pour l'original.
+     */
+    public int getRedundancyIndex() {
+        return redundancyIndex;
+    }
+
     // Getters
     public String getId() {
         return id;
@@ -134,6 +254,23 @@ public class Message implements Serializable {
         return new HashMap<>(headers);
     }
 
+    /**
+     * Taille retenue estimée, calculée au premier appel puis conservée :
+     * allocation et libération dans le budget mémoire restent symétriques.
+     */
+    public int getEstimatedSize() {
+        int size = estimatedSize;
+        if (size == 0) {
+            size = (int) MemoryFootprint.estimateMessageSize(this);
+            estimatedSize = size;
+        }
+        return size;
+    }
+
+    public int getHeaderCount() {
+        return headers.size();
+    }
+
     public long getPublishTimestamp() {
         return publishTimestamp;
     }
@@ -142,12 +279,34 @@ public class Message implements Serializable {
         return receiveTimestamp;
     }
 
+    /**
+     * Instant (System.nanoTime) de l'appel à Middleware.publish, 0 si inconnu.
+     */
+    public long getPublishNanos() {
+        return publishNanos;
+    }
+
+    /**
+     * Instant (System.nanoTime) de mise en file de dispatch, 0 si aucun.
+     */
+    public long getEnqueueNanos() {
+        return enqueueNanos;
+    }
+
     // Setters (limités)
     public void setPublishTimestamp(long timestamp) {
         this.publishTimestamp = timestamp;
         headers.put("publish_timestamp", timestamp);
     }
 
+    public void setPublishNanos(long publishNanos) {
+        this.publishNanos = publishNanos;
+    }
+
+    public void setEnqueueNanos(long enqueueNanos) {
+        this.enqueueNanos = enqueueNanos;
+    }
+
     @Override
     public String toString() {
         return String.format(
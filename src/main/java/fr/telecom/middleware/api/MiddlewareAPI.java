@@ -1,7 +1,12 @@
 package fr.telecom.middleware.api;
 
 import fr.telecom.middleware.core.*;
+import fr.telecom.middleware.memory.*;
+import fr.telecom.middleware.metrics.*;
 import fr.telecom.middleware.qos.*;
+import fr.telecom.middleware.realtime.PeriodicTask;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -79,6 +84,15 @@ public class MiddlewareAPI {
         middleware.subscribe(topicName, subscriber);
     }
 
+    /**
+     * Lance une boucle de contrôle cyclique sur les threads temps-réel.
+     */
+    public PeriodicTask schedulePeriodic(String name, Runnable task, long periodMs,
+                                         PeriodicTask.OverrunPolicy overrunPolicy) {
+        return middleware.getScheduler().schedulePeriodicTask(name, task, 0, periodMs,
+                TimeUnit.MILLISECONDS, overrunPolicy);
+    }
+
     /**
      * Récupère les statistiques du middleware.
      */
@@ -92,9 +106,21 @@ public class MiddlewareAPI {
                 .mapToInt(t -> t.getSubscribers().size())
                 .sum();
 
+        for (Topic topic : middleware.getAllTopics()) {
+            stats.latency.put(topic.getName(), new TopicLatencyStats(topic));
+        }
+        stats.periodicTasks.putAll(middleware.getScheduler().getPeriodicTaskStats());
+
         return stats;
     }
 
+    /**
+     * Empreinte mémoire estimée, par topic et par gestionnaire.
+     */
+    public FootprintReport getFootprint() {
+        return middleware.getFootprint();
+    }
+
     /**
      * Arrête le middleware.
      */
@@ -109,12 +135,44 @@ public class MiddlewareAPI {
         public int topicCount;
         public long totalMessages;
         public int activeSubscribers;
+        public final Map<String, TopicLatencyStats> latency = new TreeMap<>();
+        public final Map<String, PeriodicTask.Stats> periodicTasks = new TreeMap<>();
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "MiddlewareStats{topics=%d, messages=%d, subscribers=%d, periodicTasks=%d}",
+                    topicCount, totalMessages, activeSubscribers, periodicTasks.size()
+            );
+        }
+    }
+
+    /**
+     * Percentiles de latence d'un topic et de ses subscribers.
+     */
+    public static class TopicLatencyStats {
+        public final LatencyHistogram.Snapshot publishToEnqueue;
+        public final LatencyHistogram.Snapshot enqueueToDispatch;
+        public final LatencyHistogram.Snapshot handlerExecution;
+        public final Map<String, LatencyHistogram.Snapshot> handlerBySubscriber = new TreeMap<>();
+
+        TopicLatencyStats(Topic topic) {
+            TopicMetrics metrics = topic.getMetrics();
+            this.publishToEnqueue = metrics.getPublishToEnqueue().snapshot();
+            this.enqueueToDispatch = metrics.getEnqueueToDispatch().snapshot();
+            this.handlerExecution = metrics.getHandlerExecution().snapshot();
+
+            for (Subscription subscription : topic.getSubscriptions()) {
+                handlerBySubscriber.put(subscription.getSubscriber().getSubscriberId(),
+                        subscription.getHandlerLatency().snapshot());
+            }
+        }
 
         @Override
         public String toString() {
             return String.format(
-                    "MiddlewareStats{topics=%d, messages=%d, subscribers=%d}",
-                    topicCount, totalMessages, activeSubscribers
+                    "TopicLatencyStats{publish→enqueue=%s, enqueue→dispatch=%s, handler=%s}",
+                    publishToEnqueue, enqueueToDispatch, handlerExecution
             );
         }
     }
@@ -0,0 +1,304 @@
+package fr.telecom.middleware.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import fr.telecom.middleware.core.Middleware;
+import fr.telecom.middleware.fault.RecoveryManager;
+import fr.telecom.middleware.fault.StandbyReplica;
+import fr.telecom.middleware.fault.StandbyReplicator;
+import fr.telecom.middleware.metrics.DashboardFeed;
+import fr.telecom.middleware.metrics.DashboardServer;
+import fr.telecom.middleware.qos.QoS;
+import fr.telecom.middleware.realtime.AdmissionController;
+import fr.telecom.middleware.realtime.WaitStrategy;
+import fr.telecom.middleware.transport.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+
+/**
+ * Chargeur de configuration pour le middleware.
+ */
+public class ConfigLoader {
+    private static final Logger logger = LoggerFactory.getLogger(ConfigLoader.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** Élément racine du fichier de configuration. */
+    public static final String ROOT_ELEMENT = "middleware";
+
+    /**
+     * Charge la configuration depuis un fichier JSON du classpath. Le
+     * contenu peut être enveloppé dans un élément racine
+     * {@value #ROOT_ELEMENT}.
+     */
+    public static MiddlewareConfig loadConfig(String configFile) {
+        try {
+            InputStream is = ConfigLoader.class.getClassLoader().getResourceAsStream(configFile);
+            if (is == null) {
+                logger.warn("Fichier de configuration {} non trouvé, utilisation des valeurs par défaut", configFile);
+                return createDefaultConfig();
+            }
+
+            JsonNode root = objectMapper.readTree(is);
+            if (root.has(ROOT_ELEMENT)) {
+                root = root.get(ROOT_ELEMENT);
+            }
+            MiddlewareConfig config = objectMapper.treeToValue(root, MiddlewareConfig.class);
+            logger.info("Configuration chargée depuis {}", configFile);
+            return config;
+
+        } catch (Exception e) {
+            logger.error("Erreur lors du chargement de la configuration, utilisation des valeurs par défaut", e);
+            return createDefaultConfig();
+        }
+    }
+
+    /**
+     * Applique une configuration à un middleware : limite mémoire, mode
+     * temps-réel, stratégie d'attente, politique d'admission, tolérance aux
+     * pannes (détection et débit de rattrapage), puis
+     * création des topics configurés (QoS, quotas d'historique et
+     * éviction) qui n'existent pas encore et de leurs boucles dédiées.
+     */
+    public static void configure(Middleware middleware, MiddlewareConfig config) {
+        if (config.getMaxMemoryKB() > 0) {
+            middleware.setMaxMemoryKB(config.getMaxMemoryKB());
+        }
+        middleware.setRealtimeEnabled(config.isRealtimeEnabled());
+        // Avant le démarrage des boucles temps-réel
+        middleware.setWaitStrategy(convertWaitStrategy(config.getRealtime()));
+        middleware.setAdmissionPolicy(convertAdmissionPolicy(config.getRealtime()));
+        MiddlewareConfig.FaultToleranceConfig faultConfig = config.getFaultTolerance();
+        if (faultConfig != null) {
+            middleware.getFaultDetector().setPhiThreshold(faultConfig.getPhiThreshold());
+            RecoveryManager recoveryManager = middleware.getRecoveryManager();
+            recoveryManager.setReplayThreads(faultConfig.getReplayThreads());
+            recoveryManager.setReplayRate(faultConfig.getReplayRatePerSecond(),
+                    faultConfig.getReplayBurst());
+        }
+        if (config.getTopics() != null) {
+            for (MiddlewareConfig.TopicConfig topicConfig : config.getTopics()) {
+                if (middleware.getTopic(topicConfig.getName()) == null) {
+                    middleware.createTopic(topicConfig.getName(), convertToQoS(topicConfig.getQos()));
+                }
+            }
+        }
+        MiddlewareConfig.RealtimeConfig realtimeConfig = config.getRealtime();
+        if (realtimeConfig != null && realtimeConfig.getEventLoopTopics() != null) {
+            for (String topicName : realtimeConfig.getEventLoopTopics()) {
+                middleware.dedicateEventLoop(topicName);
+            }
+        }
+        logger.info("Configuration '{}' appliquée", config.getName());
+    }
+
+    /**
+     * Crée une configuration par défaut.
+     */
+    private static MiddlewareConfig createDefaultConfig() {
+        MiddlewareConfig config = new MiddlewareConfig();
+        config.setName("PubSub-Realtime-Middleware");
+        config.setVersion("1.0.0");
+        config.setMaxMemoryKB(512);
+        config.setRealtimeEnabled(true);
+        config.setDefaultThreadPoolSize(4);
+
+        return config;
+    }
+
+    /**
+     * Convertit la politique d'admission configurée (WARN par défaut).
+     */
+    public static AdmissionController.Policy convertAdmissionPolicy(
+            MiddlewareConfig.RealtimeConfig realtimeConfig) {
+        if (realtimeConfig == null || realtimeConfig.getAdmissionPolicy() == null) {
+            return AdmissionController.Policy.WARN;
+        }
+        return AdmissionController.Policy.valueOf(
+                realtimeConfig.getAdmissionPolicy());
+    }
+
+    /**
+     * Convertit la stratégie d'attente configurée (BLOCKING par défaut).
+     */
+    public static WaitStrategy.Type convertWaitStrategy(
+            MiddlewareConfig.RealtimeConfig realtimeConfig) {
+        if (realtimeConfig == null || realtimeConfig.getWaitStrategy() == null) {
+            return WaitStrategy.Type.BLOCKING;
+        }
+        return WaitStrategy.Type.valueOf(
+                realtimeConfig.getWaitStrategy());
+    }
+
+    /**
+     * Crée le transport mémoire partagée configuré et lui applique ses
+     * exports et imports, ou null si aucun répertoire n'est configuré.
+     */
+    public static SharedMemoryTransport createSharedMemoryTransport(
+            Middleware middleware,
+            MiddlewareConfig.TransportConfig transportConfig) throws IOException {
+        if (transportConfig == null || transportConfig.getSharedMemoryDir() == null) {
+            return null;
+        }
+        Path directory = Paths.get(transportConfig.getSharedMemoryDir());
+        SharedMemoryTransport transport = transportConfig.getNodeName() == null
+                ? new SharedMemoryTransport(middleware, directory)
+                : new SharedMemoryTransport(middleware, directory,
+                        transportConfig.getNodeName(),
+                        transportConfig.getRingSlots() > 0 ? transportConfig.getRingSlots()
+                                : SharedMemoryRing.DEFAULT_SLOT_COUNT,
+                        transportConfig.getRingSlotSize() > 0 ? transportConfig.getRingSlotSize()
+                                : SharedMemoryRing.DEFAULT_SLOT_SIZE);
+        if (transportConfig.getExportTopics() != null) {
+            for (String topicName : transportConfig.getExportTopics()) {
+                transport.exportTopic(topicName);
+            }
+        }
+        if (transportConfig.getImportTopics() != null) {
+            for (String topicName : transportConfig.getImportTopics()) {
+                transport.importTopic(topicName);
+            }
+        }
+        return transport;
+    }
+
+    /**
+     * Crée le pont TCP configuré : écoute sur {@code bridgePort} (si non
+     * nul) à l'adresse {@code bridgeBindAddress} (boucle locale par
+     * défaut), connexion aux pairs {@code hôte:port} et topics fédérés.
+     * Null si aucun topic n'est fédéré.
+     */
+    public static TcpBridge createTcpBridge(
+            Middleware middleware,
+            MiddlewareConfig.TransportConfig transportConfig) throws IOException {
+        if (transportConfig == null || transportConfig.getFederatedTopics() == null
+                || transportConfig.getFederatedTopics().isEmpty()) {
+            return null;
+        }
+        String nodeName = transportConfig.getNodeName() != null
+                ? transportConfig.getNodeName() : "pid" + ProcessHandle.current().pid();
+        TcpBridge bridge =
+                new TcpBridge(middleware, nodeName,
+                        transportConfig.getSummaryBits() > 0 ? transportConfig.getSummaryBits()
+                                : TopicBloomFilter.DEFAULT_BITS,
+                        transportConfig.getSummaryHashes() > 0 ? transportConfig.getSummaryHashes()
+                                : TopicBloomFilter.DEFAULT_HASHES);
+        for (String topicName : transportConfig.getFederatedTopics()) {
+            bridge.federate(topicName);
+        }
+        if (transportConfig.getBridgePort() > 0) {
+            bridge.bind(transportConfig.getBridgeBindAddress(), transportConfig.getBridgePort());
+        }
+        if (transportConfig.getBridgePeers() != null) {
+            for (String peer : transportConfig.getBridgePeers()) {
+                int separator = peer.lastIndexOf(':');
+                bridge.connect(peer.substring(0, separator),
+                        Integer.parseInt(peer.substring(separator + 1)));
+            }
+        }
+        return bridge;
+    }
+
+    /**
+     * Démarre le dashboard sur {@code dashboardPort}, un instantané toutes
+     * les {@code monitoringIntervalMs} ; null si les métriques sont
+     * désactivées ou le port nul.
+     */
+    public static DashboardServer createDashboardServer(
+            Middleware middleware,
+            MiddlewareConfig.PerformanceConfig performanceConfig) throws Exception {
+        if (performanceConfig == null || !performanceConfig.isEnableMetrics()
+                || performanceConfig.getDashboardPort() <= 0) {
+            return null;
+        }
+        long intervalMs = performanceConfig.getMonitoringIntervalMs() > 0
+                ? performanceConfig.getMonitoringIntervalMs()
+                : DashboardFeed.DEFAULT_INTERVAL_MS;
+        DashboardServer server =
+                new DashboardServer(middleware,
+                        performanceConfig.getDashboardPort(), intervalMs);
+        server.start();
+        return server;
+    }
+
+    /**
+     * Démarre la réplication vers le secours {@code standbyAddress} si le
+     * rôle configuré est PRIMARY ; null sinon.
+     */
+    public static StandbyReplicator createStandbyReplicator(
+            Middleware middleware,
+            MiddlewareConfig.FaultToleranceConfig faultConfig, String nodeName) {
+        if (faultConfig == null || !"PRIMARY".equalsIgnoreCase(faultConfig.getReplicationRole())) {
+            return null;
+        }
+        String address = faultConfig.getStandbyAddress();
+        int separator = address.lastIndexOf(':');
+        StandbyReplicator replicator =
+                new StandbyReplicator(middleware, nodeName,
+                        faultConfig.getReplicationIntervalMs(),
+                        faultConfig.getReplicationHeartbeatMs());
+        replicator.connect(address.substring(0, separator),
+                Integer.parseInt(address.substring(separator + 1)));
+        return replicator;
+    }
+
+    /**
+     * Met le middleware en secours, à l'écoute sur {@code standbyAddress}
+     * ({@code hôte:port}), si le rôle configuré est STANDBY ; null sinon.
+     */
+    public static StandbyReplica createStandbyReplica(
+            Middleware middleware,
+            MiddlewareConfig.FaultToleranceConfig faultConfig, String nodeName)
+            throws IOException {
+        if (faultConfig == null || !"STANDBY".equalsIgnoreCase(faultConfig.getReplicationRole())) {
+            return null;
+        }
+        String address = faultConfig.getStandbyAddress();
+        int separator = address.lastIndexOf(':');
+        StandbyReplica replica =
+                new StandbyReplica(middleware, nodeName,
+                        faultConfig.getFailoverTimeoutMs());
+        replica.bind(separator > 0 ? address.substring(0, separator) : null,
+                Integer.parseInt(address.substring(separator + 1)));
+        return replica;
+    }
+
+    /**
+     * Convertit une configuration JSON en objet QoS.
+     */
+    public static QoS convertToQoS(MiddlewareConfig.QoSConfig qosConfig) {
+        QoS.Reliability reliability =
+                QoS.Reliability.valueOf(qosConfig.getReliability());
+
+        QoS.Priority priority =
+                QoS.Priority.valueOf(qosConfig.getPriority());
+
+        QoS.EvictionPolicy evictionPolicy =
+                qosConfig.getEvictionPolicy() != null
+                        ? QoS.EvictionPolicy.valueOf(qosConfig.getEvictionPolicy())
+                        : QoS.EvictionPolicy.FIFO;
+
+        QoS.RedundancyMode redundancyMode =
+                qosConfig.getRedundancyMode() != null
+                        ? QoS.RedundancyMode.valueOf(qosConfig.getRedundancyMode())
+                        : QoS.RedundancyMode.SHARED_PATH;
+
+        return new QoS.Builder()
+                .reliability(reliability)
+                .priority(priority)
+                .deadlineMs(qosConfig.getDeadlineMs())
+                .maxLatencyMs(qosConfig.getMaxLatencyMs())
+                .redundancyLevel(qosConfig.getRedundancyLevel())
+                .redundancyMode(redundancyMode)
+                .persistence(qosConfig.isPersistence())
+                .publishRateHz(qosConfig.getPublishRateHz())
+                .historySize(qosConfig.getHistorySize())
+                .maxHistoryKB(qosConfig.getMaxHistoryKB())
+                .evictionPolicy(evictionPolicy)
+                .historyTtlMs(qosConfig.getHistoryTtlMs())
+                .reservedMemoryKB(qosConfig.getReservedMemoryKB())
+                .build();
+    }
+}
\ No newline at end of file
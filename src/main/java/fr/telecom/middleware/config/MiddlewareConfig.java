@@ -0,0 +1,408 @@
+package fr.telecom.middleware.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+/**
+ * Configuration du middleware chargée depuis JSON.
+ */
+public class MiddlewareConfig {
+
+    @JsonProperty("name")
+    private String name;
+
+    @JsonProperty("version")
+    private String version;
+
+    @JsonProperty("maxMemoryKB")
+    private int maxMemoryKB;
+
+    @JsonProperty("realtimeEnabled")
+    private boolean realtimeEnabled;
+
+    @JsonProperty("defaultThreadPoolSize")
+    private int defaultThreadPoolSize;
+
+    @JsonProperty("performance")
+    private PerformanceConfig performance;
+
+    @JsonProperty("topics")
+    private List<TopicConfig> topics;
+
+    @JsonProperty("faultTolerance")
+    private FaultToleranceConfig faultTolerance;
+
+    @JsonProperty("realtime")
+    private RealtimeConfig realtime;
+
+    @JsonProperty("transport")
+    private TransportConfig transport;
+
+    // Getters et Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getVersion() { return version; }
+    public void setVersion(String version) { this.version = version; }
+
+    public int getMaxMemoryKB() { return maxMemoryKB; }
+    public void setMaxMemoryKB(int maxMemoryKB) { this.maxMemoryKB = maxMemoryKB; }
+
+    public boolean isRealtimeEnabled() { return realtimeEnabled; }
+    public void setRealtimeEnabled(boolean realtimeEnabled) { this.realtimeEnabled = realtimeEnabled; }
+
+    public int getDefaultThreadPoolSize() { return defaultThreadPoolSize; }
+    public void setDefaultThreadPoolSize(int defaultThreadPoolSize) { this.defaultThreadPoolSize = defaultThreadPoolSize; }
+
+    public PerformanceConfig getPerformance() { return performance; }
+    public void setPerformance(PerformanceConfig performance) { this.performance = performance; }
+
+    public List<TopicConfig> getTopics() { return topics; }
+    public void setTopics(List<TopicConfig> topics) { this.topics = topics; }
+
+    public FaultToleranceConfig getFaultTolerance() { return faultTolerance; }
+    public void setFaultTolerance(FaultToleranceConfig faultTolerance) { this.faultTolerance = faultTolerance; }
+
+    public RealtimeConfig getRealtime() { return realtime; }
+    public void setRealtime(RealtimeConfig realtime) { this.realtime = realtime; }
+
+    public TransportConfig getTransport() { return transport; }
+    public void setTransport(TransportConfig transport) { this.transport = transport; }
+
+    // Classes internes pour la configuration
+    public static class PerformanceConfig {
+        @JsonProperty("monitoringIntervalMs")
+        private int monitoringIntervalMs;
+
+        @JsonProperty("enableWorstCaseAnalysis")
+        private boolean enableWorstCaseAnalysis;
+
+        @JsonProperty("logLevel")
+        private String logLevel;
+
+        @JsonProperty("enableMetrics")
+        private boolean enableMetrics;
+
+        @JsonProperty("dashboardPort")
+        private int dashboardPort;
+
+        public int getMonitoringIntervalMs() { return monitoringIntervalMs; }
+        public void setMonitoringIntervalMs(int monitoringIntervalMs) { this.monitoringIntervalMs = monitoringIntervalMs; }
+
+        public boolean isEnableWorstCaseAnalysis() { return enableWorstCaseAnalysis; }
+        public void setEnableWorstCaseAnalysis(boolean enableWorstCaseAnalysis) { this.enableWorstCaseAnalysis = enableWorstCaseAnalysis; }
+
+        public String getLogLevel() { return logLevel; }
+        public void setLogLevel(String logLevel) { this.logLevel = logLevel; }
+
+        public boolean isEnableMetrics() { return enableMetrics; }
+        public void setEnableMetrics(boolean enableMetrics) { this.enableMetrics = enableMetrics; }
+
+        public int getDashboardPort() { return dashboardPort; }
+        public void setDashboardPort(int dashboardPort) { this.dashboardPort = dashboardPort; }
+    }
+
+    public static class TopicConfig {
+        @JsonProperty("name")
+        private String name;
+
+        @JsonProperty("description")
+        private String description;
+
+        @JsonProperty("qos")
+        private QoSConfig qos;
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public String getDescription() { return description; }
+        public void setDescription(String description) { this.description = description; }
+
+        public QoSConfig getQos() { return qos; }
+        public void setQos(QoSConfig qos) { this.qos = qos; }
+    }
+
+    public static class QoSConfig {
+        @JsonProperty("reliability")
+        private String reliability;
+
+        @JsonProperty("priority")
+        private String priority;
+
+        @JsonProperty("deadlineMs")
+        private int deadlineMs;
+
+        @JsonProperty("maxLatencyMs")
+        private int maxLatencyMs;
+
+        @JsonProperty("redundancyLevel")
+        private int redundancyLevel;
+
+        @JsonProperty("redundancyMode")
+        private String redundancyMode = "SHARED_PATH";
+
+        @JsonProperty("persistence")
+        private boolean persistence;
+
+        @JsonProperty("publishRateHz")
+        private int publishRateHz;
+
+        @JsonProperty("historySize")
+        private int historySize = 50;
+
+        @JsonProperty("maxHistoryKB")
+        private int maxHistoryKB;
+
+        @JsonProperty("evictionPolicy")
+        private String evictionPolicy = "FIFO";
+
+        @JsonProperty("historyTtlMs")
+        private long historyTtlMs;
+
+        @JsonProperty("reservedMemoryKB")
+        private int reservedMemoryKB;
+
+        public String getReliability() { return reliability; }
+        public void setReliability(String reliability) { this.reliability = reliability; }
+
+        public String getPriority() { return priority; }
+        public void setPriority(String priority) { this.priority = priority; }
+
+        public int getDeadlineMs() { return deadlineMs; }
+        public void setDeadlineMs(int deadlineMs) { this.deadlineMs = deadlineMs; }
+
+        public int getMaxLatencyMs() { return maxLatencyMs; }
+        public void setMaxLatencyMs(int maxLatencyMs) { this.maxLatencyMs = maxLatencyMs; }
+
+        public int getRedundancyLevel() { return redundancyLevel; }
+        public void setRedundancyLevel(int redundancyLevel) { this.redundancyLevel = redundancyLevel; }
+
+        public String getRedundancyMode() { return redundancyMode; }
+        public void setRedundancyMode(String redundancyMode) { this.redundancyMode = redundancyMode; }
+
+        public boolean isPersistence() { return persistence; }
+        public void setPersistence(boolean persistence) { this.persistence = persistence; }
+
+        public int getPublishRateHz() { return publishRateHz; }
+        public void setPublishRateHz(int publishRateHz) { this.publishRateHz = publishRateHz; }
+
+        public int getHistorySize() { return historySize; }
+        public void setHistorySize(int historySize) { this.historySize = historySize; }
+
+        public int getMaxHistoryKB() { return maxHistoryKB; }
+        public void setMaxHistoryKB(int maxHistoryKB) { this.maxHistoryKB = maxHistoryKB; }
+
+        public String getEvictionPolicy() { return evictionPolicy; }
+        public void setEvictionPolicy(String evictionPolicy) { this.evictionPolicy = evictionPolicy; }
+
+        public long getHistoryTtlMs() { return historyTtlMs; }
+        public void setHistoryTtlMs(long historyTtlMs) { this.historyTtlMs = historyTtlMs; }
+
+        public int getReservedMemoryKB() { return reservedMemoryKB; }
+        public void setReservedMemoryKB(int reservedMemoryKB) { this.reservedMemoryKB = reservedMemoryKB; }
+    }
+
+    public static class FaultToleranceConfig {
+        @JsonProperty("enableFaultDetection")
+        private boolean enableFaultDetection;
+
+        @JsonProperty("subscriberTimeoutMs")
+        private int subscriberTimeoutMs;
+
+        @JsonProperty("maxFailureCount")
+        private int maxFailureCount;
+
+        @JsonProperty("enableRecovery")
+        private boolean enableRecovery;
+
+        @JsonProperty("recoveryBufferSize")
+        private int recoveryBufferSize;
+
+        @JsonProperty("phiThreshold")
+        private double phiThreshold = 8.0;
+
+        @JsonProperty("replayThreads")
+        private int replayThreads = 2;
+
+        @JsonProperty("replayRatePerSecond")
+        private double replayRatePerSecond = 2000;
+
+        @JsonProperty("replayBurst")
+        private int replayBurst = 32;
+
+        @JsonProperty("replicationRole")
+        private String replicationRole = "NONE";
+
+        @JsonProperty("standbyAddress")
+        private String standbyAddress;
+
+        @JsonProperty("failoverTimeoutMs")
+        private long failoverTimeoutMs = 500;
+
+        @JsonProperty("replicationIntervalMs")
+        private long replicationIntervalMs = 5;
+
+        @JsonProperty("replicationHeartbeatMs")
+        private long replicationHeartbeatMs = 50;
+
+        public boolean isEnableFaultDetection() { return enableFaultDetection; }
+        public void setEnableFaultDetection(boolean enableFaultDetection) { this.enableFaultDetection = enableFaultDetection; }
+
+        public int getSubscriberTimeoutMs() { return subscriberTimeoutMs; }
+        public void setSubscriberTimeoutMs(int subscriberTimeoutMs) { this.subscriberTimeoutMs = subscriberTimeoutMs; }
+
+        public int getMaxFailureCount() { return maxFailureCount; }
+        public void setMaxFailureCount(int maxFailureCount) { this.maxFailureCount = maxFailureCount; }
+
+        public boolean isEnableRecovery() { return enableRecovery; }
+        public void setEnableRecovery(boolean enableRecovery) { this.enableRecovery = enableRecovery; }
+
+        public int getRecoveryBufferSize() { return recoveryBufferSize; }
+        public void setRecoveryBufferSize(int recoveryBufferSize) { this.recoveryBufferSize = recoveryBufferSize; }
+
+        public double getPhiThreshold() { return phiThreshold; }
+        public void setPhiThreshold(double phiThreshold) { this.phiThreshold = phiThreshold; }
+
+        public int getReplayThreads() { return replayThreads; }
+        public void setReplayThreads(int replayThreads) { this.replayThreads = replayThreads; }
+
+        public double getReplayRatePerSecond() { return replayRatePerSecond; }
+        public void setReplayRatePerSecond(double replayRatePerSecond) { this.replayRatePerSecond = replayRatePerSecond; }
+
+        public int getReplayBurst() { return replayBurst; }
+        public void setReplayBurst(int replayBurst) { this.replayBurst = replayBurst; }
+
+        public String getReplicationRole() { return replicationRole; }
+        public void setReplicationRole(String replicationRole) { this.replicationRole = replicationRole; }
+
+        public String getStandbyAddress() { return standbyAddress; }
+        public void setStandbyAddress(String standbyAddress) { this.standbyAddress = standbyAddress; }
+
+        public long getFailoverTimeoutMs() { return failoverTimeoutMs; }
+        public void setFailoverTimeoutMs(long failoverTimeoutMs) { this.failoverTimeoutMs = failoverTimeoutMs; }
+
+        public long getReplicationIntervalMs() { return replicationIntervalMs; }
+        public void setReplicationIntervalMs(long replicationIntervalMs) { this.replicationIntervalMs = replicationIntervalMs; }
+
+        public long getReplicationHeartbeatMs() { return replicationHeartbeatMs; }
+        public void setReplicationHeartbeatMs(long replicationHeartbeatMs) { this.replicationHeartbeatMs = replicationHeartbeatMs; }
+    }
+
+    public static class RealtimeConfig {
+        @JsonProperty("enableDeadlineMonitoring")
+        private boolean enableDeadlineMonitoring;
+
+        @JsonProperty("deadlineCheckIntervalMs")
+        private int deadlineCheckIntervalMs;
+
+        @JsonProperty("enableScheduler")
+        private boolean enableScheduler;
+
+        @JsonProperty("schedulerThreadPriority")
+        private String schedulerThreadPriority;
+
+        @JsonProperty("admissionPolicy")
+        private String admissionPolicy;
+
+        @JsonProperty("waitStrategy")
+        private String waitStrategy;
+
+        @JsonProperty("eventLoopTopics")
+        private List<String> eventLoopTopics;
+
+        public boolean isEnableDeadlineMonitoring() { return enableDeadlineMonitoring; }
+        public void setEnableDeadlineMonitoring(boolean enableDeadlineMonitoring) { this.enableDeadlineMonitoring = enableDeadlineMonitoring; }
+
+        public int getDeadlineCheckIntervalMs() { return deadlineCheckIntervalMs; }
+        public void setDeadlineCheckIntervalMs(int deadlineCheckIntervalMs) { this.deadlineCheckIntervalMs = deadlineCheckIntervalMs; }
+
+        public boolean isEnableScheduler() { return enableScheduler; }
+        public void setEnableScheduler(boolean enableScheduler) { this.enableScheduler = enableScheduler; }
+
+        public String getSchedulerThreadPriority() { return schedulerThreadPriority; }
+        public void setSchedulerThreadPriority(String schedulerThreadPriority) { this.schedulerThreadPriority = schedulerThreadPriority; }
+
+        public String getAdmissionPolicy() { return admissionPolicy; }
+        public void setAdmissionPolicy(String admissionPolicy) { this.admissionPolicy = admissionPolicy; }
+
+        public String getWaitStrategy() { return waitStrategy; }
+        public void setWaitStrategy(String waitStrategy) { this.waitStrategy = waitStrategy; }
+
+        public List<String> getEventLoopTopics() { return eventLoopTopics; }
+        public void setEventLoopTopics(List<String> eventLoopTopics) { this.eventLoopTopics = eventLoopTopics; }
+    }
+
+    public static class TransportConfig {
+        @JsonProperty("sharedMemoryDir")
+        private String sharedMemoryDir;
+
+        @JsonProperty("nodeName")
+        private String nodeName;
+
+        @JsonProperty("ringSlots")
+        private int ringSlots;
+
+        @JsonProperty("ringSlotSize")
+        private int ringSlotSize;
+
+        @JsonProperty("exportTopics")
+        private List<String> exportTopics;
+
+        @JsonProperty("importTopics")
+        private List<String> importTopics;
+
+        @JsonProperty("bridgePort")
+        private int bridgePort;
+
+        @JsonProperty("bridgeBindAddress")
+        private String bridgeBindAddress;
+
+        @JsonProperty("bridgePeers")
+        private List<String> bridgePeers;
+
+        @JsonProperty("federatedTopics")
+        private List<String> federatedTopics;
+
+        @JsonProperty("summaryBits")
+        private int summaryBits;
+
+        @JsonProperty("summaryHashes")
+        private int summaryHashes;
+
+        public String getSharedMemoryDir() { return sharedMemoryDir; }
+        public void setSharedMemoryDir(String sharedMemoryDir) { this.sharedMemoryDir = sharedMemoryDir; }
+
+        public String getNodeName() { return nodeName; }
+        public void setNodeName(String nodeName) { this.nodeName = nodeName; }
+
+        public int getRingSlots() { return ringSlots; }
+        public void setRingSlots(int ringSlots) { this.ringSlots = ringSlots; }
+
+        public int getRingSlotSize() { return ringSlotSize; }
+        public void setRingSlotSize(int ringSlotSize) { this.ringSlotSize = ringSlotSize; }
+
+        public List<String> getExportTopics() { return exportTopics; }
+        public void setExportTopics(List<String> exportTopics) { this.exportTopics = exportTopics; }
+
+        public List<String> getImportTopics() { return importTopics; }
+        public void setImportTopics(List<String> importTopics) { this.importTopics = importTopics; }
+
+        public int getBridgePort() { return bridgePort; }
+        public void setBridgePort(int bridgePort) { this.bridgePort = bridgePort; }
+
+        public String getBridgeBindAddress() { return bridgeBindAddress; }
+        public void setBridgeBindAddress(String bridgeBindAddress) { this.bridgeBindAddress = bridgeBindAddress; }
+
+        public List<String> getBridgePeers() { return bridgePeers; }
+        public void setBridgePeers(List<String> bridgePeers) { this.bridgePeers = bridgePeers; }
+
+        public List<String> getFederatedTopics() { return federatedTopics; }
+        public void setFederatedTopics(List<String> federatedTopics) { this.federatedTopics = federatedTopics; }
+
+        public int getSummaryBits() { return summaryBits; }
+        public void setSummaryBits(int summaryBits) { this.summaryBits = summaryBits; }
+
+        public int getSummaryHashes() { return summaryHashes; }
+        public void setSummaryHashes(int summaryHashes) { this.summaryHashes = summaryHashes; }
+    }
+}
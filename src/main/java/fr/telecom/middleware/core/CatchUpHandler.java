@@ -0,0 +1,18 @@
+package fr.telecom.middleware.core;
+
+/**
+ * Rattrape un abonnement qui a manqué des messages.
+ *
+ * <p>Appelé sous le verrou du topic, alors que la file de l'abonnement est
+ * réservée : les publications suivantes s'y accumulent derrière le
+ * rattrapage. L'implémentation doit rendre la main vite, rejouer la plage
+ * ailleurs (via {@link Topic#redeliver}) puis appeler
+ * {@link Topic#finishCatchUp} pour libérer la file.</p>
+ */
+public interface CatchUpHandler {
+
+    /**
+     * Rejoue les séquences {@code fromSequence..toSequence}, dans l'ordre.
+     */
+    void catchUp(Topic topic, Subscription subscription, long fromSequence, long toSequence);
+}
@@ -0,0 +1,177 @@
+package fr.telecom.middleware.core;
+
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.realtime.ReleaseTimeline;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.slf4j.*;
+
+/**
+ * Publication cyclique d'un flux sur un topic.
+ *
+ * <p>À chaque activation de la {@link ReleaseTimeline} du Scheduler, le
+ * fournisseur produit un payload publié sur le topic, avec le rang du
+ * cycle en header {@value #CYCLE_HEADER}. Les flux ne consomment ni thread
+ * ni tâche de timer propre : des milliers de flux partagent la même
+ * ligne de temps. La deadline éventuelle court depuis la libération.</p>
+ */
+public class CyclicPublisher {
+    private static final Logger logger = LoggerFactory.getLogger(CyclicPublisher.class);
+
+    /** Header portant le rang du cycle. */
+    public static final String CYCLE_HEADER = "cycle";
+
+    private final Middleware middleware;
+    private final String topicName;
+    private final Supplier<?> payloadSupplier;
+    private final int deadlineMs;
+    private final AtomicLong failures = new AtomicLong(0);
+    private volatile ReleaseTimeline.Release release;
+
+    private CyclicPublisher(Builder builder) {
+        this.middleware = builder.middleware;
+        this.topicName = builder.topicName;
+        this.payloadSupplier = builder.payloadSupplier;
+        this.deadlineMs = builder.deadlineMs;
+    }
+
+    private void publish(long cycle, long releaseNanos) {
+        Message message;
+        try {
+            message = Message.builder(topicName)
+                    .payload(payloadSupplier.get())
+                    .header(CYCLE_HEADER, cycle)
+                    .build();
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            logger.error("Payload indisponible pour '{}' (cycle {}): {}",
+                    topicName, cycle, e.getMessage());
+            return;
+        }
+        middleware.publish(topicName, message, deadlineMs, releaseNanos);
+    }
+
+    /**
+     * Arrête le flux.
+     */
+    public void stop() {
+        release.cancel();
+        middleware.removeCyclicPublisher(this);
+        logger.info("Publisher cyclique arrêté sur '{}'", topicName);
+    }
+
+    public boolean isRunning() {
+        return !release.isCancelled();
+    }
+
+    public String getTopicName() {
+        return topicName;
+    }
+
+    public long getPeriodNanos() {
+        return release.getPeriodNanos();
+    }
+
+    /**
+     * Phase effective sur la grille de la ligne de temps.
+     */
+    public long getPhaseNanos() {
+        return release.getPhaseNanos();
+    }
+
+    public int getDeadlineMs() {
+        return deadlineMs;
+    }
+
+    /**
+     * Cycles publiés.
+     */
+    public long getPublishedCount() {
+        return release.getReleaseCount() - failures.get();
+    }
+
+    /**
+     * Cycles sautés par une ligne de temps en retard.
+     */
+    public long getMissedCount() {
+        return release.getMissedCount();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CyclicPublisher{topic=%s, %s}", topicName, release);
+    }
+
+    /**
+     * Builder d'un publisher cyclique ; obtenu par
+     * {@link Middleware#cyclicPublisher(String)}.
+     */
+    public static class Builder {
+        private final Middleware middleware;
+        private final String topicName;
+        private Supplier<?> payloadSupplier;
+        private long periodNanos;
+        private long offsetNanos = ReleaseTimeline.AUTO_PHASE;
+        private int deadlineMs = 0;
+
+        Builder(Middleware middleware, String topicName) {
+            this.middleware = middleware;
+            this.topicName = topicName;
+        }
+
+        public Builder payload(Supplier<?> payloadSupplier) {
+            this.payloadSupplier = payloadSupplier;
+            return this;
+        }
+
+        public Builder periodMs(long periodMs) {
+            return period(periodMs, TimeUnit.MILLISECONDS);
+        }
+
+        public Builder period(long period, TimeUnit unit) {
+            this.periodNanos = unit.toNanos(period);
+            return this;
+        }
+
+        /**
+         * Phase imposée sur la grille ; par défaut, la ligne de temps
+         * choisit la moins chargée.
+         */
+        public Builder offsetMs(long offsetMs) {
+            this.offsetNanos = TimeUnit.MILLISECONDS.toNanos(offsetMs);
+            return this;
+        }
+
+        /**
+         * Deadline de bout en bout depuis la libération ; par défaut celle
+         * du topic.
+         */
+        public Builder deadlineMs(int deadlineMs) {
+            this.deadlineMs = deadlineMs;
+            return this;
+        }
+
+        /**
+         * Enregistre le flux sur la ligne de temps.
+         */
+        public CyclicPublisher start() {
+            if (payloadSupplier == null) {
+                throw new IllegalStateException("Payload non défini pour '" + topicName + "'");
+            }
+            if (middleware.getTopic(topicName) == null) {
+                throw new IllegalArgumentException("Topic '" + topicName + "' non trouvé");
+            }
+            CyclicPublisher publisher = new CyclicPublisher(this);
+            publisher.release = middleware.getScheduler().getReleaseTimeline()
+                    .register(topicName, periodNanos, offsetNanos, publisher::publish);
+            middleware.addCyclicPublisher(publisher);
+            logger.info("Publisher cyclique démarré: {}", publisher);
+            return publisher;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package fr.telecom.middleware.core;
+
+import fr.telecom.middleware.api.Message;
+
+/**
+ * Observe les livraisons d'un abonnement.
+ *
+ * <p>Appelé sur le thread de livraison, avant et après le handler du
+ * subscriber : les implémentations doivent rester brèves et ne pas
+ * lever d'exception.</p>
+ */
+public interface DeliveryObserver {
+
+    /**
+     * Le handler va être appelé.
+     */
+    void onDeliveryStart(Subscription subscription, Message message);
+
+    /**
+     * Le handler a rendu la main.
+     *
+     * @param handlerNanos durée de la livraison, réessais compris
+     * @param success      false si le handler a échoué
+     */
+    void onDeliveryEnd(Subscription subscription, Message message, long handlerNanos,
+                       boolean success);
+}
@@ -4,6 +4,9 @@ import fr.telecom.middleware.qos.*;
 import fr.telecom.middleware.realtime.*;
 import fr.telecom.middleware.fault.*;
 import fr.telecom.middleware.api.*;
+import fr.telecom.middleware.memory.*;
+import fr.telecom.middleware.metrics.WcetProfiler;
+import fr.telecom.middleware.metrics.WcetProfiler.Stage;
 import java.util.*;
 import java.util.concurrent.*;
 import org.slf4j.*;
@@ -15,20 +18,52 @@ import org.slf4j.*;
 public class Middleware {
     private static final Logger logger = LoggerFactory.getLogger(Middleware.class);
 
+    /**
+     * Modes de dispatch des publications.
+     */
+    public enum DispatchMode {
+        SYNCHRONOUS,   // Livraison sur le thread de publication
+        EDF            // Earliest-Deadline-First sur les threads temps-réel
+    }
+
+    private static final int EDF_WORKER_COUNT = 2;
+
     private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+    private final Map<String, EventLoop> topicLoops = new ConcurrentHashMap<>();
+    private final List<CyclicPublisher> cyclicPublishers = new CopyOnWriteArrayList<>();
+    private final List<SubscriptionListener> subscriptionListeners = new CopyOnWriteArrayList<>();
     private final ExecutorService executor;
     private final RedundancyManager redundancyManager;
     private final DeadlineMonitor deadlineMonitor;
     private final FaultDetector faultDetector;
+    private final RecoveryManager recoveryManager;
+    private final Scheduler scheduler;
+    private final EdfDispatcher edfDispatcher;
+    private final AdmissionController admissionController;
+    private final WcetProfiler profiler;
+    private final MemoryBudget memoryBudget;
+    private final MemoryManager memoryManager;
 
     private int maxMemoryKB = 1024;
     private boolean realtimeEnabled = true;
+    private volatile DispatchMode dispatchMode = DispatchMode.SYNCHRONOUS;
 
     public Middleware() {
         this.executor = Executors.newFixedThreadPool(4);
         this.redundancyManager = new RedundancyManager();
         this.deadlineMonitor = new DeadlineMonitor();
         this.faultDetector = new FaultDetector();
+        this.recoveryManager = new RecoveryManager();
+        this.scheduler = new Scheduler();
+        this.edfDispatcher = new EdfDispatcher(scheduler, EDF_WORKER_COUNT, this::dispatch);
+        this.admissionController = new AdmissionController();
+        this.profiler = new WcetProfiler();
+        this.redundancyManager.setProfiler(profiler);
+        this.memoryBudget = new MemoryBudget(maxMemoryKB);
+        this.redundancyManager.setMemoryBudget(memoryBudget);
+        this.recoveryManager.setMemoryBudget(memoryBudget);
+        this.edfDispatcher.setMemoryBudget(memoryBudget);
+        this.memoryManager = new MemoryManager(memoryBudget, redundancyManager, recoveryManager);
 
         logger.info("Middleware initialisé");
         logger.info("Mémoire maximale configurée: {} KB", maxMemoryKB);
@@ -36,6 +71,8 @@ public class Middleware {
 
     /**
      * Crée un nouveau topic avec une QoS spécifique.
+     *
+     * @return le topic, ou null s'il est refusé par le contrôle d'admission
      */
     public Topic createTopic(String name, QoS qos) {
         if (topics.containsKey(name)) {
@@ -43,7 +80,15 @@ public class Middleware {
             return topics.get(name);
         }
 
+        if (!admissionController.admit(name, qos, topics.values(), getDispatchProcessors())) {
+            return null;
+        }
+
         Topic topic = new Topic(name, qos);
+        topic.setProfiler(profiler);
+        topic.setMemoryBudget(memoryBudget);
+        topic.setDiversionHandler(recoveryManager::bufferForSubscriber);
+        topic.setCatchUpHandler(recoveryManager::catchUp);
         topics.put(name, topic);
 
         if (qos.hasDeadline()) {
@@ -58,34 +103,119 @@ public class Middleware {
      * Publie un message sur un topic.
      */
     public void publish(String topicName, Message message) {
+        publish(topicName, message, 0);
+    }
+
+    /**
+     * Publie avec une deadline propre au message ; 0 pour celle du topic.
+     */
+    void publish(String topicName, Message message, int deadlineMs) {
+        publish(topicName, message, deadlineMs, 0);
+    }
+
+    /**
+     * Publie sans livrer sur le thread appelant : la livraison passe par la
+     * boucle dédiée du topic ou, à défaut, par le dispatch EDF, démarré au
+     * besoin. Destiné aux threads qu'un handler lent ne doit pas bloquer,
+     * comme le sélecteur d'un pont.
+     */
+    public void publishDetached(String topicName, Message message) {
+        publish(topicName, message, 0, 0, true);
+    }
+
+    /**
+     * Publie une libération cyclique : la deadline court depuis
+     * {@code releaseNanos} ({@code System.nanoTime}), 0 pour maintenant.
+     * Une libération n'est jamais livrée sur le thread appelant (la ligne
+     * de temps), comme avec {@link #publishDetached}.
+     */
+    void publish(String topicName, Message message, int deadlineMs, long releaseNanos) {
+        publish(topicName, message, deadlineMs, releaseNanos, releaseNanos != 0);
+    }
+
+    private void publish(String topicName, Message message, int deadlineMs, long releaseNanos,
+                         boolean detached) {
+        long startNanos = System.nanoTime();
+        message.setPublishNanos(startNanos);
+
         Topic topic = topics.get(topicName);
+        long lookupNanos = System.nanoTime();
+        profiler.record(Stage.TOPIC_LOOKUP, lookupNanos - startNanos, topics.size());
         if (topic == null) {
             logger.error("Topic '{}' non trouvé", topicName);
             return;
         }
 
-        // Vérification mémoire
-        if (getCurrentMemoryUsage() > maxMemoryKB) {
-            logger.warn("Limite mémoire atteinte ({} KB), nettoyage...", maxMemoryKB);
-            cleanupMemory();
+        // Vérification mémoire : octets retenus par le middleware lui-même
+        if (memoryBudget.isOverBudget()) {
+            memoryManager.reclaim(topics.values());
         }
+        long memoryNanos = System.nanoTime();
+        profiler.record(Stage.MEMORY_CHECK, memoryNanos - lookupNanos, topics.size());
 
         // Vérification deadline
-        if (realtimeEnabled && topic.getQoS().hasDeadline()) {
-            if (!deadlineMonitor.checkPublishDeadline(topic, message)) {
+        int effectiveDeadlineMs = deadlineMs > 0 ? deadlineMs : topic.getQoS().getDeadlineMs();
+        if (realtimeEnabled && effectiveDeadlineMs > 0) {
+            boolean accepted = deadlineMonitor.checkPublishDeadline(topic, message,
+                    effectiveDeadlineMs, releaseNanos != 0 ? releaseNanos : startNanos);
+            profiler.record(Stage.DEADLINE_REGISTRATION, System.nanoTime() - memoryNanos,
+                    deadlineMonitor.getActiveDeadlineCount());
+            if (!accepted) {
                 logger.error("Deadline manquée pour la publication sur '{}'", topicName);
                 return;
             }
         }
 
-        // Publication avec redondance si nécessaire
+        EventLoop topicLoop = topicLoops.get(topicName);
+        if (topicLoop != null) {
+            message.setEnqueueNanos(System.nanoTime());
+            topicLoop.execute(() -> dispatch(topic, message));
+        } else if (dispatchMode == DispatchMode.EDF) {
+            edfDispatcher.submit(topic, message);
+        } else if (detached) {
+            // Un handler lent ne retarde pas le thread appelant
+            edfDispatcher.start();
+            edfDispatcher.submit(topic, message);
+        } else {
+            dispatch(topic, message);
+        }
+        profiler.record(Stage.PUBLISH, System.nanoTime() - startNanos, topic.getSubscriberCount());
+
+        logger.debug("Message publié sur '{}': {}", topicName, message.getId());
+    }
+
+    /**
+     * Prépare un publisher cyclique sur un topic, cadencé par la ligne de
+     * temps du Scheduler.
+     */
+    public CyclicPublisher.Builder cyclicPublisher(String topicName) {
+        return new CyclicPublisher.Builder(this, topicName);
+    }
+
+    void addCyclicPublisher(CyclicPublisher publisher) {
+        cyclicPublishers.add(publisher);
+    }
+
+    void removeCyclicPublisher(CyclicPublisher publisher) {
+        cyclicPublishers.remove(publisher);
+    }
+
+    /**
+     * Publishers cycliques en cours.
+     */
+    public List<CyclicPublisher> getCyclicPublishers() {
+        return Collections.unmodifiableList(cyclicPublishers);
+    }
+
+    /**
+     * Livre un message au topic, avec redondance si nécessaire.
+     */
+    private void dispatch(Topic topic, Message message) {
         if (topic.getQoS().getRedundancyLevel() > 0) {
             redundancyManager.sendWithRedundancy(topic, message);
         } else {
             topic.publish(message);
         }
-
-        logger.debug("Message publié sur '{}': {}", topicName, message.getId());
     }
 
     /**
@@ -94,27 +224,75 @@ public class Middleware {
     public void subscribe(String topicName, Subscriber subscriber) {
         Topic topic = topics.get(topicName);
         if (topic != null) {
+            boolean added = topic.findSubscription(subscriber) == null;
             topic.addSubscriber(subscriber);
+            if (added) {
+                Subscription subscription = topic.findSubscription(subscriber);
+                subscription.getCircuitBreaker().addStateListener((breaker, from, to) ->
+                        onCircuitStateChange(topic, subscription, to));
+            }
             faultDetector.monitorSubscriber(subscriber, topic);
             logger.info("Subscriber '{}' abonné à '{}'",
                     subscriber.getSubscriberId(), topicName);
+            if (added) {
+                for (SubscriptionListener listener : subscriptionListeners) {
+                    listener.onSubscribe(topic, subscriber);
+                }
+            }
         } else {
             logger.error("Impossible de s'abonner: topic '{}' non trouvé", topicName);
         }
     }
 
+    /**
+     * Un disjoncteur qui s'ouvre marque le début des messages manqués par
+     * le subscriber ; la première publication acceptée après le délai
+     * d'ouverture déclenche le rattrapage de cette plage, dont le premier
+     * message rejoué sert de sonde.
+     */
+    private void onCircuitStateChange(Topic topic, Subscription subscription,
+                                      CircuitBreaker.State to) {
+        String subscriberId = subscription.getSubscriber().getSubscriberId();
+        if (to == CircuitBreaker.State.OPEN) {
+            logger.warn("Disjoncteur ouvert pour '{}' sur '{}'", subscriberId, topic.getName());
+        } else if (to == CircuitBreaker.State.CLOSED) {
+            logger.info("Disjoncteur refermé pour '{}' sur '{}'", subscriberId, topic.getName());
+        }
+    }
+
     /**
      * Désabonne un subscriber d'un topic.
      */
     public void unsubscribe(String topicName, Subscriber subscriber) {
         Topic topic = topics.get(topicName);
         if (topic != null) {
+            faultDetector.stopMonitoring(subscriber, topic);
+            Subscription subscription = topic.findSubscription(subscriber);
+            if (subscription != null) {
+                recoveryManager.discardDiverted(subscription);
+            }
             topic.removeSubscriber(subscriber);
             logger.info("Subscriber '{}' désabonné de '{}'",
                     subscriber.getSubscriberId(), topicName);
+            if (subscription != null) {
+                for (SubscriptionListener listener : subscriptionListeners) {
+                    listener.onUnsubscribe(topic, subscriber);
+                }
+            }
         }
     }
 
+    /**
+     * Enregistre un listener des abonnements et désabonnements.
+     */
+    public void addSubscriptionListener(SubscriptionListener listener) {
+        subscriptionListeners.add(listener);
+    }
+
+    public void removeSubscriptionListener(SubscriptionListener listener) {
+        subscriptionListeners.remove(listener);
+    }
+
     /**
      * Récupère un topic par son nom.
      */
@@ -130,20 +308,27 @@ public class Middleware {
     }
 
     /**
-     * Calcule l'utilisation mémoire actuelle.
+     * Analyse l'ordonnançabilité de l'ensemble des topics à deadline,
+     * avec les WCET de handlers mesurés jusqu'ici.
+     */
+    public AdmissionController.Result checkSchedulability() {
+        return admissionController.analyze(topics.values(), getDispatchProcessors());
+    }
+
+    /**
+     * Nombre de threads servant les livraisons dans le mode courant.
      */
-    private int getCurrentMemoryUsage() {
-        Runtime runtime = Runtime.getRuntime();
-        long usedMemory = runtime.totalMemory() - runtime.freeMemory();
-        return (int) (usedMemory / 1024);
+    private int getDispatchProcessors() {
+        return dispatchMode == DispatchMode.EDF ? EDF_WORKER_COUNT : 1;
     }
 
     /**
-     * Nettoie la mémoire en supprimant les anciens messages.
+     * Calcule l'empreinte mémoire estimée des topics, historiques,
+     * abonnements et gestionnaires.
      */
-    private void cleanupMemory() {
-        topics.values().forEach(Topic::cleanupOldMessages);
-        System.gc();
+    public FootprintReport getFootprint() {
+        return new MemoryFootprint().measure(topics.values(),
+                redundancyManager, recoveryManager, deadlineMonitor);
     }
 
     /**
@@ -151,8 +336,12 @@ public class Middleware {
      */
     public void shutdown() {
         executor.shutdown();
+        edfDispatcher.shutdown();
+        scheduler.shutdown();
         deadlineMonitor.shutdown();
         faultDetector.shutdown();
+        recoveryManager.shutdown();
+        redundancyManager.shutdown();
 
         try {
             if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -169,12 +358,72 @@ public class Middleware {
     // Getters et Setters
     public void setMaxMemoryKB(int maxMemoryKB) {
         this.maxMemoryKB = maxMemoryKB;
+        memoryBudget.setLimitKB(maxMemoryKB);
     }
 
     public void setRealtimeEnabled(boolean realtimeEnabled) {
         this.realtimeEnabled = realtimeEnabled;
     }
 
+    /**
+     * Choisit le mode de dispatch. Le mode EDF démarre les threads
+     * de dispatch temps-réel du Scheduler.
+     */
+    public void setDispatchMode(DispatchMode dispatchMode) {
+        if (dispatchMode == DispatchMode.EDF) {
+            edfDispatcher.start();
+        }
+        this.dispatchMode = dispatchMode;
+        logger.info("Mode de dispatch: {}", dispatchMode);
+    }
+
+    /**
+     * Stratégie d'attente des threads temps-réel démarrés ensuite (EDF,
+     * boucles dédiées).
+     */
+    public void setWaitStrategy(WaitStrategy.Type type) {
+        scheduler.setWaitStrategy(WaitStrategies.forType(type));
+    }
+
+    /**
+     * Sert un topic par sa propre boucle d'événements : ses livraisons ne
+     * partagent plus de thread avec les autres topics, quel que soit le
+     * mode de dispatch, et gardent l'ordre de publication.
+     *
+     * @return la boucle, ou null si le topic n'existe pas
+     */
+    public EventLoop dedicateEventLoop(String topicName) {
+        if (!topics.containsKey(topicName)) {
+            logger.error("Boucle dédiée impossible: topic '{}' non trouvé", topicName);
+            return null;
+        }
+        return topicLoops.computeIfAbsent(topicName,
+                name -> scheduler.startEventLoop("Topic-Loop-" + name));
+    }
+
+    /**
+     * Boucle dédiée d'un topic, null s'il est servi par le dispatch commun.
+     */
+    public EventLoop getEventLoop(String topicName) {
+        return topicLoops.get(topicName);
+    }
+
+    public void setAdmissionPolicy(AdmissionController.Policy policy) {
+        admissionController.setPolicy(policy);
+    }
+
+    public AdmissionController.Policy getAdmissionPolicy() {
+        return admissionController.getPolicy();
+    }
+
+    public DispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
+
+    public EdfDispatcher getEdfDispatcher() {
+        return edfDispatcher;
+    }
+
     public int getMaxMemoryKB() {
         return maxMemoryKB;
     }
@@ -182,4 +431,28 @@ public class Middleware {
     public boolean isRealtimeEnabled() {
         return realtimeEnabled;
     }
-}
\ No newline at end of file
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    public WcetProfiler getWcetProfiler() {
+        return profiler;
+    }
+
+    public DeadlineMonitor getDeadlineMonitor() {
+        return deadlineMonitor;
+    }
+
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public RecoveryManager getRecoveryManager() {
+        return recoveryManager;
+    }
+
+    public FaultDetector getFaultDetector() {
+        return faultDetector;
+    }
+}
@@ -0,0 +1,183 @@
+package fr.telecom.middleware.core;
+
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.fault.CircuitBreaker;
+import fr.telecom.middleware.metrics.LatencyHistogram;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Abonnement d'un subscriber à un topic et son état de livraison.
+ *
+ * <p>Les livraisons passent par une file propre à l'abonnement, servie
+ * par un seul thread à la fois : le handler n'est jamais appelé en
+ * parallèle ni dans le désordre, même quand plusieurs threads publient
+ * sur le topic.</p>
+ */
+public class Subscription {
+    private final Subscriber subscriber;
+    private final LatencyHistogram handlerLatency;
+    private final CircuitBreaker circuitBreaker;
+    private final AtomicLong deliveredSequence;
+    private final AtomicLong gapFromSequence = new AtomicLong(0);
+    private final List<DeliveryObserver> observers = new CopyOnWriteArrayList<>();
+    private final Queue<Topic.QueuedDelivery> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean laneBusy = new AtomicBoolean(false);
+    private volatile boolean catchingUp;
+
+    Subscription(Subscriber subscriber, CircuitBreaker circuitBreaker, long startSequence) {
+        this.subscriber = subscriber;
+        this.handlerLatency = new LatencyHistogram();
+        this.circuitBreaker = circuitBreaker;
+        this.deliveredSequence = new AtomicLong(startSequence);
+
+        // À l'ouverture du disjoncteur, tout ce qui suit la dernière
+        // livraison est manqué
+        circuitBreaker.addStateListener((breaker, from, to) -> {
+            if (to == CircuitBreaker.State.OPEN) {
+                markGap(deliveredSequence.get() + 1);
+            }
+        });
+    }
+
+    public Subscriber getSubscriber() {
+        return subscriber;
+    }
+
+    /**
+     * Temps d'exécution du handler de ce subscriber.
+     */
+    public LatencyHistogram getHandlerLatency() {
+        return handlerLatency;
+    }
+
+    /**
+     * Disjoncteur qui isole ce subscriber s'il devient lent ou défaillant.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Plus haute séquence livrée avec succès à ce subscriber.
+     */
+    public long getDeliveredSequence() {
+        return deliveredSequence.get();
+    }
+
+    void advanceCursor(long sequence) {
+        deliveredSequence.accumulateAndGet(sequence, Math::max);
+    }
+
+    /**
+     * Première séquence manquée à rattraper, 0 si aucune.
+     */
+    public long getGapFromSequence() {
+        return gapFromSequence.get();
+    }
+
+    /**
+     * Déclare manqués les messages à partir de {@code fromSequence} ; un
+     * trou déjà ouvert plus tôt est conservé.
+     */
+    public void markGap(long fromSequence) {
+        gapFromSequence.accumulateAndGet(fromSequence,
+                (current, from) -> current == 0 ? from : Math.min(current, from));
+    }
+
+    /**
+     * Prend en charge le rattrapage : retourne le début du trou et le
+     * referme.
+     */
+    public long takeGap() {
+        return gapFromSequence.getAndSet(0);
+    }
+
+    /**
+     * Livraisons en attente dans la file de l'abonnement.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    void enqueue(Topic.QueuedDelivery delivery) {
+        pending.offer(delivery);
+    }
+
+    Topic.QueuedDelivery pollPending() {
+        return pending.poll();
+    }
+
+    boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Retire de la file les livraisons de séquence au moins
+     * {@code fromSequence}.
+     */
+    List<Topic.QueuedDelivery> removePending(long fromSequence) {
+        List<Topic.QueuedDelivery> removed = new ArrayList<>();
+        Iterator<Topic.QueuedDelivery> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            Topic.QueuedDelivery delivery = iterator.next();
+            if (delivery.message.getSequence() >= fromSequence) {
+                iterator.remove();
+                removed.add(delivery);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Réserve la file : un seul thread livre à la fois. La réservation
+     * peut être rendue par un autre thread.
+     *
+     * @return false si un autre thread livre déjà
+     */
+    boolean tryAcquireLane() {
+        return laneBusy.compareAndSet(false, true);
+    }
+
+    void releaseLane() {
+        laneBusy.set(false);
+    }
+
+    /**
+     * Vrai pendant un rattrapage : la file est réservée et les nouvelles
+     * livraisons attendent derrière lui.
+     */
+    public boolean isCatchingUp() {
+        return catchingUp;
+    }
+
+    void setCatchingUp(boolean catchingUp) {
+        this.catchingUp = catchingUp;
+    }
+
+    public void addObserver(DeliveryObserver observer) {
+        observers.add(observer);
+    }
+
+    public void removeObserver(DeliveryObserver observer) {
+        observers.remove(observer);
+    }
+
+    void notifyDeliveryStart(Message message) {
+        for (DeliveryObserver observer : observers) {
+            observer.onDeliveryStart(this, message);
+        }
+    }
+
+    void notifyDeliveryEnd(Message message, long handlerNanos, boolean success) {
+        for (DeliveryObserver observer : observers) {
+            observer.onDeliveryEnd(this, message, handlerNanos, success);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Subscription{" + subscriber.getSubscriberId() + "}";
+    }
+}
@@ -0,0 +1,14 @@
+package fr.telecom.middleware.core;
+
+/**
+ * Notifié des abonnements et désabonnements sur les topics du middleware.
+ *
+ * <p>Appelé sur le thread qui s'abonne ou se désabonne, après la
+ * modification du topic.</p>
+ */
+public interface SubscriptionListener {
+
+    void onSubscribe(Topic topic, Subscriber subscriber);
+
+    void onUnsubscribe(Topic topic, Subscriber subscriber);
+}
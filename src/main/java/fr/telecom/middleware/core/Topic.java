@@ -1,9 +1,18 @@
 package fr.telecom.middleware.core;
 
+import fr.telecom.middleware.qos.Deadline;
 import fr.telecom.middleware.qos.QoS;
+import fr.telecom.middleware.qos.RedundancyGroup;
 import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.fault.CircuitBreaker;
+import fr.telecom.middleware.memory.MemoryBudget;
+import fr.telecom.middleware.memory.MessageHistory;
+import fr.telecom.middleware.metrics.TopicMetrics;
+import fr.telecom.middleware.metrics.WcetProfiler;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import org.slf4j.*;
 
 /**
@@ -14,82 +23,372 @@ public class Topic {
 
     private final String name;
     private final QoS qos;
-    private final List<Subscriber> subscribers;
-    private final Queue<Message> messageHistory;
-    private final int maxHistorySize = 50;
+    private final List<Subscription> subscribers;
+    private final MessageHistory history;
+    private final TopicMetrics metrics;
+    private volatile WcetProfiler profiler;
+    private volatile BiConsumer<Subscription, Message> diversionHandler;
+    private volatile CatchUpHandler catchUpHandler;
 
-    private long messageCount = 0;
-    private long lastPublishTime = 0;
+    private volatile long messageCount = 0;
+    private volatile long lastPublishTime = 0;
 
     public Topic(String name, QoS qos) {
         this.name = name;
         this.qos = qos;
         this.subscribers = new CopyOnWriteArrayList<>();
-        this.messageHistory = new ConcurrentLinkedQueue<>();
+        this.history = new MessageHistory(qos);
+        this.metrics = new TopicMetrics();
     }
 
     /**
      * Publie un message à tous les subscribers.
+     *
+     * <p>Le topic n'est verrouillé que le temps d'enregistrer le message et
+     * de le placer dans la file de chaque abonnement ; les handlers
+     * s'exécutent hors verrou. Un handler bloqué ne retient que la file de
+     * son abonnement : les publications suivantes continuent d'atteindre
+     * les autres subscribers.</p>
+     *
+     * <p>Pour une copie redondante ({@link RedundancyGroup}), seule la
+     * première arrivée entre dans l'historique ; chaque subscriber n'exécute
+     * son handler que pour la première copie qu'il réclame.</p>
      */
-    public synchronized void publish(Message message) {
-        message.setPublishTimestamp(System.currentTimeMillis());
-        messageCount++;
-        lastPublishTime = System.currentTimeMillis();
+    public void publish(Message message) {
+        RedundancyGroup group = message.getRedundancyGroup();
+
+        // Mise en file : entrée du topic, ou file EDF si le message y est passé
+        long enqueueNanos = message.getEnqueueNanos();
+        if (enqueueNanos > 0) {
+            message.setEnqueueNanos(0);
+        } else {
+            enqueueNanos = System.nanoTime();
+        }
+
+        Fanout fanout = new Fanout(message);
+        if (group == null) {
+            enqueueAll(message, enqueueNanos, fanout);
+            for (Subscription subscription : subscribers) {
+                drain(subscription);
+            }
+        } else {
+            arrive(message, enqueueNanos);
+            // Chaque abonnement est réclamé juste avant d'être servi : une
+            // copie bloquée sur un handler laisse les suivants aux autres
+            for (Subscription subscription : subscribers) {
+                if (claim(subscription, message, enqueueNanos, fanout)) {
+                    drain(subscription);
+                }
+            }
+        }
+        fanout.finish();
+    }
+
+    /**
+     * Enregistre le message puis le place dans la file de chaque abonnement,
+     * dans l'ordre des séquences.
+     */
+    private synchronized void enqueueAll(Message message, long enqueueNanos, Fanout fanout) {
+        recordPublish(message, enqueueNanos);
+        for (Subscription subscription : subscribers) {
+            admit(subscription, message, enqueueNanos, fanout);
+        }
+    }
+
+    /**
+     * Arrivée d'une copie redondante : la première l'enregistre. Les
+     * suivantes attendent la fin de cet enregistrement et ne livrent
+     * jamais sans séquence.
+     */
+    private synchronized void arrive(Message message, long enqueueNanos) {
+        RedundancyGroup group = message.getRedundancyGroup();
+        if (group.arrive()) {
+            recordPublish(message, enqueueNanos);
+            group.setReceivers(subscribers.size());
+        }
+    }
+
+    /**
+     * Réclame un abonnement pour une copie et la place dans sa file ; la
+     * file garde ainsi l'ordre des réclamations.
+     *
+     * @return false si une autre copie l'a déjà réclamé
+     */
+    private synchronized boolean claim(Subscription subscription, Message message,
+                                       long enqueueNanos, Fanout fanout) {
+        if (!message.getRedundancyGroup().claim(subscription)) {
+            return false;
+        }
+        admit(subscription, message, enqueueNanos, fanout);
+        return true;
+    }
+
+    /**
+     * Place une livraison dans la file d'un abonnement, ou la détourne si
+     * son disjoncteur la refuse : la file d'un subscriber isolé ne grossit
+     * pas. Un abonnement qui a manqué des messages n'est pas livré en
+     * direct : le message déclenche son rattrapage, qui le couvre.
+     */
+    private void admit(Subscription subscription, Message message,
+                       long enqueueNanos, Fanout fanout) {
+        CatchUpHandler handler = catchUpHandler;
+        if (handler != null && subscription.getGapFromSequence() > 0) {
+            if (!startCatchUp(subscription, handler)) {
+                divert(subscription, message);
+            }
+            return;
+        }
+        if (subscription.isCatchingUp()) {
+            // La sonde est rejouée : le disjoncteur reste à moitié ouvert
+            fanout.add();
+            subscription.enqueue(new QueuedDelivery(message, enqueueNanos, fanout));
+            return;
+        }
+        if (!subscription.getCircuitBreaker().allowRequest()) {
+            divert(subscription, message);
+            return;
+        }
+        fanout.add();
+        subscription.enqueue(new QueuedDelivery(message, enqueueNanos, fanout));
+    }
+
+    /**
+     * Démarre le rattrapage d'un abonnement si sa file est libre et si son
+     * disjoncteur l'autorise (la première livraison rejouée sert de sonde).
+     * La plage est fixée ici, sous le verrou : du début du trou jusqu'au
+     * dernier message enregistré. Les publications suivantes sont mises en
+     * file derrière le rattrapage, qui garde la file jusqu'à
+     * {@link #finishCatchUp}.
+     */
+    private boolean startCatchUp(Subscription subscription, CatchUpHandler handler) {
+        long from = subscription.getGapFromSequence();
+        if (from == 0 || from > messageCount || !subscription.tryAcquireLane()) {
+            return false;
+        }
+        if (!subscription.getCircuitBreaker().allowRequest()) {
+            subscription.releaseLane();
+            return false;
+        }
+        subscription.takeGap();
+        subscription.setCatchingUp(true);
+        // Déjà couvertes par la plage rejouée
+        for (QueuedDelivery queued : subscription.removePending(from)) {
+            queued.fanout.finish();
+        }
+        handler.catchUp(this, subscription, from, messageCount);
+        return true;
+    }
+
+    /**
+     * Demande le rattrapage d'un abonnement qui a manqué des messages. Sans
+     * effet si sa file est occupée ou son disjoncteur ouvert : la prochaine
+     * publication le déclenchera.
+     *
+     * @return true si le rattrapage a démarré
+     */
+    public synchronized boolean requestCatchUp(Subscription subscription) {
+        CatchUpHandler handler = catchUpHandler;
+        return handler != null && startCatchUp(subscription, handler);
+    }
+
+    /**
+     * Reprend un abonnement à partir de {@code fromSequence} (reprise après
+     * bascule) : les messages suivants lui sont rejoués dans l'ordre, avant
+     * toute livraison en direct.
+     *
+     * @return true si le rattrapage a démarré
+     */
+    public synchronized boolean rewind(Subscription subscription, long fromSequence) {
+        subscription.markGap(fromSequence);
+        return requestCatchUp(subscription);
+    }
+
+    /**
+     * Termine un rattrapage et libère la file de l'abonnement ; les
+     * publications accumulées derrière lui sont alors livrées.
+     *
+     * @param resumeFrom première séquence non rejouée si le rattrapage a
+     *                   été interrompu, 0 s'il est complet
+     */
+    public void finishCatchUp(Subscription subscription, long resumeFrom) {
+        if (resumeFrom > 0) {
+            subscription.markGap(resumeFrom);
+        }
+        // Sonde accordée mais aucune livraison rejouée
+        subscription.getCircuitBreaker().releaseProbe();
+        subscription.setCatchingUp(false);
+        subscription.releaseLane();
+        drain(subscription);
+    }
 
-        // Ajout à l'historique
-        messageHistory.add(message);
-        if (messageHistory.size() > maxHistorySize) {
-            messageHistory.poll();
+    private void recordPublish(Message message, long enqueueNanos) {
+        if (message.getPublishNanos() > 0) {
+            metrics.recordPublishToEnqueue(enqueueNanos - message.getPublishNanos());
         }
+        record(message);
+    }
 
-        // Distribution aux subscribers
-        int deliveredCount = 0;
-        for (Subscriber subscriber : subscribers) {
+    /**
+     * Sert la file d'un abonnement si aucun autre thread ne le fait ; la
+     * file est revérifiée après libération pour ne laisser aucune
+     * livraison en plan.
+     */
+    private void drain(Subscription subscription) {
+        while (subscription.hasPending() && subscription.tryAcquireLane()) {
             try {
-                deliverMessage(subscriber, message);
-                deliveredCount++;
-            } catch (Exception e) {
-                logger.error("Erreur de livraison à {}: {}",
-                        subscriber.getSubscriberId(), e.getMessage());
+                QueuedDelivery delivery;
+                while ((delivery = subscription.pollPending()) != null) {
+                    deliverQueued(subscription, delivery);
+                }
+            } finally {
+                subscription.releaseLane();
+            }
+        }
+    }
+
+    private void deliverQueued(Subscription subscription, QueuedDelivery queued) {
+        Message message = queued.message;
+        RedundancyGroup group = message.getRedundancyGroup();
+        try {
+            if (subscription.getCircuitBreaker().getState() == CircuitBreaker.State.OPEN
+                    || subscription.getGapFromSequence() > 0) {
+                // Isolé pendant l'attente, par exemple derrière un handler
+                // bloqué : le rattrapage suivant le livrera dans l'ordre
+                divert(subscription, message);
+            } else if (deliverTo(subscription, message, queued.enqueueNanos)) {
+                queued.fanout.delivered();
+                if (group != null) {
+                    group.recordDelivery(message.getDeadline());
+                }
+            } else if (group != null && qos.getReliability() != QoS.Reliability.AT_MOST_ONCE) {
+                // Une copie suivante pourra retenter, sauf en AT_MOST_ONCE
+                group.release(subscription);
             }
+        } finally {
+            queued.fanout.finish();
+        }
+    }
+
+    /**
+     * Livre un message rejoué à un abonnement pendant son rattrapage ;
+     * l'appelant tient la file de l'abonnement (voir {@link CatchUpHandler}).
+     *
+     * @return true si le handler a traité le message, false s'il a échoué
+     *         ou si le disjoncteur s'est rouvert
+     */
+    public boolean redeliver(Subscription subscription, Message message) {
+        if (subscription.getCircuitBreaker().getState() == CircuitBreaker.State.OPEN) {
+            return false;
+        }
+        return deliverTo(subscription, message, System.nanoTime());
+    }
+
+    /**
+     * Appelle le handler d'un abonnement et enregistre le résultat
+     * (observateurs, disjoncteur, métriques).
+     */
+    private boolean deliverTo(Subscription subscription, Message message, long enqueueNanos) {
+        Subscriber subscriber = subscription.getSubscriber();
+        long dispatchNanos = System.nanoTime();
+        metrics.recordEnqueueToDispatch(dispatchNanos - enqueueNanos);
+        subscription.notifyDeliveryStart(message);
+        boolean delivered = false;
+        try {
+            delivered = deliverMessage(subscriber, message);
+        } catch (Exception e) {
+            logger.error("Erreur de livraison à {}: {}",
+                    subscriber.getSubscriberId(), e.getMessage());
+        }
+        long handlerNanos = System.nanoTime() - dispatchNanos;
+        subscription.notifyDeliveryEnd(message, handlerNanos, delivered);
+        if (delivered) {
+            subscription.advanceCursor(message.getSequence());
         }
+        subscription.getCircuitBreaker().recordResult(delivered, handlerNanos);
+        subscription.getHandlerLatency().record(handlerNanos);
+        metrics.recordHandlerExecution(handlerNanos);
+        if (profiler != null) {
+            profiler.record(WcetProfiler.Stage.SUBSCRIBER_DELIVERY, handlerNanos,
+                    WcetProfiler.inputSizeOf(message.getPayload()));
+        }
+        return delivered;
+    }
 
-        logger.debug("Message distribué à {}/{} abonnés sur '{}'",
-                deliveredCount, subscribers.size(), name);
+    /**
+     * Détourne un message refusé par le disjoncteur d'un abonnement.
+     */
+    private void divert(Subscription subscription, Message message) {
+        BiConsumer<Subscription, Message> handler = diversionHandler;
+        if (handler != null) {
+            handler.accept(subscription, message);
+        } else {
+            logger.debug("Disjoncteur ouvert, message écarté pour {}",
+                    subscription.getSubscriber().getSubscriberId());
+        }
+    }
+
+    /**
+     * Numérote le message et l'ajoute à l'historique (quotas et éviction
+     * selon la QoS).
+     */
+    private synchronized void record(Message message) {
+        message.setPublishTimestamp(System.currentTimeMillis());
+        messageCount++;
+        lastPublishTime = System.currentTimeMillis();
+        message.setSequence(messageCount);
+        history.append(messageCount, message);
+    }
+
+    /**
+     * Enregistre dans l'historique un message répliqué depuis un autre
+     * nœud, avec sa séquence d'origine et sans le livrer. Les séquences
+     * déjà atteintes sont ignorées : un renvoi après reconnexion ne crée
+     * pas de doublon.
+     *
+     * @return false si la séquence était déjà atteinte
+     */
+    public synchronized boolean restore(Message message, long sequence) {
+        if (sequence <= messageCount) {
+            return false;
+        }
+        message.setSequence(sequence);
+        messageCount = sequence;
+        lastPublishTime = message.getPublishTimestamp();
+        history.append(sequence, message);
+        return true;
     }
 
     /**
      * Livre un message avec la QoS appropriée.
+     *
+     * @return false si la livraison a échoué sans lever d'exception
      */
-    private void deliverMessage(Subscriber subscriber, Message message) {
+    private boolean deliverMessage(Subscriber subscriber, Message message) {
         switch (qos.getReliability()) {
-            case BEST_EFFORT:
-                subscriber.onMessage(message);
-                break;
-
             case AT_LEAST_ONCE:
-                deliverWithRetry(subscriber, message, 3);
-                break;
-
-            case AT_MOST_ONCE:
-                subscriber.onMessage(message);
-                break;
+                return deliverWithRetry(subscriber, message, 3);
 
             case EXACTLY_ONCE:
                 deliverExactlyOnce(subscriber, message);
-                break;
+                return true;
+
+            case BEST_EFFORT:
+            case AT_MOST_ONCE:
+            default:
+                subscriber.onMessage(message);
+                return true;
         }
     }
 
     /**
      * Livraison avec réessai pour AT_LEAST_ONCE.
      */
-    private void deliverWithRetry(Subscriber subscriber, Message message, int maxRetries) {
+    private boolean deliverWithRetry(Subscriber subscriber, Message message, int maxRetries) {
         for (int attempt = 1; attempt <= maxRetries; attempt++) {
             try {
                 subscriber.onMessage(message);
                 logger.debug("Livraison réussie (tentative {})", attempt);
-                return;
+                return true;
             } catch (Exception e) {
                 logger.warn("Tentative {} échouée pour {}", attempt,
                         subscriber.getSubscriberId());
@@ -106,6 +405,7 @@ public class Topic {
         }
         logger.error("Échec après {} tentatives pour {}",
                 maxRetries, subscriber.getSubscriberId());
+        return false;
     }
 
     /**
@@ -123,8 +423,14 @@ public class Topic {
      * Ajoute un subscriber.
      */
     public void addSubscriber(Subscriber subscriber) {
-        if (!subscribers.contains(subscriber)) {
-            subscribers.add(subscriber);
+        if (findSubscription(subscriber) == null) {
+            // Un handler plus long que la deadline du topic est lent
+            long slowCallMs = qos.hasDeadline()
+                    ? qos.getDeadlineMs() : CircuitBreaker.DEFAULT_SLOW_CALL_MS;
+            // Les messages antérieurs à l'abonnement ne sont pas manqués
+            subscribers.add(new Subscription(subscriber,
+                    new CircuitBreaker(slowCallMs, CircuitBreaker.DEFAULT_OPEN_DURATION_MS),
+                    messageCount));
         }
     }
 
@@ -132,18 +438,92 @@ public class Topic {
      * Supprime un subscriber.
      */
     public void removeSubscriber(Subscriber subscriber) {
-        subscribers.remove(subscriber);
+        subscribers.removeIf(s -> s.getSubscriber().equals(subscriber));
     }
 
     /**
-     * Nettoie les anciens messages de l'historique.
+     * Retrouve l'abonnement d'un subscriber, ou null.
      */
-    public void cleanupOldMessages() {
-        while (messageHistory.size() > maxHistorySize / 2) {
-            messageHistory.poll();
+    public Subscription findSubscription(Subscriber subscriber) {
+        for (Subscription subscription : subscribers) {
+            if (subscription.getSubscriber().equals(subscriber)) {
+                return subscription;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Livraison en attente dans la file d'un abonnement.
+     */
+    static final class QueuedDelivery {
+        final Message message;
+        final long enqueueNanos;
+        final Fanout fanout;
+
+        QueuedDelivery(Message message, long enqueueNanos, Fanout fanout) {
+            this.message = message;
+            this.enqueueNanos = enqueueNanos;
+            this.fanout = fanout;
         }
     }
 
+    /**
+     * Suivi des livraisons d'une publication (ou d'une copie redondante).
+     *
+     * <p>Quand toutes ses livraisons sont terminées, la deadline de bout en
+     * bout est complétée si au moins un handler a traité le message ou s'il
+     * n'y avait aucun abonné à servir, et déclarée manquée si tous les
+     * handlers ont échoué ou si tous les abonnés ont été détournés. Une
+     * copie redondante remet la décision à son groupe.</p>
+     */
+    final class Fanout {
+        private final Message message;
+        // Le passage de publication compte pour une livraison en cours
+        private final AtomicInteger remaining = new AtomicInteger(1);
+        private final AtomicInteger delivered = new AtomicInteger(0);
+        private volatile int targets = 0;
+
+        Fanout(Message message) {
+            this.message = message;
+        }
+
+        void add() {
+            targets++;
+            remaining.incrementAndGet();
+        }
+
+        void delivered() {
+            delivered.incrementAndGet();
+        }
+
+        void finish() {
+            if (remaining.decrementAndGet() != 0) {
+                return;
+            }
+            logger.debug("Message distribué à {}/{} abonnés sur '{}'",
+                    delivered.get(), targets, name);
+            Deadline deadline = message.getDeadline();
+            RedundancyGroup group = message.getRedundancyGroup();
+            if (group != null) {
+                group.copyFinished(deadline);
+            } else if (deadline != null) {
+                if (delivered.get() > 0 || targets == 0) {
+                    deadline.complete();
+                } else {
+                    deadline.markAsMissed();
+                }
+            }
+        }
+    }
+
+    /**
+     * Retire de l'historique les messages dont le TTL est écoulé.
+     */
+    public void cleanupOldMessages() {
+        history.evictExpired(System.currentTimeMillis());
+    }
+
     /**
      * Vérifie si le topic a des subscribers.
      */
@@ -161,11 +541,64 @@ public class Topic {
     }
 
     public List<Subscriber> getSubscribers() {
+        List<Subscriber> result = new ArrayList<>(subscribers.size());
+        for (Subscription subscription : subscribers) {
+            result.add(subscription.getSubscriber());
+        }
+        return result;
+    }
+
+    public List<Subscription> getSubscriptions() {
         return new ArrayList<>(subscribers);
     }
 
+    public TopicMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Rattache l'historique au budget mémoire du middleware.
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        history.setMemoryBudget(memoryBudget);
+    }
+
+    /**
+     * Destination des messages refusés par un disjoncteur ouvert ; sans
+     * destination, ils sont écartés.
+     */
+    public void setDiversionHandler(BiConsumer<Subscription, Message> diversionHandler) {
+        this.diversionHandler = diversionHandler;
+    }
+
+    /**
+     * Rattrapage des abonnements qui ont manqué des messages ; sans
+     * rattrapage, ils reprennent en direct au message suivant.
+     */
+    public void setCatchUpHandler(CatchUpHandler catchUpHandler) {
+        this.catchUpHandler = catchUpHandler;
+    }
+
+    /**
+     * Active le profilage WCET des livraisons de ce topic.
+     */
+    public void setProfiler(WcetProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Copie de l'historique, du plus ancien au plus récent.
+     */
     public Queue<Message> getMessageHistory() {
-        return new ConcurrentLinkedQueue<>(messageHistory);
+        return new ConcurrentLinkedQueue<>(history.values());
+    }
+
+    public MessageHistory getHistory() {
+        return history;
     }
 
     public long getMessageCount() {
@@ -96,7 +96,6 @@ public class CriticalSystemDemo {
 
         PublisherExample enginePublisher = new PublisherExample(middleware, "vehicle/engine/critical");
         PublisherExample telemetryPublisher = new PublisherExample(middleware, "vehicle/telemetry");
-        PublisherExample loggingPublisher = new PublisherExample(middleware, "system/logging");
 
         System.out.println("   ✅ Publishers créés");
         System.out.println();
@@ -109,61 +108,72 @@ public class CriticalSystemDemo {
 
         Thread.sleep(2000);
 
-        // Planificateur pour la simulation
-        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(3);
+        // Flux cycliques : une seule ligne de temps pour tous les capteurs,
+        // les flux de même période sont déphasés automatiquement
+        List<CyclicPublisher> streams = new ArrayList<>();
 
         // 5.1 Données critiques du moteur (toutes les 50ms)
         System.out.println("   🚗 Données critiques moteur (50ms):");
-        scheduler.scheduleAtFixedRate(() -> {
-            double oilPressure = 80 + (Math.random() * 40); // 80-120 psi
-            double coolantTemp = 85 + (Math.random() * 20); // 85-105°C
-
-            enginePublisher.publishSensorData("oil_pressure", oilPressure, "psi");
-            enginePublisher.publishSensorData("coolant_temp", coolantTemp, "°C");
-
-            // Alerte occasionnelle
-            if (Math.random() < 0.05) { // 5% de chance
-                enginePublisher.publishAlert(
-                        "ENGINE_FAULT",
-                        "Pression d'huile anormale détectée",
-                        4
-                );
-            }
-        }, 0, 50, TimeUnit.MILLISECONDS);
+        streams.add(middleware.cyclicPublisher("vehicle/engine/critical")
+                .periodMs(50)
+                .payload(() -> {
+                    // Alerte occasionnelle
+                    if (Math.random() < 0.05) { // 5% de chance
+                        enginePublisher.publishAlert(
+                                "ENGINE_FAULT",
+                                "Pression d'huile anormale détectée",
+                                4
+                        );
+                    }
+                    return new PublisherExample.SensorData(
+                            "oil_pressure", 80 + (Math.random() * 40), "psi"); // 80-120 psi
+                })
+                .start());
+        streams.add(middleware.cyclicPublisher("vehicle/engine/critical")
+                .periodMs(50)
+                .payload(() -> new PublisherExample.SensorData(
+                        "coolant_temp", 85 + (Math.random() * 20), "°C")) // 85-105°C
+                .start());
 
         // 5.2 Données de télémétrie (toutes les 200ms)
         System.out.println("   📊 Données de télémétrie (200ms):");
-        scheduler.scheduleAtFixedRate(() -> {
-            double speed = 60 + (Math.random() * 40); // 60-100 km/h
-            double rpm = 2000 + (Math.random() * 1500); // 2000-3500 RPM
-            double fuelLevel = 30 + (Math.random() * 50); // 30-80%
-
-            telemetryPublisher.publishSensorData("speed", speed, "km/h");
-            telemetryPublisher.publishSensorData("rpm", rpm, "RPM");
-            telemetryPublisher.publishSensorData("fuel_level", fuelLevel, "%");
-
-            // Message d'info
-            if (Math.random() < 0.1) { // 10% de chance
-                telemetryPublisher.publishTestMessage(
-                        String.format("Véhicule en fonctionnement normal. Vitesse: %.0f km/h", speed)
-                );
-            }
-        }, 0, 200, TimeUnit.MILLISECONDS);
+        streams.add(middleware.cyclicPublisher("vehicle/telemetry")
+                .periodMs(200)
+                .payload(() -> {
+                    double speed = 60 + (Math.random() * 40); // 60-100 km/h
+                    // Message d'info
+                    if (Math.random() < 0.1) { // 10% de chance
+                        telemetryPublisher.publishTestMessage(
+                                String.format("Véhicule en fonctionnement normal. Vitesse: %.0f km/h", speed)
+                        );
+                    }
+                    return new PublisherExample.SensorData("speed", speed, "km/h");
+                })
+                .start());
+        streams.add(middleware.cyclicPublisher("vehicle/telemetry")
+                .periodMs(200)
+                .payload(() -> new PublisherExample.SensorData(
+                        "rpm", 2000 + (Math.random() * 1500), "RPM")) // 2000-3500 RPM
+                .start());
+        streams.add(middleware.cyclicPublisher("vehicle/telemetry")
+                .periodMs(200)
+                .payload(() -> new PublisherExample.SensorData(
+                        "fuel_level", 30 + (Math.random() * 50), "%")) // 30-80%
+                .start());
 
         // 5.3 Logging système (toutes les 500ms)
         System.out.println("   📝 Logging système (500ms):");
-        scheduler.scheduleAtFixedRate(() -> {
-            String[] logMessages = {
-                    "Système de communication actif",
-                    "Vérification des capteurs OK",
-                    "Mise à jour des paramètres",
-                    "Sauvegarde des données",
-                    "Rapport de diagnostic généré"
-            };
-
-            String randomLog = logMessages[(int) (Math.random() * logMessages.length)];
-            loggingPublisher.publishTestMessage("[LOG] " + randomLog);
-        }, 0, 500, TimeUnit.MILLISECONDS);
+        String[] logMessages = {
+                "Système de communication actif",
+                "Vérification des capteurs OK",
+                "Mise à jour des paramètres",
+                "Sauvegarde des données",
+                "Rapport de diagnostic généré"
+        };
+        streams.add(middleware.cyclicPublisher("system/logging")
+                .periodMs(500)
+                .payload(() -> "[LOG] " + logMessages[(int) (Math.random() * logMessages.length)])
+                .start());
 
         System.out.println();
         System.out.println("   ⏱️  Simulation en cours pendant 15 secondes...");
@@ -177,8 +187,7 @@ public class CriticalSystemDemo {
         System.out.println("6. 🛑 Arrêt de la Simulation");
         System.out.println("   ".repeat(15));
 
-        scheduler.shutdown();
-        scheduler.awaitTermination(2, TimeUnit.SECONDS);
+        streams.forEach(CyclicPublisher::stop);
 
         middleware.shutdown();
 
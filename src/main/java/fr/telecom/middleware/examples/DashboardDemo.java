@@ -1,8 +1,11 @@
 package fr.telecom.middleware.examples;
 
 import fr.telecom.middleware.core.*;
+import fr.telecom.middleware.metrics.DashboardServer;
 import fr.telecom.middleware.qos.*;
+import fr.telecom.middleware.realtime.*;
 import fr.telecom.middleware.api.Message;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Démonstration avec dashboard WebSocket.
@@ -81,12 +84,34 @@ public class DashboardDemo {
         System.out.println("   ✅ Subscribers configurés");
         System.out.println();
 
+        // Dashboard : page et flux WebSocket des métriques
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        DashboardServer dashboard = new DashboardServer(middleware, port, 500);
+        dashboard.start();
+        System.out.println("   📈 Dashboard: http://localhost:" + dashboard.getPort() + "/");
+        System.out.println();
+
         // 4. Démarrer la simulation
         System.out.println("4. 🔄 Démarrage de la Simulation");
         System.out.println("   La simulation va durer 60 secondes");
         System.out.println("   Messages envoyés dans la console...");
         System.out.println();
 
+        // Boucle de contrôle cyclique : gigue et dépassements suivis
+        Scheduler scheduler = middleware.getScheduler();
+        scheduler.addOverrunListener((task, overrunNanos, missed) ->
+                System.out.println("\n⚠️  Dépassement de " + task.getName() + ": "
+                        + TimeUnit.NANOSECONDS.toMicros(overrunNanos) + " µs"));
+        scheduler.schedulePeriodicTask("engine-control", () -> {
+            double command = 0;
+            for (int k = 0; k < 1000; k++) {
+                command += Math.sin(k) * Math.random();
+            }
+            if (command > 1e9) {
+                System.out.println(command);
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS, PeriodicTask.OverrunPolicy.NOTIFY);
+
         // Simulation simple
         for (int i = 0; i < 60; i++) {
             // Message moteur
@@ -110,6 +135,11 @@ public class DashboardDemo {
                         .header("level", "INFO")
                         .build();
                 middleware.publish("system/logs", logMsg);
+
+                // Tableau de bord des tâches périodiques
+                System.out.println();
+                scheduler.getPeriodicTaskStats().values()
+                        .forEach(stats -> System.out.println("   " + stats));
             }
 
             Thread.sleep(1000); // 1 seconde entre les messages
@@ -123,6 +153,7 @@ public class DashboardDemo {
 
         // 5. Arrêt propre
         System.out.println("5. 🛑 Arrêt de la Simulation");
+        dashboard.stop();
         middleware.shutdown();
 
         System.out.println();
@@ -0,0 +1,222 @@
+package fr.telecom.middleware.fault;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Disjoncteur d'un abonnement : isole un subscriber lent ou défaillant.
+ *
+ * <p>FERMÉ : toutes les livraisons passent et leurs résultats remplissent
+ * une fenêtre glissante. Quand au moins la moitié des {@value #WINDOW_SIZE}
+ * dernières livraisons ont échoué, ou ont dépassé la durée {@code slowCallMs},
+ * le disjoncteur s'OUVRE : les messages sont détournés sans appeler le
+ * handler. Après {@code openDurationMs}, il passe SEMI-OUVERT et laisse
+ * passer une seule livraison de sonde : réussie, elle le referme ; sinon
+ * il se rouvre.</p>
+ */
+public class CircuitBreaker {
+
+    /**
+     * États du disjoncteur.
+     */
+    public enum State {
+        CLOSED,     // Livraisons normales
+        OPEN,       // Livraisons détournées
+        HALF_OPEN   // Une sonde en cours d'essai
+    }
+
+    /**
+     * Notifié à chaque changement d'état, sur le thread qui le provoque.
+     */
+    public interface StateListener {
+        void onStateChange(CircuitBreaker breaker, State from, State to);
+    }
+
+    /** Taille de la fenêtre glissante de résultats. */
+    public static final int WINDOW_SIZE = 20;
+
+    /** Nombre minimal de résultats avant de pouvoir ouvrir. */
+    private static final int MIN_CALLS = 10;
+
+    /** Taux d'échecs ou d'appels lents qui ouvre le disjoncteur. */
+    private static final double TRIP_RATE = 0.5;
+
+    public static final long DEFAULT_SLOW_CALL_MS = 100;
+    public static final long DEFAULT_OPEN_DURATION_MS = 1000;
+
+    private final long slowCallNanos;
+    private final long openDurationNanos;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicBoolean probeInFlight = new AtomicBoolean(false);
+    private final AtomicLong rejectedCount = new AtomicLong(0);
+    private final AtomicLong openCount = new AtomicLong(0);
+    private final List<StateListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile long openedAtNanos;
+
+    // Fenêtre glissante, protégée par this
+    private final boolean[] failed = new boolean[WINDOW_SIZE];
+    private final boolean[] slow = new boolean[WINDOW_SIZE];
+    private int next = 0;
+    private int calls = 0;
+    private int failures = 0;
+    private int slowCalls = 0;
+
+    public CircuitBreaker() {
+        this(DEFAULT_SLOW_CALL_MS, DEFAULT_OPEN_DURATION_MS);
+    }
+
+    public CircuitBreaker(long slowCallMs, long openDurationMs) {
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMs);
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMs);
+    }
+
+    /**
+     * Indique si une livraison peut être tentée. En SEMI-OUVERT, seule la
+     * sonde est autorisée ; son résultat doit être passé à
+     * {@link #recordResult}.
+     */
+    public boolean allowRequest() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openDurationNanos) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            probeInFlight.set(false);
+            transition(State.OPEN, State.HALF_OPEN);
+        }
+        if (state.get() == State.HALF_OPEN && probeInFlight.compareAndSet(false, true)) {
+            return true;
+        }
+        rejectedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Rend une sonde accordée par {@link #allowRequest} mais restée sans
+     * livraison ; sans effet hors de l'état SEMI-OUVERT.
+     */
+    public void releaseProbe() {
+        if (state.get() == State.HALF_OPEN) {
+            probeInFlight.set(false);
+        }
+    }
+
+    /**
+     * Enregistre le résultat d'une livraison autorisée.
+     */
+    public void recordResult(boolean success, long durationNanos) {
+        boolean slowCall = durationNanos > slowCallNanos;
+        State current = state.get();
+
+        if (current == State.HALF_OPEN) {
+            if (success && !slowCall) {
+                reset();
+                transition(State.HALF_OPEN, State.CLOSED);
+            } else {
+                trip(State.HALF_OPEN);
+            }
+            probeInFlight.set(false);
+            return;
+        }
+        if (current == State.OPEN) {
+            // Livraison commencée avant l'ouverture
+            return;
+        }
+
+        boolean shouldTrip;
+        synchronized (this) {
+            if (calls == WINDOW_SIZE) {
+                failures -= failed[next] ? 1 : 0;
+                slowCalls -= slow[next] ? 1 : 0;
+            } else {
+                calls++;
+            }
+            failed[next] = !success;
+            slow[next] = slowCall;
+            failures += success ? 0 : 1;
+            slowCalls += slowCall ? 1 : 0;
+            next = (next + 1) % WINDOW_SIZE;
+            shouldTrip = calls >= MIN_CALLS
+                    && (failures >= TRIP_RATE * calls || slowCalls >= TRIP_RATE * calls);
+        }
+        if (shouldTrip) {
+            trip(State.CLOSED);
+        }
+    }
+
+    /**
+     * Ouvre le disjoncteur sans attendre la fenêtre (subscriber suspecté
+     * par le {@link FaultDetector}).
+     */
+    public void forceOpen() {
+        if (!trip(State.CLOSED)) {
+            trip(State.HALF_OPEN);
+        }
+    }
+
+    private boolean trip(State from) {
+        openedAtNanos = System.nanoTime();
+        if (transition(from, State.OPEN)) {
+            openCount.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void reset() {
+        Arrays.fill(failed, false);
+        Arrays.fill(slow, false);
+        next = 0;
+        calls = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    private boolean transition(State from, State to) {
+        if (!state.compareAndSet(from, to)) {
+            return false;
+        }
+        for (StateListener listener : listeners) {
+            listener.onStateChange(this, from, to);
+        }
+        return true;
+    }
+
+    public void addStateListener(StateListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeStateListener(StateListener listener) {
+        listeners.remove(listener);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Livraisons refusées (détournées) depuis la création.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Nombre d'ouvertures depuis la création.
+     */
+    public long getOpenCount() {
+        return openCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CircuitBreaker{state=%s, opened=%d, rejected=%d}",
+                state.get(), openCount.get(), rejectedCount.get());
+    }
+}
@@ -0,0 +1,14 @@
+package fr.telecom.middleware.fault;
+
+/**
+ * Notifié quand un {@link StandbyReplica} prend le relais du primaire.
+ */
+public interface FailoverListener {
+
+    /**
+     * Le secours est devenu actif.
+     *
+     * @param silenceMs temps écoulé depuis la dernière trame du primaire
+     */
+    void onPromoted(StandbyReplica replica, long silenceMs);
+}
@@ -1,24 +1,52 @@
 package fr.telecom.middleware.fault;
 
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.core.DeliveryObserver;
+import fr.telecom.middleware.core.Subscription;
 import fr.telecom.middleware.core.Topic;
 import fr.telecom.middleware.core.Subscriber;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.*;
 
 /**
- * Détecte les pannes des subscribers.
+ * Détecte les pannes des subscribers (détecteur à accumulation φ).
+ *
+ * <p>Chaque subscriber surveillé a un niveau de suspicion φ adaptatif,
+ * calculé sur deux fenêtres de taille fixe :</p>
+ * <ul>
+ *   <li>les durées de ses livraisons réussies : pendant qu'une livraison
+ *   est en cours, φ mesure la probabilité qu'elle dure encore si le
+ *   subscriber est sain. Un topic silencieux n'a rien en cours et ne
+ *   déclenche donc aucune suspicion ;</li>
+ *   <li>les intervalles entre heartbeats explicites, pour les subscribers
+ *   qui en envoient : toute livraison réussie compte aussi comme signe de
+ *   vie.</li>
+ * </ul>
+ * <p>Au-delà du seuil, le disjoncteur de l'abonnement est ouvert et les
+ * {@link FaultListener} sont notifiés ; le subscriber reste surveillé et
+ * est signalé rétabli dès que φ redescend.</p>
  */
 public class FaultDetector {
     private static final Logger logger = LoggerFactory.getLogger(FaultDetector.class);
 
+    /** Seuil par défaut : probabilité de fausse alerte de 10⁻⁸. */
+    public static final double DEFAULT_PHI_THRESHOLD = 8.0;
+
+    private static final long HEALTH_CHECK_INTERVAL_MS = 100;
+    private static final int WINDOW_SIZE = 64;
+    /** Durée de livraison supposée avant la première mesure. */
+    private static final double BOOTSTRAP_DELIVERY_MS = 500;
+    /** Marge tolérée sur une livraison (pauses GC, préemption). */
+    private static final double ACCEPTABLE_PAUSE_MS = 50;
+    private static final double MIN_STD_DEV_MS = 10;
+
     private final ScheduledExecutorService healthChecker;
     private final Map<String, SubscriberHealth> monitoredSubscribers;
     private final Map<String, Integer> failureCounts;
-
-    private static final long HEALTH_CHECK_INTERVAL_MS = 5000;
-    private static final long SUBSCRIBER_TIMEOUT_MS = 10000;
-    private static final int MAX_FAILURES = 3;
+    private final List<FaultListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile double phiThreshold = DEFAULT_PHI_THRESHOLD;
 
     public FaultDetector() {
         this.healthChecker = Executors.newScheduledThreadPool(1);
@@ -26,23 +54,78 @@ public class FaultDetector {
         this.failureCounts = new ConcurrentHashMap<>();
 
         startHealthChecking();
-        logger.info("FaultDetector initialisé (intervalle: {}ms)", HEALTH_CHECK_INTERVAL_MS);
+        logger.info("FaultDetector initialisé (intervalle: {}ms, seuil φ={})",
+                HEALTH_CHECK_INTERVAL_MS, phiThreshold);
     }
 
     /**
-     * Classe interne pour suivre la santé d'un subscriber.
+     * Santé d'un subscriber, alimentée par les livraisons de son abonnement.
      */
-    private static class SubscriberHealth {
-        Subscriber subscriber;
-        Topic topic;
-        long lastHeartbeat;
-        long lastMessageReceived;
+    private static class SubscriberHealth implements DeliveryObserver {
+        final Subscriber subscriber;
+        final Topic topic;
+        final Subscription subscription;
+        final PhiAccrualWindow deliveryWindow =
+                new PhiAccrualWindow(WINDOW_SIZE, BOOTSTRAP_DELIVERY_MS, MIN_STD_DEV_MS);
+        final PhiAccrualWindow heartbeatWindow =
+                new PhiAccrualWindow(WINDOW_SIZE, 0, MIN_STD_DEV_MS);
+        final AtomicInteger inFlight = new AtomicInteger(0);
+        volatile long inFlightSinceNanos;
+        volatile long lastHeartbeatNanos;
+        volatile long lastSignalNanos;
+        volatile boolean suspected;
 
-        SubscriberHealth(Subscriber subscriber, Topic topic) {
+        SubscriberHealth(Subscriber subscriber, Topic topic, Subscription subscription) {
             this.subscriber = subscriber;
             this.topic = topic;
-            this.lastHeartbeat = System.currentTimeMillis();
-            this.lastMessageReceived = System.currentTimeMillis();
+            this.subscription = subscription;
+            this.lastSignalNanos = System.nanoTime();
+        }
+
+        @Override
+        public void onDeliveryStart(Subscription subscription, Message message) {
+            if (inFlight.getAndIncrement() == 0) {
+                inFlightSinceNanos = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void onDeliveryEnd(Subscription subscription, Message message, long handlerNanos,
+                                  boolean success) {
+            long now = System.nanoTime();
+            if (success) {
+                deliveryWindow.add(toMs(handlerNanos));
+                lastSignalNanos = now;
+            }
+            // Une autre livraison encore en cours repart de maintenant :
+            // le subscriber vient de progresser
+            inFlightSinceNanos = inFlight.decrementAndGet() == 0 ? 0 : now;
+        }
+
+        void heartbeat() {
+            long now = System.nanoTime();
+            long previous = lastHeartbeatNanos;
+            if (previous > 0) {
+                heartbeatWindow.add(toMs(now - previous));
+            }
+            lastHeartbeatNanos = now;
+            lastSignalNanos = now;
+        }
+
+        double phi(long nowNanos) {
+            double phi = 0;
+            long since = inFlightSinceNanos;
+            if (since > 0) {
+                phi = deliveryWindow.phi(toMs(nowNanos - since) - ACCEPTABLE_PAUSE_MS);
+            }
+            if (lastHeartbeatNanos > 0) {
+                phi = Math.max(phi, heartbeatWindow.phi(toMs(nowNanos - lastSignalNanos)));
+            }
+            return phi;
+        }
+
+        private static double toMs(long nanos) {
+            return nanos / 1_000_000.0;
         }
     }
 
@@ -63,8 +146,14 @@ public class FaultDetector {
      */
     public void monitorSubscriber(Subscriber subscriber, Topic topic) {
         String key = createKey(subscriber, topic);
-        if (!monitoredSubscribers.containsKey(key)) {
-            monitoredSubscribers.put(key, new SubscriberHealth(subscriber, topic));
+        Subscription subscription = topic.findSubscription(subscriber);
+        if (subscription == null) {
+            logger.warn("Surveillance impossible, abonnement introuvable: {}", key);
+            return;
+        }
+        SubscriberHealth health = new SubscriberHealth(subscriber, topic, subscription);
+        if (monitoredSubscribers.putIfAbsent(key, health) == null) {
+            subscription.addObserver(health);
             logger.info("Surveillance activée pour: {}", key);
         }
     }
@@ -74,30 +163,32 @@ public class FaultDetector {
      */
     public void stopMonitoring(Subscriber subscriber, Topic topic) {
         String key = createKey(subscriber, topic);
-        monitoredSubscribers.remove(key);
+        SubscriberHealth health = monitoredSubscribers.remove(key);
+        if (health != null) {
+            health.subscription.removeObserver(health);
+        }
+        failureCounts.remove(key);
         logger.info("Surveillance arrêtée pour: {}", key);
     }
 
     /**
-     * Enregistre un heartbeat d'un subscriber.
+     * Enregistre un heartbeat explicite d'un subscriber. Dès le premier
+     * intervalle mesuré, son silence devient lui aussi suspect.
      */
     public void heartbeat(Subscriber subscriber, Topic topic) {
-        String key = createKey(subscriber, topic);
-        SubscriberHealth health = monitoredSubscribers.get(key);
+        SubscriberHealth health = monitoredSubscribers.get(createKey(subscriber, topic));
         if (health != null) {
-            health.lastHeartbeat = System.currentTimeMillis();
-            failureCounts.remove(key); // Réinitialiser le compteur d'échecs
+            health.heartbeat();
         }
     }
 
     /**
-     * Enregistre la réception d'un message.
+     * Enregistre la réception d'un message : signe de vie, sans échantillon.
      */
     public void recordMessageReceived(Subscriber subscriber, Topic topic) {
-        String key = createKey(subscriber, topic);
-        SubscriberHealth health = monitoredSubscribers.get(key);
+        SubscriberHealth health = monitoredSubscribers.get(createKey(subscriber, topic));
         if (health != null) {
-            health.lastMessageReceived = System.currentTimeMillis();
+            health.lastSignalNanos = System.nanoTime();
         }
     }
 
@@ -105,45 +196,48 @@ public class FaultDetector {
      * Vérifie la santé de tous les subscribers surveillés.
      */
     private void checkSubscribersHealth() {
-        long now = System.currentTimeMillis();
+        long now = System.nanoTime();
+        double threshold = phiThreshold;
 
-        monitoredSubscribers.entrySet().removeIf(entry -> {
-            String key = entry.getKey();
-            SubscriberHealth health = entry.getValue();
-
-            // Vérifier le timeout
-            if (now - health.lastHeartbeat > SUBSCRIBER_TIMEOUT_MS) {
-                int failures = failureCounts.getOrDefault(key, 0) + 1;
-                failureCounts.put(key, failures);
-
-                logger.warn("Subscriber potentiellement en panne: {} (échecs: {})",
-                        key, failures);
-
-                if (failures >= MAX_FAILURES) {
-                    logger.error("Subscriber déclaré hors service: {}", key);
-                    notifySubscriberFailure(health.subscriber, health.topic);
-                    return true; // Supprimer de la surveillance
+        monitoredSubscribers.forEach((key, health) -> {
+            double phi = health.phi(now);
+            if (phi >= threshold && !health.suspected) {
+                health.suspected = true;
+                int failures = failureCounts.merge(key, 1, Integer::sum);
+                logger.warn("Subscriber suspecté: {} (φ={}, suspicions: {})",
+                        key, String.format("%.1f", phi), failures);
+                // Isoler le subscriber sans attendre que la fenêtre du
+                // disjoncteur se remplisse
+                health.subscription.getCircuitBreaker().forceOpen();
+                notifySubscriberFailure(health.subscriber, health.topic, phi);
+            } else if (phi < threshold && health.suspected) {
+                health.suspected = false;
+                logger.info("Subscriber rétabli: {}", key);
+                for (FaultListener listener : listeners) {
+                    try {
+                        listener.onSubscriberRecovered(health.subscriber, health.topic);
+                    } catch (Exception e) {
+                        logger.error("Erreur dans un FaultListener: {}", e.getMessage());
+                    }
                 }
-            } else {
-                // Réinitialiser le compteur d'échecs si le subscriber répond
-                failureCounts.remove(key);
             }
-
-            return false;
         });
     }
 
     /**
      * Notifie qu'un subscriber est en panne.
      */
-    private void notifySubscriberFailure(Subscriber subscriber, Topic topic) {
-        // Ici, on pourrait notifier d'autres composants du système
-        // ou déclencher des actions de récupération
+    private void notifySubscriberFailure(Subscriber subscriber, Topic topic, double phi) {
         logger.error("Panne détectée: subscriber={}, topic={}",
                 subscriber.getSubscriberId(), topic.getName());
 
-        System.err.printf("[FAULT] Subscriber en panne: %s sur topic %s%n",
-                subscriber.getSubscriberId(), topic.getName());
+        for (FaultListener listener : listeners) {
+            try {
+                listener.onSubscriberSuspected(subscriber, topic, phi);
+            } catch (Exception e) {
+                logger.error("Erreur dans un FaultListener: {}", e.getMessage());
+            }
+        }
     }
 
     /**
@@ -153,6 +247,39 @@ public class FaultDetector {
         return subscriber.getSubscriberId() + "@" + topic.getName();
     }
 
+    public void addFaultListener(FaultListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeFaultListener(FaultListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Niveau de suspicion courant d'un subscriber, 0 s'il n'est pas surveillé.
+     */
+    public double getPhi(Subscriber subscriber, Topic topic) {
+        SubscriberHealth health = monitoredSubscribers.get(createKey(subscriber, topic));
+        return health != null ? health.phi(System.nanoTime()) : 0;
+    }
+
+    public boolean isSuspected(Subscriber subscriber, Topic topic) {
+        SubscriberHealth health = monitoredSubscribers.get(createKey(subscriber, topic));
+        return health != null && health.suspected;
+    }
+
+    public double getPhiThreshold() {
+        return phiThreshold;
+    }
+
+    /**
+     * Seuil de suspicion : plus haut, moins de fausses alertes mais une
+     * détection plus lente.
+     */
+    public void setPhiThreshold(double phiThreshold) {
+        this.phiThreshold = phiThreshold;
+    }
+
     /**
      * Récupère la liste des subscribers surveillés.
      */
@@ -161,7 +288,7 @@ public class FaultDetector {
     }
 
     /**
-     * Récupère les statistiques d'échecs.
+     * Nombre de suspicions par subscriber depuis le début de sa surveillance.
      */
     public Map<String, Integer> getFailureStats() {
         return new HashMap<>(failureCounts);
@@ -180,6 +307,9 @@ public class FaultDetector {
             healthChecker.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        monitoredSubscribers.values()
+                .forEach(health -> health.subscription.removeObserver(health));
+        monitoredSubscribers.clear();
         logger.info("FaultDetector arrêté");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,21 @@
+package fr.telecom.middleware.fault;
+
+import fr.telecom.middleware.core.Subscriber;
+import fr.telecom.middleware.core.Topic;
+
+/**
+ * Notifié des changements d'état détectés par le {@link FaultDetector}.
+ */
+public interface FaultListener {
+
+    /**
+     * Le niveau de suspicion d'un subscriber a franchi le seuil.
+     */
+    void onSubscriberSuspected(Subscriber subscriber, Topic topic, double phi);
+
+    /**
+     * Un subscriber suspecté a de nouveau donné signe de vie.
+     */
+    default void onSubscriberRecovered(Subscriber subscriber, Topic topic) {
+    }
+}
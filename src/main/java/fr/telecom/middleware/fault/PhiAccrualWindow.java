@@ -0,0 +1,89 @@
+package fr.telecom.middleware.fault;
+
+/**
+ * Fenêtre glissante d'intervalles et niveau de suspicion φ associé.
+ *
+ * <p>φ = -log10(P(intervalle > écoulé)), la loi des intervalles étant
+ * approchée par une normale de moyenne et d'écart-type mesurés sur les
+ * {@code size} derniers échantillons. φ = 8 correspond à une probabilité
+ * de fausse alerte de 10⁻⁸. La fenêtre est un tableau fixe : mémoire
+ * constante quel que soit le nombre d'échantillons.</p>
+ */
+public class PhiAccrualWindow {
+    private final double[] samples;
+    private final double bootstrapMeanMs;
+    private final double minStdDevMs;
+    private int next = 0;
+    private int count = 0;
+    private double sum = 0;
+    private double sumOfSquares = 0;
+
+    /**
+     * @param size            nombre d'échantillons conservés
+     * @param bootstrapMeanMs moyenne supposée tant qu'aucun échantillon
+     *                        n'existe, 0 pour ne rien suspecter avant mesure
+     * @param minStdDevMs     plancher d'écart-type, évite qu'une série très
+     *                        régulière rende φ hypersensible
+     */
+    public PhiAccrualWindow(int size, double bootstrapMeanMs, double minStdDevMs) {
+        this.samples = new double[Math.max(1, size)];
+        this.bootstrapMeanMs = bootstrapMeanMs;
+        this.minStdDevMs = minStdDevMs;
+    }
+
+    public synchronized void add(double intervalMs) {
+        if (count == samples.length) {
+            double evicted = samples[next];
+            sum -= evicted;
+            sumOfSquares -= evicted * evicted;
+        } else {
+            count++;
+        }
+        samples[next] = intervalMs;
+        next = (next + 1) % samples.length;
+        sum += intervalMs;
+        sumOfSquares += intervalMs * intervalMs;
+    }
+
+    /**
+     * Niveau de suspicion après {@code elapsedMs} sans nouvel échantillon.
+     */
+    public double phi(double elapsedMs) {
+        double mean;
+        double stdDev;
+        synchronized (this) {
+            if (count == 0) {
+                if (bootstrapMeanMs <= 0) {
+                    return 0;
+                }
+                mean = bootstrapMeanMs;
+                stdDev = bootstrapMeanMs / 4;
+            } else {
+                mean = sum / count;
+                stdDev = Math.sqrt(Math.max(0, sumOfSquares / count - mean * mean));
+            }
+        }
+        stdDev = Math.max(stdDev, minStdDevMs);
+        return phi(elapsedMs, mean, stdDev);
+    }
+
+    /**
+     * Approximation logistique de la fonction de répartition normale.
+     */
+    static double phi(double elapsedMs, double mean, double stdDev) {
+        double y = (elapsedMs - mean) / stdDev;
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        if (elapsedMs > mean) {
+            return -Math.log10(e / (1.0 + e));
+        }
+        return -Math.log10(1.0 - 1.0 / (1.0 + e));
+    }
+
+    public synchronized double getMeanMs() {
+        return count > 0 ? sum / count : bootstrapMeanMs;
+    }
+
+    public synchronized int getSampleCount() {
+        return count;
+    }
+}
@@ -1,94 +1,455 @@
 package fr.telecom.middleware.fault;
 
+import fr.telecom.middleware.core.Subscription;
 import fr.telecom.middleware.core.Topic;
 import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.memory.MemoryBudget;
+import fr.telecom.middleware.memory.MemoryFootprint;
+import fr.telecom.middleware.memory.MessageHistory;
+import fr.telecom.middleware.memory.MessageRingBuffer;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import org.slf4j.*;
 
 /**
  * Gère la récupération après pannes.
+ *
+ * <p>Chaque abonnement tient un curseur (plus haute séquence livrée) et,
+ * à l'ouverture de son disjoncteur, le début de la plage qu'il manque.
+ * Au rétablissement, seule cette plage lui est rejouée, depuis
+ * l'historique du topic et par lots de {@link #REPLAY_BATCH_SIZE} : les
+ * autres abonnés ne reçoivent rien et une longue panne ne charge pas tout
+ * l'historique d'un coup. Les messages détournés ne servent qu'à combler
+ * ce que l'historique a déjà évincé.</p>
+ *
+ * <p>Le topic fixe la plage au démarrage du rattrapage et met en file,
+ * derrière lui, les publications qui arrivent pendant qu'il s'exécute
+ * (voir {@link #catchUp}) : l'abonné reçoit chaque séquence une fois, dans
+ * l'ordre, et jamais deux messages à la fois.</p>
+ *
+ * <p>Les rattrapages s'exécutent en fond, sur un pool de threads de
+ * priorité minimale : plusieurs abonnements sont rattrapés en parallèle,
+ * mais un même abonnement l'est toujours dans l'ordre. Un seau à jetons
+ * partagé borne le débit total rejoué pour que le trafic temps réel garde
+ * ses deadlines pendant qu'un arriéré se résorbe.</p>
  */
 public class RecoveryManager {
     private static final Logger logger = LoggerFactory.getLogger(RecoveryManager.class);
 
-    private final Map<String, List<Message>> recoveryBuffer;
+    private final Map<String, MessageRingBuffer> recoveryBuffer;
+    private final Map<Subscription, MessageRingBuffer> divertedBuffer;
     private final Map<String, Long> lastRecoveryTime;
+    private final Map<Object, AtomicInteger> replayRequests;
+    private final AtomicInteger activeReplays = new AtomicInteger(0);
+    private final ThreadPoolExecutor replayPool;
+    private final TokenBucket replayBudget;
+    private volatile MemoryBudget memoryBudget;
 
-    private static final int MAX_RECOVERY_BUFFER_SIZE = 100;
-    private static final long RECOVERY_COOLDOWN_MS = 5000;
+    private static final int MAX_RECOVERY_BUFFER_SIZE = 128;
+    /** Messages lus dans l'historique à chaque lot de rattrapage. */
+    public static final int REPLAY_BATCH_SIZE = 32;
+    public static final int DEFAULT_REPLAY_THREADS = 2;
+    /** Débit de rattrapage par défaut, tous abonnements confondus. */
+    public static final double DEFAULT_REPLAY_RATE_PER_SECOND = 2000;
 
     public RecoveryManager() {
+        this(DEFAULT_REPLAY_THREADS, DEFAULT_REPLAY_RATE_PER_SECOND, REPLAY_BATCH_SIZE);
+    }
+
+    /**
+     * @param replayThreads      rattrapages menés en parallèle
+     * @param replayRatePerSecond débit total rejoué, illimité si &lt;= 0
+     * @param replayBurst        messages rejouables d'un coup
+     */
+    public RecoveryManager(int replayThreads, double replayRatePerSecond, int replayBurst) {
         this.recoveryBuffer = new ConcurrentHashMap<>();
+        this.divertedBuffer = new ConcurrentHashMap<>();
         this.lastRecoveryTime = new ConcurrentHashMap<>();
-        logger.info("RecoveryManager initialisé");
+        this.replayRequests = new ConcurrentHashMap<>();
+        this.replayBudget = new TokenBucket(replayRatePerSecond, replayBurst);
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        int threads = Math.max(1, replayThreads);
+        this.replayPool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "Recovery-Replay-" + threadIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    // Le trafic temps réel passe avant les rattrapages
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+        logger.info("RecoveryManager initialisé (rattrapage: {} threads, {}/s)",
+                replayThreads, replayRatePerSecond);
     }
 
     /**
-     * Enregistre un message pour récupération future.
+     * Enregistre un message pour récupération future ; au-delà de
+     * {@link #MAX_RECOVERY_BUFFER_SIZE}, le plus ancien du topic est écrasé.
      */
     public void bufferForRecovery(String topicName, Message message) {
-        recoveryBuffer
-                .computeIfAbsent(topicName, k -> new CopyOnWriteArrayList<>())
-                .add(message);
-
-        // Limiter la taille du buffer
-        List<Message> buffer = recoveryBuffer.get(topicName);
-        if (buffer.size() > MAX_RECOVERY_BUFFER_SIZE) {
-            buffer.subList(0, buffer.size() - MAX_RECOVERY_BUFFER_SIZE / 2).clear();
-        }
+        newBuffer(recoveryBuffer, topicName).append(message);
 
         logger.debug("Message bufferisé pour récupération: topic={}, message={}",
                 topicName, message.getId().substring(0, 8));
     }
 
     /**
-     * Tente de récupérer les messages perdus pour un topic.
+     * Conserve un message détourné par le disjoncteur ouvert d'un
+     * abonnement, au cas où l'historique l'évincerait avant le rattrapage.
      */
-    public void recoverMessages(String topicName, Topic topic) {
-        String key = topicName;
-        long now = System.currentTimeMillis();
+    public void bufferForSubscriber(Subscription subscription, Message message) {
+        newBuffer(divertedBuffer, subscription).append(message);
+        logger.debug("Message détourné pour {}: {}",
+                subscription.getSubscriber().getSubscriberId(), message.getId().substring(0, 8));
+    }
 
-        // Vérifier le cooldown
-        Long lastRecovery = lastRecoveryTime.get(key);
-        if (lastRecovery != null && now - lastRecovery < RECOVERY_COOLDOWN_MS) {
-            logger.debug("Récupération en cooldown pour: {}", topicName);
-            return;
+    /**
+     * Demande le rattrapage d'un abonnement ; sans effet si sa file est
+     * occupée ou son disjoncteur ouvert, la publication suivante le
+     * relancera.
+     */
+    public void scheduleReplay(Topic topic, Subscription subscription) {
+        topic.requestCatchUp(subscription);
+    }
+
+    /**
+     * Planifie en fond la reprise d'un abonnement qui a changé de nœud
+     * (bascule vers un secours). La reprise n'a pas de borne haute : elle
+     * rejoue, parmi les séquences que l'historique retient encore, toutes
+     * celles à partir de {@code fromSequence} jusqu'à la dernière publiée
+     * au démarrage du rattrapage ; les publications suivantes sont livrées
+     * derrière lui (voir {@link Topic#rewind}).
+     */
+    public void scheduleResume(Topic topic, Subscription subscription, long fromSequence) {
+        topic.rewind(subscription, fromSequence);
+    }
+
+    /**
+     * Rattrape un abonnement dont le topic a réservé la file (voir
+     * {@link fr.telecom.middleware.core.CatchUpHandler}) : rejoue en fond
+     * les séquences {@code fromSequence..toSequence}, puis rend la file au
+     * topic. Appelé sous le verrou du topic, rend la main immédiatement.
+     */
+    public void catchUp(Topic topic, Subscription subscription,
+                        long fromSequence, long toSequence) {
+        MessageRingBuffer diverted = divertedBuffer.get(subscription);
+        NavigableMap<Long, Message> evicted = new TreeMap<>();
+        if (diverted != null) {
+            for (Message message : diverted.drain()) {
+                long sequence = message.getSequence();
+                if (sequence >= fromSequence && sequence <= toSequence) {
+                    evicted.put(sequence, message);
+                }
+            }
         }
+        boolean started = execute(() -> {
+            long resumeFrom = fromSequence;
+            try {
+                resumeFrom = replayRange(topic, subscription, fromSequence, toSequence, evicted);
+            } finally {
+                restoreDiverted(subscription, evicted);
+                topic.finishCatchUp(subscription, resumeFrom);
+            }
+        });
+        if (!started) {
+            restoreDiverted(subscription, evicted);
+            topic.finishCatchUp(subscription, fromSequence);
+        }
+    }
 
-        List<Message> buffer = recoveryBuffer.get(topicName);
-        if (buffer == null || buffer.isEmpty()) {
+    /**
+     * Remet de côté les messages détournés qu'un rattrapage interrompu n'a
+     * pas rejoués : l'historique peut les évincer d'ici le rattrapage
+     * suivant.
+     */
+    private void restoreDiverted(Subscription subscription, NavigableMap<Long, Message> evicted) {
+        for (Message message : evicted.values()) {
+            bufferForSubscriber(subscription, message);
+        }
+    }
+
+    /**
+     * Exécute une tâche sur le pool de rattrapage. Seul point d'entrée du
+     * pool : le décompte des rattrapages actifs et le refus après l'arrêt
+     * y sont traités une fois pour toutes.
+     *
+     * @return false si le pool est arrêté
+     */
+    private boolean execute(Runnable task) {
+        activeReplays.incrementAndGet();
+        try {
+            replayPool.execute(() -> {
+                try {
+                    runLogged(task);
+                } finally {
+                    activeReplays.decrementAndGet();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            activeReplays.decrementAndGet();
+            logger.debug("Rattrapage refusé, RecoveryManager arrêté");
+            return false;
+        }
+    }
+
+    /**
+     * Exécute les demandes adressées à une même clé l'une après l'autre
+     * sur le pool de rattrapage.
+     */
+    private void submit(Object key, Runnable task) {
+        AtomicInteger requests = replayRequests.computeIfAbsent(key, k -> new AtomicInteger(0));
+        if (requests.getAndIncrement() > 0) {
             return;
         }
+        boolean started = execute(() -> {
+            int seen;
+            do {
+                seen = requests.get();
+                runLogged(task);
+            } while (requests.addAndGet(-seen) > 0);
+        });
+        if (!started) {
+            requests.set(0);
+        }
+    }
+
+    private void runLogged(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            logger.error("Erreur pendant le rattrapage: {}", e.getMessage());
+        }
+    }
 
-        logger.info("Début récupération pour '{}': {} messages",
-                topicName, buffer.size());
+    /**
+     * Attend la fin des rattrapages planifiés.
+     *
+     * @return false si le délai a expiré avant
+     */
+    public boolean awaitReplays(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (activeReplays.get() > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    /**
+     * Rejoue une plage de séquences dans l'ordre : l'historique est lu par
+     * lots, et les messages détournés qu'il a évincés sont intercalés à
+     * leur séquence (quelle que soit la politique d'éviction, ils peuvent
+     * se trouver au milieu de la plage). Chaque message consomme un jeton
+     * du débit de rattrapage : l'appel peut donc attendre.
+     *
+     * @param evicted messages détournés de la plage, par séquence ; ceux
+     *                qui ont été rejoués en sont retirés
+     * @return la première séquence non rejouée si le rattrapage a été
+     *         interrompu (échec ou disjoncteur rouvert), 0 s'il est complet
+     */
+    private long replayRange(Topic topic, Subscription subscription, long from, long to,
+                             NavigableMap<Long, Message> evicted) {
+        MessageHistory history = topic.getHistory();
 
-        // Republier les messages
+        int replayed = 0;
+        long next = from;
+        while (next <= to) {
+            List<Message> batch = history.range(next, to, REPLAY_BATCH_SIZE);
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (Message message : batch) {
+                long sequence = message.getSequence();
+                // Messages évincés qui précèdent celui-ci
+                Map.Entry<Long, Message> earlier;
+                while ((earlier = evicted.firstEntry()) != null && earlier.getKey() < sequence) {
+                    if (!replay(topic, subscription, earlier.getValue(), earlier.getKey())) {
+                        return earlier.getKey();
+                    }
+                    evicted.pollFirstEntry();
+                    replayed++;
+                }
+                if (!replay(topic, subscription, message, sequence)) {
+                    return sequence;
+                }
+                evicted.remove(sequence);
+                replayed++;
+                next = sequence + 1;
+            }
+        }
+        // Fin de plage évincée
+        Map.Entry<Long, Message> remaining;
+        while ((remaining = evicted.firstEntry()) != null) {
+            if (!replay(topic, subscription, remaining.getValue(), remaining.getKey())) {
+                return remaining.getKey();
+            }
+            evicted.pollFirstEntry();
+            replayed++;
+        }
+
+        logger.info("Rattrapage de {} sur '{}': {} messages (séquences {}..{})",
+                subscription.getSubscriber().getSubscriberId(), topic.getName(),
+                replayed, from, to);
+        return 0;
+    }
+
+    /**
+     * Rejoue un message.
+     *
+     * @return false en cas d'échec, de disjoncteur rouvert ou d'arrêt
+     */
+    private boolean replay(Topic topic, Subscription subscription, Message message, long sequence) {
+        try {
+            replayBudget.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (topic.redeliver(subscription, message)) {
+            return true;
+        }
+        logger.warn("Rattrapage interrompu pour {} à la séquence {}",
+                subscription.getSubscriber().getSubscriberId(), sequence);
+        return false;
+    }
+
+    /**
+     * Nombre de messages détournés en attente pour un abonnement.
+     */
+    public int getDivertedCount(Subscription subscription) {
+        MessageRingBuffer buffer = divertedBuffer.get(subscription);
+        return buffer != null ? buffer.size() : 0;
+    }
+
+    /**
+     * Abandonne les messages détournés d'un abonnement (désabonnement).
+     */
+    public void discardDiverted(Subscription subscription) {
+        MessageRingBuffer buffer = divertedBuffer.remove(subscription);
+        if (buffer != null) {
+            buffer.drain();
+        }
+    }
+
+    private <K> MessageRingBuffer newBuffer(Map<K, MessageRingBuffer> buffers, K key) {
+        return buffers.computeIfAbsent(key, k -> {
+            MessageRingBuffer buffer = new MessageRingBuffer(MAX_RECOVERY_BUFFER_SIZE,
+                    MemoryBudget.Category.RECOVERY);
+            buffer.setMemoryBudget(memoryBudget);
+            return buffer;
+        });
+    }
+
+    /**
+     * Retire du buffer un message dont la livraison est confirmée.
+     *
+     * @return true si le message était encore bufferisé
+     */
+    public boolean acknowledge(String topicName, String messageId) {
+        MessageRingBuffer buffer = recoveryBuffer.get(topicName);
+        return buffer != null && buffer.remove(messageId) != null;
+    }
+
+    /**
+     * Récupère les messages perdus pour un topic : demande le rattrapage
+     * de chaque abonnement qui a un trou, puis planifie la publication des
+     * messages bufferisés qui n'ont jamais atteint le topic. Les abonnés à
+     * jour ne reçoivent aucun doublon. L'appel rend la main immédiatement ;
+     * une demande de publication faite pendant une récupération en cours
+     * est regroupée avec elle.
+     */
+    public void recoverMessages(String topicName, Topic topic) {
+        for (Subscription subscription : topic.getSubscriptions()) {
+            if (subscription.getGapFromSequence() > 0) {
+                scheduleReplay(topic, subscription);
+            }
+        }
+        if (hasPendingRecovery(topicName)) {
+            submit(topicName, () -> republishPending(topicName, topic));
+        }
+    }
+
+    /**
+     * Publie, au débit de rattrapage, les messages bufferisés jamais
+     * publiés.
+     */
+    private void republishPending(String topicName, Topic topic) {
+        MessageRingBuffer buffer = recoveryBuffer.get(topicName);
+        if (buffer == null) {
+            return;
+        }
         int recoveredCount = 0;
-        for (Message message : buffer) {
+        Message message;
+        while ((message = buffer.pollOldest()) != null) {
+            if (message.getSequence() > 0) {
+                // Déjà publié : les abonnés en retard l'ont eu par rattrapage
+                continue;
+            }
             try {
+                replayBudget.acquire();
                 topic.publish(message);
                 recoveredCount++;
                 logger.debug("Message récupéré: {}", message.getId().substring(0, 8));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                buffer.append(message);
+                break;
             } catch (Exception e) {
                 logger.error("Erreur lors de la récupération: {}", e.getMessage());
             }
         }
-
-        // Vider le buffer
-        buffer.clear();
-        lastRecoveryTime.put(key, now);
+        lastRecoveryTime.put(topicName, System.currentTimeMillis());
 
         logger.info("Récupération terminée: {} messages récupérés sur {}",
                 recoveredCount, topicName);
     }
 
+    /**
+     * Change le nombre de rattrapages menés en parallèle ; les rattrapages
+     * en cours continuent sur leur thread.
+     */
+    public void setReplayThreads(int replayThreads) {
+        int threads = Math.max(1, replayThreads);
+        if (threads > replayPool.getMaximumPoolSize()) {
+            replayPool.setMaximumPoolSize(threads);
+            replayPool.setCorePoolSize(threads);
+        } else {
+            replayPool.setCorePoolSize(threads);
+            replayPool.setMaximumPoolSize(threads);
+        }
+        logger.info("Rattrapage: {} threads", threads);
+    }
+
+    public int getReplayThreads() {
+        return replayPool.getMaximumPoolSize();
+    }
+
+    /**
+     * Change le débit total de rattrapage.
+     */
+    public void setReplayRate(double ratePerSecond, int burst) {
+        replayBudget.setRate(ratePerSecond, burst);
+    }
+
+    /**
+     * Fin de la dernière récupération d'un topic (ms), 0 si aucune.
+     */
+    public long getLastRecoveryTime(String topicName) {
+        return lastRecoveryTime.getOrDefault(topicName, 0L);
+    }
+
+    public TokenBucket getReplayBudget() {
+        return replayBudget;
+    }
+
     /**
      * Vérifie si des messages sont en attente de récupération.
      */
     public boolean hasPendingRecovery(String topicName) {
-        List<Message> buffer = recoveryBuffer.get(topicName);
+        MessageRingBuffer buffer = recoveryBuffer.get(topicName);
         return buffer != null && !buffer.isEmpty();
     }
 
@@ -96,7 +457,7 @@ public class RecoveryManager {
      * Récupère le nombre de messages en attente.
      */
     public int getPendingRecoveryCount(String topicName) {
-        List<Message> buffer = recoveryBuffer.get(topicName);
+        MessageRingBuffer buffer = recoveryBuffer.get(topicName);
         return buffer != null ? buffer.size() : 0;
     }
 
@@ -104,9 +465,9 @@ public class RecoveryManager {
      * Vider le buffer de récupération.
      */
     public void clearRecoveryBuffer(String topicName) {
-        List<Message> buffer = recoveryBuffer.get(topicName);
+        MessageRingBuffer buffer = recoveryBuffer.get(topicName);
         if (buffer != null) {
-            buffer.clear();
+            buffer.drain();
             logger.info("Buffer de récupération vidé pour: {}", topicName);
         }
     }
@@ -122,11 +483,68 @@ public class RecoveryManager {
         return stats;
     }
 
+    /**
+     * Libère au moins {@code bytes} octets en retirant les messages
+     * bufferisés les plus anciens.
+     *
+     * @return les octets effectivement libérés
+     */
+    public long evict(long bytes) {
+        long freed = 0;
+        for (MessageRingBuffer buffer : allBuffers()) {
+            Message evicted;
+            while (freed < bytes && (evicted = buffer.pollOldest()) != null) {
+                freed += evicted.getEstimatedSize();
+            }
+            if (freed >= bytes) {
+                break;
+            }
+        }
+        return freed;
+    }
+
+    /**
+     * Rattache les buffers au budget mémoire du middleware.
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        allBuffers().forEach(buffer -> buffer.setMemoryBudget(memoryBudget));
+    }
+
+    private List<MessageRingBuffer> allBuffers() {
+        List<MessageRingBuffer> buffers = new ArrayList<>(recoveryBuffer.values());
+        buffers.addAll(divertedBuffer.values());
+        return buffers;
+    }
+
+    /**
+     * Estime la mémoire retenue par les buffers de récupération.
+     */
+    public long estimateFootprint(MemoryFootprint footprint) {
+        long size = MemoryFootprint.sizeOfConcurrentHashMap(recoveryBuffer.size())
+                + MemoryFootprint.sizeOfConcurrentHashMap(lastRecoveryTime.size())
+                + lastRecoveryTime.size() * MemoryFootprint.align(MemoryFootprint.OBJECT_HEADER + 8);
+        size += MemoryFootprint.sizeOfConcurrentHashMap(divertedBuffer.size());
+        for (MessageRingBuffer buffer : allBuffers()) {
+            size += buffer.estimateFootprint(footprint);
+        }
+        return size;
+    }
+
     /**
      * Arrête le gestionnaire de récupération.
      */
     public void shutdown() {
+        replayPool.shutdownNow();
+        try {
+            replayPool.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        replayRequests.clear();
+        allBuffers().forEach(MessageRingBuffer::drain);
         recoveryBuffer.clear();
+        divertedBuffer.clear();
         lastRecoveryTime.clear();
         logger.info("RecoveryManager arrêté");
     }
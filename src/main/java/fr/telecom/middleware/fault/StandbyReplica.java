@@ -0,0 +1,401 @@
+package fr.telecom.middleware.fault;
+
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.core.*;
+import fr.telecom.middleware.qos.QoS;
+import fr.telecom.middleware.transport.MessageCodec;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.*;
+
+/**
+ * Côté secours d'une paire actif/secours : reçoit l'état répliqué par un
+ * {@link StandbyReplicator} et prend le relais quand le primaire se tait.
+ *
+ * <p>Tant qu'il est en attente, le secours crée les topics du primaire
+ * avec la même QoS, remplit leur historique avec les séquences d'origine
+ * sans rien livrer ({@link Topic#restore(Message, long)}) et garde le
+ * curseur de livraison de chaque abonnement du primaire.</p>
+ *
+ * <p>Un thread de surveillance vérifie, tous les dixièmes du délai de
+ * bascule, la date de la dernière trame reçue. Une fois ce délai écoulé
+ * sans nouvelles d'un primaire déjà connu, le secours devient actif : la
+ * bascule intervient donc au plus {@code 1,1 × failoverTimeoutMs} après
+ * la dernière trame. Un subscriber qui se réabonne ensuite avec le même
+ * identifiant reprend là où le primaire l'avait laissé : le
+ * {@link RecoveryManager} lui rejoue en fond les messages de l'historique
+ * qu'il n'avait pas reçus.</p>
+ */
+public class StandbyReplica {
+    private static final Logger logger = LoggerFactory.getLogger(StandbyReplica.class);
+
+    public enum State {
+        STANDBY,
+        ACTIVE
+    }
+
+    public static final long DEFAULT_FAILOVER_TIMEOUT_MS = 500;
+
+    private final Middleware middleware;
+    private final String nodeName;
+    private final long failoverTimeoutMs;
+    /** Curseurs du primaire : topic, puis identifiant du subscriber. */
+    private final Map<String, Map<String, Long>> cursors = new ConcurrentHashMap<>();
+    private final List<FailoverListener> listeners = new CopyOnWriteArrayList<>();
+    private final SubscriptionListener resumeListener;
+    private volatile State state = State.STANDBY;
+    private volatile boolean running = true;
+    private volatile ServerSocket server;
+    private volatile Socket connection;
+    private volatile Thread receiverThread;
+    private volatile Thread watchdogThread;
+    private volatile String primaryName;
+    /** Réception de la dernière trame (System.nanoTime), 0 avant tout contact. */
+    private volatile long lastHeardNanos = 0;
+    private volatile long promotedAt = 0;
+
+    private final AtomicLong restored = new AtomicLong(0);
+    private final AtomicLong duplicates = new AtomicLong(0);
+    private final AtomicLong frames = new AtomicLong(0);
+
+    public StandbyReplica(Middleware middleware, String nodeName) {
+        this(middleware, nodeName, DEFAULT_FAILOVER_TIMEOUT_MS);
+    }
+
+    public StandbyReplica(Middleware middleware, String nodeName, long failoverTimeoutMs) {
+        if (failoverTimeoutMs <= 0) {
+            throw new IllegalArgumentException("Délai de bascule invalide: " + failoverTimeoutMs);
+        }
+        this.middleware = middleware;
+        this.nodeName = nodeName;
+        this.failoverTimeoutMs = failoverTimeoutMs;
+        this.resumeListener = new SubscriptionListener() {
+            @Override
+            public void onSubscribe(Topic topic, Subscriber subscriber) {
+                Subscription subscription = topic.findSubscription(subscriber);
+                if (subscription != null) {
+                    resume(topic, subscription, subscription.getDeliveredSequence(), false);
+                }
+            }
+
+            @Override
+            public void onUnsubscribe(Topic topic, Subscriber subscriber) {
+            }
+        };
+    }
+
+    /**
+     * Attend le primaire sur la boucle locale, sur un port (0 pour un port
+     * libre), et démarre la surveillance.
+     *
+     * @return le port d'écoute
+     */
+    public int bind(int port) throws IOException {
+        return bind(null, port);
+    }
+
+    /**
+     * Attend le primaire sur une adresse et démarre la surveillance. Le
+     * secours n'authentifie pas le primaire : une adresse autre que la
+     * boucle locale ne doit être joignable que depuis un réseau de
+     * confiance.
+     *
+     * @param host adresse d'écoute, null pour la boucle locale
+     * @param port port local, 0 pour un port libre
+     * @return le port d'écoute
+     */
+    public synchronized int bind(String host, int port) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Secours déjà en écoute");
+        }
+        server = new ServerSocket(port, 50,
+                host != null ? InetAddress.getByName(host) : InetAddress.getLoopbackAddress());
+        receiverThread = new Thread(this::receiveLoop, "Replica-" + nodeName);
+        receiverThread.setDaemon(true);
+        receiverThread.start();
+        watchdogThread = new Thread(this::watchLoop, "Replica-Watchdog-" + nodeName);
+        watchdogThread.setDaemon(true);
+        watchdogThread.start();
+        logger.info("Secours '{}' en attente du primaire sur {}",
+                nodeName, server.getLocalSocketAddress());
+        return server.getLocalPort();
+    }
+
+    /**
+     * Un primaire à la fois ; après une coupure, le suivant (ou le même,
+     * reconnecté) renvoie son état complet. Une connexion dont la première
+     * trame n'est pas la présentation est refusée.
+     */
+    private void receiveLoop() {
+        while (running && state == State.STANDBY) {
+            try (Socket socket = server.accept()) {
+                connection = socket;
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+                if (in.readByte() != StandbyReplicator.HELLO) {
+                    throw new IOException("présentation attendue de "
+                            + socket.getRemoteSocketAddress());
+                }
+                readHello(in);
+                while (running && state == State.STANDBY) {
+                    readFrame(in);
+                    lastHeardNanos = System.nanoTime();
+                    frames.incrementAndGet();
+                }
+            } catch (EOFException e) {
+                if (running && state == State.STANDBY) {
+                    logger.warn("Primaire '{}' déconnecté", primaryName);
+                }
+            } catch (IOException | RuntimeException e) {
+                if (running && state == State.STANDBY) {
+                    logger.warn("Connexion au primaire perdue: {}", e.getMessage());
+                }
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    private void readHello(DataInputStream in) throws IOException {
+        primaryName = in.readUTF();
+        lastHeardNanos = System.nanoTime();
+        frames.incrementAndGet();
+        logger.info("Primaire '{}' connecté au secours '{}'", primaryName, nodeName);
+    }
+
+    private void readFrame(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case StandbyReplicator.HELLO:
+                readHello(in);
+                break;
+            case StandbyReplicator.TOPIC:
+                String name = in.readUTF();
+                applyTopic(name, StandbyReplicator.readQoS(in));
+                break;
+            case StandbyReplicator.MESSAGES:
+                applyMessages(in);
+                break;
+            case StandbyReplicator.CURSORS:
+                applyCursors(in);
+                break;
+            case StandbyReplicator.HEARTBEAT:
+                break;
+            default:
+                throw new IOException("Trame de réplication inconnue: " + type);
+        }
+    }
+
+    private void applyTopic(String name, QoS qos) {
+        if (middleware.getTopic(name) == null && middleware.createTopic(name, qos) == null) {
+            logger.warn("Topic répliqué '{}' refusé par le contrôle d'admission", name);
+        }
+    }
+
+    private void applyMessages(DataInputStream in) throws IOException {
+        Topic topic = middleware.getTopic(in.readUTF());
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long sequence = in.readLong();
+            byte[] encoded = new byte[in.readInt()];
+            in.readFully(encoded);
+            if (topic == null) {
+                continue;
+            }
+            Message message = MessageCodec.decode(encoded);
+            if (topic.restore(message, sequence)) {
+                restored.incrementAndGet();
+            } else {
+                duplicates.incrementAndGet();
+            }
+        }
+    }
+
+    private void applyCursors(DataInputStream in) throws IOException {
+        String topicName = in.readUTF();
+        int count = in.readInt();
+        Map<String, Long> topicCursors = new ConcurrentHashMap<>();
+        for (int i = 0; i < count; i++) {
+            topicCursors.put(in.readUTF(), in.readLong());
+        }
+        cursors.put(topicName, topicCursors);
+    }
+
+    private void watchLoop() {
+        long checkMs = Math.max(1, failoverTimeoutMs / 10);
+        while (running && state == State.STANDBY) {
+            try {
+                Thread.sleep(checkMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long heard = lastHeardNanos;
+            if (running && heard != 0 && System.nanoTime() - heard
+                    > TimeUnit.MILLISECONDS.toNanos(failoverTimeoutMs)) {
+                promote();
+            }
+        }
+    }
+
+    /**
+     * Prend le relais : coupe la réplication et reprend les abonnements
+     * présents et à venir à partir des curseurs du primaire. Peut être
+     * appelé directement pour une bascule commandée.
+     */
+    public void promote() {
+        synchronized (this) {
+            if (state == State.ACTIVE) {
+                return;
+            }
+            state = State.ACTIVE;
+            promotedAt = System.currentTimeMillis();
+        }
+        long heard = lastHeardNanos;
+        long silenceMs = heard != 0
+                ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - heard) : 0;
+        closeQuietly(server);
+        closeQuietly(connection);
+
+        middleware.addSubscriptionListener(resumeListener);
+        for (Topic topic : middleware.getAllTopics()) {
+            for (Subscription subscription : topic.getSubscriptions()) {
+                resume(topic, subscription, topic.getMessageCount(), true);
+            }
+        }
+        logger.warn("Secours '{}' actif après {} ms sans nouvelles du primaire '{}'",
+                nodeName, silenceMs, primaryName);
+        for (FailoverListener listener : listeners) {
+            listener.onPromoted(this, silenceMs);
+        }
+    }
+
+    /**
+     * Rejoue à un abonnement les messages qui suivent son curseur sur le
+     * primaire, si ce curseur est en retard sur {@code reachedSequence}.
+     * La reprise n'est pas bornée : les messages publiés depuis suivent
+     * dans l'ordre ({@link RecoveryManager#scheduleResume}). Chaque curseur
+     * ne sert qu'une fois.
+     *
+     * @param reachedSequence séquence au-delà de laquelle il n'y a rien à
+     *                        reprendre
+     * @param ownCursor       sans curseur du primaire, partir du curseur local
+     */
+    private void resume(Topic topic, Subscription subscription, long reachedSequence,
+                        boolean ownCursor) {
+        Map<String, Long> topicCursors = cursors.get(topic.getName());
+        Long cursor = topicCursors != null
+                ? topicCursors.remove(subscription.getSubscriber().getSubscriberId()) : null;
+        if (cursor == null && ownCursor) {
+            cursor = subscription.getDeliveredSequence();
+        }
+        if (cursor != null && cursor < reachedSequence) {
+            logger.info("Reprise de '{}' sur '{}' à partir de la séquence {}",
+                    subscription.getSubscriber().getSubscriberId(), topic.getName(), cursor + 1);
+            middleware.getRecoveryManager().scheduleResume(topic, subscription, cursor + 1);
+        }
+    }
+
+    public void addFailoverListener(FailoverListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeFailoverListener(FailoverListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Arrête le secours sans prendre le relais.
+     */
+    public synchronized void shutdown() {
+        running = false;
+        closeQuietly(server);
+        closeQuietly(connection);
+        middleware.removeSubscriptionListener(resumeListener);
+        for (Thread thread : Arrays.asList(receiverThread, watchdogThread)) {
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+        logger.info("Secours '{}' arrêté", nodeName);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            logger.debug("Fermeture impossible: {}", e.getMessage());
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isActive() {
+        return state == State.ACTIVE;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    /**
+     * Nom du dernier primaire connecté, null avant tout contact.
+     */
+    public String getPrimaryName() {
+        return primaryName;
+    }
+
+    public long getFailoverTimeoutMs() {
+        return failoverTimeoutMs;
+    }
+
+    /**
+     * Date de la bascule (ms), 0 si le secours n'est pas devenu actif.
+     */
+    public long getPromotedAt() {
+        return promotedAt;
+    }
+
+    /**
+     * Curseur du primaire pour un subscriber, ou -1 s'il est inconnu ou
+     * déjà repris.
+     */
+    public long getReplicatedCursor(String topicName, String subscriberId) {
+        Map<String, Long> topicCursors = cursors.get(topicName);
+        Long cursor = topicCursors != null ? topicCursors.get(subscriberId) : null;
+        return cursor != null ? cursor : -1;
+    }
+
+    /**
+     * Messages ajoutés aux historiques locaux.
+     */
+    public long getRestoredCount() {
+        return restored.get();
+    }
+
+    /**
+     * Messages déjà connus, renvoyés après une reconnexion.
+     */
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    public long getFrameCount() {
+        return frames.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StandbyReplica{%s, %s, primaire=%s, restaurés=%d, trames=%d}",
+                nodeName, state, primaryName, getRestoredCount(), getFrameCount());
+    }
+}
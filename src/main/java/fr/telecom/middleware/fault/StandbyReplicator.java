@@ -0,0 +1,338 @@
+package fr.telecom.middleware.fault;
+
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.core.*;
+import fr.telecom.middleware.qos.QoS;
+import fr.telecom.middleware.transport.MessageCodec;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.*;
+
+/**
+ * Côté primaire d'une paire actif/secours : réplique l'état du middleware
+ * vers un {@link StandbyReplica}.
+ *
+ * <p>Un thread {@code Replication-<nœud>} relit l'état à intervalle fixe
+ * et n'envoie que ce qui a changé depuis le tour précédent : topics créés
+ * (avec leur QoS), messages entrés dans l'historique, curseurs de
+ * livraison des abonnements. Rien n'est ajouté au chemin de publication :
+ * les messages sont relus dans l'historique, par lots de
+ * {@value #MESSAGE_BATCH}, et partent en une seule écriture par tour.
+ * Sans changement, une trame de vie part toutes les
+ * {@code heartbeatIntervalMs}.</p>
+ *
+ * <p>La réplication est asynchrone : le secours a au plus un tour de
+ * retard, et un message évincé de l'historique avant d'avoir été relu
+ * n'est pas répliqué ({@link #getMissedCount()}). Après une reconnexion,
+ * tout l'historique retenu est renvoyé ; le secours ignore les séquences
+ * qu'il connaît déjà.</p>
+ */
+public class StandbyReplicator {
+    private static final Logger logger = LoggerFactory.getLogger(StandbyReplicator.class);
+
+    static final byte HELLO = 1;
+    static final byte TOPIC = 2;
+    static final byte MESSAGES = 3;
+    static final byte CURSORS = 4;
+    static final byte HEARTBEAT = 5;
+
+    /** Messages par trame de réplication. */
+    static final int MESSAGE_BATCH = 256;
+    public static final long DEFAULT_BATCH_INTERVAL_MS = 5;
+    public static final long DEFAULT_HEARTBEAT_INTERVAL_MS = 50;
+    static final long RECONNECT_MS = 1000;
+
+    private final Middleware middleware;
+    private final String nodeName;
+    private final long batchIntervalMs;
+    private final long heartbeatIntervalMs;
+    private volatile Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean connected = false;
+    private volatile Socket socket;
+
+    // État du thread de réplication, remis à zéro à chaque connexion
+    private final Map<String, Long> replicatedSequences = new HashMap<>();
+    private final Map<String, Map<String, Long>> replicatedCursors = new HashMap<>();
+
+    private final AtomicLong replicated = new AtomicLong(0);
+    private final AtomicLong missed = new AtomicLong(0);
+    private final AtomicLong rejected = new AtomicLong(0);
+    private final AtomicLong batches = new AtomicLong(0);
+
+    public StandbyReplicator(Middleware middleware, String nodeName) {
+        this(middleware, nodeName, DEFAULT_BATCH_INTERVAL_MS, DEFAULT_HEARTBEAT_INTERVAL_MS);
+    }
+
+    /**
+     * @param batchIntervalMs     intervalle entre deux tours de réplication
+     * @param heartbeatIntervalMs silence maximal avant une trame de vie ;
+     *                            doit rester bien inférieur au délai de
+     *                            bascule du secours
+     */
+    public StandbyReplicator(Middleware middleware, String nodeName,
+                             long batchIntervalMs, long heartbeatIntervalMs) {
+        if (batchIntervalMs <= 0 || heartbeatIntervalMs <= 0) {
+            throw new IllegalArgumentException("Intervalles de réplication invalides");
+        }
+        this.middleware = middleware;
+        this.nodeName = nodeName;
+        this.batchIntervalMs = batchIntervalMs;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+    }
+
+    /**
+     * Démarre la réplication vers le secours ; la connexion est retentée
+     * toutes les secondes tant qu'elle échoue.
+     */
+    public synchronized void connect(String host, int port) {
+        if (thread != null) {
+            throw new IllegalStateException("Réplication déjà démarrée");
+        }
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        thread = new Thread(() -> replicationLoop(address), "Replication-" + nodeName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void replicationLoop(InetSocketAddress address) {
+        while (running) {
+            try (Socket connection = new Socket()) {
+                socket = connection;
+                connection.connect(address, (int) RECONNECT_MS);
+                connection.setTcpNoDelay(true);
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(connection.getOutputStream(), 64 * 1024));
+                out.writeByte(HELLO);
+                out.writeUTF(nodeName);
+                replicatedSequences.clear();
+                replicatedCursors.clear();
+                connected = true;
+                logger.info("Réplication de '{}' vers {}", nodeName, address);
+
+                long lastFlushNanos = System.nanoTime();
+                while (running) {
+                    int frames = replicate(out);
+                    long now = System.nanoTime();
+                    if (frames == 0
+                            && now - lastFlushNanos >= TimeUnit.MILLISECONDS.toNanos(heartbeatIntervalMs)) {
+                        out.writeByte(HEARTBEAT);
+                        frames++;
+                    }
+                    if (frames > 0) {
+                        out.flush();
+                        lastFlushNanos = now;
+                    }
+                    Thread.sleep(batchIntervalMs);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    logger.warn("Réplication vers {} interrompue: {}", address, e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                connected = false;
+                socket = null;
+            }
+            try {
+                Thread.sleep(RECONNECT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Un tour de réplication : écrit les changements depuis le tour
+     * précédent, sans les envoyer.
+     *
+     * @return le nombre de trames écrites
+     */
+    private int replicate(DataOutputStream out) throws IOException {
+        int frames = 0;
+        for (Topic topic : middleware.getAllTopics()) {
+            String name = topic.getName();
+            Long known = replicatedSequences.get(name);
+            if (known == null) {
+                out.writeByte(TOPIC);
+                out.writeUTF(name);
+                writeQoS(out, topic.getQoS());
+                frames++;
+            }
+            long last = known != null ? known : 0;
+            long head = topic.getMessageCount();
+            while (last < head) {
+                List<Message> batch = topic.getHistory().range(last + 1, head, MESSAGE_BATCH);
+                if (batch.isEmpty()) {
+                    // Message en cours d'enregistrement, ou historique désactivé
+                    break;
+                }
+                long first = batch.get(0).getSequence();
+                if (known != null && first > last + 1) {
+                    missed.addAndGet(first - last - 1);
+                }
+                last = writeMessages(out, name, batch);
+                frames++;
+            }
+            replicatedSequences.put(name, last);
+
+            Map<String, Long> cursors = new HashMap<>();
+            for (Subscription subscription : topic.getSubscriptions()) {
+                cursors.put(subscription.getSubscriber().getSubscriberId(),
+                        subscription.getDeliveredSequence());
+            }
+            if (!cursors.equals(replicatedCursors.get(name))) {
+                out.writeByte(CURSORS);
+                out.writeUTF(name);
+                out.writeInt(cursors.size());
+                for (Map.Entry<String, Long> cursor : cursors.entrySet()) {
+                    out.writeUTF(cursor.getKey());
+                    out.writeLong(cursor.getValue());
+                }
+                replicatedCursors.put(name, cursors);
+                frames++;
+            }
+        }
+        if (frames > 0) {
+            batches.incrementAndGet();
+        }
+        return frames;
+    }
+
+    /**
+     * @return la séquence du dernier message du lot
+     */
+    private long writeMessages(DataOutputStream out, String topicName, List<Message> batch)
+            throws IOException {
+        List<byte[]> encoded = new ArrayList<>(batch.size());
+        List<Long> sequences = new ArrayList<>(batch.size());
+        for (Message message : batch) {
+            try {
+                encoded.add(MessageCodec.encode(message));
+                sequences.add(message.getSequence());
+            } catch (IllegalArgumentException e) {
+                rejected.incrementAndGet();
+                logger.warn("Message non répliqué sur '{}': {}", topicName, e.getMessage());
+            }
+        }
+        out.writeByte(MESSAGES);
+        out.writeUTF(topicName);
+        out.writeInt(encoded.size());
+        for (int i = 0; i < encoded.size(); i++) {
+            out.writeLong(sequences.get(i));
+            out.writeInt(encoded.get(i).length);
+            out.write(encoded.get(i));
+        }
+        replicated.addAndGet(encoded.size());
+        return batch.get(batch.size() - 1).getSequence();
+    }
+
+    static void writeQoS(DataOutput out, QoS qos) throws IOException {
+        out.writeUTF(qos.getReliability().name());
+        out.writeUTF(qos.getPriority().name());
+        out.writeInt(qos.getDeadlineMs());
+        out.writeInt(qos.getMaxLatencyMs());
+        out.writeInt(qos.getRedundancyLevel());
+        out.writeUTF(qos.getRedundancyMode().name());
+        out.writeBoolean(qos.isPersistence());
+        out.writeInt(qos.getPublishRateHz());
+        out.writeInt(qos.getHistorySize());
+        out.writeInt(qos.getMaxHistoryKB());
+        out.writeUTF(qos.getEvictionPolicy().name());
+        out.writeLong(qos.getHistoryTtlMs());
+        out.writeInt(qos.getReservedMemoryKB());
+    }
+
+    static QoS readQoS(DataInput in) throws IOException {
+        return new QoS.Builder()
+                .reliability(QoS.Reliability.valueOf(in.readUTF()))
+                .priority(QoS.Priority.valueOf(in.readUTF()))
+                .deadlineMs(in.readInt())
+                .maxLatencyMs(in.readInt())
+                .redundancyLevel(in.readInt())
+                .redundancyMode(QoS.RedundancyMode.valueOf(in.readUTF()))
+                .persistence(in.readBoolean())
+                .publishRateHz(in.readInt())
+                .historySize(in.readInt())
+                .maxHistoryKB(in.readInt())
+                .evictionPolicy(QoS.EvictionPolicy.valueOf(in.readUTF()))
+                .historyTtlMs(in.readLong())
+                .reservedMemoryKB(in.readInt())
+                .build();
+    }
+
+    /**
+     * Arrête la réplication ; le secours prendra le relais une fois son
+     * délai de bascule écoulé.
+     */
+    public synchronized void shutdown() {
+        running = false;
+        Thread current = thread;
+        if (current != null) {
+            current.interrupt();
+            Socket connection = socket;
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (IOException e) {
+                    logger.debug("Fermeture de la connexion de réplication: {}", e.getMessage());
+                }
+            }
+            try {
+                current.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        logger.info("Réplication de '{}' arrêtée", nodeName);
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Messages envoyés au secours.
+     */
+    public long getReplicatedCount() {
+        return replicated.get();
+    }
+
+    /**
+     * Messages évincés de l'historique avant d'avoir été répliqués.
+     */
+    public long getMissedCount() {
+        return missed.get();
+    }
+
+    /**
+     * Messages non encodables, jamais répliqués.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Tours de réplication ayant envoyé au moins une trame (hors trames
+     * de vie).
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StandbyReplicator{%s, connecté=%b, répliqués=%d, manqués=%d, lots=%d}",
+                nodeName, connected, getReplicatedCount(), getMissedCount(), getBatchCount());
+    }
+}
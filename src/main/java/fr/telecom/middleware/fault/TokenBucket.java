@@ -0,0 +1,103 @@
+package fr.telecom.middleware.fault;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seau à jetons : borne le débit d'une activité de fond.
+ *
+ * <p>Le seau se remplit de {@code ratePerSecond} jetons par seconde, sans
+ * dépasser {@code burst}. Un débit nul ou négatif désactive la limite.</p>
+ */
+public class TokenBucket {
+    private double ratePerSecond;
+    private int burst;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double ratePerSecond, int burst) {
+        setRate(ratePerSecond, burst);
+        this.tokens = this.burst;
+    }
+
+    /**
+     * Prend un jeton s'il y en a un.
+     */
+    public synchronized boolean tryAcquire() {
+        return nanosUntilToken() == 0;
+    }
+
+    /**
+     * Prend un jeton, en attendant qu'il y en ait un.
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = reserve()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private synchronized long reserve() {
+        return nanosUntilToken();
+    }
+
+    /**
+     * Consomme un jeton et retourne 0, ou retourne l'attente avant le
+     * prochain jeton.
+     */
+    private long nanosUntilToken() {
+        if (ratePerSecond <= 0) {
+            return 0;
+        }
+        refill();
+        if (tokens >= 1) {
+            tokens--;
+            return 0;
+        }
+        return Math.max(1, (long) ((1 - tokens) / ratePerSecond * 1_000_000_000L));
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * ratePerSecond / 1_000_000_000L);
+        lastRefillNanos = now;
+    }
+
+    /**
+     * Change le débit ; les jetons déjà acquis restent dans la limite du
+     * nouveau burst.
+     */
+    public synchronized void setRate(double ratePerSecond, int burst) {
+        if (lastRefillNanos > 0) {
+            refill();
+        } else {
+            lastRefillNanos = System.nanoTime();
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.burst = Math.max(1, burst);
+        this.tokens = Math.min(tokens, this.burst);
+    }
+
+    public synchronized double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public synchronized int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Jetons disponibles immédiatement.
+     */
+    public synchronized double getAvailableTokens() {
+        if (ratePerSecond > 0) {
+            refill();
+        }
+        return tokens;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("TokenBucket{rate=%.0f/s, burst=%d, tokens=%.1f}",
+                ratePerSecond, burst, tokens);
+    }
+}
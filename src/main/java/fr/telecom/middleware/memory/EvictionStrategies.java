@@ -0,0 +1,126 @@
+package fr.telecom.middleware.memory;
+
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.qos.QoS;
+import java.util.*;
+
+/**
+ * Stratégies d'éviction correspondant à {@link QoS.EvictionPolicy}.
+ *
+ * <p>Hors FIFO, le choix parcourt l'historique : son coût est borné par
+ * le quota du topic ({@code historySize}).</p>
+ */
+public final class EvictionStrategies {
+
+    /** Header de priorité d'un message (nom ou valeur de {@link QoS.Priority}). */
+    public static final String PRIORITY_HEADER = "priority";
+
+    /** Header de durée de vie d'un message (ms). */
+    public static final String TTL_HEADER = "ttl_ms";
+
+    private EvictionStrategies() {
+    }
+
+    /**
+     * Stratégie associée à une politique de QoS.
+     *
+     * @param topicTtlMs TTL par défaut du topic, 0 si aucun
+     */
+    public static EvictionStrategy forPolicy(QoS.EvictionPolicy policy, long topicTtlMs) {
+        switch (policy) {
+            case PRIORITY_AWARE:
+                return EvictionStrategies::lowestPriority;
+            case TTL_FIRST:
+                return (history, nowMs) -> earliestExpiry(history, topicTtlMs);
+            case SIZE_WEIGHTED:
+                return EvictionStrategies::largestSizeAge;
+            case FIFO:
+            default:
+                return (history, nowMs) -> history.firstEntry();
+        }
+    }
+
+    /**
+     * Plus faible priorité ; à priorité égale, le plus ancien.
+     */
+    private static Map.Entry<Long, Message> lowestPriority(NavigableMap<Long, Message> history,
+                                                          long nowMs) {
+        Map.Entry<Long, Message> victim = null;
+        int lowest = Integer.MAX_VALUE;
+        for (Map.Entry<Long, Message> entry : history.entrySet()) {
+            int priority = priorityOf(entry.getValue());
+            if (priority < lowest) {
+                lowest = priority;
+                victim = entry;
+                if (priority == QoS.Priority.LOW.getValue()) {
+                    break;
+                }
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Expiration la plus proche ; les messages sans TTL expirent en dernier.
+     */
+    private static Map.Entry<Long, Message> earliestExpiry(NavigableMap<Long, Message> history,
+                                                          long topicTtlMs) {
+        Map.Entry<Long, Message> victim = null;
+        long earliest = Long.MAX_VALUE;
+        for (Map.Entry<Long, Message> entry : history.entrySet()) {
+            long ttl = ttlOf(entry.getValue(), topicTtlMs);
+            long expiry = ttl > 0 ? entry.getValue().getPublishTimestamp() + ttl : Long.MAX_VALUE;
+            if (victim == null || expiry < earliest) {
+                earliest = expiry;
+                victim = entry;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Plus grand score taille × âge : un gros message ancien libère le
+     * plus de place pour le moins de valeur.
+     */
+    private static Map.Entry<Long, Message> largestSizeAge(NavigableMap<Long, Message> history,
+                                                          long nowMs) {
+        Map.Entry<Long, Message> victim = null;
+        double best = -1;
+        for (Map.Entry<Long, Message> entry : history.entrySet()) {
+            Message message = entry.getValue();
+            long ageMs = Math.max(0, nowMs - message.getPublishTimestamp());
+            double score = (double) message.getEstimatedSize() * (ageMs + 1);
+            if (score > best) {
+                best = score;
+                victim = entry;
+            }
+        }
+        return victim;
+    }
+
+    static int priorityOf(Message message) {
+        Object header = message.getHeader(PRIORITY_HEADER);
+        if (header instanceof Number) {
+            return ((Number) header).intValue();
+        }
+        if (header instanceof QoS.Priority) {
+            return ((QoS.Priority) header).getValue();
+        }
+        if (header instanceof String) {
+            try {
+                return QoS.Priority.valueOf((String) header).getValue();
+            } catch (IllegalArgumentException e) {
+                return QoS.Priority.MEDIUM.getValue();
+            }
+        }
+        return QoS.Priority.MEDIUM.getValue();
+    }
+
+    static long ttlOf(Message message, long topicTtlMs) {
+        Object header = message.getHeader(TTL_HEADER);
+        if (header instanceof Number) {
+            return ((Number) header).longValue();
+        }
+        return topicTtlMs;
+    }
+}
@@ -0,0 +1,23 @@
+package fr.telecom.middleware.memory;
+
+import fr.telecom.middleware.api.Message;
+import java.util.*;
+
+/**
+ * Stratégie de choix du message à évincer d'un historique.
+ *
+ * <p>L'historique est fourni trié par numéro de séquence croissant (du
+ * plus ancien au plus récent). Les implémentations standard sont données
+ * par {@link EvictionStrategies#forPolicy}.</p>
+ */
+public interface EvictionStrategy {
+
+    /**
+     * Choisit la victime.
+     *
+     * @param history historique trié par séquence, non vide
+     * @param nowMs   instant courant (ms)
+     * @return l'entrée à évincer
+     */
+    Map.Entry<Long, Message> selectVictim(NavigableMap<Long, Message> history, long nowMs);
+}
@@ -0,0 +1,93 @@
+package fr.telecom.middleware.memory;
+
+import java.util.*;
+
+/**
+ * Empreinte mémoire estimée du middleware, par structure.
+ */
+public class FootprintReport {
+
+    /**
+     * Empreinte d'un topic.
+     */
+    public static class TopicFootprint {
+        public final String name;
+        public final long topicBytes;
+        public final long historyBytes;
+        public final int historyCount;
+        public final long subscriberBytes;
+        public final int subscriberCount;
+
+        TopicFootprint(String name, long topicBytes, long historyBytes, int historyCount,
+                       long subscriberBytes, int subscriberCount) {
+            this.name = name;
+            this.topicBytes = topicBytes;
+            this.historyBytes = historyBytes;
+            this.historyCount = historyCount;
+            this.subscriberBytes = subscriberBytes;
+            this.subscriberCount = subscriberCount;
+        }
+
+        public long getTotalBytes() {
+            return topicBytes + historyBytes + subscriberBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s{total=%.1fKB, topic=%.1fKB, historique=%.1fKB (%d msg), "
+                            + "subscribers=%.1fKB (%d)}",
+                    name, kb(getTotalBytes()), kb(topicBytes), kb(historyBytes), historyCount,
+                    kb(subscriberBytes), subscriberCount);
+        }
+    }
+
+    public final Map<String, TopicFootprint> topics;
+    public final long redundancyBytes;
+    public final long recoveryBytes;
+    public final long deadlineMonitorBytes;
+    public final long messageCount;
+    public final long totalBytes;
+
+    FootprintReport(Map<String, TopicFootprint> topics, long redundancyBytes,
+                    long recoveryBytes, long deadlineMonitorBytes, long messageCount) {
+        this.topics = Collections.unmodifiableMap(topics);
+        this.redundancyBytes = redundancyBytes;
+        this.recoveryBytes = recoveryBytes;
+        this.deadlineMonitorBytes = deadlineMonitorBytes;
+        this.messageCount = messageCount;
+
+        long total = redundancyBytes + recoveryBytes + deadlineMonitorBytes;
+        for (TopicFootprint topic : topics.values()) {
+            total += topic.getTotalBytes();
+        }
+        this.totalBytes = total;
+    }
+
+    /**
+     * Empreinte cumulée des historiques de topics.
+     */
+    public long getHistoryBytes() {
+        return topics.values().stream().mapToLong(t -> t.historyBytes).sum();
+    }
+
+    public double getTotalKB() {
+        return kb(totalBytes);
+    }
+
+    private static double kb(long bytes) {
+        return bytes / 1024.0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Footprint{total=%.1fKB, messages=%d, topics=%d, "
+                        + "redondance=%.1fKB, récupération=%.1fKB, deadlines=%.1fKB}",
+                kb(totalBytes), messageCount, topics.size(),
+                kb(redundancyBytes), kb(recoveryBytes), kb(deadlineMonitorBytes)));
+        for (TopicFootprint topic : topics.values()) {
+            sb.append(String.format("%n  %s", topic));
+        }
+        return sb.toString();
+    }
+}
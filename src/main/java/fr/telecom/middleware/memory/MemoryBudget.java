@@ -0,0 +1,107 @@
+package fr.telecom.middleware.memory;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Budget mémoire du middleware, tenu par comptabilité.
+ *
+ * <p>Chaque structure qui retient des messages déclare les octets qu'elle
+ * ajoute et libère ; la taille d'un message est estimée une seule fois
+ * ({@link fr.telecom.middleware.api.Message#getEstimatedSize()}) pour que
+ * l'allocation et la libération s'annulent exactement. Les compteurs sont
+ * des {@link LongAdder} : la mise à jour depuis plusieurs threads de
+ * publication ne se dispute pas une même ligne de cache.</p>
+ */
+public class MemoryBudget {
+
+    /**
+     * Structures comptabilisées.
+     */
+    public enum Category {
+        HISTORY,        // Historiques des topics
+        REDUNDANCY,     // Messages conservés par la redondance
+        RECOVERY,       // Buffers de récupération
+        PENDING         // Livraisons en file d'attente
+    }
+
+    /** Après récupération, l'usage doit redescendre sous ce ratio de la limite. */
+    private static final double LOW_WATER_RATIO = 0.8;
+
+    private final Map<Category, LongAdder> usage = new EnumMap<>(Category.class);
+    private volatile long limitBytes;
+
+    public MemoryBudget(int limitKB) {
+        for (Category category : Category.values()) {
+            usage.put(category, new LongAdder());
+        }
+        setLimitKB(limitKB);
+    }
+
+    /**
+     * Déclare des octets retenus.
+     */
+    public void allocate(Category category, long bytes) {
+        usage.get(category).add(bytes);
+    }
+
+    /**
+     * Déclare des octets libérés.
+     */
+    public void release(Category category, long bytes) {
+        usage.get(category).add(-bytes);
+    }
+
+    public long getUsedBytes(Category category) {
+        return usage.get(category).sum();
+    }
+
+    /**
+     * Octets retenus, toutes structures confondues.
+     */
+    public long getUsedBytes() {
+        long total = 0;
+        for (LongAdder adder : usage.values()) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    public boolean isOverBudget() {
+        return getUsedBytes() > limitBytes;
+    }
+
+    /**
+     * Octets à libérer pour revenir sous le seuil bas.
+     */
+    public long getExcessBytes() {
+        return Math.max(0, getUsedBytes() - getLowWaterBytes());
+    }
+
+    public long getLowWaterBytes() {
+        return (long) (limitBytes * LOW_WATER_RATIO);
+    }
+
+    public long getLimitBytes() {
+        return limitBytes;
+    }
+
+    public void setLimitKB(int limitKB) {
+        this.limitBytes = limitKB * 1024L;
+    }
+
+    /**
+     * Répartition de l'usage par structure.
+     */
+    public Map<Category, Long> getUsageByCategory() {
+        Map<Category, Long> result = new EnumMap<>(Category.class);
+        usage.forEach((category, adder) -> result.put(category, adder.sum()));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MemoryBudget{used=%.1fKB, limit=%dKB, %s}",
+                getUsedBytes() / 1024.0, limitBytes / 1024, getUsageByCategory());
+    }
+}
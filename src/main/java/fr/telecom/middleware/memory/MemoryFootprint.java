@@ -0,0 +1,312 @@
+package fr.telecom.middleware.memory;
+
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.core.Subscription;
+import fr.telecom.middleware.core.Topic;
+import fr.telecom.middleware.fault.RecoveryManager;
+import fr.telecom.middleware.metrics.LatencyHistogram;
+import fr.telecom.middleware.metrics.TopicMetrics;
+import fr.telecom.middleware.qos.Deadline;
+import fr.telecom.middleware.qos.RedundancyManager;
+import fr.telecom.middleware.realtime.DeadlineMonitor;
+import java.util.*;
+
+/**
+ * Estimation de la taille retenue des structures du middleware.
+ *
+ * <p>Le modèle est celui d'une JVM 64 bits à références compressées
+ * (tas &lt; 32 Go) : en-tête d'objet de 12 octets, référence de 4 octets,
+ * en-tête de tableau de 16 octets, alignement sur 8 octets, chaînes
+ * compactes (Latin-1 sur un octet). Un message référencé par plusieurs
+ * structures n'est compté qu'une fois, dans la première qui le retient ;
+ * les clés de headers et les subscribers applicatifs sont considérés
+ * comme partagés et ne sont pas comptés.</p>
+ *
+ * <p>Une instance correspond à une mesure : elle mémorise les messages
+ * déjà comptés et ne doit pas être réutilisée.</p>
+ */
+public class MemoryFootprint {
+    public static final int OBJECT_HEADER = 12;
+    public static final int REFERENCE = 4;
+    public static final int ARRAY_HEADER = 16;
+    public static final int ALIGNMENT = 8;
+
+    /** Noeud de ConcurrentHashMap / HashMap : hash, key, value, next. */
+    private static final long MAP_NODE = align(OBJECT_HEADER + 4 + 3 * REFERENCE);
+    private static final long CONCURRENT_HASH_MAP = align(OBJECT_HEADER + 6 * REFERENCE + 8 + 3 * 4);
+    private static final long HASH_MAP = align(OBJECT_HEADER + 4 * REFERENCE + 4 * 4);
+    private static final long COPY_ON_WRITE_LIST = align(OBJECT_HEADER + 2 * REFERENCE)
+            + align(OBJECT_HEADER);
+    private static final long ARRAY_LIST = align(OBJECT_HEADER + 4 + 4 + REFERENCE);
+    private static final long STRING = align(OBJECT_HEADER + REFERENCE + 4 + 1 + 1);
+    private static final long ATOMIC_LONG = align(OBJECT_HEADER + 8);
+    private static final long ATOMIC_BOOLEAN = align(OBJECT_HEADER + 4);
+    /** MessageRingBuffer : 8 références, 1 int, ses 4 compteurs atomiques. */
+    private static final long RING_BUFFER = align(OBJECT_HEADER + 8 * REFERENCE + 4)
+            + 4 * ATOMIC_LONG;
+    /** Case occupée d'un ring buffer : séquence et message. */
+    private static final long RING_SLOT = align(OBJECT_HEADER + 8 + REFERENCE);
+    /** Entrée de skip-list : noeud, clé Long et en moyenne 1/3 de noeud d'index. */
+    private static final long SKIP_LIST_ENTRY = align(OBJECT_HEADER + 3 * REFERENCE)
+            + align(OBJECT_HEADER + 8) + align(OBJECT_HEADER + 3 * REFERENCE) / 3;
+    /** MessageHistory : skip-list, compteurs atomiques et quotas. */
+    private static final long HISTORY = align(OBJECT_HEADER + 6 * REFERENCE + 4 + 3 * 8)
+            + align(OBJECT_HEADER + 4 * REFERENCE + 4) + align(OBJECT_HEADER + 4)
+            + 2 * ATOMIC_LONG;
+
+    /** Message : id, topic, payload, headers, deadline, groupe redondant + 5 long + 2 int. */
+    private static final long MESSAGE = align(OBJECT_HEADER + 6 * REFERENCE + 5 * 8 + 2 * 4);
+    /** Deadline : 5 références, 4 long, 2 booléens, plus son AtomicBoolean. */
+    private static final long DEADLINE = align(OBJECT_HEADER + 5 * REFERENCE + 4 * 8 + 2)
+            + ATOMIC_BOOLEAN;
+    /** Topic : 7 références, 2 long. */
+    private static final long TOPIC = align(OBJECT_HEADER + 7 * REFERENCE + 2 * 8);
+    /** QoS : 4 références d'enum, 7 int, 1 long, 1 booléen. */
+    private static final long QOS = align(OBJECT_HEADER + 4 * REFERENCE + 7 * 4 + 8 + 1);
+    /** CircuitBreaker : 7 références, 3 long, 4 int, ses atomiques et sa fenêtre. */
+    private static final long CIRCUIT_BREAKER = align(OBJECT_HEADER + 7 * REFERENCE + 3 * 8 + 4 * 4)
+            + align(OBJECT_HEADER + REFERENCE) + ATOMIC_BOOLEAN + 2 * ATOMIC_LONG
+            + COPY_ON_WRITE_LIST + 2 * align(ARRAY_HEADER + 20);
+    /** Subscription : 4 références, sa liste d'observateurs et son disjoncteur. */
+    private static final long SUBSCRIPTION = align(OBJECT_HEADER + 4 * REFERENCE)
+            + COPY_ON_WRITE_LIST + CIRCUIT_BREAKER;
+    private static final long TOPIC_METRICS = align(OBJECT_HEADER + 3 * REFERENCE);
+
+    /** Profondeur maximale d'exploration des payloads composites. */
+    private static final int MAX_PAYLOAD_DEPTH = 4;
+
+    private final Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long messageCount = 0;
+
+    /**
+     * Mesure l'ensemble des structures du middleware.
+     */
+    public FootprintReport measure(Collection<Topic> topics,
+                                   RedundancyManager redundancyManager,
+                                   RecoveryManager recoveryManager,
+                                   DeadlineMonitor deadlineMonitor) {
+        Map<String, FootprintReport.TopicFootprint> topicFootprints = new TreeMap<>();
+        for (Topic topic : topics) {
+            topicFootprints.put(topic.getName(), sizeOfTopic(topic));
+        }
+
+        long redundancyBytes = redundancyManager != null
+                ? redundancyManager.estimateFootprint(this) : 0;
+        long recoveryBytes = recoveryManager != null
+                ? recoveryManager.estimateFootprint(this) : 0;
+        long deadlineBytes = deadlineMonitor != null
+                ? deadlineMonitor.estimateFootprint(this) : 0;
+
+        return new FootprintReport(topicFootprints, redundancyBytes, recoveryBytes,
+                deadlineBytes, messageCount);
+    }
+
+    /**
+     * Taille retenue d'un topic, de son historique et de ses abonnements.
+     */
+    public FootprintReport.TopicFootprint sizeOfTopic(Topic topic) {
+        long topicBytes = TOPIC + QOS + sizeOfString(topic.getName())
+                + sizeOfMetrics(topic.getMetrics());
+
+        long historyBytes = HISTORY;
+        int historyCount = 0;
+        for (Message message : topic.getHistory().values()) {
+            historyBytes += SKIP_LIST_ENTRY + sizeOfMessage(message);
+            historyCount++;
+        }
+
+        List<Subscription> subscriptions = topic.getSubscriptions();
+        long subscriberBytes = sizeOfCopyOnWriteList(subscriptions.size());
+        for (Subscription subscription : subscriptions) {
+            subscriberBytes += SUBSCRIPTION + sizeOfHistogram(subscription.getHandlerLatency());
+        }
+
+        return new FootprintReport.TopicFootprint(topic.getName(), topicBytes,
+                historyBytes, historyCount, subscriberBytes, subscriptions.size());
+    }
+
+    /**
+     * Taille retenue d'un message, ou 0 s'il a déjà été compté.
+     */
+    public long sizeOfMessage(Message message) {
+        if (message == null || !counted.add(message)) {
+            return 0;
+        }
+        messageCount++;
+        return message.getEstimatedSize();
+    }
+
+    /**
+     * Estime la taille retenue d'un message : objet, id, topic, payload
+     * et headers (clés partagées).
+     */
+    public static long estimateMessageSize(Message message) {
+        long size = MESSAGE
+                + sizeOfString(message.getId())
+                + sizeOfString(message.getTopic())
+                + sizeOfPayload(message.getPayload());
+
+        Map<String, Object> headers = message.getHeaders();
+        size += sizeOfConcurrentHashMap(headers.size());
+        for (Object value : headers.values()) {
+            // L'id est déjà compté ci-dessus
+            if (value != message.getId()) {
+                size += sizeOfPayload(value);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Taille retenue d'une deadline et de son message s'il n'est pas
+     * déjà compté ailleurs.
+     */
+    public long sizeOfDeadline(Deadline deadline) {
+        return DEADLINE + sizeOfString(deadline.getDeadlineId())
+                + sizeOfMessage(deadline.getMessage());
+    }
+
+    /**
+     * Taille estimée d'un payload.
+     */
+    public static long sizeOfPayload(Object payload) {
+        return sizeOfPayload(payload, 0);
+    }
+
+    private static long sizeOfPayload(Object payload, int depth) {
+        if (payload == null) {
+            return 0;
+        }
+        if (payload instanceof String) {
+            return sizeOfString((String) payload);
+        }
+        if (payload instanceof byte[]) {
+            return align(ARRAY_HEADER + ((byte[]) payload).length);
+        }
+        if (payload instanceof Long || payload instanceof Double) {
+            return align(OBJECT_HEADER + 8);
+        }
+        if (payload instanceof Number || payload instanceof Boolean
+                || payload instanceof Character) {
+            return align(OBJECT_HEADER + 4);
+        }
+        if (payload instanceof int[] || payload instanceof float[]) {
+            return align(ARRAY_HEADER + 4L * java.lang.reflect.Array.getLength(payload));
+        }
+        if (payload instanceof long[] || payload instanceof double[]) {
+            return align(ARRAY_HEADER + 8L * java.lang.reflect.Array.getLength(payload));
+        }
+        if (depth >= MAX_PAYLOAD_DEPTH) {
+            return align(OBJECT_HEADER);
+        }
+        if (payload instanceof Collection) {
+            Collection<?> collection = (Collection<?>) payload;
+            long size = ARRAY_LIST + align(ARRAY_HEADER + (long) REFERENCE * collection.size());
+            for (Object element : collection) {
+                size += sizeOfPayload(element, depth + 1);
+            }
+            return size;
+        }
+        if (payload instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) payload;
+            long size = sizeOfHashMap(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                size += sizeOfPayload(entry.getKey(), depth + 1)
+                        + sizeOfPayload(entry.getValue(), depth + 1);
+            }
+            return size;
+        }
+        if (payload instanceof Object[]) {
+            Object[] array = (Object[]) payload;
+            long size = align(ARRAY_HEADER + (long) REFERENCE * array.length);
+            for (Object element : array) {
+                size += sizeOfPayload(element, depth + 1);
+            }
+            return size;
+        }
+
+        // Objet applicatif opaque : en-tête seul
+        return align(OBJECT_HEADER);
+    }
+
+    /**
+     * Taille d'une chaîne compacte (Latin-1) ou UTF-16.
+     */
+    public static long sizeOfString(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int bytesPerChar = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return STRING + align(ARRAY_HEADER + (long) bytesPerChar * value.length());
+    }
+
+    /**
+     * Taille d'un histogramme de latence.
+     */
+    public static long sizeOfHistogram(LatencyHistogram histogram) {
+        return align(OBJECT_HEADER + 4 * REFERENCE)
+                + align(OBJECT_HEADER + REFERENCE)
+                + align(ARRAY_HEADER + 8L * histogram.getBucketCount())
+                + 3 * ATOMIC_LONG;
+    }
+
+    private static long sizeOfMetrics(TopicMetrics metrics) {
+        return TOPIC_METRICS
+                + sizeOfHistogram(metrics.getPublishToEnqueue())
+                + sizeOfHistogram(metrics.getEnqueueToDispatch())
+                + sizeOfHistogram(metrics.getHandlerExecution());
+    }
+
+    /**
+     * Structure d'une ConcurrentHashMap de {@code entries} entrées
+     * (table, noeuds), sans les clés ni les valeurs.
+     */
+    public static long sizeOfConcurrentHashMap(int entries) {
+        return CONCURRENT_HASH_MAP + tableSize(entries) + entries * MAP_NODE;
+    }
+
+    /**
+     * Structure d'une HashMap de {@code entries} entrées.
+     */
+    public static long sizeOfHashMap(int entries) {
+        return HASH_MAP + tableSize(entries) + entries * MAP_NODE;
+    }
+
+    /**
+     * Structure d'une CopyOnWriteArrayList de {@code elements} éléments.
+     */
+    public static long sizeOfCopyOnWriteList(int elements) {
+        return COPY_ON_WRITE_LIST + align(ARRAY_HEADER + (long) REFERENCE * elements);
+    }
+
+    /**
+     * Structure d'un ring buffer de {@code capacity} cases dont
+     * {@code elements} occupées, index id → séquence compris (sans les messages).
+     */
+    public static long sizeOfRingBuffer(int capacity, int elements) {
+        return RING_BUFFER + align(ARRAY_HEADER + (long) REFERENCE * capacity)
+                + elements * RING_SLOT + sizeOfConcurrentHashMap(elements)
+                + elements * ATOMIC_LONG;
+    }
+
+    /**
+     * Table de hachage : puissance de deux, facteur de charge 0,75.
+     */
+    private static long tableSize(int entries) {
+        int capacity = 16;
+        while (capacity * 3 / 4 < entries) {
+            capacity <<= 1;
+        }
+        return align(ARRAY_HEADER + (long) REFERENCE * capacity);
+    }
+
+    public static long align(long size) {
+        return (size + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+    }
+}
@@ -0,0 +1,116 @@
+package fr.telecom.middleware.memory;
+
+import fr.telecom.middleware.core.Topic;
+import fr.telecom.middleware.fault.RecoveryManager;
+import fr.telecom.middleware.qos.QoS;
+import fr.telecom.middleware.qos.RedundancyManager;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.*;
+
+/**
+ * Gestionnaire global de la pression mémoire.
+ *
+ * <p>Lorsque le {@link MemoryBudget} est dépassé, les octets sont repris
+ * dans l'ordre : messages conservés par la redondance, historiques des
+ * topics par priorité croissante (tous les topics LOW avant le premier
+ * MEDIUM, et ainsi de suite jusqu'à CRITICAL), puis buffers de
+ * récupération. Chaque historique conserve sa part réservée
+ * ({@code QoS.reservedMemoryKB}) et choisit ses victimes selon sa propre
+ * politique d'éviction.</p>
+ */
+public class MemoryManager {
+    private static final Logger logger = LoggerFactory.getLogger(MemoryManager.class);
+
+    /** Octets repris par topic et par tour, pour répartir l'effort entre topics de même priorité. */
+    private static final long RECLAIM_QUANTUM_BYTES = 4096;
+
+    private final MemoryBudget budget;
+    private final RedundancyManager redundancyManager;
+    private final RecoveryManager recoveryManager;
+    private final AtomicBoolean reclaiming = new AtomicBoolean(false);
+
+    public MemoryManager(MemoryBudget budget, RedundancyManager redundancyManager,
+                         RecoveryManager recoveryManager) {
+        this.budget = budget;
+        this.redundancyManager = redundancyManager;
+        this.recoveryManager = recoveryManager;
+    }
+
+    /**
+     * Ramène l'usage sous le seuil bas du budget. Un seul thread récupère
+     * à la fois ; les autres reviennent immédiatement.
+     *
+     * @return les octets libérés
+     */
+    public long reclaim(Collection<Topic> topics) {
+        if (!reclaiming.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            long usedBefore = budget.getUsedBytes();
+
+            if (budget.getExcessBytes() > 0) {
+                redundancyManager.evict(budget.getExcessBytes());
+            }
+
+            for (List<Topic> level : byPriority(topics)) {
+                if (budget.getExcessBytes() == 0) {
+                    break;
+                }
+                reclaimLevel(level);
+            }
+
+            if (budget.getExcessBytes() > 0) {
+                recoveryManager.evict(budget.getExcessBytes());
+            }
+
+            long freed = usedBefore - budget.getUsedBytes();
+            if (budget.isOverBudget()) {
+                logger.warn("Budget mémoire dépassé malgré l'éviction ({} octets libérés, "
+                        + "usage {} KB, limite {} KB) : parts réservées trop grandes ?",
+                        freed, budget.getUsedBytes() / 1024, budget.getLimitBytes() / 1024);
+            } else {
+                logger.debug("Pression mémoire: {} octets libérés, usage {} KB",
+                        freed, budget.getUsedBytes() / 1024);
+            }
+            return freed;
+        } finally {
+            reclaiming.set(false);
+        }
+    }
+
+    /**
+     * Reprend des octets à tour de rôle parmi les topics d'une même priorité.
+     */
+    private void reclaimLevel(List<Topic> level) {
+        boolean progress = true;
+        while (progress && budget.getExcessBytes() > 0) {
+            progress = false;
+            for (Topic topic : level) {
+                long quantum = Math.min(RECLAIM_QUANTUM_BYTES, budget.getExcessBytes());
+                if (quantum == 0) {
+                    return;
+                }
+                if (topic.getHistory().reclaim(quantum) > 0) {
+                    progress = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Topics groupés par priorité croissante.
+     */
+    private static List<List<Topic>> byPriority(Collection<Topic> topics) {
+        Map<QoS.Priority, List<Topic>> levels = new EnumMap<>(QoS.Priority.class);
+        for (Topic topic : topics) {
+            levels.computeIfAbsent(topic.getQoS().getPriority(), k -> new ArrayList<>()).add(topic);
+        }
+        return new ArrayList<>(levels.values());
+    }
+
+    public MemoryBudget getBudget() {
+        return budget;
+    }
+}
@@ -0,0 +1,242 @@
+package fr.telecom.middleware.memory;
+
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.qos.QoS;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Historique borné d'un topic, indexé par numéro de séquence.
+ *
+ * <p>Les quotas (nombre de messages, octets, TTL) viennent de la QoS du
+ * topic. Au dépassement, la victime est choisie par l'{@link EvictionStrategy}
+ * du topic. La pression globale ({@link MemoryManager}) passe par
+ * {@link #reclaim(long)}, qui respecte la part réservée du topic.</p>
+ */
+public class MessageHistory {
+    private final ConcurrentSkipListMap<Long, Message> messages = new ConcurrentSkipListMap<>();
+    private final AtomicInteger count = new AtomicInteger(0);
+    private final AtomicLong bytes = new AtomicLong(0);
+    private final AtomicLong evictedCount = new AtomicLong(0);
+
+    private final int maxCount;
+    private final long maxBytes;
+    private final long ttlMs;
+    private final long reservedBytes;
+    private volatile EvictionStrategy strategy;
+    private volatile MemoryBudget memoryBudget;
+
+    public MessageHistory(QoS qos) {
+        this.maxCount = Math.max(0, qos.getHistorySize());
+        this.maxBytes = qos.getMaxHistoryKB() * 1024L;
+        this.ttlMs = qos.getHistoryTtlMs();
+        this.reservedBytes = qos.getReservedMemoryKB() * 1024L;
+        this.strategy = EvictionStrategies.forPolicy(qos.getEvictionPolicy(), ttlMs);
+    }
+
+    /**
+     * Ajoute un message puis applique les quotas du topic.
+     */
+    public void append(long sequence, Message message) {
+        if (maxCount == 0) {
+            return;
+        }
+        messages.put(sequence, message);
+        count.incrementAndGet();
+        account(message.getEstimatedSize());
+
+        long now = System.currentTimeMillis();
+        evictExpired(now);
+        while (isOverQuota()) {
+            if (evictOne(now) == 0) {
+                break;
+            }
+        }
+    }
+
+    private boolean isOverQuota() {
+        return count.get() > maxCount || (maxBytes > 0 && bytes.get() > maxBytes);
+    }
+
+    /**
+     * Retire les messages les plus anciens dont le TTL du topic est écoulé.
+     *
+     * @return les octets libérés
+     */
+    public long evictExpired(long nowMs) {
+        if (ttlMs <= 0) {
+            return 0;
+        }
+        long freed = 0;
+        Map.Entry<Long, Message> oldest;
+        while ((oldest = messages.firstEntry()) != null
+                && nowMs - oldest.getValue().getPublishTimestamp() > ttlMs) {
+            freed += remove(oldest);
+        }
+        return freed;
+    }
+
+    /**
+     * Évince un message choisi par la stratégie.
+     *
+     * @return les octets libérés, 0 si l'historique est vide
+     */
+    public long evictOne(long nowMs) {
+        if (messages.isEmpty()) {
+            return 0;
+        }
+        Map.Entry<Long, Message> victim = strategy.selectVictim(messages, nowMs);
+        return victim != null ? remove(victim) : 0;
+    }
+
+    /**
+     * Évince au plus {@code bytesToFree} octets sans descendre sous la
+     * part réservée du topic.
+     *
+     * @return les octets libérés
+     */
+    public long reclaim(long bytesToFree) {
+        long now = System.currentTimeMillis();
+        long freed = evictExpired(now);
+        while (freed < bytesToFree && bytes.get() > reservedBytes) {
+            long evicted = evictOne(now);
+            if (evicted == 0) {
+                break;
+            }
+            freed += evicted;
+        }
+        return freed;
+    }
+
+    /**
+     * Réduit l'historique à {@code targetCount} messages.
+     */
+    public void trim(int targetCount) {
+        long now = System.currentTimeMillis();
+        evictExpired(now);
+        while (count.get() > targetCount) {
+            if (evictOne(now) == 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Retire une entrée ; sans effet si un autre thread l'a déjà retirée.
+     */
+    private long remove(Map.Entry<Long, Message> entry) {
+        Message message = entry.getValue();
+        if (!messages.remove(entry.getKey(), message)) {
+            return 0;
+        }
+        count.decrementAndGet();
+        evictedCount.incrementAndGet();
+        int size = message.getEstimatedSize();
+        account(-size);
+        return size;
+    }
+
+    private void account(long delta) {
+        bytes.addAndGet(delta);
+        MemoryBudget budget = memoryBudget;
+        if (budget != null) {
+            budget.allocate(MemoryBudget.Category.HISTORY, delta);
+        }
+    }
+
+    /**
+     * Messages du plus ancien au plus récent (vue faiblement cohérente).
+     */
+    public Collection<Message> values() {
+        return Collections.unmodifiableCollection(messages.values());
+    }
+
+    /**
+     * Messages de séquence comprise dans [{@code fromSequence},
+     * {@code toSequence}], au plus {@code maxCount}, par séquence
+     * croissante. Permet de parcourir une longue plage par lots.
+     */
+    public List<Message> range(long fromSequence, long toSequence, int maxCount) {
+        List<Message> batch = new ArrayList<>(Math.min(maxCount, 64));
+        if (fromSequence > toSequence) {
+            return batch;
+        }
+        for (Message message : messages.subMap(fromSequence, true, toSequence, true).values()) {
+            batch.add(message);
+            if (batch.size() >= maxCount) {
+                break;
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Message de séquence donnée s'il est encore retenu, ou null.
+     */
+    public Message get(long sequence) {
+        return messages.get(sequence);
+    }
+
+    public Message oldest() {
+        Map.Entry<Long, Message> entry = messages.firstEntry();
+        return entry != null ? entry.getValue() : null;
+    }
+
+    public Message newest() {
+        Map.Entry<Long, Message> entry = messages.lastEntry();
+        return entry != null ? entry.getValue() : null;
+    }
+
+    public int size() {
+        return count.get();
+    }
+
+    public boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Nombre de messages évincés depuis la création.
+     */
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    /**
+     * Remplace la stratégie d'éviction (stratégie applicative).
+     */
+    public void setEvictionStrategy(EvictionStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Rattache l'historique au budget mémoire du middleware.
+     */
+    public synchronized void setMemoryBudget(MemoryBudget memoryBudget) {
+        // Reporter les octets déjà retenus sur le nouveau budget
+        if (this.memoryBudget != null) {
+            this.memoryBudget.release(MemoryBudget.Category.HISTORY, bytes.get());
+        }
+        if (memoryBudget != null) {
+            memoryBudget.allocate(MemoryBudget.Category.HISTORY, bytes.get());
+        }
+        this.memoryBudget = memoryBudget;
+    }
+}
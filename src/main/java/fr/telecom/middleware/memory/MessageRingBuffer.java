@@ -0,0 +1,256 @@
+package fr.telecom.middleware.memory;
+
+import fr.telecom.middleware.api.Message;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Ring buffer borné de messages, sans verrou, indexé par id de message.
+ *
+ * <p>L'ajout est en O(1) : un numéro de séquence est réservé par
+ * incrément atomique, la case {@code séquence & masque} est remplacée par
+ * CAS et le message le plus ancien de cette case est écrasé. La recherche
+ * et le retrait par id passent par l'index id → séquence, en O(1)
+ * également. Les octets retenus sont déclarés au budget mémoire.</p>
+ */
+public class MessageRingBuffer {
+
+    /**
+     * Case occupée : le message et la séquence qui l'a écrit.
+     */
+    private static final class Slot {
+        final long sequence;
+        final Message message;
+
+        Slot(long sequence, Message message) {
+            this.sequence = sequence;
+            this.message = message;
+        }
+    }
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final int mask;
+    private final Map<String, Long> index = new ConcurrentHashMap<>();
+    private final AtomicLong writeSequence = new AtomicLong(0);
+    private final AtomicLong readSequence = new AtomicLong(0);
+    private final AtomicInteger size = new AtomicInteger(0);
+    private final AtomicLong bytes = new AtomicLong(0);
+    private final MemoryBudget.Category category;
+    private volatile MemoryBudget memoryBudget;
+
+    /**
+     * @param capacity nombre de cases, arrondi à la puissance de deux supérieure
+     * @param category catégorie du budget mémoire à laquelle imputer les messages
+     */
+    public MessageRingBuffer(int capacity, MemoryBudget.Category category) {
+        int rounded = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(rounded);
+        this.mask = slots.length() - 1;
+        this.category = category;
+    }
+
+    /**
+     * Ajoute un message, en écrasant le plus ancien si le buffer est plein.
+     *
+     * @return le message écrasé, ou null
+     */
+    public Message append(Message message) {
+        long sequence = writeSequence.getAndIncrement();
+        Slot slot = new Slot(sequence, message);
+        int i = (int) (sequence & mask);
+
+        index.put(message.getId(), sequence);
+        size.incrementAndGet();
+        account(message.getEstimatedSize());
+
+        while (true) {
+            Slot previous = slots.get(i);
+            if (previous != null && previous.sequence > sequence) {
+                // Un écrivain d'un tour suivant est déjà passé : ce message
+                // est le plus ancien, il est écrasé aussitôt
+                removed(slot);
+                return message;
+            }
+            if (slots.compareAndSet(i, previous, slot)) {
+                if (previous != null) {
+                    removed(previous);
+                    return previous.message;
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Message d'id donné s'il est encore dans le buffer, ou null.
+     */
+    public Message get(String messageId) {
+        Slot slot = find(messageId);
+        return slot != null ? slot.message : null;
+    }
+
+    /**
+     * Retire le message d'id donné.
+     *
+     * @return le message retiré, ou null s'il n'est plus dans le buffer
+     */
+    public Message remove(String messageId) {
+        while (true) {
+            Slot slot = find(messageId);
+            if (slot == null) {
+                return null;
+            }
+            if (slots.compareAndSet((int) (slot.sequence & mask), slot, null)) {
+                removed(slot);
+                return slot.message;
+            }
+        }
+    }
+
+    private Slot find(String messageId) {
+        Long sequence = index.get(messageId);
+        if (sequence == null) {
+            return null;
+        }
+        Slot slot = slots.get((int) (sequence & mask));
+        return slot != null && slot.sequence == sequence ? slot : null;
+    }
+
+    /**
+     * Retire le message le plus ancien.
+     *
+     * @return le message retiré, ou null si le buffer est vide
+     */
+    public Message pollOldest() {
+        while (true) {
+            long read = readSequence.get();
+            long write = writeSequence.get();
+            if (read >= write) {
+                return null;
+            }
+            if (read < write - slots.length()) {
+                // Les cases de ces séquences ont déjà été réécrites
+                readSequence.compareAndSet(read, write - slots.length());
+                continue;
+            }
+            int i = (int) (read & mask);
+            Slot slot = slots.get(i);
+            if (slot != null && slot.sequence == read) {
+                if (slots.compareAndSet(i, slot, null)) {
+                    readSequence.compareAndSet(read, read + 1);
+                    removed(slot);
+                    return slot.message;
+                }
+                continue;
+            }
+            // Case déjà retirée ou écrasée : passer à la suivante
+            readSequence.compareAndSet(read, read + 1);
+        }
+    }
+
+    /**
+     * Retire tous les messages.
+     *
+     * @return les messages retirés, du plus ancien au plus récent
+     */
+    public List<Message> drain() {
+        List<Slot> taken = new ArrayList<>(size.get());
+        for (int i = 0; i < slots.length(); i++) {
+            Slot slot = slots.getAndSet(i, null);
+            if (slot != null) {
+                removed(slot);
+                taken.add(slot);
+            }
+        }
+        return inOrder(taken);
+    }
+
+    /**
+     * Copie du contenu, du plus ancien au plus récent.
+     */
+    public List<Message> snapshot() {
+        List<Slot> present = new ArrayList<>(size.get());
+        for (int i = 0; i < slots.length(); i++) {
+            Slot slot = slots.get(i);
+            if (slot != null) {
+                present.add(slot);
+            }
+        }
+        return inOrder(present);
+    }
+
+    private static List<Message> inOrder(List<Slot> slots) {
+        slots.sort(Comparator.comparingLong(slot -> slot.sequence));
+        List<Message> messages = new ArrayList<>(slots.size());
+        for (Slot slot : slots) {
+            messages.add(slot.message);
+        }
+        return messages;
+    }
+
+    private void removed(Slot slot) {
+        index.remove(slot.message.getId(), slot.sequence);
+        size.decrementAndGet();
+        account(-slot.message.getEstimatedSize());
+    }
+
+    private void account(long delta) {
+        bytes.addAndGet(delta);
+        MemoryBudget budget = memoryBudget;
+        if (budget != null) {
+            budget.allocate(category, delta);
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    /**
+     * Octets retenus par les messages du buffer.
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Rattache le buffer au budget mémoire du middleware.
+     */
+    public synchronized void setMemoryBudget(MemoryBudget memoryBudget) {
+        // Reporter les octets déjà retenus sur le nouveau budget
+        if (this.memoryBudget != null) {
+            this.memoryBudget.release(category, bytes.get());
+        }
+        if (memoryBudget != null) {
+            memoryBudget.allocate(category, bytes.get());
+        }
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Estime la mémoire retenue par le buffer et ses messages.
+     */
+    public long estimateFootprint(MemoryFootprint footprint) {
+        List<Message> messages = snapshot();
+        long total = MemoryFootprint.sizeOfRingBuffer(slots.length(), messages.size());
+        for (Message message : messages) {
+            total += footprint.sizeOfMessage(message);
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MessageRingBuffer{size=%d/%d, bytes=%d}",
+                size.get(), slots.length(), bytes.get());
+    }
+}
@@ -0,0 +1,414 @@
+package fr.telecom.middleware.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.telecom.middleware.core.*;
+import fr.telecom.middleware.fault.FaultDetector;
+import fr.telecom.middleware.realtime.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import org.slf4j.*;
+
+/**
+ * Flux de métriques pour le dashboard : un instantané par topic, à
+ * cadence fixe.
+ *
+ * <p>Un thread {@code Dashboard-Feed} de priorité minimale relit toutes
+ * les {@code intervalMs} l'état déjà tenu par le middleware (compteurs,
+ * histogrammes, deadlines, disjoncteurs, détecteur de pannes) : aucune
+ * publication ne déclenche d'envoi, et le coût du dashboard ne dépend pas
+ * du débit. Pour chaque topic : débit sur l'intervalle, percentiles de
+ * l'attente avant dispatch et des handlers sur l'intervalle (µs),
+ * deadlines respectées et manquées, et santé de chaque subscriber (état
+ * du disjoncteur, retard en messages, suspicion).</p>
+ *
+ * <p>Le même tour relit les tâches périodiques du Scheduler (gigue de
+ * libération et durée d'exécution sur l'intervalle, dépassements,
+ * activations sautées) et, si elle a démarré, la ligne de temps des
+ * publishers cycliques (retard des libérations et compteurs par topic).
+ * Chaque message porte les sections {@code topics}, {@code periodicTasks}
+ * et {@code timeline}.</p>
+ *
+ * <p>Un client reçoit d'abord l'instantané complet, puis à chaque tour
+ * uniquement les valeurs qui ont changé depuis le dernier envoi qu'il a
+ * reçu (null pour ce qui a disparu). Un client dont l'envoi précédent
+ * n'est pas terminé est sauté : son delta suivant couvre les deux tours,
+ * si bien qu'un client lent ne fait ni attendre le thread ni grossir une
+ * file.</p>
+ */
+public class DashboardFeed {
+    private static final Logger logger = LoggerFactory.getLogger(DashboardFeed.class);
+
+    public static final long DEFAULT_INTERVAL_MS = 500;
+
+    /**
+     * Destination des messages JSON du flux.
+     */
+    public interface Client {
+
+        /**
+         * Envoie un message sans bloquer.
+         *
+         * @return false si l'envoi précédent n'est pas terminé ; le
+         *         message n'est alors pas envoyé
+         */
+        boolean trySend(String json);
+    }
+
+    private final Middleware middleware;
+    private final long intervalMs;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<ClientState> clients = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService executor;
+    private final AtomicLong ticks = new AtomicLong(0);
+    private final AtomicLong sent = new AtomicLong(0);
+    private final AtomicLong coalesced = new AtomicLong(0);
+
+    // État du thread du flux
+    private final Map<String, TopicReader> readers = new HashMap<>();
+    private final Map<PeriodicTask, PeriodicTaskReader> taskReaders = new HashMap<>();
+    private LatencyHistogram.Interval timelineLateness;
+    private volatile Map<String, Object> current = Collections.emptyMap();
+    private long lastTickNanos = System.nanoTime();
+
+    public DashboardFeed(Middleware middleware) {
+        this(middleware, DEFAULT_INTERVAL_MS);
+    }
+
+    public DashboardFeed(Middleware middleware, long intervalMs) {
+        if (intervalMs <= 0) {
+            throw new IllegalArgumentException("Intervalle invalide: " + intervalMs);
+        }
+        this.middleware = middleware;
+        this.intervalMs = intervalMs;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Dashboard-Feed");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Démarre les envois périodiques.
+     */
+    public void start() {
+        executor.scheduleAtFixedRate(this::tick, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Flux du dashboard démarré (toutes les {} ms)", intervalMs);
+    }
+
+    /**
+     * Ajoute un client ; il recevra l'instantané complet au prochain tour.
+     */
+    public void addClient(Client client) {
+        clients.add(new ClientState(client));
+    }
+
+    public void removeClient(Client client) {
+        clients.removeIf(state -> state.client == client);
+    }
+
+    /**
+     * Un tour : capture l'instantané puis envoie à chaque client son delta.
+     */
+    void tick() {
+        try {
+            Map<String, Object> snapshot = capture();
+            current = snapshot;
+            ticks.incrementAndGet();
+            for (ClientState state : clients) {
+                push(state, snapshot);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Erreur du flux du dashboard: {}", e.getMessage());
+        }
+    }
+
+    private void push(ClientState state, Map<String, Object> snapshot) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        if (state.baseline == null) {
+            message.put("type", "snapshot");
+            message.put("time", System.currentTimeMillis());
+            message.putAll(snapshot);
+        } else {
+            Map<String, Object> delta = diff(state.baseline, snapshot);
+            if (delta.isEmpty()) {
+                return;
+            }
+            message.put("type", "delta");
+            message.put("time", System.currentTimeMillis());
+            message.putAll(delta);
+        }
+        String json;
+        try {
+            json = mapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            logger.error("Instantané non sérialisable: {}", e.getMessage());
+            return;
+        }
+        if (state.client.trySend(json)) {
+            state.baseline = snapshot;
+            sent.incrementAndGet();
+        } else {
+            // Envoi précédent en cours : ce tour sera inclus dans le suivant
+            coalesced.incrementAndGet();
+        }
+    }
+
+    /**
+     * Instantané complet : topics, tâches périodiques et ligne de temps.
+     */
+    private Map<String, Object> capture() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("topics", captureTopics());
+        snapshot.put("periodicTasks", capturePeriodicTasks());
+        snapshot.put("timeline", captureTimeline());
+        return snapshot;
+    }
+
+    /**
+     * Instantané de tous les topics.
+     */
+    private Map<String, Object> captureTopics() {
+        long now = System.nanoTime();
+        double elapsedSeconds = Math.max(1e-3, (now - lastTickNanos) / 1e9);
+        lastTickNanos = now;
+        Map<String, Long> missed = middleware.getDeadlineMonitor().getMissedDeadlinesStats();
+        Map<String, Long> met = middleware.getDeadlineMonitor().getMetDeadlinesStats();
+        FaultDetector faultDetector = middleware.getFaultDetector();
+
+        Map<String, Object> snapshot = new TreeMap<>();
+        Set<String> names = new HashSet<>();
+        for (Topic topic : middleware.getAllTopics()) {
+            String name = topic.getName();
+            names.add(name);
+            TopicReader reader = readers.computeIfAbsent(name, n -> new TopicReader(topic));
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            long messages = topic.getMessageCount();
+            stats.put("messages", messages);
+            stats.put("throughput", round((messages - reader.lastCount) / elapsedSeconds));
+            reader.lastCount = messages;
+            putLatency(stats, "dispatch", reader.dispatch.next());
+            putLatency(stats, "handler", reader.handler.next());
+            stats.put("deadlinesMet", met.getOrDefault(name, 0L));
+            stats.put("deadlinesMissed", missed.getOrDefault(name, 0L));
+
+            Map<String, Object> subscribers = new TreeMap<>();
+            for (Subscription subscription : topic.getSubscriptions()) {
+                Subscriber subscriber = subscription.getSubscriber();
+                Map<String, Object> health = new LinkedHashMap<>();
+                health.put("circuit", subscription.getCircuitBreaker().getState().name());
+                health.put("lag", Math.max(0, messages - subscription.getDeliveredSequence()));
+                health.put("suspected", faultDetector.isSuspected(subscriber, topic));
+                subscribers.put(subscriber.getSubscriberId(), health);
+            }
+            stats.put("subscribers", subscribers);
+            snapshot.put(name, stats);
+        }
+        readers.keySet().retainAll(names);
+        return snapshot;
+    }
+
+    /**
+     * Mesures des tâches périodiques, par nom.
+     */
+    private Map<String, Object> capturePeriodicTasks() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        Collection<PeriodicTask> tasks = middleware.getScheduler().getPeriodicTasks();
+        for (PeriodicTask task : tasks) {
+            PeriodicTaskReader reader = taskReaders.computeIfAbsent(task, PeriodicTaskReader::new);
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("periodUs", micros(task.getPeriodNanos()));
+            stats.put("policy", task.getOverrunPolicy().name());
+            stats.put("releases", task.getReleaseCount());
+            putLatency(stats, "jitter", reader.jitter.next());
+            putLatency(stats, "execution", reader.execution.next());
+            stats.put("overruns", task.getOverrunCount());
+            stats.put("skipped", task.getSkippedReleaseCount());
+            stats.put("failures", task.getFailureCount());
+            snapshot.put(task.getName(), stats);
+        }
+        // Tâches annulées ou remplacées
+        taskReaders.keySet().retainAll(tasks);
+        return snapshot;
+    }
+
+    /**
+     * Ligne de temps des publishers cycliques, vide tant qu'elle n'a pas
+     * démarré.
+     */
+    private Map<String, Object> captureTimeline() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        ReleaseTimeline timeline = middleware.getScheduler().getReleaseTimelineIfStarted();
+        if (timeline == null) {
+            return snapshot;
+        }
+        if (timelineLateness == null) {
+            timelineLateness = timeline.getReleaseLateness().interval();
+            timelineLateness.next();
+        }
+        snapshot.put("tickUs", micros(timeline.getTickNanos()));
+        snapshot.put("releases", timeline.getReleaseCount());
+        snapshot.put("fired", timeline.getFiredCount());
+        putLatency(snapshot, "lateness", timelineLateness.next());
+
+        // Flux cycliques cumulés par topic
+        Map<String, long[]> totals = new TreeMap<>();
+        for (CyclicPublisher publisher : middleware.getCyclicPublishers()) {
+            long[] total = totals.computeIfAbsent(publisher.getTopicName(), name -> new long[4]);
+            total[0]++;
+            total[1] += publisher.getPublishedCount();
+            total[2] += publisher.getMissedCount();
+            total[3] += publisher.getFailureCount();
+        }
+        Map<String, Object> streams = new TreeMap<>();
+        totals.forEach((topicName, total) -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("streams", total[0]);
+            stats.put("published", total[1]);
+            stats.put("missed", total[2]);
+            stats.put("failures", total[3]);
+            streams.put(topicName, stats);
+        });
+        snapshot.put("streams", streams);
+        return snapshot;
+    }
+
+    private static void putLatency(Map<String, Object> stats, String prefix,
+                                   LatencyHistogram.Snapshot latency) {
+        stats.put(prefix + "P50Us", micros(latency.p50));
+        stats.put(prefix + "P99Us", micros(latency.p99));
+        stats.put(prefix + "MaxUs", micros(latency.max));
+    }
+
+    /**
+     * Microsecondes au dixième : les variations plus fines ne sont pas
+     * renvoyées.
+     */
+    private static double micros(long nanos) {
+        return round(nanos / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    /**
+     * Valeurs de {@code after} qui diffèrent de {@code before}, récursivement
+     * pour les objets imbriqués ; null pour une clé disparue.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> diff(Map<String, Object> before, Map<String, Object> after) {
+        Map<String, Object> delta = new TreeMap<>();
+        for (Map.Entry<String, Object> entry : after.entrySet()) {
+            Object previous = before.get(entry.getKey());
+            Object value = entry.getValue();
+            if (previous instanceof Map && value instanceof Map) {
+                Map<String, Object> nested = diff((Map<String, Object>) previous,
+                        (Map<String, Object>) value);
+                if (!nested.isEmpty()) {
+                    delta.put(entry.getKey(), nested);
+                }
+            } else if (!Objects.equals(previous, value)) {
+                delta.put(entry.getKey(), value);
+            }
+        }
+        for (String key : before.keySet()) {
+            if (!after.containsKey(key)) {
+                delta.put(key, null);
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Arrête les envois.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        clients.clear();
+        logger.info("Flux du dashboard arrêté");
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    /**
+     * Dernier instantané capturé (section, puis topic ou tâche, puis
+     * métrique).
+     */
+    public Map<String, Object> getCurrentSnapshot() {
+        return current;
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    public long getTickCount() {
+        return ticks.get();
+    }
+
+    /**
+     * Messages envoyés, tous clients confondus.
+     */
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    /**
+     * Envois sautés car le précédent n'était pas terminé.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Dernier état envoyé à un client.
+     */
+    private static class ClientState {
+        private final Client client;
+        private Map<String, Object> baseline;
+
+        ClientState(Client client) {
+            this.client = client;
+        }
+    }
+
+    /**
+     * Lecteurs par intervalle des histogrammes d'une tâche périodique.
+     */
+    private static class PeriodicTaskReader {
+        private final LatencyHistogram.Interval jitter;
+        private final LatencyHistogram.Interval execution;
+
+        PeriodicTaskReader(PeriodicTask task) {
+            this.jitter = task.getReleaseJitter().interval();
+            this.execution = task.getExecutionTime().interval();
+            jitter.next();
+            execution.next();
+        }
+    }
+
+    /**
+     * Lecteurs par intervalle des histogrammes d'un topic.
+     */
+    private static class TopicReader {
+        private final LatencyHistogram.Interval dispatch;
+        private final LatencyHistogram.Interval handler;
+        private long lastCount;
+
+        TopicReader(Topic topic) {
+            this.dispatch = topic.getMetrics().getEnqueueToDispatch().interval();
+            this.handler = topic.getMetrics().getHandlerExecution().interval();
+            this.lastCount = topic.getMessageCount();
+            // Le premier intervalle commence à la découverte du topic
+            dispatch.next();
+            handler.next();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package fr.telecom.middleware.metrics;
+
+import fr.telecom.middleware.core.Middleware;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.websocket.*;
+import javax.websocket.server.ServerEndpointConfig;
+import org.eclipse.jetty.server.*;
+import org.eclipse.jetty.servlet.*;
+import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.websocket.jsr356.server.deploy.WebSocketServerContainerInitializer;
+import org.slf4j.*;
+
+/**
+ * Dashboard embarqué : serveur Jetty qui diffuse un {@link DashboardFeed}
+ * en WebSocket sur {@value #FEED_PATH} et sert la page du dashboard à la
+ * racine.
+ *
+ * <p>Les envois sont asynchrones : le thread du flux ne bloque jamais sur
+ * un navigateur lent, dont les deltas sont alors regroupés.</p>
+ */
+public class DashboardServer {
+    private static final Logger logger = LoggerFactory.getLogger(DashboardServer.class);
+
+    public static final String FEED_PATH = "/metrics";
+
+    private final DashboardFeed feed;
+    private final Server server;
+    private final ServerConnector connector;
+
+    /**
+     * @param port port d'écoute, 0 pour un port libre
+     */
+    public DashboardServer(Middleware middleware, int port, long intervalMs) {
+        this(new DashboardFeed(middleware, intervalMs), port);
+    }
+
+    public DashboardServer(DashboardFeed feed, int port) {
+        this.feed = feed;
+        this.server = new Server();
+        this.connector = new ServerConnector(server);
+        connector.setPort(port);
+        server.addConnector(connector);
+    }
+
+    /**
+     * Démarre le serveur et le flux.
+     *
+     * @return le port d'écoute
+     */
+    public int start() throws Exception {
+        ServletContextHandler context = new ServletContextHandler();
+        context.setContextPath("/");
+        context.setBaseResource(Resource.newClassPathResource("/dashboard"));
+        context.addServlet(DefaultServlet.class, "/");
+        WebSocketServerContainerInitializer.configure(context, (servletContext, container) ->
+                container.addEndpoint(ServerEndpointConfig.Builder
+                        .create(FeedEndpoint.class, FEED_PATH)
+                        .configurator(new ServerEndpointConfig.Configurator() {
+                            @Override
+                            public <T> T getEndpointInstance(Class<T> endpointClass) {
+                                return endpointClass.cast(new FeedEndpoint(feed));
+                            }
+                        })
+                        .build()));
+        server.setHandler(context);
+        server.start();
+        feed.start();
+        logger.info("Dashboard disponible sur http://localhost:{}/ (flux: {})",
+                getPort(), FEED_PATH);
+        return getPort();
+    }
+
+    public int getPort() {
+        return connector.getLocalPort();
+    }
+
+    public DashboardFeed getFeed() {
+        return feed;
+    }
+
+    /**
+     * Arrête le flux puis le serveur.
+     */
+    public void stop() {
+        feed.shutdown();
+        try {
+            server.stop();
+        } catch (Exception e) {
+            logger.warn("Arrêt du dashboard: {}", e.getMessage());
+        }
+        logger.info("Dashboard arrêté");
+    }
+
+    /**
+     * Une session WebSocket, cliente du flux.
+     */
+    public static class FeedEndpoint extends Endpoint {
+        private final DashboardFeed feed;
+        private volatile DashboardFeed.Client client;
+
+        FeedEndpoint(DashboardFeed feed) {
+            this.feed = feed;
+        }
+
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            AtomicBoolean sending = new AtomicBoolean(false);
+            client = json -> {
+                if (!session.isOpen() || !sending.compareAndSet(false, true)) {
+                    return false;
+                }
+                session.getAsyncRemote().sendText(json, result -> {
+                    sending.set(false);
+                    if (!result.isOK()) {
+                        logger.debug("Envoi au dashboard échoué: {}", result.getException().getMessage());
+                    }
+                });
+                return true;
+            };
+            feed.addClient(client);
+            logger.info("Client du dashboard connecté: {}", session.getId());
+        }
+
+        @Override
+        public void onClose(Session session, CloseReason closeReason) {
+            feed.removeClient(client);
+            logger.info("Client du dashboard déconnecté: {}", session.getId());
+        }
+
+        @Override
+        public void onError(Session session, Throwable error) {
+            feed.removeClient(client);
+            try {
+                session.close();
+            } catch (IOException e) {
+                logger.debug("Fermeture de la session {}: {}", session.getId(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package fr.telecom.middleware.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Histogramme de latence à buckets log-linéaires (style HDR).
+ *
+ * <p>Chaque puissance de deux est découpée en {@value #SUB_BUCKET_COUNT}
+ * sous-intervalles, soit une erreur relative inférieure à 6,25%.
+ * L'enregistrement est sans verrou et sans allocation : il peut rester
+ * actif en production. Les valeurs sont exprimées en nanosecondes et
+ * plafonnées à 2^{@value #MAX_MAGNITUDE} ns (~68 s).</p>
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 36;
+    private static final long MAX_TRACKABLE_VALUE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+    private static final int BUCKET_COUNT =
+            SUB_BUCKET_COUNT + (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong(0);
+    private final AtomicLong totalValue = new AtomicLong(0);
+    private final AtomicLong maxValue = new AtomicLong(0);
+
+    /**
+     * Enregistre une valeur en nanosecondes.
+     */
+    public void record(long valueNanos) {
+        if (valueNanos < 0) {
+            valueNanos = 0;
+        }
+
+        counts.incrementAndGet(bucketIndex(valueNanos));
+        totalCount.incrementAndGet();
+        totalValue.addAndGet(valueNanos);
+
+        long currentMax = maxValue.get();
+        while (valueNanos > currentMax) {
+            if (maxValue.compareAndSet(currentMax, valueNanos)) {
+                break;
+            }
+            currentMax = maxValue.get();
+        }
+    }
+
+    /**
+     * Nombre de buckets de l'histogramme.
+     */
+    public int getBucketCount() {
+        return BUCKET_COUNT;
+    }
+
+    /**
+     * Calcule l'index du bucket d'une valeur.
+     */
+    static int bucketIndex(long value) {
+        if (value > MAX_TRACKABLE_VALUE) {
+            value = MAX_TRACKABLE_VALUE;
+        }
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Plus grande valeur équivalente d'un bucket.
+     */
+    static long highestValueInBucket(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        int subBucket = index % SUB_BUCKET_COUNT;
+        long lowest = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Retourne la valeur au percentile demandé (0-100), en nanosecondes.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil((percentile / 100.0) * count);
+        rank = Math.max(1, Math.min(rank, count));
+
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueInBucket(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    public double getMean() {
+        long count = totalCount.get();
+        return count > 0 ? totalValue.get() / (double) count : 0;
+    }
+
+    /**
+     * Remet l'histogramme à zéro.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalValue.set(0);
+        maxValue.set(0);
+    }
+
+    /**
+     * Capture un instantané des percentiles principaux.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(
+                getCount(),
+                getMean(),
+                getValueAtPercentile(50),
+                getValueAtPercentile(90),
+                getValueAtPercentile(99),
+                getValueAtPercentile(99.9),
+                getMax()
+        );
+    }
+
+    /**
+     * Nouveau lecteur des valeurs enregistrées par intervalle.
+     */
+    public Interval interval() {
+        return new Interval();
+    }
+
+    /**
+     * Lecteur des valeurs enregistrées entre deux appels à {@link #next()},
+     * sans remise à zéro : les autres lecteurs de l'histogramme ne sont
+     * pas affectés. Un seul thread par lecteur ; le maximum d'un intervalle
+     * est la borne haute de son bucket le plus élevé.
+     */
+    public class Interval {
+        private final long[] previous = new long[BUCKET_COUNT];
+        private final long[] delta = new long[BUCKET_COUNT];
+        private long previousCount = 0;
+        private long previousValue = 0;
+
+        private Interval() {
+        }
+
+        public Snapshot next() {
+            long count = 0;
+            int highest = -1;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long current = counts.get(i);
+                delta[i] = current - previous[i];
+                previous[i] = current;
+                count += delta[i];
+                if (delta[i] > 0) {
+                    highest = i;
+                }
+            }
+            long total = totalCount.get();
+            long value = totalValue.get();
+            long countDelta = total - previousCount;
+            double mean = countDelta > 0 ? (value - previousValue) / (double) countDelta : 0;
+            previousCount = total;
+            previousValue = value;
+            if (count == 0) {
+                return new Snapshot(0, 0, 0, 0, 0, 0, 0);
+            }
+            long max = Math.min(highestValueInBucket(highest), getMax());
+            return new Snapshot(count, mean, percentile(50, count, max),
+                    percentile(90, count, max), percentile(99, count, max),
+                    percentile(99.9, count, max), max);
+        }
+
+        private long percentile(double percentile, long count, long max) {
+            long rank = Math.max(1, Math.min((long) Math.ceil((percentile / 100.0) * count), count));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += delta[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueInBucket(i), max);
+                }
+            }
+            return max;
+        }
+    }
+
+    /**
+     * Instantané immuable d'un histogramme (valeurs en nanosecondes).
+     */
+    public static class Snapshot {
+        public final long count;
+        public final double mean;
+        public final long p50;
+        public final long p90;
+        public final long p99;
+        public final long p999;
+        public final long max;
+
+        public Snapshot(long count, double mean, long p50, long p90,
+                        long p99, long p999, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        private static double micros(double nanos) {
+            return nanos / TimeUnit.MICROSECONDS.toNanos(1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "{n=%d, mean=%.1fµs, p50=%.1fµs, p90=%.1fµs, p99=%.1fµs, p99.9=%.1fµs, max=%.1fµs}",
+                    count, micros(mean), micros(p50), micros(p90),
+                    micros(p99), micros(p999), micros(max)
+            );
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package fr.telecom.middleware.metrics;
+
+/**
+ * Histogrammes de latence d'un topic, toujours actifs.
+ *
+ * <ul>
+ *   <li>publication → mise en file : de {@code Middleware.publish} à l'entrée du topic</li>
+ *   <li>mise en file → dispatch : de l'entrée du topic au début de la livraison</li>
+ *   <li>exécution des handlers : durée de {@code Subscriber.onMessage}</li>
+ * </ul>
+ */
+public class TopicMetrics {
+    private final LatencyHistogram publishToEnqueue = new LatencyHistogram();
+    private final LatencyHistogram enqueueToDispatch = new LatencyHistogram();
+    private final LatencyHistogram handlerExecution = new LatencyHistogram();
+
+    public void recordPublishToEnqueue(long nanos) {
+        publishToEnqueue.record(nanos);
+    }
+
+    public void recordEnqueueToDispatch(long nanos) {
+        enqueueToDispatch.record(nanos);
+    }
+
+    public void recordHandlerExecution(long nanos) {
+        handlerExecution.record(nanos);
+    }
+
+    public LatencyHistogram getPublishToEnqueue() {
+        return publishToEnqueue;
+    }
+
+    public LatencyHistogram getEnqueueToDispatch() {
+        return enqueueToDispatch;
+    }
+
+    public LatencyHistogram getHandlerExecution() {
+        return handlerExecution;
+    }
+}
@@ -0,0 +1,198 @@
+package fr.telecom.middleware.metrics;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Profilage WCET (Worst-Case Execution Time) des étapes du pipeline.
+ *
+ * <p>Pour chaque étape, l'histogramme donne les percentiles élevés et
+ * les {@value #WORST_CASE_SAMPLES} pires exécutions sont conservées avec
+ * la taille d'entrée qui les a produites. L'enregistrement est sans
+ * verrou, sauf lorsqu'une mesure entre dans le classement des pires cas.</p>
+ */
+public class WcetProfiler {
+    private static final int WORST_CASE_SAMPLES = 5;
+
+    /**
+     * Étapes instrumentées du pipeline de publication.
+     */
+    public enum Stage {
+        TOPIC_LOOKUP("Recherche du topic", "topics"),
+        MEMORY_CHECK("Vérification mémoire", "topics"),
+        DEADLINE_REGISTRATION("Enregistrement deadline", "deadlines actives"),
+        REDUNDANCY_COPY("Enveloppes redondantes", "copies"),
+        SUBSCRIBER_DELIVERY("Livraison (1 subscriber)", "taille payload"),
+        PUBLISH("Publication complète", "subscribers");
+
+        private final String label;
+        private final String inputUnit;
+
+        Stage(String label, String inputUnit) {
+            this.label = label;
+            this.inputUnit = inputUnit;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public String getInputUnit() {
+            return inputUnit;
+        }
+    }
+
+    private final Map<Stage, StageProfile> profiles = new EnumMap<>(Stage.class);
+    private volatile boolean enabled = true;
+
+    public WcetProfiler() {
+        for (Stage stage : Stage.values()) {
+            profiles.put(stage, new StageProfile());
+        }
+    }
+
+    /**
+     * Profil d'exécution d'une étape.
+     */
+    public static class StageProfile {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final long[] worstNanos = new long[WORST_CASE_SAMPLES];
+        private final long[] worstInputSizes = new long[WORST_CASE_SAMPLES];
+        private volatile long admissionThreshold = 0;
+
+        void record(long nanos, long inputSize) {
+            histogram.record(nanos);
+            if (nanos > admissionThreshold) {
+                recordWorstCase(nanos, inputSize);
+            }
+        }
+
+        /**
+         * Insère une mesure dans le classement trié des pires cas.
+         */
+        private synchronized void recordWorstCase(long nanos, long inputSize) {
+            int last = WORST_CASE_SAMPLES - 1;
+            if (nanos <= worstNanos[last]) {
+                return;
+            }
+
+            int position = last;
+            while (position > 0 && worstNanos[position - 1] < nanos) {
+                worstNanos[position] = worstNanos[position - 1];
+                worstInputSizes[position] = worstInputSizes[position - 1];
+                position--;
+            }
+            worstNanos[position] = nanos;
+            worstInputSizes[position] = inputSize;
+            admissionThreshold = worstNanos[last];
+        }
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        /**
+         * Temps d'exécution maximal observé (ns).
+         */
+        public synchronized long getWcetNanos() {
+            return worstNanos[0];
+        }
+
+        /**
+         * Taille d'entrée ayant produit le temps maximal.
+         */
+        public synchronized long getInputSizeAtWcet() {
+            return worstInputSizes[0];
+        }
+
+        /**
+         * Pires exécutions, triées par durée décroissante : {ns, taille}.
+         */
+        public synchronized List<long[]> getWorstCases() {
+            List<long[]> cases = new ArrayList<>();
+            for (int i = 0; i < WORST_CASE_SAMPLES && worstNanos[i] > 0; i++) {
+                cases.add(new long[] {worstNanos[i], worstInputSizes[i]});
+            }
+            return cases;
+        }
+    }
+
+    /**
+     * Enregistre la durée d'exécution d'une étape.
+     */
+    public void record(Stage stage, long nanos, long inputSize) {
+        if (enabled) {
+            profiles.get(stage).record(nanos, inputSize);
+        }
+    }
+
+    public StageProfile getProfile(Stage stage) {
+        return profiles.get(stage);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Produit le rapport WCET mesuré.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("    %-26s | %8s | %9s | %10s | %9s | %s%n",
+                "Étape", "n", "p99 (µs)", "p99.9 (µs)", "WCET (µs)", "entrée au WCET"));
+        sb.append("    ").append("-".repeat(26)).append("-|-")
+                .append("-".repeat(8)).append("-|-")
+                .append("-".repeat(9)).append("-|-")
+                .append("-".repeat(10)).append("-|-")
+                .append("-".repeat(9)).append("-|-")
+                .append("-".repeat(20)).append(String.format("%n"));
+
+        for (Stage stage : Stage.values()) {
+            StageProfile profile = profiles.get(stage);
+            LatencyHistogram histogram = profile.getHistogram();
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            sb.append(String.format("    %-26s | %8d | %9.1f | %10.1f | %9.1f | %d %s%n",
+                    stage.getLabel(),
+                    histogram.getCount(),
+                    micros(histogram.getValueAtPercentile(99)),
+                    micros(histogram.getValueAtPercentile(99.9)),
+                    micros(profile.getWcetNanos()),
+                    profile.getInputSizeAtWcet(),
+                    stage.getInputUnit()));
+        }
+        return sb.toString();
+    }
+
+    private static double micros(long nanos) {
+        return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    /**
+     * Estime la taille d'entrée d'un payload pour le profilage.
+     */
+    public static long inputSizeOf(Object payload) {
+        if (payload == null) {
+            return 0;
+        }
+        if (payload instanceof CharSequence) {
+            return ((CharSequence) payload).length();
+        }
+        if (payload instanceof byte[]) {
+            return ((byte[]) payload).length;
+        }
+        if (payload instanceof Collection) {
+            return ((Collection<?>) payload).size();
+        }
+        if (payload instanceof Map) {
+            return ((Map<?, ?>) payload).size();
+        }
+        return 1;
+    }
+}
@@ -1,31 +1,107 @@
 package fr.telecom.middleware.qos;
 
 import fr.telecom.middleware.api.Message;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.*;
+import java.util.function.Consumer;
 
 /**
  * Représente une deadline à respecter.
+ *
+ * <p>Une deadline est résolue une seule fois : soit complétée à la fin
+ * de la livraison ({@link #complete()}), soit déclarée manquée par le
+ * moniteur ({@link #markAsMissed()}).</p>
  */
 public class Deadline {
+    private static final AtomicLong SEQUENCE = new AtomicLong(0);
+
     private final String deadlineId;
     private final String topicName;
     private final Message message;
     private final long deadlineTimestamp;
-    private boolean met = false;
-    private boolean expired = false;
+    private final long releaseNanos;
+    private final long deadlineNanos;
+    private final AtomicBoolean resolved = new AtomicBoolean(false);
+    private volatile boolean met = false;
+    private volatile boolean expired = false;
+    private volatile long completionLatencyNanos = -1;
+    private volatile Consumer<Deadline> resolutionListener;
 
     public Deadline(String topicName, Message message, int deadlineMs) {
-        this.deadlineId = "DL-" + System.currentTimeMillis() + "-" +
-                topicName.hashCode();
+        this(topicName, message, deadlineMs, System.nanoTime());
+    }
+
+    /**
+     * Deadline qui court depuis {@code releaseNanos} ({@code System.nanoTime})
+     * plutôt que depuis sa création : une libération cyclique en retard
+     * n'allonge pas l'échéance.
+     */
+    public Deadline(String topicName, Message message, int deadlineMs, long releaseNanos) {
+        long now = System.currentTimeMillis();
+        this.deadlineId = "DL-" + now + "-" + SEQUENCE.incrementAndGet();
         this.topicName = topicName;
         this.message = message;
-        this.deadlineTimestamp = System.currentTimeMillis() + deadlineMs;
+        this.releaseNanos = releaseNanos;
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - releaseNanos);
+        this.deadlineTimestamp = now + deadlineMs - elapsedMs;
+    }
+
+    /**
+     * Enregistre le callback appelé lors de la résolution de la deadline.
+     */
+    public void setResolutionListener(Consumer<Deadline> listener) {
+        this.resolutionListener = listener;
     }
 
     /**
      * Marque la deadline comme respectée.
      */
     public void markAsMet() {
-        this.met = true;
+        complete();
+    }
+
+    /**
+     * Complète la deadline à la fin de la livraison et mesure la latence
+     * publication-livraison.
+     *
+     * @return true si la livraison a eu lieu avant l'échéance
+     */
+    public boolean complete() {
+        long latency = System.nanoTime() - releaseNanos;
+        if (!resolved.compareAndSet(false, true)) {
+            return met;
+        }
+
+        completionLatencyNanos = latency;
+        if (latency <= deadlineNanos) {
+            met = true;
+        } else {
+            expired = true;
+        }
+        notifyResolution();
+        return met;
+    }
+
+    /**
+     * Déclare la deadline manquée si elle n'est pas encore résolue.
+     *
+     * @return true si cet appel a résolu la deadline
+     */
+    public boolean markAsMissed() {
+        if (!resolved.compareAndSet(false, true)) {
+            return false;
+        }
+        expired = true;
+        notifyResolution();
+        return true;
+    }
+
+    private void notifyResolution() {
+        Consumer<Deadline> listener = resolutionListener;
+        if (listener != null) {
+            listener.accept(this);
+        }
     }
 
     /**
@@ -51,7 +127,8 @@ public class Deadline {
      */
     public long getOvertimeMs() {
         if (!isExpired()) return 0;
-        return System.currentTimeMillis() - deadlineTimestamp;
+        // Une livraison échouée est manquée avant l'échéance
+        return Math.max(0, System.currentTimeMillis() - deadlineTimestamp);
     }
 
     // Getters
@@ -71,10 +148,28 @@ public class Deadline {
         return met;
     }
 
+    public boolean isResolved() {
+        return resolved.get();
+    }
+
+    /**
+     * Latence publication-livraison mesurée, ou -1 si non complétée.
+     */
+    public long getCompletionLatencyNanos() {
+        return completionLatencyNanos;
+    }
+
     public long getDeadlineTimestamp() {
         return deadlineTimestamp;
     }
 
+    /**
+     * Échéance absolue sur l'horloge System.nanoTime.
+     */
+    public long getAbsoluteDeadlineNanos() {
+        return releaseNanos + deadlineNanos;
+    }
+
     @Override
     public String toString() {
         return String.format(
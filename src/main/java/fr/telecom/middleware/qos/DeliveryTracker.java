@@ -0,0 +1,86 @@
+package fr.telecom.middleware.qos;
+
+import fr.telecom.middleware.memory.MemoryFootprint;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Compteurs de tentatives de livraison par id de message, bornés.
+ *
+ * <p>Les ids suivis sont inscrits dans un anneau de taille fixe : le
+ * {@code capacity + 1}-ième id suivi fait oublier le plus ancien. La
+ * mémoire reste ainsi constante quel que soit le nombre de messages
+ * publiés.</p>
+ */
+public class DeliveryTracker {
+    private final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> order;
+    private final AtomicLong cursor = new AtomicLong(0);
+
+    public DeliveryTracker(int capacity) {
+        this.order = new AtomicReferenceArray<>(Math.max(1, capacity));
+    }
+
+    /**
+     * Enregistre une tentative de livraison.
+     */
+    public void record(String messageId) {
+        AtomicInteger count = attempts.get(messageId);
+        if (count == null) {
+            AtomicInteger created = new AtomicInteger();
+            count = attempts.putIfAbsent(messageId, created);
+            if (count == null) {
+                count = created;
+                track(messageId);
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    private void track(String messageId) {
+        int slot = (int) (cursor.getAndIncrement() % order.length());
+        String forgotten = order.getAndSet(slot, messageId);
+        if (forgotten != null && !forgotten.equals(messageId)) {
+            attempts.remove(forgotten);
+        }
+    }
+
+    /**
+     * Nombre de tentatives connues pour un message, 0 s'il est oublié.
+     */
+    public int getAttempts(String messageId) {
+        AtomicInteger count = attempts.get(messageId);
+        return count != null ? count.get() : 0;
+    }
+
+    public void reset(String messageId) {
+        attempts.remove(messageId);
+    }
+
+    /**
+     * Nombre de messages suivis.
+     */
+    public int size() {
+        return attempts.size();
+    }
+
+    public int capacity() {
+        return order.length();
+    }
+
+    /**
+     * Estime la mémoire retenue : anneau, index et compteurs. Les ids
+     * sont comptés même s'ils sont partagés avec des messages vivants.
+     */
+    public long estimateFootprint() {
+        long size = MemoryFootprint.sizeOfConcurrentHashMap(attempts.size())
+                + MemoryFootprint.align(MemoryFootprint.ARRAY_HEADER
+                        + (long) MemoryFootprint.REFERENCE * order.length());
+        for (String messageId : attempts.keySet()) {
+            size += MemoryFootprint.sizeOfString(messageId)
+                    + MemoryFootprint.align(MemoryFootprint.OBJECT_HEADER + 4);
+        }
+        return size;
+    }
+}
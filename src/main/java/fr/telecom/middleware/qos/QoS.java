@@ -32,12 +32,37 @@ public class QoS {
         }
     }
 
+    /**
+     * Choix du message à évincer lorsque l'historique dépasse son quota.
+     */
+    public enum EvictionPolicy {
+        FIFO,             // Le plus ancien
+        PRIORITY_AWARE,   // La plus faible priorité (header "priority"), puis le plus ancien
+        TTL_FIRST,        // L'expiration la plus proche (header "ttl_ms" ou TTL du topic)
+        SIZE_WEIGHTED     // Le plus grand score taille × âge
+    }
+
+    /**
+     * Acheminement des copies redondantes.
+     */
+    public enum RedundancyMode {
+        SHARED_PATH,        // Toutes les copies sur le thread de publication
+        INDEPENDENT_PATHS   // Une file et un thread par copie, la première arrivée gagne
+    }
+
     private Reliability reliability = Reliability.BEST_EFFORT;
     private Priority priority = Priority.MEDIUM;
     private int deadlineMs = 0;
     private int maxLatencyMs = 1000;
     private int redundancyLevel = 0;
+    private RedundancyMode redundancyMode = RedundancyMode.SHARED_PATH;
     private boolean persistence = false;
+    private int publishRateHz = 0;
+    private int historySize = 50;
+    private int maxHistoryKB = 0;
+    private EvictionPolicy evictionPolicy = EvictionPolicy.FIFO;
+    private long historyTtlMs = 0;
+    private int reservedMemoryKB = 0;
 
     /**
      * Builder pattern pour création facile.
@@ -70,11 +95,46 @@ public class QoS {
             return this;
         }
 
+        public Builder redundancyMode(RedundancyMode redundancyMode) {
+            qos.redundancyMode = redundancyMode;
+            return this;
+        }
+
         public Builder persistence(boolean persistence) {
             qos.persistence = persistence;
             return this;
         }
 
+        public Builder publishRateHz(int publishRateHz) {
+            qos.publishRateHz = publishRateHz;
+            return this;
+        }
+
+        public Builder historySize(int historySize) {
+            qos.historySize = historySize;
+            return this;
+        }
+
+        public Builder maxHistoryKB(int maxHistoryKB) {
+            qos.maxHistoryKB = maxHistoryKB;
+            return this;
+        }
+
+        public Builder evictionPolicy(EvictionPolicy evictionPolicy) {
+            qos.evictionPolicy = evictionPolicy;
+            return this;
+        }
+
+        public Builder historyTtlMs(long historyTtlMs) {
+            qos.historyTtlMs = historyTtlMs;
+            return this;
+        }
+
+        public Builder reservedMemoryKB(int reservedMemoryKB) {
+            qos.reservedMemoryKB = reservedMemoryKB;
+            return this;
+        }
+
         public QoS build() {
             return qos;
         }
@@ -110,10 +170,54 @@ public class QoS {
         return redundancyLevel;
     }
 
+    public RedundancyMode getRedundancyMode() {
+        return redundancyMode;
+    }
+
     public boolean isPersistence() {
         return persistence;
     }
 
+    /**
+     * Débit de publication déclaré (messages/s), 0 si non déclaré.
+     */
+    public int getPublishRateHz() {
+        return publishRateHz;
+    }
+
+    /**
+     * Nombre maximal de messages conservés dans l'historique.
+     */
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    /**
+     * Quota d'octets de l'historique (KB), 0 si seul le nombre compte.
+     */
+    public int getMaxHistoryKB() {
+        return maxHistoryKB;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    /**
+     * Durée de rétention des messages d'historique (ms), 0 si illimitée.
+     */
+    public long getHistoryTtlMs() {
+        return historyTtlMs;
+    }
+
+    /**
+     * Part de mémoire garantie (KB) : la pression globale n'évince pas
+     * l'historique en dessous de ce seuil.
+     */
+    public int getReservedMemoryKB() {
+        return reservedMemoryKB;
+    }
+
     // Méthodes utilitaires
     public boolean hasDeadline() {
         return deadlineMs > 0;
@@ -127,11 +231,18 @@ public class QoS {
         return priority == Priority.CRITICAL;
     }
 
+    public boolean hasDeclaredRate() {
+        return publishRateHz > 0;
+    }
+
     @Override
     public String toString() {
         return String.format(
-                "QoS{reliability=%s, priority=%s, deadline=%dms, latency=%dms, redundancy=%d}",
-                reliability, priority, deadlineMs, maxLatencyMs, redundancyLevel
+                "QoS{reliability=%s, priority=%s, deadline=%dms, latency=%dms, redundancy=%d %s, "
+                        + "rate=%dHz, history=%d/%dKB %s}",
+                reliability, priority, deadlineMs, maxLatencyMs, redundancyLevel, redundancyMode,
+                publishRateHz,
+                historySize, maxHistoryKB, evictionPolicy
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package fr.telecom.middleware.qos;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Copies redondantes d'un même message, fusionnées à la réception.
+ *
+ * <p>La première copie arrivée est enregistrée dans l'historique et livrée ;
+ * chaque abonnement réclame le groupe une seule fois, les copies suivantes
+ * sont écartées avant l'exécution du handler. Une livraison en échec rend
+ * sa réclamation : la copie suivante la retente.</p>
+ *
+ * <p>La deadline du message est résolue une seule fois pour le groupe :
+ * complétée dès que tous les abonnés présents à la première arrivée ont
+ * été livrés, sinon quand toutes les copies ont terminé (complétée si au
+ * moins une livraison a réussi, manquée sinon).</p>
+ */
+public class RedundancyGroup {
+    private final int copies;
+    private final AtomicBoolean recorded = new AtomicBoolean(false);
+    private final Set<Object> claimed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger arrivals = new AtomicInteger(0);
+    private final AtomicInteger suppressed = new AtomicInteger(0);
+    private final AtomicInteger delivered = new AtomicInteger(0);
+    private final AtomicInteger finished = new AtomicInteger(0);
+    private volatile int receivers = -1;
+    private volatile long sequence;
+
+    /**
+     * @param copies nombre total d'exemplaires, original compris
+     */
+    public RedundancyGroup(int copies) {
+        this.copies = copies;
+    }
+
+    /**
+     * Signale l'arrivée d'une copie.
+     *
+     * @return true pour la première arrivée du groupe
+     */
+    public boolean arrive() {
+        arrivals.incrementAndGet();
+        return recorded.compareAndSet(false, true);
+    }
+
+    /**
+     * Réclame la livraison pour un destinataire.
+     *
+     * @return true si aucune copie ne lui a encore été livrée
+     */
+    public boolean claim(Object receiver) {
+        if (claimed.add(receiver)) {
+            return true;
+        }
+        suppressed.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Rend une réclamation après un échec de livraison.
+     */
+    public void release(Object receiver) {
+        claimed.remove(receiver);
+    }
+
+    /**
+     * Fixe, à la première arrivée, le nombre d'abonnés à livrer.
+     */
+    public void setReceivers(int receivers) {
+        this.receivers = receivers;
+    }
+
+    /**
+     * Enregistre une livraison réussie ; complète la deadline quand tous
+     * les abonnés attendus ont été livrés.
+     */
+    public void recordDelivery(Deadline deadline) {
+        int count = delivered.incrementAndGet();
+        int expected = receivers;
+        if (deadline != null && expected >= 0 && count >= expected) {
+            deadline.complete();
+        }
+    }
+
+    /**
+     * Signale qu'une copie a terminé, livrée ou écartée ; la dernière
+     * résout la deadline si elle ne l'est pas déjà.
+     */
+    public void copyFinished(Deadline deadline) {
+        if (finished.incrementAndGet() != copies || deadline == null) {
+            return;
+        }
+        if (delivered.get() > 0 || receivers == 0) {
+            deadline.complete();
+        } else {
+            deadline.markAsMissed();
+        }
+    }
+
+    /**
+     * Séquence attribuée par le topic à la première arrivée, 0 avant.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public int getCopies() {
+        return copies;
+    }
+
+    public int getArrivals() {
+        return arrivals.get();
+    }
+
+    /**
+     * Abonnés livrés avec succès, toutes copies confondues.
+     */
+    public int getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * Copies écartées sans exécuter de handler.
+     */
+    public int getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RedundancyGroup{copies=%d, arrivals=%d, suppressed=%d}",
+                copies, arrivals.get(), suppressed.get());
+    }
+}
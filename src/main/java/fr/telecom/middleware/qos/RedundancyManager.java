@@ -2,8 +2,13 @@ package fr.telecom.middleware.qos;
 
 import fr.telecom.middleware.core.Topic;
 import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.memory.MemoryBudget;
+import fr.telecom.middleware.memory.MemoryFootprint;
+import fr.telecom.middleware.memory.MessageRingBuffer;
+import fr.telecom.middleware.metrics.WcetProfiler;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.*;
 
 /**
@@ -12,16 +17,103 @@ import org.slf4j.*;
 public class RedundancyManager {
     private static final Logger logger = LoggerFactory.getLogger(RedundancyManager.class);
 
-    private final Map<String, List<Message>> redundantMessages;
-    private final Map<String, Integer> deliveryAttempts;
+    /** Messages originaux conservés par topic. */
+    private static final int STORE_CAPACITY = 64;
+
+    /** Nombre de messages dont les tentatives de livraison sont suivies. */
+    private static final int TRACKED_DELIVERIES = 4096;
+
+    /** Capacité de la file de chaque chemin indépendant. */
+    private static final int PATH_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Chemin de livraison indépendant : un thread et une file bornée qui
+     * lui sont propres. Une file pleine écarte la copie sans retarder les
+     * autres chemins.
+     */
+    public static class DeliveryPath {
+        private final int index;
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong submitted = new AtomicLong(0);
+        private final AtomicLong rejected = new AtomicLong(0);
+
+        DeliveryPath(int index) {
+            this.index = index;
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(PATH_QUEUE_CAPACITY),
+                    r -> {
+                        Thread t = new Thread(r);
+                        t.setDaemon(true);
+                        t.setName("Redundancy-Path-" + index);
+                        return t;
+                    });
+        }
+
+        boolean submit(Runnable task) {
+            try {
+                executor.execute(task);
+                submitted.incrementAndGet();
+                return true;
+            } catch (RejectedExecutionException e) {
+                rejected.incrementAndGet();
+                return false;
+            }
+        }
+
+        void shutdown() {
+            executor.shutdownNow();
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Copies en attente sur ce chemin.
+         */
+        public int getQueueDepth() {
+            return executor.getQueue().size();
+        }
+
+        public long getSubmittedCount() {
+            return submitted.get();
+        }
+
+        /**
+         * Copies écartées faute de place dans la file.
+         */
+        public long getRejectedCount() {
+            return rejected.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("DeliveryPath{index=%d, queued=%d, submitted=%d, rejected=%d}",
+                    index, getQueueDepth(), submitted.get(), rejected.get());
+        }
+    }
+
+    private final Map<String, MessageRingBuffer> redundantMessages;
+    private final DeliveryTracker deliveryAttempts;
+    private final List<DeliveryPath> paths = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+    private volatile WcetProfiler profiler;
+    private volatile MemoryBudget memoryBudget;
 
     public RedundancyManager() {
         this.redundantMessages = new ConcurrentHashMap<>();
-        this.deliveryAttempts = new ConcurrentHashMap<>();
+        this.deliveryAttempts = new DeliveryTracker(TRACKED_DELIVERIES);
     }
 
     /**
-     * Publie un message avec redondance.
+     * Publie un message avec redondance : l'original puis
+     * {@code redundancyLevel} enveloppes qui partagent son payload et ses
+     * headers. À la réception, seule la première copie arrivée exécute les
+     * handlers de chaque subscriber.
+     *
+     * <p>En mode {@link QoS.RedundancyMode#INDEPENDENT_PATHS}, la copie
+     * {@code i} part sur le chemin {@code i} et l'appel rend la main sans
+     * attendre la livraison : un chemin bloqué est masqué par les autres.</p>
      */
     public void sendWithRedundancy(Topic topic, Message originalMessage) {
         String topicName = topic.getName();
@@ -35,89 +127,172 @@ public class RedundancyManager {
         // Stocker le message original
         storeRedundantMessage(topicName, originalMessage);
 
-        // Publier les copies redondantes
-        for (int i = 0; i < redundancyLevel; i++) {
-            Message redundantCopy = createRedundantCopy(originalMessage, i + 1);
-            topic.publish(redundantCopy);
-
-            logger.debug("Message redondant {}/{} publié sur '{}'",
-                    i + 1, redundancyLevel, topicName);
+        // Préparer les enveloppes avant toute livraison : l'état partagé
+        // (deadline, horodatages) est celui de l'original à l'émission
+        long copyStart = System.nanoTime();
+        originalMessage.attachRedundancyGroup(new RedundancyGroup(redundancyLevel + 1));
+        Message[] copies = new Message[redundancyLevel + 1];
+        copies[0] = originalMessage;
+        for (int i = 1; i <= redundancyLevel; i++) {
+            copies[i] = originalMessage.createRedundantEnvelope(i);
+        }
+        if (profiler != null) {
+            profiler.record(WcetProfiler.Stage.REDUNDANCY_COPY,
+                    System.nanoTime() - copyStart, redundancyLevel);
         }
 
-        // Nettoyer les anciens messages
-        cleanupOldMessages(topicName);
+        if (topic.getQoS().getRedundancyMode() == QoS.RedundancyMode.INDEPENDENT_PATHS && running) {
+            sendOnIndependentPaths(topic, copies);
+        } else {
+            for (Message copy : copies) {
+                topic.publish(copy);
+            }
+        }
+        logger.debug("Message publié en {} exemplaires sur '{}'",
+                copies.length, topicName);
     }
 
     /**
-     * Crée une copie redondante d'un message.
+     * Confie chaque copie à son propre chemin de livraison.
      */
-    private Message createRedundantCopy(Message original, int copyIndex) {
-        Message copy = Message.builder(original.getTopic())
-                .payload(original.getPayload())
-                .build();
-
-        // Copier les headers
-        original.getHeaders().forEach(copy::addHeader);
-
-        // Ajouter des métadonnées de redondance
-        copy.addHeader("redundancy_index", copyIndex);
-        copy.addHeader("original_message_id", original.getId());
-        copy.addHeader("redundancy_timestamp", System.currentTimeMillis());
+    private void sendOnIndependentPaths(Topic topic, Message[] copies) {
+        for (Message copy : copies) {
+            DeliveryPath path = pathFor(copy.getRedundancyIndex());
+            // Mesurer l'attente dans la file du chemin
+            copy.setEnqueueNanos(System.nanoTime());
+            if (!path.submit(() -> topic.publish(copy))) {
+                // La copie écartée ne retient pas la deadline du groupe
+                copy.getRedundancyGroup().copyFinished(copy.getDeadline());
+                logger.warn("Chemin redondant {} saturé, copie écartée sur '{}'",
+                        path.getIndex(), topic.getName());
+            }
+        }
+    }
 
-        return copy;
+    private DeliveryPath pathFor(int index) {
+        if (index >= paths.size()) {
+            synchronized (paths) {
+                while (index >= paths.size()) {
+                    paths.add(new DeliveryPath(paths.size()));
+                }
+            }
+        }
+        return paths.get(index);
     }
 
     /**
-     * Stocke un message pour référence future.
+     * Stocke un message pour référence future ; le plus ancien du topic
+     * est écrasé au-delà de {@link #STORE_CAPACITY}.
      */
     private void storeRedundantMessage(String topicName, Message message) {
-        redundantMessages
-                .computeIfAbsent(topicName, k -> new CopyOnWriteArrayList<>())
-                .add(message);
-
-        // Limiter le nombre de messages stockés
-        List<Message> messages = redundantMessages.get(topicName);
-        if (messages.size() > 100) {
-            messages.subList(0, messages.size() - 50).clear();
-        }
+        redundantMessages.computeIfAbsent(topicName, k -> {
+            MessageRingBuffer buffer = new MessageRingBuffer(STORE_CAPACITY,
+                    MemoryBudget.Category.REDUNDANCY);
+            buffer.setMemoryBudget(memoryBudget);
+            return buffer;
+        }).append(message);
     }
 
     /**
-     * Nettoie les anciens messages redondants.
+     * Libère au moins {@code bytes} octets en retirant les messages
+     * stockés les plus anciens.
+     *
+     * @return les octets effectivement libérés
      */
-    private void cleanupOldMessages(String topicName) {
-        List<Message> messages = redundantMessages.get(topicName);
-        if (messages != null && messages.size() > 50) {
-            // Garder seulement les 50 derniers messages
-            messages.subList(0, messages.size() - 50).clear();
+    public long evict(long bytes) {
+        long freed = 0;
+        for (MessageRingBuffer buffer : redundantMessages.values()) {
+            Message evicted;
+            while (freed < bytes && (evicted = buffer.pollOldest()) != null) {
+                freed += evicted.getEstimatedSize();
+            }
+            if (freed >= bytes) {
+                break;
+            }
         }
+        return freed;
     }
 
     /**
      * Récupère les messages redondants pour un topic.
      */
     public List<Message> getRedundantMessages(String topicName) {
-        return redundantMessages.getOrDefault(topicName, new ArrayList<>());
+        MessageRingBuffer buffer = redundantMessages.get(topicName);
+        return buffer != null ? buffer.snapshot() : new ArrayList<>();
+    }
+
+    /**
+     * Retrouve un message stocké par son id, ou null.
+     */
+    public Message findRedundantMessage(String topicName, String messageId) {
+        MessageRingBuffer buffer = redundantMessages.get(topicName);
+        return buffer != null ? buffer.get(messageId) : null;
     }
 
     /**
      * Enregistre une tentative de livraison.
      */
     public void recordDeliveryAttempt(String messageId) {
-        deliveryAttempts.merge(messageId, 1, Integer::sum);
+        deliveryAttempts.record(messageId);
     }
 
     /**
      * Vérifie si un message a été livré avec succès.
      */
     public boolean isMessageDelivered(String messageId) {
-        return deliveryAttempts.getOrDefault(messageId, 0) > 0;
+        return deliveryAttempts.getAttempts(messageId) > 0;
+    }
+
+    /**
+     * Estime la mémoire retenue par les messages stockés et les
+     * compteurs de livraison.
+     */
+    public long estimateFootprint(MemoryFootprint footprint) {
+        long size = MemoryFootprint.sizeOfConcurrentHashMap(redundantMessages.size());
+        for (MessageRingBuffer buffer : redundantMessages.values()) {
+            size += buffer.estimateFootprint(footprint);
+        }
+
+        return size + deliveryAttempts.estimateFootprint();
+    }
+
+    /**
+     * Rattache les messages stockés au budget mémoire du middleware.
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        redundantMessages.values().forEach(buffer -> buffer.setMemoryBudget(memoryBudget));
+    }
+
+    /**
+     * Active le profilage WCET des copies redondantes.
+     */
+    public void setProfiler(WcetProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Chemins de livraison indépendants créés jusqu'ici.
+     */
+    public List<DeliveryPath> getDeliveryPaths() {
+        return new ArrayList<>(paths);
+    }
+
+    /**
+     * Arrête les chemins indépendants ; les publications suivantes
+     * repassent par le thread appelant.
+     */
+    public void shutdown() {
+        running = false;
+        for (DeliveryPath path : paths) {
+            path.shutdown();
+        }
     }
 
     /**
      * Réinitialise les compteurs pour un message.
      */
     public void resetDeliveryAttempts(String messageId) {
-        deliveryAttempts.remove(messageId);
+        deliveryAttempts.reset(messageId);
     }
 }
\ No newline at end of file
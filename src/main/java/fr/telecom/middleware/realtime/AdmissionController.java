@@ -0,0 +1,189 @@
+package fr.telecom.middleware.realtime;
+
+import fr.telecom.middleware.core.Subscription;
+import fr.telecom.middleware.core.Topic;
+import fr.telecom.middleware.metrics.LatencyHistogram;
+import fr.telecom.middleware.qos.QoS;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.*;
+
+/**
+ * Contrôle d'admission des topics à deadline.
+ *
+ * <p>Chaque topic à deadline est modélisé comme une tâche sporadique :
+ * période T = 1/débit déclaré (ou T = D si le débit n'est pas déclaré),
+ * échéance D = deadlineMs et coût C = surcoût de dispatch + somme des
+ * WCET mesurés des handlers de ses subscribers. L'ensemble est jugé
+ * ordonnançable sous EDF si la densité totale Σ C/min(D,T) respecte la
+ * borne 1 (un processeur) ou la borne GFB m − (m−1)·δmax (m processeurs).</p>
+ */
+public class AdmissionController {
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionController.class);
+
+    /**
+     * Politique appliquée à un topic qui rend l'ensemble non ordonnançable.
+     */
+    public enum Policy {
+        DISABLED,   // Aucune analyse
+        WARN,       // Topic accepté, avertissement journalisé
+        REJECT      // Topic refusé
+    }
+
+    /** Surcoût de dispatch par message (vérifications, historique). */
+    private static final long DISPATCH_OVERHEAD_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+
+    /** Coût d'une copie redondante écartée, par subscriber. */
+    private static final long CLAIM_OVERHEAD_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+
+    /** WCET supposé d'un handler tant qu'aucune mesure n'existe. */
+    private static final long DEFAULT_HANDLER_WCET_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private volatile Policy policy = Policy.WARN;
+
+    /**
+     * Résultat d'une analyse d'ordonnançabilité.
+     */
+    public static class Result {
+        public final boolean schedulable;
+        public final double totalDensity;
+        public final double bound;
+        public final String reason;
+
+        Result(boolean schedulable, double totalDensity, double bound, String reason) {
+            this.schedulable = schedulable;
+            this.totalDensity = totalDensity;
+            this.bound = bound;
+            this.reason = reason;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Admission{schedulable=%s, density=%.3f, bound=%.3f, %s}",
+                    schedulable, totalDensity, bound, reason);
+        }
+    }
+
+    /**
+     * Vérifie si l'ajout d'un topic garde l'ensemble ordonnançable.
+     *
+     * @param name       nom du topic candidat
+     * @param qos        QoS du topic candidat
+     * @param existing   topics déjà admis
+     * @param processors nombre de threads servant les livraisons
+     */
+    public Result evaluate(String name, QoS qos, Collection<Topic> existing, int processors) {
+        if (!qos.hasDeadline()) {
+            return new Result(true, 0, processors, "pas de deadline");
+        }
+
+        // Le candidat n'a pas encore de subscriber : un handler par défaut
+        double candidateDensity = density(qos, DISPATCH_OVERHEAD_NANOS + DEFAULT_HANDLER_WCET_NANOS);
+        Result result = analyze(existing, candidateDensity, processors);
+
+        return new Result(result.schedulable, result.totalDensity, result.bound,
+                String.format("candidat '%s' δ=%.3f, %s", name, candidateDensity, result.reason));
+    }
+
+    /**
+     * Analyse l'ensemble courant des topics.
+     */
+    public Result analyze(Collection<Topic> topics, int processors) {
+        return analyze(topics, 0, processors);
+    }
+
+    private Result analyze(Collection<Topic> topics, double extraDensity, int processors) {
+        double totalDensity = extraDensity;
+        double maxDensity = extraDensity;
+        String worstTopic = null;
+
+        for (Topic topic : topics) {
+            if (!topic.getQoS().hasDeadline()) {
+                continue;
+            }
+            double density = density(topic.getQoS(), measuredCost(topic));
+            totalDensity += density;
+            if (density > maxDensity) {
+                maxDensity = density;
+                worstTopic = topic.getName();
+            }
+        }
+
+        int m = Math.max(1, processors);
+        double bound = m == 1 ? 1.0 : m - (m - 1) * Math.min(1.0, maxDensity);
+        boolean schedulable = maxDensity <= 1.0 && totalDensity <= bound;
+
+        String reason = worstTopic != null
+                ? String.format("δmax=%.3f ('%s'), m=%d", maxDensity, worstTopic, m)
+                : String.format("δmax=%.3f, m=%d", maxDensity, m);
+        return new Result(schedulable, totalDensity, bound, reason);
+    }
+
+    /**
+     * Coût par message d'un topic : dispatch + WCET mesurés des handlers.
+     */
+    private long measuredCost(Topic topic) {
+        List<Subscription> subscriptions = topic.getSubscriptions();
+        if (subscriptions.isEmpty()) {
+            // Évalué comme le candidat : un handler par défaut
+            return DISPATCH_OVERHEAD_NANOS + DEFAULT_HANDLER_WCET_NANOS;
+        }
+
+        long cost = DISPATCH_OVERHEAD_NANOS;
+        for (Subscription subscription : subscriptions) {
+            LatencyHistogram handler = subscription.getHandlerLatency();
+            cost += handler.getCount() > 0 ? handler.getMax() : DEFAULT_HANDLER_WCET_NANOS;
+        }
+
+        // Les copies redondantes n'exécutent pas les handlers : seul le
+        // dispatch et la réclamation par subscriber sont répétés
+        int copies = topic.getQoS().getRedundancyLevel();
+        return cost + copies * (DISPATCH_OVERHEAD_NANOS
+                + subscriptions.size() * CLAIM_OVERHEAD_NANOS);
+    }
+
+    /**
+     * Densité C / min(D, T) d'un topic.
+     */
+    private double density(QoS qos, long costNanos) {
+        long deadlineNanos = TimeUnit.MILLISECONDS.toNanos(qos.getDeadlineMs());
+        long windowNanos = deadlineNanos;
+        if (qos.hasDeclaredRate()) {
+            windowNanos = Math.min(deadlineNanos, TimeUnit.SECONDS.toNanos(1) / qos.getPublishRateHz());
+        }
+        return costNanos / (double) Math.max(1, windowNanos);
+    }
+
+    /**
+     * Applique la politique à un candidat.
+     *
+     * @return true si le topic doit être créé
+     */
+    public boolean admit(String name, QoS qos, Collection<Topic> existing, int processors) {
+        if (policy == Policy.DISABLED) {
+            return true;
+        }
+
+        Result result = evaluate(name, qos, existing, processors);
+        if (result.schedulable) {
+            logger.debug("Topic '{}' admis: {}", name, result);
+            return true;
+        }
+
+        if (policy == Policy.REJECT) {
+            logger.error("Topic '{}' refusé, ensemble non ordonnançable: {}", name, result);
+            return false;
+        }
+
+        logger.warn("Topic '{}' rend l'ensemble non ordonnançable: {}", name, result);
+        return true;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(Policy policy) {
+        this.policy = policy;
+    }
+}
@@ -2,6 +2,7 @@ package fr.telecom.middleware.realtime;
 
 import fr.telecom.middleware.core.Topic;
 import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.memory.MemoryFootprint;
 import fr.telecom.middleware.qos.Deadline;
 import java.util.*;
 import java.util.concurrent.*;
@@ -14,8 +15,10 @@ public class DeadlineMonitor {
     private static final Logger logger = LoggerFactory.getLogger(DeadlineMonitor.class);
 
     private final ScheduledExecutorService scheduler;
-    private final Map<String, List<Deadline>> activeDeadlines;
+    private final Map<String, Deadline> activeDeadlines;
     private final Map<String, Long> missedDeadlines;
+    private final Map<String, Long> metDeadlines;
+    private final Map<String, Long> maxDeliveryLatencyNanos;
 
     private static final int CHECK_INTERVAL_MS = 10;
 
@@ -23,6 +26,8 @@ public class DeadlineMonitor {
         this.scheduler = Executors.newScheduledThreadPool(2);
         this.activeDeadlines = new ConcurrentHashMap<>();
         this.missedDeadlines = new ConcurrentHashMap<>();
+        this.metDeadlines = new ConcurrentHashMap<>();
+        this.maxDeliveryLatencyNanos = new ConcurrentHashMap<>();
 
         // Démarrer la surveillance périodique
         startMonitoring();
@@ -48,7 +53,8 @@ public class DeadlineMonitor {
     public void monitorTopic(Topic topic) {
         String topicName = topic.getName();
         if (topic.getQoS().hasDeadline()) {
-            activeDeadlines.putIfAbsent(topicName, new CopyOnWriteArrayList<>());
+            metDeadlines.putIfAbsent(topicName, 0L);
+            missedDeadlines.putIfAbsent(topicName, 0L);
             logger.info("Surveillance deadline activée pour '{}' ({}ms)",
                     topicName, topic.getQoS().getDeadlineMs());
         }
@@ -58,24 +64,41 @@ public class DeadlineMonitor {
      * Vérifie si une publication respecte les deadlines.
      */
     public boolean checkPublishDeadline(Topic topic, Message message) {
-        int deadlineMs = topic.getQoS().getDeadlineMs();
+        return checkPublishDeadline(topic, message, topic.getQoS().getDeadlineMs());
+    }
+
+    /**
+     * Variante avec une deadline propre à la publication (flux cyclique).
+     */
+    public boolean checkPublishDeadline(Topic topic, Message message, int deadlineMs) {
+        return checkPublishDeadline(topic, message, deadlineMs, System.nanoTime());
+    }
+
+    /**
+     * Variante dont la deadline court depuis la date de libération
+     * {@code releaseNanos} ({@code System.nanoTime}) d'un flux cyclique.
+     */
+    public boolean checkPublishDeadline(Topic topic, Message message, int deadlineMs,
+                                        long releaseNanos) {
         if (deadlineMs <= 0) {
             return true; // Pas de deadline
         }
 
         String topicName = topic.getName();
-        Deadline deadline = new Deadline(topicName, message, deadlineMs);
+        Deadline deadline = new Deadline(topicName, message, deadlineMs, releaseNanos);
+        deadline.setResolutionListener(this::onDeadlineResolved);
 
-        // Enregistrer la deadline
-        activeDeadlines
-                .computeIfAbsent(topicName, k -> new CopyOnWriteArrayList<>())
-                .add(deadline);
+        // Enregistrer la deadline et l'attacher au message : le Topic la
+        // complétera en O(1) à la fin de la livraison
+        activeDeadlines.put(deadline.getDeadlineId(), deadline);
+        message.attachDeadline(deadline);
 
-        // Planifier la vérification
+        // Planifier la vérification à l'échéance
         scheduler.schedule(
                 () -> verifySingleDeadline(deadline),
-                deadlineMs,
-                TimeUnit.MILLISECONDS
+                Math.max(0, releaseNanos + TimeUnit.MILLISECONDS.toNanos(deadlineMs)
+                        - System.nanoTime()),
+                TimeUnit.NANOSECONDS
         );
 
         return true;
@@ -85,8 +108,8 @@ public class DeadlineMonitor {
      * Vérifie une deadline spécifique.
      */
     private void verifySingleDeadline(Deadline deadline) {
-        if (!deadline.isMet() && deadline.isExpired()) {
-            handleMissedDeadline(deadline);
+        if (!deadline.isResolved() && deadline.isExpired()) {
+            deadline.markAsMissed();
         }
     }
 
@@ -94,15 +117,25 @@ public class DeadlineMonitor {
      * Vérifie toutes les deadlines actives.
      */
     private void checkAllDeadlines() {
-        activeDeadlines.forEach((topicName, deadlines) -> {
-            deadlines.removeIf(deadline -> {
-                if (deadline.isExpired() && !deadline.isMet()) {
-                    handleMissedDeadline(deadline);
-                    return true;
-                }
-                return deadline.isMet();
-            });
-        });
+        for (Deadline deadline : activeDeadlines.values()) {
+            verifySingleDeadline(deadline);
+        }
+    }
+
+    /**
+     * Appelé une seule fois par deadline, à sa complétion ou à son expiration.
+     */
+    private void onDeadlineResolved(Deadline deadline) {
+        activeDeadlines.remove(deadline.getDeadlineId());
+
+        if (deadline.isMet()) {
+            String topicName = deadline.getTopicName();
+            metDeadlines.merge(topicName, 1L, Long::sum);
+            maxDeliveryLatencyNanos.merge(topicName,
+                    deadline.getCompletionLatencyNanos(), Math::max);
+        } else {
+            handleMissedDeadline(deadline);
+        }
     }
 
     /**
@@ -131,15 +164,20 @@ public class DeadlineMonitor {
      * Marque une deadline comme respectée.
      */
     public void markDeadlineAsMet(String deadlineId) {
-        activeDeadlines.values().forEach(deadlines -> {
-            deadlines.removeIf(d -> {
-                if (d.getDeadlineId().equals(deadlineId)) {
-                    d.markAsMet();
-                    return true;
-                }
-                return false;
-            });
-        });
+        Deadline deadline = activeDeadlines.get(deadlineId);
+        if (deadline != null) {
+            deadline.complete();
+        }
+    }
+
+    /**
+     * Marque comme respectée la deadline attachée à un message.
+     */
+    public void markDeadlineAsMet(Message message) {
+        Deadline deadline = message.getDeadline();
+        if (deadline != null) {
+            deadline.complete();
+        }
     }
 
     /**
@@ -149,6 +187,47 @@ public class DeadlineMonitor {
         return new HashMap<>(missedDeadlines);
     }
 
+    /**
+     * Récupère les statistiques des deadlines respectées.
+     */
+    public Map<String, Long> getMetDeadlinesStats() {
+        return new HashMap<>(metDeadlines);
+    }
+
+    /**
+     * Latence publication-livraison maximale mesurée par topic (ns).
+     */
+    public Map<String, Long> getMaxDeliveryLatencyStats() {
+        return new HashMap<>(maxDeliveryLatencyNanos);
+    }
+
+    /**
+     * Nombre de deadlines en attente de résolution.
+     */
+    public int getActiveDeadlineCount() {
+        return activeDeadlines.size();
+    }
+
+    /**
+     * Estime la mémoire retenue par les deadlines actives et les
+     * statistiques par topic.
+     */
+    public long estimateFootprint(MemoryFootprint footprint) {
+        long size = MemoryFootprint.sizeOfConcurrentHashMap(activeDeadlines.size());
+        for (Deadline deadline : activeDeadlines.values()) {
+            size += footprint.sizeOfDeadline(deadline);
+        }
+
+        // Statistiques : clés partagées avec les topics, valeurs Long
+        long boxedLong = MemoryFootprint.align(MemoryFootprint.OBJECT_HEADER + 8);
+        for (Map<String, Long> stats : Arrays.asList(
+                missedDeadlines, metDeadlines, maxDeliveryLatencyNanos)) {
+            size += MemoryFootprint.sizeOfConcurrentHashMap(stats.size())
+                    + stats.size() * boxedLong;
+        }
+        return size;
+    }
+
     /**
      * Arrête le moniteur.
      */
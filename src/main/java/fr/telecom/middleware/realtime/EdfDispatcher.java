@@ -0,0 +1,349 @@
+package fr.telecom.middleware.realtime;
+
+import fr.telecom.middleware.core.Topic;
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.memory.MemoryBudget;
+import fr.telecom.middleware.qos.Deadline;
+import fr.telecom.middleware.qos.QoS;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.*;
+import java.util.function.BiConsumer;
+import org.slf4j.*;
+
+/**
+ * Dispatcher Earliest-Deadline-First.
+ *
+ * <p>Les livraisons en attente de tous les topics sont ordonnées par
+ * échéance absolue et servies par les threads temps-réel du
+ * {@link Scheduler}. Un topic sans deadline utilise sa latence maximale
+ * ({@code QoS.maxLatencyMs}) comme échéance, ce qui le place derrière
+ * les topics plus contraints.</p>
+ *
+ * <p>Un topic n'est servi que par un thread à la fois : une livraison
+ * dont le topic est déjà en cours est mise de côté, et quand ce thread a
+ * terminé, seule la première livraison mise de côté du topic retourne
+ * dans la file. L'ordre (échéance, puis ordre de soumission) est ainsi
+ * respecté au sein d'un topic même avec plusieurs threads, et chaque
+ * livraison coûte O(log n) même quand un seul topic accumule un
+ * arriéré.</p>
+ *
+ * <p>Un handler bloqué garde son thread et son topic : les livraisons
+ * suivantes du topic s'accumulent, au plus
+ * {@link #setMaxPendingPerTopic(int) maxPendingPerTopic} ; au-delà, elles
+ * sont abandonnées et comptées ({@link #getDroppedCount()}). La mémoire
+ * retenue par un abonné bloqué reste ainsi bornée.</p>
+ *
+ * <p>File vide, les threads attendent selon la {@link WaitStrategy} du
+ * scheduler au démarrage : bloqués sur la file, ou en attente active pour
+ * un réveil sans passer par l'OS.</p>
+ */
+public class EdfDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(EdfDispatcher.class);
+
+    /** Livraisons en attente par topic au-delà desquelles elles sont abandonnées. */
+    public static final int DEFAULT_MAX_PENDING_PER_TOPIC = 8192;
+
+    private final PriorityQueue<PendingDelivery> pendingDeliveries;
+    /** Topics en cours de livraison. */
+    private final Set<Topic> busyTopics;
+    /** Livraisons mises de côté derrière leur topic, dans l'ordre EDF. */
+    private final Map<Topic, PriorityQueue<PendingDelivery>> parkedDeliveries;
+    /** Livraisons en attente (file et mises de côté) par topic. */
+    private final Map<Topic, Integer> pendingPerTopic;
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final AtomicLong sequence;
+    private final Scheduler scheduler;
+    private final int workerCount;
+    private final BiConsumer<Topic, Message> deliveryHandler;
+    private final AtomicLong dropped = new AtomicLong(0);
+
+    private volatile int maxPendingPerTopic = DEFAULT_MAX_PENDING_PER_TOPIC;
+    private volatile boolean running = false;
+    private volatile boolean terminated = false;
+    private volatile MemoryBudget memoryBudget;
+
+    public EdfDispatcher(Scheduler scheduler, int workerCount,
+                         BiConsumer<Topic, Message> deliveryHandler) {
+        this.pendingDeliveries = new PriorityQueue<>();
+        this.busyTopics = new HashSet<>();
+        this.parkedDeliveries = new HashMap<>();
+        this.pendingPerTopic = new HashMap<>();
+        this.lock = new ReentrantLock();
+        this.notEmpty = lock.newCondition();
+        this.sequence = new AtomicLong(0);
+        this.scheduler = scheduler;
+        this.workerCount = workerCount;
+        this.deliveryHandler = deliveryHandler;
+    }
+
+    /**
+     * Livraison en attente, ordonnée par échéance puis par ordre d'arrivée.
+     */
+    private static class PendingDelivery implements Comparable<PendingDelivery> {
+        final Topic topic;
+        final Message message;
+        final long absoluteDeadlineNanos;
+        final long sequenceNumber;
+
+        PendingDelivery(Topic topic, Message message,
+                        long absoluteDeadlineNanos, long sequenceNumber) {
+            this.topic = topic;
+            this.message = message;
+            this.absoluteDeadlineNanos = absoluteDeadlineNanos;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        @Override
+        public int compareTo(PendingDelivery other) {
+            // Comparaison par différence : robuste au débordement de nanoTime
+            long diff = absoluteDeadlineNanos - other.absoluteDeadlineNanos;
+            if (diff != 0) {
+                return diff < 0 ? -1 : 1;
+            }
+            return Long.compare(sequenceNumber, other.sequenceNumber);
+        }
+    }
+
+    /**
+     * Démarre les threads de dispatch ; sans effet une fois arrêté.
+     */
+    public synchronized void start() {
+        if (running || terminated) {
+            return;
+        }
+        running = true;
+
+        WaitStrategy waitStrategy = scheduler.getWaitStrategy();
+        for (int i = 0; i < workerCount; i++) {
+            scheduler.startRealtimeLoop("EDF-Dispatcher-" + i, () -> dispatchLoop(waitStrategy));
+        }
+        logger.info("Dispatcher EDF démarré ({} threads, attente {})", workerCount, waitStrategy);
+    }
+
+    /**
+     * Place une livraison dans la file EDF.
+     *
+     * @return false si le dispatcher est arrêté ou si le topic a déjà
+     *         {@code maxPendingPerTopic} livraisons en attente : le message
+     *         est abandonné et compté
+     */
+    public boolean submit(Topic topic, Message message) {
+        if (terminated) {
+            // Plus aucun thread ne viderait la file
+            dropped.incrementAndGet();
+            return false;
+        }
+        long now = System.nanoTime();
+        message.setEnqueueNanos(now);
+        PendingDelivery delivery = new PendingDelivery(
+                topic, message, absoluteDeadline(topic, message, now),
+                sequence.incrementAndGet());
+        lock.lock();
+        try {
+            int pending = pendingPerTopic.getOrDefault(topic, 0);
+            if (terminated || pending >= maxPendingPerTopic) {
+                dropped.incrementAndGet();
+                logger.debug("Livraison EDF abandonnée sur '{}' ({}): {}",
+                        topic.getName(), terminated ? "arrêté" : "file pleine",
+                        message.getId());
+                return false;
+            }
+            pendingPerTopic.put(topic, pending + 1);
+            account(message.getEstimatedSize());
+            pendingDeliveries.offer(delivery);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Calcule l'échéance absolue d'une livraison.
+     */
+    private long absoluteDeadline(Topic topic, Message message, long now) {
+        Deadline deadline = message.getDeadline();
+        if (deadline != null) {
+            return deadline.getAbsoluteDeadlineNanos();
+        }
+
+        QoS qos = topic.getQoS();
+        int relativeMs = qos.hasDeadline() ? qos.getDeadlineMs() : qos.getMaxLatencyMs();
+        return now + TimeUnit.MILLISECONDS.toNanos(relativeMs);
+    }
+
+    /**
+     * Boucle d'un thread de dispatch : sert toujours l'échéance la plus proche.
+     */
+    private void dispatchLoop(WaitStrategy waitStrategy) {
+        boolean blocking = waitStrategy.getType() == WaitStrategy.Type.BLOCKING;
+        int idleRounds = 0;
+        while (running) {
+            PendingDelivery delivery;
+            try {
+                if ((delivery = next(blocking)) == null) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                    waitStrategy.idle(idleRounds++);
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            idleRounds = 0;
+            account(-delivery.message.getEstimatedSize());
+
+            try {
+                deliveryHandler.accept(delivery.topic, delivery.message);
+            } catch (Exception e) {
+                logger.error("Erreur de dispatch EDF sur '{}': {}",
+                        delivery.topic.getName(), e.getMessage());
+            } finally {
+                release(delivery.topic);
+            }
+        }
+    }
+
+    /**
+     * Prochaine livraison dont le topic n'est pas déjà en cours ; le topic
+     * est alors réservé jusqu'à {@link #release(Topic)}.
+     *
+     * @param blocking attendre une livraison plutôt que rendre null
+     */
+    private PendingDelivery next(boolean blocking) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                PendingDelivery delivery = pendingDeliveries.poll();
+                if (delivery == null) {
+                    if (!blocking) {
+                        return null;
+                    }
+                    notEmpty.await();
+                    continue;
+                }
+                if (busyTopics.contains(delivery.topic)) {
+                    parkedDeliveries.computeIfAbsent(delivery.topic, t -> new PriorityQueue<>())
+                            .offer(delivery);
+                    continue;
+                }
+                busyTopics.add(delivery.topic);
+                pendingPerTopic.computeIfPresent(delivery.topic,
+                        (topic, pending) -> pending > 1 ? pending - 1 : null);
+                return delivery;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Libère un topic : sa première livraison mise de côté retourne dans
+     * la file, à son rang ; les suivantes attendent qu'elle soit servie.
+     */
+    private void release(Topic topic) {
+        lock.lock();
+        try {
+            busyTopics.remove(topic);
+            PriorityQueue<PendingDelivery> parked = parkedDeliveries.get(topic);
+            if (parked != null) {
+                pendingDeliveries.offer(parked.poll());
+                if (parked.isEmpty()) {
+                    parkedDeliveries.remove(topic);
+                }
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rattache la file au budget mémoire du middleware.
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    private void account(long bytes) {
+        MemoryBudget budget = memoryBudget;
+        if (budget != null) {
+            budget.allocate(MemoryBudget.Category.PENDING, bytes);
+        }
+    }
+
+    /**
+     * Nombre de livraisons en attente.
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            int pending = pendingDeliveries.size();
+            for (PriorityQueue<PendingDelivery> parked : parkedDeliveries.values()) {
+                pending += parked.size();
+            }
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Borne les livraisons en attente d'un même topic, derrière un handler
+     * lent ou bloqué.
+     */
+    public void setMaxPendingPerTopic(int maxPendingPerTopic) {
+        if (maxPendingPerTopic <= 0) {
+            throw new IllegalArgumentException("Borne invalide: " + maxPendingPerTopic);
+        }
+        this.maxPendingPerTopic = maxPendingPerTopic;
+    }
+
+    public int getMaxPendingPerTopic() {
+        return maxPendingPerTopic;
+    }
+
+    /**
+     * Livraisons abandonnées parce que la file de leur topic était pleine
+     * ou le dispatcher arrêté.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Arrête le dispatch. Les threads sont interrompus par le Scheduler.
+     */
+    public void shutdown() {
+        terminated = true;
+        running = false;
+        List<PendingDelivery> droppedDeliveries = new ArrayList<>();
+        lock.lock();
+        try {
+            droppedDeliveries.addAll(pendingDeliveries);
+            pendingDeliveries.clear();
+            parkedDeliveries.values().forEach(droppedDeliveries::addAll);
+            parkedDeliveries.clear();
+            pendingPerTopic.clear();
+            busyTopics.clear();
+        } finally {
+            lock.unlock();
+        }
+        droppedDeliveries.forEach(delivery -> account(-delivery.message.getEstimatedSize()));
+        int dropped = droppedDeliveries.size();
+        if (dropped > 0) {
+            logger.warn("Dispatcher EDF arrêté, {} livraisons abandonnées", dropped);
+        } else {
+            logger.info("Dispatcher EDF arrêté");
+        }
+    }
+}
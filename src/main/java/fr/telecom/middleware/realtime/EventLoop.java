@@ -0,0 +1,147 @@
+package fr.telecom.middleware.realtime;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.*;
+
+/**
+ * Boucle d'événements à consommateur unique sur un thread temps-réel
+ * dédié.
+ *
+ * <p>Les producteurs déposent des tâches dans une file sans verrou ; le
+ * thread de la boucle les exécute dans l'ordre et, quand la file est vide,
+ * attend selon sa {@link WaitStrategy}. Avec une attente active, le réveil
+ * ne passe pas par l'ordonnanceur de l'OS. Un topic servi par sa propre
+ * boucle ne partage son thread avec aucun autre.</p>
+ */
+public class EventLoop {
+    private static final Logger logger = LoggerFactory.getLogger(EventLoop.class);
+
+    private final String name;
+    private final WaitStrategy waitStrategy;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger(0);
+    private final AtomicLong executed = new AtomicLong(0);
+
+    private volatile Thread thread;
+    private volatile boolean sleeping = false;
+    private volatile boolean running = true;
+
+    EventLoop(String name, WaitStrategy waitStrategy) {
+        this.name = name;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Corps de la boucle, exécuté par le thread dédié.
+     */
+    void run() {
+        thread = Thread.currentThread();
+        int idleRounds = 0;
+        while (running && !Thread.currentThread().isInterrupted()) {
+            Runnable task = tasks.poll();
+            if (task == null) {
+                if (!awaitTask(idleRounds++)) {
+                    break;
+                }
+                continue;
+            }
+            idleRounds = 0;
+            pending.decrementAndGet();
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("Erreur dans la boucle {}: {}", name, e.getMessage());
+            }
+            executed.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return false si le thread a été interrompu
+     */
+    private boolean awaitTask(int idleRounds) {
+        if (waitStrategy.parks()) {
+            // Publier l'intention de dormir avant de revérifier la file :
+            // un producteur qui dépose ensuite verra le drapeau
+            sleeping = true;
+            if (!tasks.isEmpty()) {
+                sleeping = false;
+                return true;
+            }
+        }
+        try {
+            waitStrategy.idle(idleRounds);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            sleeping = false;
+        }
+    }
+
+    /**
+     * Dépose une tâche.
+     *
+     * @return false si la boucle est arrêtée
+     */
+    public boolean execute(Runnable task) {
+        if (!running) {
+            return false;
+        }
+        pending.incrementAndGet();
+        tasks.offer(task);
+        if (sleeping) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    /**
+     * Arrête la boucle ; les tâches restantes sont abandonnées.
+     */
+    public void shutdown() {
+        running = false;
+        Thread current = thread;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+        int dropped = pending.getAndSet(0);
+        tasks.clear();
+        if (dropped > 0) {
+            logger.warn("Boucle {} arrêtée, {} tâches abandonnées", name, dropped);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Tâches déposées et pas encore exécutées.
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EventLoop{%s, %s, pending=%d, executed=%d}",
+                name, waitStrategy, pending.get(), executed.get());
+    }
+}
@@ -0,0 +1,303 @@
+package fr.telecom.middleware.realtime;
+
+import fr.telecom.middleware.metrics.LatencyHistogram;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.*;
+
+/**
+ * Tâche périodique temps-réel instrumentée.
+ *
+ * <p>Chaque activation est planifiée à une date de libération absolue
+ * ({@code début + k × période}) ; la tâche mesure son retard au démarrage
+ * (gigue de libération), sa durée d'exécution et ses dépassements. Il y a
+ * dépassement quand une exécution se termine après la libération
+ * suivante ; la {@link OverrunPolicy} décide alors des activations
+ * manquées.</p>
+ *
+ * <p>Comme le futur d'un {@code scheduleAtFixedRate}, la tâche n'aboutit
+ * jamais normalement : {@link #get()} attend son annulation puis lève une
+ * {@link CancellationException}.</p>
+ */
+public class PeriodicTask implements ScheduledFuture<Void> {
+    private static final Logger logger = LoggerFactory.getLogger(PeriodicTask.class);
+
+    /**
+     * Traitement des activations manquées après un dépassement.
+     */
+    public enum OverrunPolicy {
+        SKIP,       // Les activations manquées sont abandonnées, la cadence est réalignée
+        CATCH_UP,   // Les activations manquées s'exécutent à la suite
+        NOTIFY      // Comme SKIP, et chaque dépassement est signalé aux listeners
+    }
+
+    /**
+     * Notifié des dépassements d'une tâche en politique NOTIFY.
+     */
+    @FunctionalInterface
+    public interface OverrunListener {
+        void onOverrun(PeriodicTask task, long overrunNanos, long missedReleases);
+    }
+
+    private final String name;
+    private final Runnable task;
+    private final long periodNanos;
+    private final OverrunPolicy overrunPolicy;
+    private final ScheduledExecutorService executor;
+    private final List<OverrunListener> listeners;
+
+    private final LatencyHistogram releaseJitter = new LatencyHistogram();
+    private final LatencyHistogram executionTime = new LatencyHistogram();
+    private final AtomicLong releases = new AtomicLong(0);
+    private final AtomicLong overruns = new AtomicLong(0);
+    private final AtomicLong skippedReleases = new AtomicLong(0);
+    private final AtomicLong failures = new AtomicLong(0);
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private long nextReleaseNanos;
+    private volatile ScheduledFuture<?> nextActivation;
+    private volatile boolean cancelled = false;
+
+    PeriodicTask(String name, Runnable task, long periodNanos, OverrunPolicy overrunPolicy,
+                 ScheduledExecutorService executor, List<OverrunListener> listeners) {
+        this.name = name;
+        this.task = task;
+        this.periodNanos = periodNanos;
+        this.overrunPolicy = overrunPolicy;
+        this.executor = executor;
+        this.listeners = listeners;
+    }
+
+    /**
+     * Planifie la première activation.
+     */
+    synchronized void start(long initialDelayNanos) {
+        nextReleaseNanos = System.nanoTime() + initialDelayNanos;
+        nextActivation = executor.schedule(this::activate, initialDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Une activation : mesure, exécution, puis planification de la
+     * suivante selon la politique de dépassement.
+     */
+    private void activate() {
+        if (cancelled) {
+            return;
+        }
+        long release = nextReleaseNanos;
+        long startNanos = System.nanoTime();
+        releaseJitter.record(startNanos - release);
+        releases.incrementAndGet();
+        try {
+            task.run();
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            logger.error("Erreur dans la tâche périodique {}: {}", name, e.getMessage());
+        }
+        long endNanos = System.nanoTime();
+        executionTime.record(endNanos - startNanos);
+
+        long next = release + periodNanos;
+        if (endNanos - next > 0) {
+            next = onOverrun(release, endNanos);
+        }
+        schedule(next);
+    }
+
+    /**
+     * @return la prochaine date de libération
+     */
+    private long onOverrun(long release, long endNanos) {
+        overruns.incrementAndGet();
+        long overrunNanos = endNanos - (release + periodNanos);
+        // Activations dont la date est passée pendant l'exécution
+        long missed = (endNanos - release) / periodNanos;
+
+        if (overrunPolicy == OverrunPolicy.CATCH_UP) {
+            return release + periodNanos;
+        }
+
+        skippedReleases.addAndGet(missed);
+        if (overrunPolicy == OverrunPolicy.NOTIFY) {
+            logger.warn("Dépassement de {}: {} µs au-delà de la période, {} activations manquées",
+                    name, TimeUnit.NANOSECONDS.toMicros(overrunNanos), missed);
+            for (OverrunListener listener : listeners) {
+                try {
+                    listener.onOverrun(this, overrunNanos, missed);
+                } catch (Exception e) {
+                    logger.error("Erreur dans un OverrunListener: {}", e.getMessage());
+                }
+            }
+        }
+        return release + (missed + 1) * periodNanos;
+    }
+
+    private synchronized void schedule(long releaseNanos) {
+        if (cancelled) {
+            return;
+        }
+        nextReleaseNanos = releaseNanos;
+        try {
+            nextActivation = executor.schedule(this::activate,
+                    Math.max(0, releaseNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            cancelled = true;
+            done.countDown();
+        }
+    }
+
+    /**
+     * Annule les activations futures.
+     */
+    public void cancel() {
+        cancel(false);
+    }
+
+    /**
+     * Annule les activations futures ; l'activation en cours est
+     * interrompue si {@code mayInterruptIfRunning}.
+     *
+     * @return false si la tâche était déjà annulée
+     */
+    @Override
+    public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+        if (cancelled) {
+            return false;
+        }
+        cancelled = true;
+        ScheduledFuture<?> activation = nextActivation;
+        if (activation != null) {
+            activation.cancel(mayInterruptIfRunning);
+        }
+        done.countDown();
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return cancelled;
+    }
+
+    @Override
+    public Void get() throws InterruptedException {
+        done.await();
+        throw new CancellationException(name);
+    }
+
+    @Override
+    public Void get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException(name);
+        }
+        throw new CancellationException(name);
+    }
+
+    /**
+     * Délai avant la prochaine libération.
+     */
+    @Override
+    public synchronized long getDelay(TimeUnit unit) {
+        return unit.convert(nextReleaseNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    public OverrunPolicy getOverrunPolicy() {
+        return overrunPolicy;
+    }
+
+    /**
+     * Retard de démarrage par rapport à la date de libération (ns).
+     */
+    public LatencyHistogram getReleaseJitter() {
+        return releaseJitter;
+    }
+
+    public LatencyHistogram getExecutionTime() {
+        return executionTime;
+    }
+
+    public long getReleaseCount() {
+        return releases.get();
+    }
+
+    public long getOverrunCount() {
+        return overruns.get();
+    }
+
+    /**
+     * Activations abandonnées (SKIP, NOTIFY).
+     */
+    public long getSkippedReleaseCount() {
+        return skippedReleases.get();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * Instantané des mesures de la tâche.
+     */
+    public Stats getStats() {
+        return new Stats(this);
+    }
+
+    /**
+     * Mesures d'une tâche périodique (durées en nanosecondes).
+     */
+    public static class Stats {
+        public final String name;
+        public final long periodNanos;
+        public final OverrunPolicy overrunPolicy;
+        public final long releases;
+        public final long overruns;
+        public final long skippedReleases;
+        public final long failures;
+        public final LatencyHistogram.Snapshot releaseJitter;
+        public final LatencyHistogram.Snapshot executionTime;
+
+        Stats(PeriodicTask task) {
+            this.name = task.name;
+            this.periodNanos = task.periodNanos;
+            this.overrunPolicy = task.overrunPolicy;
+            this.releases = task.getReleaseCount();
+            this.overruns = task.getOverrunCount();
+            this.skippedReleases = task.getSkippedReleaseCount();
+            this.failures = task.getFailureCount();
+            this.releaseJitter = task.releaseJitter.snapshot();
+            this.executionTime = task.executionTime.snapshot();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "PeriodicTask{%s, période=%dµs, %s, activations=%d, dépassements=%d, "
+                            + "sautées=%d, gigue=%s, exécution=%s}",
+                    name, TimeUnit.NANOSECONDS.toMicros(periodNanos), overrunPolicy, releases,
+                    overruns, skippedReleases, releaseJitter, executionTime);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getStats().toString();
+    }
+}
@@ -0,0 +1,300 @@
+package fr.telecom.middleware.realtime;
+
+import fr.telecom.middleware.metrics.LatencyHistogram;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.*;
+
+/**
+ * Ligne de temps commune des activations périodiques (roue temporelle).
+ *
+ * <p>Le temps est découpé en ticks de durée fixe depuis une origine
+ * commune ; une activation de période {@code P} ticks et de phase
+ * {@code φ} a lieu aux ticks {@code φ + k × P}. Toutes les activations
+ * sont donc alignées sur la même grille et déterministes. Un seul thread
+ * sert la roue de {@value #WHEEL_SIZE} cases : chaque tick ne visite que
+ * sa case, quel que soit le nombre d'activations enregistrées.</p>
+ *
+ * <p>Sans phase imposée, une activation prend la phase la moins chargée
+ * de sa période pour étaler les activations de même période au lieu de
+ * les libérer ensemble. Une activation en retard de plus d'une période
+ * est sautée, pas rattrapée.</p>
+ */
+public class ReleaseTimeline {
+    private static final Logger logger = LoggerFactory.getLogger(ReleaseTimeline.class);
+
+    public static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    /** Nombre de cases de la roue (puissance de deux). */
+    public static final int WHEEL_SIZE = 1024;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    /** Phase choisie par la ligne de temps. */
+    public static final long AUTO_PHASE = -1;
+
+    /**
+     * Action exécutée à chaque activation.
+     */
+    @FunctionalInterface
+    public interface ReleaseAction {
+        /**
+         * @param cycle        rang de l'activation, à partir de 0
+         * @param releaseNanos date de libération prévue ({@code System.nanoTime})
+         */
+        void release(long cycle, long releaseNanos);
+    }
+
+    /**
+     * Activation périodique enregistrée.
+     */
+    public class Release {
+        private final String name;
+        private final int periodTicks;
+        private final int phaseTicks;
+        private final ReleaseAction action;
+        private final AtomicLong releases = new AtomicLong(0);
+        private final AtomicLong missed = new AtomicLong(0);
+        private long releaseTick;
+        private long cycle;
+        private volatile boolean cancelled = false;
+
+        private Release(String name, int periodTicks, int phaseTicks, ReleaseAction action) {
+            this.name = name;
+            this.periodTicks = periodTicks;
+            this.phaseTicks = phaseTicks;
+            this.action = action;
+        }
+
+        /**
+         * Retire l'activation de la ligne de temps.
+         */
+        public void cancel() {
+            synchronized (ReleaseTimeline.this) {
+                if (!cancelled) {
+                    cancelled = true;
+                    addPhaseLoad(phaseTicks, periodTicks, -1);
+                    releaseCount--;
+                }
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getPeriodNanos() {
+            return periodTicks * tickNanos;
+        }
+
+        /**
+         * Décalage des activations par rapport à l'origine, modulo la période.
+         */
+        public long getPhaseNanos() {
+            return phaseTicks * tickNanos;
+        }
+
+        public long getReleaseCount() {
+            return releases.get();
+        }
+
+        /**
+         * Activations sautées parce que la ligne de temps était en retard
+         * de plus d'une période.
+         */
+        public long getMissedCount() {
+            return missed.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Release{%s, période=%dµs, phase=%dµs, activations=%d, sautées=%d}",
+                    name, TimeUnit.NANOSECONDS.toMicros(getPeriodNanos()),
+                    TimeUnit.NANOSECONDS.toMicros(getPhaseNanos()), releases.get(), missed.get());
+        }
+    }
+
+    private final long tickNanos;
+    private final long epochNanos;
+    private final List<List<Release>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private final Queue<Release> additions = new ConcurrentLinkedQueue<>();
+    /** Activations par case de la roue, pour choisir les phases. */
+    private final int[] phaseLoad = new int[WHEEL_SIZE];
+    private final LatencyHistogram releaseLateness = new LatencyHistogram();
+    private final AtomicLong fired = new AtomicLong(0);
+
+    private volatile long currentTick = 0;
+    private volatile boolean running = true;
+    private int releaseCount = 0;
+
+    public ReleaseTimeline(long tickNanos) {
+        this.tickNanos = tickNanos;
+        this.epochNanos = System.nanoTime();
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Enregistre une activation périodique. Période et phase sont
+     * arrondies au tick.
+     *
+     * @param phaseNanos décalage sur la grille, ou {@link #AUTO_PHASE}
+     */
+    public synchronized Release register(String name, long periodNanos, long phaseNanos,
+                                         ReleaseAction action) {
+        if (periodNanos <= 0) {
+            throw new IllegalArgumentException("Période invalide: " + periodNanos);
+        }
+        int periodTicks = (int) Math.max(1, Math.round((double) periodNanos / tickNanos));
+        int phaseTicks = phaseNanos == AUTO_PHASE
+                ? leastLoadedPhase(periodTicks)
+                : (int) (Math.round((double) phaseNanos / tickNanos) % periodTicks);
+
+        Release release = new Release(name, periodTicks, phaseTicks, action);
+        // Premier tick à venir de la forme phase + k × période
+        long start = currentTick + 1;
+        long shift = Math.floorMod(phaseTicks - start, (long) periodTicks);
+        release.releaseTick = start + shift;
+        addPhaseLoad(phaseTicks, periodTicks, 1);
+        releaseCount++;
+        additions.offer(release);
+        return release;
+    }
+
+    /**
+     * Phase de {@code [0, période)} dont les cases sont les moins chargées.
+     */
+    private int leastLoadedPhase(int periodTicks) {
+        int span = Math.min(periodTicks, WHEEL_SIZE);
+        int bestPhase = 0;
+        long bestLoad = Long.MAX_VALUE;
+        for (int phase = 0; phase < span; phase++) {
+            long load = 0;
+            for (int tick = phase; tick < WHEEL_SIZE; tick += periodTicks) {
+                load += phaseLoad[tick];
+            }
+            if (load < bestLoad) {
+                bestLoad = load;
+                bestPhase = phase;
+            }
+        }
+        return bestPhase;
+    }
+
+    private void addPhaseLoad(int phaseTicks, int periodTicks, int delta) {
+        for (int tick = phaseTicks & WHEEL_MASK; tick < WHEEL_SIZE; tick += periodTicks) {
+            phaseLoad[tick] += delta;
+        }
+    }
+
+    /**
+     * Boucle du thread de la ligne de temps : attend chaque tick puis
+     * libère les activations de sa case.
+     */
+    void run() {
+        List<Release> due = new ArrayList<>();
+        while (running && !Thread.currentThread().isInterrupted()) {
+            long tick = currentTick + 1;
+            long tickNanosAbsolute = epochNanos + tick * tickNanos;
+            long wait;
+            while ((wait = tickNanosAbsolute - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+                if (!running || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+            currentTick = tick;
+
+            Release added;
+            while ((added = additions.poll()) != null) {
+                // Enregistrée pendant le passage au tick : rester sur sa phase
+                while (added.releaseTick < tick) {
+                    added.releaseTick += added.periodTicks;
+                }
+                wheel.get((int) (added.releaseTick & WHEEL_MASK)).add(added);
+            }
+
+            // Extraire les activations du tick, les autres restent en place
+            List<Release> slot = wheel.get((int) (tick & WHEEL_MASK));
+            for (int i = slot.size() - 1; i >= 0; i--) {
+                Release release = slot.get(i);
+                if (release.cancelled || release.releaseTick == tick) {
+                    slot.set(i, slot.get(slot.size() - 1));
+                    slot.remove(slot.size() - 1);
+                    if (!release.cancelled) {
+                        due.add(release);
+                    }
+                }
+            }
+            for (Release release : due) {
+                fire(release, tick);
+                release.releaseTick = tick + release.periodTicks;
+                wheel.get((int) (release.releaseTick & WHEEL_MASK)).add(release);
+            }
+            due.clear();
+        }
+    }
+
+    private void fire(Release release, long tick) {
+        long releaseNanos = epochNanos + tick * tickNanos;
+        long lateness = System.nanoTime() - releaseNanos;
+        long cycle = release.cycle++;
+        if (lateness >= release.getPeriodNanos()) {
+            release.missed.incrementAndGet();
+            return;
+        }
+        releaseLateness.record(lateness);
+        release.releases.incrementAndGet();
+        fired.incrementAndGet();
+        try {
+            release.action.release(cycle, releaseNanos);
+        } catch (Exception e) {
+            logger.error("Erreur dans l'activation {}: {}", release.name, e.getMessage());
+        }
+    }
+
+    /**
+     * Arrête la ligne de temps ; les activations enregistrées ne sont plus
+     * libérées.
+     */
+    public void shutdown() {
+        running = false;
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Activations enregistrées et non annulées.
+     */
+    public synchronized int getReleaseCount() {
+        return releaseCount;
+    }
+
+    /**
+     * Retard des libérations par rapport à leur tick (ns).
+     */
+    public LatencyHistogram getReleaseLateness() {
+        return releaseLateness;
+    }
+
+    public long getFiredCount() {
+        return fired.get();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ReleaseTimeline{tick=%dµs, activations=%d, libérées=%d, retard=%s}",
+                TimeUnit.NANOSECONDS.toMicros(tickNanos), getReleaseCount(), fired.get(),
+                releaseLateness.snapshot());
+    }
+}
@@ -1,16 +1,35 @@
 package fr.telecom.middleware.realtime;
 
+import fr.telecom.middleware.metrics.LatencyHistogram;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.*;
 
 /**
  * Planificateur pour les tâches temps-réel.
+ *
+ * <p>Les boucles temps-réel (dispatch EDF, {@link EventLoop}) attendent
+ * selon la {@link WaitStrategy} du scheduler, bloquante par défaut.</p>
+ *
+ * <p>Les tâches périodiques sont des {@link PeriodicTask} enregistrées par
+ * nom, qui mesurent leur gigue, leur durée et leurs dépassements. Les
+ * tâches ponctuelles alimentent deux histogrammes communs.</p>
  */
 public class Scheduler {
     private static final Logger logger = LoggerFactory.getLogger(Scheduler.class);
 
     private final ScheduledExecutorService realtimeScheduler;
     private final ScheduledExecutorService backgroundScheduler;
+    private final List<Thread> realtimeLoops = new CopyOnWriteArrayList<>();
+    private final List<EventLoop> eventLoops = new CopyOnWriteArrayList<>();
+    private final Map<String, PeriodicTask> periodicTasks = new ConcurrentHashMap<>();
+    private final List<PeriodicTask.OverrunListener> overrunListeners = new CopyOnWriteArrayList<>();
+    private final AtomicInteger periodicTaskIndex = new AtomicInteger(0);
+    private final LatencyHistogram oneShotJitter = new LatencyHistogram();
+    private final LatencyHistogram oneShotExecution = new LatencyHistogram();
+    private volatile ReleaseTimeline releaseTimeline;
+    private volatile WaitStrategy waitStrategy = WaitStrategies.forType(WaitStrategy.Type.BLOCKING);
 
     public Scheduler() {
         // Scheduler temps-réel avec priorité élevée
@@ -31,35 +50,101 @@ public class Scheduler {
     }
 
     /**
-     * Planifie une tâche temps-réel.
+     * Planifie une tâche temps-réel. Son retard de démarrage et sa durée
+     * alimentent {@link #getOneShotJitter()} et {@link #getOneShotExecution()}.
      */
     public ScheduledFuture<?> scheduleRealtimeTask(Runnable task, long delay, TimeUnit unit) {
+        long releaseNanos = System.nanoTime() + unit.toNanos(delay);
         return realtimeScheduler.schedule(() -> {
             long startTime = System.nanoTime();
+            oneShotJitter.record(startTime - releaseNanos);
             try {
                 task.run();
             } catch (Exception e) {
                 logger.error("Erreur dans la tâche temps-réel: {}", e.getMessage());
             }
-            long duration = System.nanoTime() - startTime;
-            logger.debug("Tâche temps-réel exécutée en {} ns", duration);
+            oneShotExecution.record(System.nanoTime() - startTime);
         }, delay, unit);
     }
 
     /**
-     * Planifie une tâche périodique temps-réel.
+     * Planifie une tâche périodique temps-réel (politique SKIP, nom
+     * généré). Le futur retourné est la {@link PeriodicTask} : l'annuler
+     * arrête la tâche.
      */
     public ScheduledFuture<?> scheduleRealtimeAtFixedRate(Runnable task,
                                                           long initialDelay,
                                                           long period,
                                                           TimeUnit unit) {
-        return realtimeScheduler.scheduleAtFixedRate(() -> {
-            try {
-                task.run();
-            } catch (Exception e) {
-                logger.error("Erreur dans la tâche périodique temps-réel: {}", e.getMessage());
-            }
-        }, initialDelay, period, unit);
+        return schedulePeriodicTask("periodic-" + periodicTaskIndex.incrementAndGet(), task,
+                initialDelay, period, unit, PeriodicTask.OverrunPolicy.SKIP);
+    }
+
+    /**
+     * Planifie une tâche périodique temps-réel instrumentée. Une tâche
+     * existante de même nom est annulée et remplacée.
+     */
+    public PeriodicTask schedulePeriodicTask(String name, Runnable task,
+                                             long initialDelay, long period, TimeUnit unit,
+                                             PeriodicTask.OverrunPolicy overrunPolicy) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Période invalide: " + period);
+        }
+        PeriodicTask periodicTask = new PeriodicTask(name, task, unit.toNanos(period),
+                overrunPolicy, realtimeScheduler, overrunListeners);
+        PeriodicTask previous = periodicTasks.put(name, periodicTask);
+        if (previous != null) {
+            previous.cancel();
+        }
+        periodicTask.start(unit.toNanos(initialDelay));
+        logger.info("Tâche périodique '{}' planifiée (période: {} µs, {})",
+                name, unit.toMicros(period), overrunPolicy);
+        return periodicTask;
+    }
+
+    /**
+     * Annule et oublie une tâche périodique.
+     */
+    public void cancelPeriodicTask(String name) {
+        PeriodicTask task = periodicTasks.remove(name);
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    public PeriodicTask getPeriodicTask(String name) {
+        return periodicTasks.get(name);
+    }
+
+    /**
+     * Mesures de toutes les tâches périodiques, par nom.
+     */
+    public Map<String, PeriodicTask.Stats> getPeriodicTaskStats() {
+        Map<String, PeriodicTask.Stats> stats = new TreeMap<>();
+        periodicTasks.forEach((name, task) -> stats.put(name, task.getStats()));
+        return stats;
+    }
+
+    /**
+     * Listener notifié des dépassements des tâches en politique NOTIFY.
+     */
+    public void addOverrunListener(PeriodicTask.OverrunListener listener) {
+        overrunListeners.add(listener);
+    }
+
+    public void removeOverrunListener(PeriodicTask.OverrunListener listener) {
+        overrunListeners.remove(listener);
+    }
+
+    /**
+     * Retard de démarrage des tâches ponctuelles (ns).
+     */
+    public LatencyHistogram getOneShotJitter() {
+        return oneShotJitter;
+    }
+
+    public LatencyHistogram getOneShotExecution() {
+        return oneShotExecution;
     }
 
     /**
@@ -82,14 +167,105 @@ public class Scheduler {
         return CompletableFuture.runAsync(task, realtimeScheduler);
     }
 
+    /**
+     * Démarre une boucle de dispatch sur un thread temps-réel dédié
+     * (priorité maximale). La boucle doit se terminer sur interruption.
+     */
+    public Thread startRealtimeLoop(String name, Runnable loop) {
+        Thread thread = new Thread(() -> {
+            try {
+                loop.run();
+            } catch (Exception e) {
+                logger.error("Erreur dans la boucle temps-réel {}: {}", name, e.getMessage());
+            }
+        }, name);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.setDaemon(true);
+        realtimeLoops.add(thread);
+        thread.start();
+
+        logger.info("Boucle temps-réel démarrée: {}", name);
+        return thread;
+    }
+
+    /**
+     * Démarre une boucle d'événements sur un thread temps-réel dédié, avec
+     * la stratégie d'attente courante.
+     */
+    public EventLoop startEventLoop(String name) {
+        return startEventLoop(name, waitStrategy);
+    }
+
+    public EventLoop startEventLoop(String name, WaitStrategy waitStrategy) {
+        EventLoop eventLoop = new EventLoop(name, waitStrategy);
+        eventLoops.add(eventLoop);
+        startRealtimeLoop(name, eventLoop::run);
+        return eventLoop;
+    }
+
+    /**
+     * Stratégie d'attente des boucles démarrées ensuite.
+     */
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+        logger.info("Stratégie d'attente temps-réel: {}", waitStrategy);
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Ligne de temps des activations périodiques, démarrée au premier
+     * appel sur un thread temps-réel dédié.
+     */
+    public ReleaseTimeline getReleaseTimeline() {
+        ReleaseTimeline timeline = releaseTimeline;
+        if (timeline == null) {
+            synchronized (this) {
+                timeline = releaseTimeline;
+                if (timeline == null) {
+                    timeline = new ReleaseTimeline(ReleaseTimeline.DEFAULT_TICK_NANOS);
+                    startRealtimeLoop("Release-Timeline", timeline::run);
+                    releaseTimeline = timeline;
+                }
+            }
+        }
+        return timeline;
+    }
+
+    /**
+     * Ligne de temps si elle a déjà été démarrée, null sinon ; ne la
+     * démarre pas.
+     */
+    public ReleaseTimeline getReleaseTimelineIfStarted() {
+        return releaseTimeline;
+    }
+
+    /**
+     * Tâches périodiques enregistrées.
+     */
+    public Collection<PeriodicTask> getPeriodicTasks() {
+        return Collections.unmodifiableCollection(periodicTasks.values());
+    }
+
     /**
      * Arrête les schedulers.
      */
     public void shutdown() {
+        eventLoops.forEach(EventLoop::shutdown);
+        periodicTasks.values().forEach(PeriodicTask::cancel);
+        if (releaseTimeline != null) {
+            releaseTimeline.shutdown();
+        }
         realtimeScheduler.shutdown();
         backgroundScheduler.shutdown();
+        realtimeLoops.forEach(Thread::interrupt);
 
         try {
+            for (Thread loop : realtimeLoops) {
+                loop.join(TimeUnit.SECONDS.toMillis(1));
+            }
             if (!realtimeScheduler.awaitTermination(5, TimeUnit.SECONDS)) {
                 realtimeScheduler.shutdownNow();
             }
@@ -0,0 +1,103 @@
+package fr.telecom.middleware.realtime;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stratégies d'attente correspondant à {@link WaitStrategy.Type}.
+ */
+public final class WaitStrategies {
+
+    /** Tours d'attente active avant de céder le processeur. */
+    static final int SPIN_ROUNDS = 100;
+    /** Tours de yield avant de parker (SPIN_PARK). */
+    static final int YIELD_ROUNDS = 100;
+    /** Durée d'un park de SPIN_PARK : borne la latence sans signal. */
+    static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    /** Park maximal de BLOCKING : le thread revérifie son arrêt. */
+    static final long BLOCKING_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private WaitStrategies() {
+    }
+
+    /**
+     * Stratégie associée à un type.
+     */
+    public static WaitStrategy forType(WaitStrategy.Type type) {
+        switch (type) {
+            case BUSY_SPIN:
+                return strategy(type, false, idleRounds -> Thread.onSpinWait());
+            case SPIN_YIELD:
+                return strategy(type, false, idleRounds -> {
+                    if (idleRounds < SPIN_ROUNDS) {
+                        Thread.onSpinWait();
+                    } else {
+                        Thread.yield();
+                    }
+                });
+            case SPIN_PARK:
+                return strategy(type, true, idleRounds -> {
+                    if (idleRounds < SPIN_ROUNDS) {
+                        Thread.onSpinWait();
+                    } else if (idleRounds < SPIN_ROUNDS + YIELD_ROUNDS) {
+                        Thread.yield();
+                    } else {
+                        park(PARK_NANOS);
+                    }
+                });
+            case BLOCKING:
+            default:
+                return strategy(WaitStrategy.Type.BLOCKING, true,
+                        idleRounds -> park(BLOCKING_PARK_NANOS));
+        }
+    }
+
+    /**
+     * Stratégie désignée par son nom (configuration), BLOCKING si inconnu.
+     */
+    public static WaitStrategy forName(String name) {
+        if (name == null) {
+            return forType(WaitStrategy.Type.BLOCKING);
+        }
+        try {
+            return forType(WaitStrategy.Type.valueOf(name));
+        } catch (IllegalArgumentException e) {
+            return forType(WaitStrategy.Type.BLOCKING);
+        }
+    }
+
+    private static void park(long nanos) throws InterruptedException {
+        LockSupport.parkNanos(nanos);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    private interface Idle {
+        void idle(int idleRounds) throws InterruptedException;
+    }
+
+    private static WaitStrategy strategy(WaitStrategy.Type type, boolean parks, Idle idle) {
+        return new WaitStrategy() {
+            @Override
+            public void idle(int idleRounds) throws InterruptedException {
+                idle.idle(idleRounds);
+            }
+
+            @Override
+            public boolean parks() {
+                return parks;
+            }
+
+            @Override
+            public WaitStrategy.Type getType() {
+                return type;
+            }
+
+            @Override
+            public String toString() {
+                return type.name();
+            }
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package fr.telecom.middleware.realtime;
+
+/**
+ * Attente d'un thread de dispatch temps-réel quand il n'a rien à traiter.
+ *
+ * <p>Le choix arbitre entre latence de réveil et consommation CPU : une
+ * attente active réveille en quelques centaines de nanosecondes mais
+ * occupe un cœur, une attente bloquante passe par l'ordonnanceur de l'OS
+ * (plusieurs dizaines de microsecondes). Les implémentations standard
+ * sont données par {@link WaitStrategies#forType}.</p>
+ */
+public interface WaitStrategy {
+
+    /**
+     * Stratégies standard.
+     */
+    enum Type {
+        BUSY_SPIN,      // Attente active (Thread.onSpinWait), un cœur dédié
+        SPIN_YIELD,     // Attente active puis Thread.yield()
+        SPIN_PARK,      // Attente active, yield, puis park de courte durée
+        BLOCKING        // Park jusqu'au signal du producteur
+    }
+
+    /**
+     * Attend après un tour de boucle sans travail.
+     *
+     * @param idleRounds tours à vide consécutifs, 0 au premier
+     */
+    void idle(int idleRounds) throws InterruptedException;
+
+    /**
+     * Vrai si l'attente peut parker le thread : le producteur doit alors
+     * le réveiller ({@link java.util.concurrent.locks.LockSupport#unpark}).
+     */
+    default boolean parks() {
+        return false;
+    }
+
+    Type getType();
+}
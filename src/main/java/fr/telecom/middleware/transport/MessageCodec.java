@@ -0,0 +1,310 @@
+package fr.telecom.middleware.transport;
+
+import fr.telecom.middleware.api.Message;
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Encodage binaire compact d'un {@link Message} pour les transports entre
+ * processus.
+ *
+ * <p>Format : version, drapeaux, id (16 octets s'il s'agit d'un UUID),
+ * topic, date de publication, headers puis payload. Les longueurs et
+ * compteurs sont des entiers variables ; chaque valeur est précédée d'un
+ * octet de type. Les types simples (booléens, nombres, chaînes, tableaux
+ * d'octets) sont encodés directement ; quelques collections et grands
+ * nombres de la bibliothèque standard ({@link #SERIALIZABLE_TYPES}) passent
+ * par la sérialisation Java, les autres objets sont refusés. Le header
+ * {@code message_id} n'est pas transmis : il est reconstruit depuis
+ * l'id.</p>
+ *
+ * <p>Les octets décodés viennent d'autres processus, voire d'autres
+ * machines : la désérialisation n'accepte que ces types et leurs éléments
+ * simples ({@link ObjectInputFilter}), avec une profondeur et un nombre de
+ * références bornés. Tout autre objet rend le message illisible.</p>
+ */
+public final class MessageCodec {
+
+    static final byte VERSION = 1;
+    private static final int FLAG_UUID_ID = 1;
+    private static final String ID_HEADER = "message_id";
+
+    private static final byte NULL = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte FLOAT = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte STRING = 6;
+    private static final byte BYTES = 7;
+    private static final byte SERIALIZED = 8;
+
+    /** Types encodés par sérialisation Java, éléments simples compris. */
+    static final Set<Class<?>> SERIALIZABLE_TYPES = Set.of(
+            ArrayList.class, LinkedList.class, ArrayDeque.class,
+            HashMap.class, LinkedHashMap.class, TreeMap.class,
+            HashSet.class, LinkedHashSet.class, TreeSet.class,
+            BigInteger.class, BigDecimal.class);
+
+    private static final int MAX_SERIALIZED_DEPTH = 8;
+    private static final int MAX_SERIALIZED_REFERENCES = 100_000;
+
+    /** Liste blanche de la désérialisation : tout le reste est rejeté. */
+    private static final ObjectInputFilter SERIALIZED_FILTER = buildFilter();
+
+    private MessageCodec() {
+    }
+
+    /**
+     * Encode le message à la position courante du buffer.
+     *
+     * @return le nombre d'octets écrits
+     * @throws IllegalArgumentException si le buffer est trop petit ou si le
+     *                                  payload n'est pas encodable
+     */
+    public static int encode(Message message, ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            return write(message, buffer);
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            throw new IllegalArgumentException("Message trop grand pour le buffer ("
+                    + buffer.remaining() + " octets): " + message.getId());
+        }
+    }
+
+    /**
+     * Encode le message dans un tableau dimensionné au plus juste.
+     */
+    public static byte[] encode(Message message) {
+        int capacity = 256;
+        while (true) {
+            ByteBuffer buffer = ByteBuffer.allocate(capacity);
+            try {
+                int length = write(message, buffer);
+                return Arrays.copyOf(buffer.array(), length);
+            } catch (BufferOverflowException e) {
+                capacity *= 2;
+            }
+        }
+    }
+
+    private static int write(Message message, ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.put(VERSION);
+        UUID uuid = parseUuid(message.getId());
+        buffer.put((byte) (uuid != null ? FLAG_UUID_ID : 0));
+        if (uuid != null) {
+            buffer.putLong(uuid.getMostSignificantBits());
+            buffer.putLong(uuid.getLeastSignificantBits());
+        } else {
+            putString(buffer, message.getId());
+        }
+        putString(buffer, message.getTopic());
+        buffer.putLong(message.getPublishTimestamp());
+
+        Map<String, Object> headers = message.getHeaders();
+        headers.remove(ID_HEADER);
+        putVarInt(buffer, headers.size());
+        for (Map.Entry<String, Object> header : headers.entrySet()) {
+            putString(buffer, header.getKey());
+            putValue(buffer, header.getValue());
+        }
+        putValue(buffer, message.getPayload());
+        return buffer.position() - start;
+    }
+
+    /**
+     * Décode un message depuis la position courante du buffer.
+     *
+     * @throws IllegalArgumentException si les octets ne forment pas un
+     *                                  message valide
+     */
+    public static Message decode(ByteBuffer buffer) {
+        try {
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Version d'encodage inconnue: " + version);
+            }
+            int flags = buffer.get();
+            String id = (flags & FLAG_UUID_ID) != 0
+                    ? new UUID(buffer.getLong(), buffer.getLong()).toString()
+                    : getString(buffer);
+            String topic = getString(buffer);
+            long publishTimestamp = buffer.getLong();
+
+            int headerCount = getVarInt(buffer);
+            Map<String, Object> headers = new HashMap<>(headerCount * 2);
+            for (int i = 0; i < headerCount; i++) {
+                String key = getString(buffer);
+                Object value = getValue(buffer);
+                if (value != null) {
+                    headers.put(key, value);
+                }
+            }
+            Object payload = getValue(buffer);
+            return Message.restore(id, topic, payload, headers, publishTimestamp);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Message tronqué");
+        }
+    }
+
+    public static Message decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    private static UUID parseUuid(String id) {
+        if (id == null || id.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void putValue(ByteBuffer buffer, Object value) {
+        if (value == null) {
+            buffer.put(NULL);
+        } else if (value instanceof Boolean) {
+            buffer.put(BOOLEAN).put((byte) ((Boolean) value ? 1 : 0));
+        } else if (value instanceof Integer) {
+            buffer.put(INT).putInt((Integer) value);
+        } else if (value instanceof Long) {
+            buffer.put(LONG).putLong((Long) value);
+        } else if (value instanceof Float) {
+            buffer.put(FLOAT).putFloat((Float) value);
+        } else if (value instanceof Double) {
+            buffer.put(DOUBLE).putDouble((Double) value);
+        } else if (value instanceof String) {
+            buffer.put(STRING);
+            putString(buffer, (String) value);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            buffer.put(BYTES);
+            putVarInt(buffer, bytes.length);
+            buffer.put(bytes);
+        } else if (SERIALIZABLE_TYPES.contains(value.getClass())) {
+            byte[] bytes = serialize((Serializable) value);
+            buffer.put(SERIALIZED);
+            putVarInt(buffer, bytes.length);
+            buffer.put(bytes);
+        } else {
+            throw new IllegalArgumentException("Valeur non encodable: "
+                    + value.getClass().getName());
+        }
+    }
+
+    private static Object getValue(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+            case NULL:
+                return null;
+            case BOOLEAN:
+                return buffer.get() != 0;
+            case INT:
+                return buffer.getInt();
+            case LONG:
+                return buffer.getLong();
+            case FLOAT:
+                return buffer.getFloat();
+            case DOUBLE:
+                return buffer.getDouble();
+            case STRING:
+                return getString(buffer);
+            case BYTES:
+                return getBytes(buffer);
+            case SERIALIZED:
+                return deserialize(getBytes(buffer));
+            default:
+                throw new IllegalArgumentException("Type de valeur inconnu: " + type);
+        }
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarInt(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        return new String(getBytes(buffer), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        int length = getVarInt(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Longueur invalide: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Entier positif sur 7 bits par octet, bit de poids fort = suite.
+     */
+    static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Entier variable invalide");
+    }
+
+    private static byte[] serialize(Serializable value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Sérialisation impossible: " + e.getMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ObjectInputFilter buildFilter() {
+        StringBuilder pattern = new StringBuilder()
+                .append("maxdepth=").append(MAX_SERIALIZED_DEPTH)
+                .append(";maxrefs=").append(MAX_SERIALIZED_REFERENCES);
+        for (Class<?> type : SERIALIZABLE_TYPES) {
+            pattern.append(';').append(type.getName());
+        }
+        // Éléments simples, superclasses sérialisables des types admis et
+        // tableaux internes alloués par leur readObject (Object[], Map.Entry[])
+        for (Class<?> type : Arrays.asList(Boolean.class, Byte.class, Short.class,
+                Integer.class, Long.class, Float.class, Double.class, Character.class,
+                String.class, Number.class, Object.class, Map.Entry.class)) {
+            pattern.append(';').append(type.getName());
+        }
+        return ObjectInputFilter.Config.createFilter(pattern.append(";!*").toString());
+    }
+
+    private static Object deserialize(byte[] bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            in.setObjectInputFilter(SERIALIZED_FILTER);
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalArgumentException("Désérialisation impossible: " + e.getMessage());
+        }
+    }
+}
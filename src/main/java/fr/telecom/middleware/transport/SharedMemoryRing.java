@@ -0,0 +1,352 @@
+package fr.telecom.middleware.transport;
+
+import fr.telecom.middleware.api.Message;
+import java.io.*;
+import java.lang.invoke.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Anneau de messages dans un fichier projeté en mémoire, partagé entre
+ * processus d'une même machine.
+ *
+ * <p>Un seul processus écrit ; un nombre quelconque de processus lisent,
+ * chacun avec son propre {@link Reader}. Le fichier contient un en-tête
+ * (identifiant, géométrie, curseur d'écriture) puis {@code slotCount}
+ * cases de {@code slotSize} octets. Chaque case porte le numéro de
+ * séquence de son message, utilisé comme verrou de séquence :
+ * l'écrivain le rend négatif pendant l'écriture, puis le publie ;
+ * le lecteur relit le numéro après sa copie et écarte la case si elle a
+ * changé entre-temps.</p>
+ *
+ * <p>Aucun côté n'attend l'autre : l'écrivain ne connaît pas ses lecteurs
+ * et écrase les cases les plus anciennes, un lecteur distancé d'un tour
+ * complet saute les messages perdus et les compte.</p>
+ */
+public class SharedMemoryRing implements Closeable {
+
+    static final long MAGIC = 0x5053524D_454D3031L;
+    private static final int GEOMETRY_OFFSET = 8;
+    /** Curseur d'écriture, seul sur sa ligne de cache. */
+    private static final int CURSOR_OFFSET = 64;
+    static final int HEADER_SIZE = 128;
+    /** Séquence (long) et longueur (int) en tête de chaque case. */
+    static final int SLOT_HEADER_SIZE = 16;
+    private static final int ALIGNMENT = 64;
+
+    public static final int DEFAULT_SLOT_COUNT = 1024;
+    public static final int DEFAULT_SLOT_SIZE = 1024;
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final boolean writable;
+    private final int slotCount;
+    private final int slotSize;
+    private final int mask;
+
+    // État de l'écrivain
+    private final ByteBuffer writeScratch;
+    private long writeCursor;
+    private final AtomicLong written = new AtomicLong(0);
+    private final AtomicLong rejected = new AtomicLong(0);
+
+    private SharedMemoryRing(Path file, FileChannel channel, MappedByteBuffer buffer,
+                             boolean writable, int slotCount, int slotSize) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.writable = writable;
+        this.slotCount = slotCount;
+        this.slotSize = slotSize;
+        this.mask = slotCount - 1;
+        this.writeScratch = writable ? ByteBuffer.allocate(slotSize - SLOT_HEADER_SIZE) : null;
+        this.writeCursor = (long) LONGS.getAcquire(buffer, CURSOR_OFFSET);
+    }
+
+    /**
+     * Ouvre l'anneau en écriture, en le créant si besoin. Un anneau
+     * existant de même géométrie est repris à son curseur, pour que ses
+     * lecteurs continuent après un redémarrage de l'écrivain.
+     *
+     * @param slotCount nombre de cases (puissance de deux)
+     * @param slotSize  taille d'une case, arrondie à 64 octets
+     */
+    public static SharedMemoryRing create(Path file, int slotCount, int slotSize) throws IOException {
+        if (slotCount <= 0 || Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("Nombre de cases invalide: " + slotCount);
+        }
+        if (slotSize <= SLOT_HEADER_SIZE) {
+            throw new IllegalArgumentException("Taille de case invalide: " + slotSize);
+        }
+        int alignedSlotSize = (slotSize + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+        long size = HEADER_SIZE + (long) slotCount * alignedSlotSize;
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean resume = channel.size() == size;
+            if (resume) {
+                MappedByteBuffer existing = map(channel, FileChannel.MapMode.READ_WRITE, size);
+                resume = (long) LONGS.getAcquire(existing, 0) == MAGIC
+                        && existing.getInt(GEOMETRY_OFFSET) == slotCount
+                        && existing.getInt(GEOMETRY_OFFSET + 4) == alignedSlotSize;
+                if (resume) {
+                    return new SharedMemoryRing(file, channel, existing, true,
+                            slotCount, alignedSlotSize);
+                }
+            }
+            // Nouvel anneau : cases à zéro, identifiant publié en dernier
+            channel.truncate(0);
+            MappedByteBuffer mapped = map(channel, FileChannel.MapMode.READ_WRITE, size);
+            mapped.putInt(GEOMETRY_OFFSET, slotCount);
+            mapped.putInt(GEOMETRY_OFFSET + 4, alignedSlotSize);
+            LONGS.setRelease(mapped, CURSOR_OFFSET, 0L);
+            LONGS.setRelease(mapped, 0, MAGIC);
+            return new SharedMemoryRing(file, channel, mapped, true, slotCount, alignedSlotSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Ouvre en lecture un anneau créé par un autre processus.
+     *
+     * @throws IOException si le fichier n'existe pas ou n'est pas un anneau
+     *                     initialisé
+     */
+    public static SharedMemoryRing open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Anneau non initialisé: " + file);
+            }
+            MappedByteBuffer mapped = map(channel, FileChannel.MapMode.READ_ONLY, size);
+            if ((long) LONGS.getAcquire(mapped, 0) != MAGIC) {
+                throw new IOException("Anneau non initialisé: " + file);
+            }
+            int slotCount = mapped.getInt(GEOMETRY_OFFSET);
+            int slotSize = mapped.getInt(GEOMETRY_OFFSET + 4);
+            if (slotCount <= 0 || Integer.bitCount(slotCount) != 1 || slotSize <= SLOT_HEADER_SIZE
+                    || size != HEADER_SIZE + (long) slotCount * slotSize) {
+                throw new IOException("Géométrie d'anneau invalide: " + file);
+            }
+            return new SharedMemoryRing(file, channel, mapped, false, slotCount, slotSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long size)
+            throws IOException {
+        MappedByteBuffer mapped = channel.map(mode, 0, size);
+        mapped.order(ByteOrder.nativeOrder());
+        return mapped;
+    }
+
+    /**
+     * Écrit un message dans la case suivante.
+     *
+     * @return le numéro de séquence du message
+     * @throws IllegalArgumentException si le message encodé dépasse une case
+     */
+    public synchronized long write(Message message) {
+        if (!writable) {
+            throw new IllegalStateException("Anneau ouvert en lecture: " + file);
+        }
+        writeScratch.clear();
+        int length;
+        try {
+            length = MessageCodec.encode(message, writeScratch);
+        } catch (IllegalArgumentException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+
+        long sequence = writeCursor + 1;
+        int offset = slotOffset(sequence);
+        // Case marquée en cours d'écriture avant toute modification
+        LONGS.setOpaque(buffer, offset, -sequence);
+        VarHandle.storeStoreFence();
+        buffer.putInt(offset + 8, length);
+        ByteBuffer slot = buffer.duplicate();
+        slot.position(offset + SLOT_HEADER_SIZE);
+        slot.put(writeScratch.array(), 0, length);
+        LONGS.setRelease(buffer, offset, sequence);
+        LONGS.setRelease(buffer, CURSOR_OFFSET, sequence);
+        writeCursor = sequence;
+        written.incrementAndGet();
+        return sequence;
+    }
+
+    private int slotOffset(long sequence) {
+        return HEADER_SIZE + (int) (sequence & mask) * slotSize;
+    }
+
+    /**
+     * Séquence du dernier message publié, 0 si aucun.
+     */
+    public long getCursor() {
+        return (long) LONGS.getAcquire(buffer, CURSOR_OFFSET);
+    }
+
+    /**
+     * Nouveau lecteur, positionné après le dernier message publié.
+     */
+    public Reader reader() {
+        return new Reader(getCursor() + 1);
+    }
+
+    /**
+     * Nouveau lecteur, positionné sur le plus ancien message encore
+     * présent dans l'anneau.
+     */
+    public Reader oldestReader() {
+        return new Reader(Math.max(1, getCursor() - slotCount + 1));
+    }
+
+    /**
+     * Curseur de lecture propre à un consommateur (un seul thread).
+     */
+    public class Reader {
+        private final ByteBuffer view = buffer.asReadOnlyBuffer();
+        private final byte[] scratch = new byte[slotSize - SLOT_HEADER_SIZE];
+        private long next;
+        private long read = 0;
+        private long lost = 0;
+
+        private Reader(long next) {
+            this.next = next;
+        }
+
+        /**
+         * Message suivant, ou null si l'écrivain n'a rien publié de
+         * nouveau. Les messages écrasés avant d'avoir été lus sont sautés.
+         */
+        public Message poll() {
+            while (true) {
+                long cursor = getCursor();
+                if (next > cursor) {
+                    return null;
+                }
+                if (cursor - next >= slotCount) {
+                    // Distancé d'un tour : les plus anciens sont écrasés
+                    long resume = cursor - slotCount + 1;
+                    lost += resume - next;
+                    next = resume;
+                }
+                long sequence = next++;
+                Message message = readSlot(sequence);
+                if (message != null) {
+                    read++;
+                    return message;
+                }
+                lost++;
+            }
+        }
+
+        /**
+         * @return le message de la case, ou null si elle a été réécrite
+         */
+        private Message readSlot(long sequence) {
+            int offset = slotOffset(sequence);
+            if ((long) LONGS.getAcquire(buffer, offset) != sequence) {
+                return null;
+            }
+            int length = buffer.getInt(offset + 8);
+            if (length < 0 || length > scratch.length) {
+                return null;
+            }
+            view.limit(offset + SLOT_HEADER_SIZE + length).position(offset + SLOT_HEADER_SIZE);
+            view.get(scratch, 0, length);
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getOpaque(buffer, offset) != sequence) {
+                return null;
+            }
+            try {
+                return MessageCodec.decode(ByteBuffer.wrap(scratch, 0, length));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Messages en attente de lecture (borné par la taille de l'anneau).
+         */
+        public long getBacklog() {
+            return Math.min(slotCount, Math.max(0, getCursor() - next + 1));
+        }
+
+        public long getReadCount() {
+            return read;
+        }
+
+        /**
+         * Messages écrasés ou illisibles, sautés par ce lecteur.
+         */
+        public long getLostCount() {
+            return lost;
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public int getSlotSize() {
+        return slotSize;
+    }
+
+    /**
+     * Taille maximale d'un message encodé.
+     */
+    public int getMaxMessageSize() {
+        return slotSize - SLOT_HEADER_SIZE;
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * Messages refusés car trop grands ou non encodables.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Ferme le fichier ; la projection est libérée par le GC.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SharedMemoryRing{%s, %s, cases=%dx%d, curseur=%d}",
+                file.getFileName(), writable ? "écriture" : "lecture", slotCount, slotSize,
+                getCursor());
+    }
+}
@@ -0,0 +1,384 @@
+package fr.telecom.middleware.transport;
+
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.core.*;
+import fr.telecom.middleware.realtime.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.*;
+
+/**
+ * Pont de topics entre processus d'une même machine, par anneaux en
+ * mémoire partagée.
+ *
+ * <p>Chaque processus est un nœud nommé. Un topic exporté est écrit par
+ * un subscriber local dans l'anneau {@code <répertoire>/<topic>@<nœud>.ring},
+ * dont ce nœud est l'unique écrivain ; le nom du topic y est encodé en
+ * pourcentage ({@link #ringFile}). Un topic importé est lu dans les
+ * anneaux des autres nœuds par un thread temps-réel {@code SHM-Reader}
+ * et republié localement, ce qui lui applique la QoS du topic local ; les
+ * anneaux des nœuds démarrés plus tard sont découverts en cours de route.
+ * La livraison ne se fait pas sur le thread lecteur
+ * ({@link Middleware#publishDetached}) : un subscriber lent ne fait pas
+ * distancer la lecture des anneaux.
+ * Aucun socket ni processus intermédiaire : un message traverse une copie
+ * vers l'anneau et une copie depuis l'anneau.</p>
+ *
+ * <p>Les messages importés portent le header {@value #ORIGIN_HEADER}
+ * (nœud d'origine) et ne sont jamais réexportés, ce qui évite les boucles
+ * entre nœuds qui exportent et importent le même topic.</p>
+ */
+public class SharedMemoryTransport {
+    private static final Logger logger = LoggerFactory.getLogger(SharedMemoryTransport.class);
+
+    /** Header des messages reçus d'un autre nœud : nœud d'origine. */
+    public static final String ORIGIN_HEADER = "ipc_origin";
+    /** Messages republiés par anneau avant de passer au suivant. */
+    static final int READ_BATCH = 64;
+    /** Intervalle entre deux recherches de nouveaux anneaux. */
+    static final long DISCOVERY_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final String RING_SUFFIX = ".ring";
+
+    private final Middleware middleware;
+    private final Path directory;
+    private final String nodeName;
+    private final int slotCount;
+    private final int slotSize;
+    private final Map<String, Export> exports = new ConcurrentHashMap<>();
+    private final Map<String, Import> imports = new ConcurrentHashMap<>();
+    private volatile WaitStrategy waitStrategy = WaitStrategies.forType(WaitStrategy.Type.SPIN_PARK);
+    private volatile Thread readerThread;
+    private volatile boolean running = true;
+
+    /**
+     * Transport dont le nœud est nommé d'après le PID du processus.
+     */
+    public SharedMemoryTransport(Middleware middleware, Path directory) {
+        this(middleware, directory, "pid" + ProcessHandle.current().pid(),
+                SharedMemoryRing.DEFAULT_SLOT_COUNT, SharedMemoryRing.DEFAULT_SLOT_SIZE);
+    }
+
+    public SharedMemoryTransport(Middleware middleware, Path directory, String nodeName,
+                                 int slotCount, int slotSize) {
+        if (nodeName.isEmpty() || nodeName.contains("@") || nodeName.contains("/")) {
+            throw new IllegalArgumentException("Nom de nœud invalide: " + nodeName);
+        }
+        this.middleware = middleware;
+        this.directory = directory;
+        this.nodeName = nodeName;
+        this.slotCount = slotCount;
+        this.slotSize = slotSize;
+    }
+
+    /**
+     * Fichier de l'anneau écrit par un nœud pour un topic. Le nom du topic
+     * est encodé en pourcentage (octets UTF-8 hors lettres, chiffres,
+     * {@code .}, {@code -} et {@code _}) : deux topics distincts ont deux
+     * fichiers distincts, et le premier '@' sépare toujours le topic du
+     * nœud.
+     */
+    public Path ringFile(String topicName, String nodeName) {
+        return directory.resolve(ringPrefix(topicName) + nodeName + RING_SUFFIX);
+    }
+
+    private static String ringPrefix(String topicName) {
+        StringBuilder encoded = new StringBuilder(topicName.length() + 1);
+        for (byte b : topicName.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '.' || c == '-' || c == '_') {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit(c >> 4, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(c & 0xF, 16)));
+            }
+        }
+        return encoded.append('@').toString();
+    }
+
+    /**
+     * Publie les messages du topic local vers les autres processus.
+     */
+    public synchronized void exportTopic(String topicName) throws IOException {
+        if (exports.containsKey(topicName)) {
+            return;
+        }
+        if (middleware.getTopic(topicName) == null) {
+            throw new IllegalArgumentException("Topic '" + topicName + "' non trouvé");
+        }
+        SharedMemoryRing ring = SharedMemoryRing.create(ringFile(topicName, nodeName),
+                slotCount, slotSize);
+        Export export = new Export(topicName, ring);
+        exports.put(topicName, export);
+        middleware.subscribe(topicName, export);
+        logger.info("Topic '{}' exporté en mémoire partagée: {}", topicName, ring);
+    }
+
+    /**
+     * Republie localement les messages que les autres nœuds exportent sur
+     * le topic, à partir de l'import.
+     */
+    public synchronized void importTopic(String topicName) {
+        if (imports.containsKey(topicName)) {
+            return;
+        }
+        if (middleware.getTopic(topicName) == null) {
+            throw new IllegalArgumentException("Topic '" + topicName + "' non trouvé");
+        }
+        imports.put(topicName, new Import(topicName));
+        if (readerThread == null) {
+            readerThread = middleware.getScheduler().startRealtimeLoop("SHM-Reader", this::readLoop);
+        }
+        logger.info("Topic '{}' importé depuis {}", topicName, directory);
+    }
+
+    /**
+     * Boucle du thread lecteur : vide les anneaux importés puis attend
+     * selon la stratégie d'attente. L'écrivain étant un autre processus,
+     * il ne peut pas réveiller ce thread : seul le délai de la stratégie
+     * borne la latence.
+     */
+    private void readLoop() {
+        int idleRounds = 0;
+        while (running && !Thread.currentThread().isInterrupted()) {
+            int received = 0;
+            for (Import imported : imports.values()) {
+                received += imported.drain();
+            }
+            if (received > 0) {
+                idleRounds = 0;
+                continue;
+            }
+            try {
+                waitStrategy.idle(idleRounds++);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stratégie d'attente du thread lecteur (SPIN_PARK par défaut).
+     */
+    public void setWaitStrategy(WaitStrategy.Type type) {
+        this.waitStrategy = WaitStrategies.forType(type);
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Arrête les exports et le thread lecteur, puis ferme les anneaux.
+     */
+    public synchronized void shutdown() {
+        running = false;
+        Thread thread = readerThread;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Export export : exports.values()) {
+            middleware.unsubscribe(export.topicName, export);
+            closeQuietly(export.ring);
+        }
+        for (Import imported : imports.values()) {
+            imported.rings.forEach(SharedMemoryTransport::closeQuietly);
+        }
+        exports.clear();
+        imports.clear();
+        logger.info("Transport mémoire partagée arrêté");
+    }
+
+    private static void closeQuietly(SharedMemoryRing ring) {
+        if (ring == null) {
+            return;
+        }
+        try {
+            ring.close();
+        } catch (IOException e) {
+            logger.warn("Fermeture de {} impossible: {}", ring.getFile(), e.getMessage());
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public Set<String> getExportedTopics() {
+        return Collections.unmodifiableSet(exports.keySet());
+    }
+
+    public Set<String> getImportedTopics() {
+        return Collections.unmodifiableSet(imports.keySet());
+    }
+
+    /**
+     * Messages écrits dans les anneaux exportés.
+     */
+    public long getExportedCount() {
+        return exports.values().stream().mapToLong(e -> e.ring.getWrittenCount()).sum();
+    }
+
+    /**
+     * Messages refusés à l'export (trop grands pour une case ou non
+     * encodables).
+     */
+    public long getRejectedCount() {
+        return exports.values().stream().mapToLong(e -> e.ring.getRejectedCount()).sum();
+    }
+
+    /**
+     * Messages reçus des autres nœuds et republiés.
+     */
+    public long getImportedCount() {
+        return imports.values().stream().mapToLong(i -> i.imported.get()).sum();
+    }
+
+    /**
+     * Messages écrasés avant d'avoir été lus : le lecteur n'a pas suivi
+     * le débit de l'écrivain.
+     */
+    public long getLostCount() {
+        return imports.values().stream().mapToLong(i -> i.lost).sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SharedMemoryTransport{%s@%s, exports=%s, imports=%s, écrits=%d, "
+                        + "importés=%d, perdus=%d}", nodeName, directory, exports.keySet(),
+                imports.keySet(),
+                getExportedCount(), getImportedCount(), getLostCount());
+    }
+
+    /**
+     * Subscriber local qui écrit le topic dans son anneau.
+     */
+    private static class Export implements Subscriber {
+        private final String topicName;
+        private final SharedMemoryRing ring;
+
+        Export(String topicName, SharedMemoryRing ring) {
+            this.topicName = topicName;
+            this.ring = ring;
+        }
+
+        @Override
+        public void onMessage(Message message) {
+            if (message.getHeader(ORIGIN_HEADER) != null) {
+                return;
+            }
+            try {
+                ring.write(message);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Message non exporté sur '{}': {}", topicName, e.getMessage());
+            }
+        }
+
+        @Override
+        public String getSubscriberId() {
+            return "shm-export:" + topicName;
+        }
+    }
+
+    /**
+     * Anneaux des autres nœuds pour un topic importé, lus uniquement par
+     * le thread lecteur.
+     */
+    private class Import {
+        private final String topicName;
+        private final AtomicLong imported = new AtomicLong(0);
+        private final List<SharedMemoryRing> rings = new CopyOnWriteArrayList<>();
+        private final List<SharedMemoryRing.Reader> readers = new ArrayList<>();
+        private final List<String> origins = new ArrayList<>();
+        private final Set<Path> opened = new HashSet<>();
+        private volatile long lost;
+        private long nextDiscovery = System.nanoTime();
+        private boolean discovered = false;
+
+        Import(String topicName) {
+            this.topicName = topicName;
+        }
+
+        /**
+         * @return le nombre de messages republiés
+         */
+        int drain() {
+            long now = System.nanoTime();
+            if (now - nextDiscovery >= 0) {
+                nextDiscovery = now + DISCOVERY_INTERVAL_NANOS;
+                discover();
+            }
+            int count = 0;
+            long lostNow = 0;
+            for (int i = 0; i < readers.size(); i++) {
+                SharedMemoryRing.Reader reader = readers.get(i);
+                int batch = 0;
+                Message message;
+                while (batch < READ_BATCH && (message = reader.poll()) != null) {
+                    message.addHeader(ORIGIN_HEADER, origins.get(i));
+                    middleware.publishDetached(topicName, message);
+                    batch++;
+                }
+                count += batch;
+                lostNow += reader.getLostCount();
+            }
+            lost = lostNow;
+            imported.addAndGet(count);
+            return count;
+        }
+
+        /**
+         * Ouvre les anneaux apparus depuis la dernière recherche, sauf
+         * celui de ce nœud. Les anneaux présents à l'import sont lus à
+         * partir de leurs nouveaux messages ; ceux qui apparaissent ensuite
+         * depuis leur début, pour ne pas perdre les premiers messages d'un
+         * nœud qui vient de démarrer. Les noms de fichier sont comparés
+         * tels quels, sans motif construit à partir du nom du topic.
+         */
+        private void discover() {
+            String prefix = ringPrefix(topicName);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    if (!name.startsWith(prefix) || !name.endsWith(RING_SUFFIX)
+                            || name.length() == prefix.length() + RING_SUFFIX.length()) {
+                        continue;
+                    }
+                    String origin = name.substring(prefix.length(),
+                            name.length() - RING_SUFFIX.length());
+                    if (origin.contains("@") || origin.contains("/")
+                            || origin.equals(nodeName) || opened.contains(file)) {
+                        continue;
+                    }
+                    try {
+                        SharedMemoryRing ring = SharedMemoryRing.open(file);
+                        rings.add(ring);
+                        readers.add(discovered ? ring.oldestReader() : ring.reader());
+                        origins.add(origin);
+                        opened.add(file);
+                        logger.info("Anneau de '{}' ouvert pour '{}': {}", origin, topicName, ring);
+                    } catch (IOException e) {
+                        logger.debug("Anneau {} pas encore prêt: {}", file, e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                logger.debug("Répertoire {} illisible: {}", directory, e.getMessage());
+            }
+            discovered = true;
+        }
+    }
+}
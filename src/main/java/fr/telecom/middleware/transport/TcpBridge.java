@@ -0,0 +1,845 @@
+package fr.telecom.middleware.transport;
+
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.core.*;
+import java.io.IOException;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import org.slf4j.*;
+
+/**
+ * Fédération de topics entre middlewares par TCP non bloquant.
+ *
+ * <p>Un seul thread {@code TCP-Bridge-<nœud>} sert toutes les connexions
+ * avec un {@link Selector}. Les échanges sont des trames préfixées par
+ * leur longueur : présentation du nœud, résumé des intérêts, mise à jour
+ * du résumé et message encodé par {@link MessageCodec}.</p>
+ *
+ * <p>Seuls les topics fédérés ({@link #federate(String)}) traversent le
+ * pont, et seulement vers les nœuds qui y ont un abonné. Chaque nœud
+ * résume ses intérêts (topics fédérés ayant un subscriber local) dans un
+ * {@link TopicBloomFilter} envoyé à la connexion ; à chaque abonnement ou
+ * désabonnement, il n'envoie que les bits modifiés. Un nœud relaie un
+ * topic vers les pairs dont le résumé le reconnaît : un topic sans intérêt
+ * distant n'a pas de relais et n'est jamais encodé, et un faux positif du
+ * filtre coûte un message écarté à la réception.</p>
+ *
+ * <p>Les écritures sont groupées : les trames en attente d'un pair
+ * partent en une écriture vectorielle (en-tête et corps de chaque trame,
+ * sans copie), jusqu'à {@value #WRITE_BATCH} trames. Les messages reçus
+ * portent le header {@value #ORIGIN_HEADER} et ne sont pas relayés à
+ * nouveau : chaque paire de nœuds doit être reliée directement, par une
+ * seule connexion. Ils ne sont pas livrés sur le thread du pont
+ * ({@link Middleware#publishDetached}).</p>
+ */
+public class TcpBridge {
+    private static final Logger logger = LoggerFactory.getLogger(TcpBridge.class);
+
+    /** Header des messages reçus d'un pair : nœud d'origine. */
+    public static final String ORIGIN_HEADER = "bridge_origin";
+
+    static final byte HELLO = 1;
+    static final byte SUMMARY = 2;
+    static final byte SUMMARY_DELTA = 3;
+    static final byte MESSAGE = 4;
+
+    /** Longueur (int) puis type (octet). */
+    static final int FRAME_HEADER_SIZE = 5;
+    public static final int MAX_FRAME_SIZE = 1 << 20;
+    /** Trames par écriture vectorielle. */
+    static final int WRITE_BATCH = 64;
+    /** Trames en attente par pair au-delà desquelles les messages sont abandonnés. */
+    static final int MAX_PENDING_FRAMES = 8192;
+    static final int READ_BUFFER_SIZE = 64 * 1024;
+    static final long RECONNECT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Middleware middleware;
+    private final String nodeName;
+    private final Selector selector;
+    private final int summaryBits;
+    private final int summaryHashes;
+    private final Set<String> federatedTopics = ConcurrentHashMap.newKeySet();
+    /** Topics fédérés ayant un subscriber local (thread du pont). */
+    private final Set<String> localInterest = new HashSet<>();
+    /** Résumé de {@link #localInterest} connu des pairs. */
+    private volatile TopicBloomFilter advertised;
+    private final Map<String, Forwarder> forwarders = new ConcurrentHashMap<>();
+    private final List<Peer> peers = new CopyOnWriteArrayList<>();
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final Queue<Peer> flushRequests = new ConcurrentLinkedQueue<>();
+    private final SubscriptionListener subscriptionListener;
+
+    private final AtomicLong forwarded = new AtomicLong(0);
+    private final AtomicLong received = new AtomicLong(0);
+    private final AtomicLong dropped = new AtomicLong(0);
+    private final AtomicLong filtered = new AtomicLong(0);
+    private final AtomicLong summaryUpdates = new AtomicLong(0);
+    private final AtomicLong writes = new AtomicLong(0);
+    private final AtomicLong framesWritten = new AtomicLong(0);
+
+    private volatile ServerSocketChannel server;
+    private volatile Thread ioThread;
+    private volatile boolean running = true;
+
+    public TcpBridge(Middleware middleware, String nodeName) throws IOException {
+        this(middleware, nodeName, TopicBloomFilter.DEFAULT_BITS, TopicBloomFilter.DEFAULT_HASHES);
+    }
+
+    /**
+     * @param summaryBits   taille du résumé des intérêts (multiple de 64)
+     * @param summaryHashes bits positionnés par topic
+     */
+    public TcpBridge(Middleware middleware, String nodeName, int summaryBits, int summaryHashes)
+            throws IOException {
+        this.middleware = middleware;
+        this.nodeName = nodeName;
+        this.summaryBits = summaryBits;
+        this.summaryHashes = summaryHashes;
+        this.advertised = new TopicBloomFilter(summaryBits, summaryHashes);
+        this.selector = Selector.open();
+        this.subscriptionListener = new SubscriptionListener() {
+            @Override
+            public void onSubscribe(Topic topic, Subscriber subscriber) {
+                onLocalSubscriptionChange(topic, subscriber);
+            }
+
+            @Override
+            public void onUnsubscribe(Topic topic, Subscriber subscriber) {
+                onLocalSubscriptionChange(topic, subscriber);
+            }
+        };
+        middleware.addSubscriptionListener(subscriptionListener);
+    }
+
+    /**
+     * Écoute les connexions des autres nœuds sur la boucle locale.
+     *
+     * @param port port local, 0 pour un port libre
+     * @return le port effectivement ouvert
+     */
+    public int bind(int port) throws IOException {
+        return bind(null, port);
+    }
+
+    /**
+     * Écoute les connexions des autres nœuds. Le pont n'authentifie pas
+     * ses pairs : une adresse autre que la boucle locale ne doit être
+     * joignable que depuis un réseau de confiance.
+     *
+     * @param host adresse d'écoute, null pour la boucle locale
+     * @param port port local, 0 pour un port libre
+     * @return le port effectivement ouvert
+     */
+    public synchronized int bind(String host, int port) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Pont déjà en écoute sur " + getLocalPort());
+        }
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.bind(host != null ? new InetSocketAddress(host, port)
+                : new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        channel.configureBlocking(false);
+        server = channel;
+        execute(() -> {
+            try {
+                channel.register(selector, SelectionKey.OP_ACCEPT);
+            } catch (ClosedChannelException e) {
+                logger.warn("Écoute abandonnée: {}", e.getMessage());
+            }
+        });
+        logger.info("Pont {} en écoute sur {}", nodeName, channel.getLocalAddress());
+        return getLocalPort();
+    }
+
+    /**
+     * Relie ce nœud à un autre ; la connexion est rétablie après une
+     * coupure.
+     */
+    public void connect(String host, int port) {
+        Peer peer = new Peer(new InetSocketAddress(host, port));
+        peers.add(peer);
+        execute(() -> openConnection(peer));
+    }
+
+    /**
+     * Fait participer un topic local à la fédération.
+     */
+    public void federate(String topicName) {
+        if (middleware.getTopic(topicName) == null) {
+            throw new IllegalArgumentException("Topic '" + topicName + "' non trouvé");
+        }
+        federatedTopics.add(topicName);
+        execute(() -> {
+            updateLocalInterest(topicName);
+            updateRoutes();
+        });
+        logger.info("Topic '{}' fédéré par le pont {}", topicName, nodeName);
+    }
+
+    private void onLocalSubscriptionChange(Topic topic, Subscriber subscriber) {
+        if (!(subscriber instanceof Forwarder) && federatedTopics.contains(topic.getName())) {
+            execute(() -> updateLocalInterest(topic.getName()));
+        }
+    }
+
+    /**
+     * Exécute une action sur le thread du pont, démarré au premier appel.
+     */
+    private void execute(Runnable command) {
+        commands.offer(command);
+        if (ioThread == null) {
+            startIoThread();
+        }
+        selector.wakeup();
+    }
+
+    private synchronized void startIoThread() {
+        if (ioThread == null && running) {
+            ioThread = middleware.getScheduler().startRealtimeLoop("TCP-Bridge-" + nodeName,
+                    this::ioLoop);
+        }
+    }
+
+    /**
+     * Boucle du thread du pont.
+     */
+    private void ioLoop() {
+        try {
+            while (running && !Thread.currentThread().isInterrupted()) {
+                selector.select(TimeUnit.NANOSECONDS.toMillis(RECONNECT_NANOS));
+                Runnable command;
+                while ((command = commands.poll()) != null) {
+                    command.run();
+                }
+                reconnectDuePeers();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handleKey(key);
+                }
+
+                Peer peer;
+                while ((peer = flushRequests.poll()) != null) {
+                    flush(peer);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Erreur du sélecteur du pont {}: {}", nodeName, e.getMessage());
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void handleKey(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        Peer peer = (Peer) key.attachment();
+        try {
+            if (key.isConnectable()) {
+                peer.channel.finishConnect();
+                onConnected(peer);
+            }
+            if (key.isValid() && key.isReadable()) {
+                read(peer);
+            }
+            if (key.isValid() && key.isWritable()) {
+                flush(peer);
+            }
+        } catch (IOException e) {
+            logger.warn("Connexion avec {} perdue: {}", peer, e.getMessage());
+            close(peer);
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel;
+            while ((channel = server.accept()) != null) {
+                Peer peer = new Peer(null);
+                peer.channel = channel;
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                peer.key = channel.register(selector, SelectionKey.OP_READ, peer);
+                peers.add(peer);
+                onConnected(peer);
+            }
+        } catch (IOException e) {
+            logger.warn("Connexion entrante refusée: {}", e.getMessage());
+        }
+    }
+
+    private void openConnection(Peer peer) {
+        try {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            peer.channel = channel;
+            if (channel.connect(peer.address)) {
+                peer.key = channel.register(selector, SelectionKey.OP_READ, peer);
+                onConnected(peer);
+            } else {
+                peer.key = channel.register(selector, SelectionKey.OP_CONNECT, peer);
+            }
+        } catch (IOException e) {
+            logger.debug("Connexion à {} impossible: {}", peer.address, e.getMessage());
+            close(peer);
+        }
+    }
+
+    /**
+     * Présente le nœud et envoie le résumé de ses intérêts.
+     */
+    private void onConnected(Peer peer) {
+        peer.key.interestOps(SelectionKey.OP_READ);
+        peer.connected = true;
+        peer.send(HELLO, StandardCharsets.UTF_8.encode(nodeName));
+        ByteBuffer summary = ByteBuffer.allocate(advertised.getEncodedSize());
+        advertised.writeTo(summary);
+        summary.flip();
+        peer.send(SUMMARY, summary);
+        logger.info("Pont {} connecté à {}", nodeName, peer);
+        flush(peer);
+    }
+
+    private void reconnectDuePeers() {
+        long now = System.nanoTime();
+        for (Peer peer : peers) {
+            if (peer.address != null && peer.channel == null && now - peer.reconnectAt >= 0) {
+                openConnection(peer);
+            }
+        }
+    }
+
+    private void read(Peer peer) throws IOException {
+        int count = peer.channel.read(peer.readBuffer);
+        if (count < 0) {
+            throw new IOException("connexion fermée par le pair");
+        }
+        ByteBuffer buffer = peer.readBuffer;
+        buffer.flip();
+        int needed = 0;
+        while (buffer.remaining() >= 4) {
+            int length = buffer.getInt(buffer.position());
+            if (length < 1 || length > MAX_FRAME_SIZE) {
+                throw new IOException("trame invalide (" + length + " octets)");
+            }
+            if (buffer.remaining() < 4 + length) {
+                needed = 4 + length;
+                break;
+            }
+            buffer.position(buffer.position() + 4);
+            byte type = buffer.get();
+            ByteBuffer body = buffer.slice();
+            body.limit(length - 1);
+            buffer.position(buffer.position() + length - 1);
+            handleFrame(peer, type, body);
+        }
+        buffer.compact();
+        if (needed > buffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(needed);
+            buffer.flip();
+            larger.put(buffer);
+            peer.readBuffer = larger;
+        }
+    }
+
+    private void handleFrame(Peer peer, byte type, ByteBuffer body) throws IOException {
+        switch (type) {
+            case HELLO:
+                peer.name = StandardCharsets.UTF_8.decode(body).toString();
+                logger.info("Pair identifié: {}", peer);
+                break;
+            case SUMMARY:
+            case SUMMARY_DELTA:
+                try {
+                    peer.summary = type == SUMMARY
+                            ? TopicBloomFilter.readFrom(body)
+                            : peer.summary.withFlipped(readPositions(body));
+                } catch (RuntimeException e) {
+                    throw new IOException("résumé d'intérêts invalide: " + e.getMessage());
+                }
+                updateRoutes();
+                logger.debug("Résumé de {} mis à jour: {}", peer, peer.summary);
+                break;
+            case MESSAGE:
+                receive(peer, body);
+                break;
+            default:
+                logger.warn("Trame de type inconnu {} reçue de {}", type, peer);
+        }
+    }
+
+    private static int[] readPositions(ByteBuffer body) {
+        int count = MessageCodec.getVarInt(body);
+        if (count < 0 || count > body.remaining()) {
+            throw new IllegalArgumentException("nombre de bits invalide: " + count);
+        }
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = MessageCodec.getVarInt(body);
+        }
+        return positions;
+    }
+
+    private void receive(Peer peer, ByteBuffer body) {
+        Message message;
+        try {
+            message = MessageCodec.decode(body);
+        } catch (IllegalArgumentException e) {
+            dropped.incrementAndGet();
+            logger.warn("Message illisible reçu de {}: {}", peer, e.getMessage());
+            return;
+        }
+        if (!localInterest.contains(message.getTopic())) {
+            // Faux positif du résumé, ou désabonnement pas encore connu du pair
+            filtered.incrementAndGet();
+            return;
+        }
+        message.addHeader(ORIGIN_HEADER, peer.name);
+        received.incrementAndGet();
+        // Un subscriber lent ne doit pas bloquer le sélecteur de tous les pairs
+        middleware.publishDetached(message.getTopic(), message);
+    }
+
+    private boolean hasLocalSubscriber(String topicName) {
+        Topic topic = middleware.getTopic(topicName);
+        return topic != null && topic.getSubscribers().stream()
+                .anyMatch(subscriber -> !(subscriber instanceof Forwarder));
+    }
+
+    /**
+     * Met à jour l'intérêt de ce nœud pour un topic selon ses subscribers
+     * locaux, et envoie aux pairs les bits du résumé qui ont changé.
+     */
+    private void updateLocalInterest(String topicName) {
+        boolean changed = hasLocalSubscriber(topicName)
+                ? localInterest.add(topicName)
+                : localInterest.remove(topicName);
+        if (!changed) {
+            return;
+        }
+        TopicBloomFilter summary = TopicBloomFilter.of(localInterest, summaryBits, summaryHashes);
+        int[] positions = advertised.diff(summary);
+        advertised = summary;
+        if (positions.length == 0) {
+            // Bits déjà positionnés par d'autres topics
+            return;
+        }
+        ByteBuffer delta = ByteBuffer.allocate(5 + positions.length * 5);
+        MessageCodec.putVarInt(delta, positions.length);
+        for (int position : positions) {
+            MessageCodec.putVarInt(delta, position);
+        }
+        delta.flip();
+        summaryUpdates.incrementAndGet();
+        for (Peer peer : peers) {
+            if (peer.connected) {
+                peer.send(SUMMARY_DELTA, delta.duplicate());
+                flush(peer);
+            }
+        }
+    }
+
+    /**
+     * Recalcule, pour chaque pair, les topics fédérés que son résumé
+     * reconnaît, puis ajuste les relais.
+     */
+    private void updateRoutes() {
+        for (Peer peer : peers) {
+            TopicBloomFilter summary = peer.summary;
+            Set<String> routes = new HashSet<>();
+            if (peer.connected && summary != null) {
+                for (String topicName : federatedTopics) {
+                    if (summary.mightContain(topicName)) {
+                        routes.add(topicName);
+                    }
+                }
+            }
+            peer.routes = Collections.unmodifiableSet(routes);
+        }
+        for (String topicName : federatedTopics) {
+            if (isRouted(topicName)) {
+                ensureForwarder(topicName);
+            } else {
+                releaseForwarder(topicName);
+            }
+        }
+    }
+
+    private boolean isRouted(String topicName) {
+        for (Peer peer : peers) {
+            if (peer.routes.contains(topicName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void ensureForwarder(String topicName) {
+        if (!forwarders.containsKey(topicName)) {
+            Forwarder forwarder = new Forwarder(topicName);
+            forwarders.put(topicName, forwarder);
+            middleware.subscribe(topicName, forwarder);
+        }
+    }
+
+    /**
+     * Retire le relais d'un topic.
+     */
+    private void releaseForwarder(String topicName) {
+        Forwarder forwarder = forwarders.remove(topicName);
+        if (forwarder != null) {
+            middleware.unsubscribe(topicName, forwarder);
+        }
+    }
+
+    /**
+     * Écrit les trames en attente du pair, par écritures vectorielles,
+     * jusqu'à vider sa file ou remplir le tampon du socket.
+     */
+    private void flush(Peer peer) {
+        peer.flushRequested.set(false);
+        if (!peer.connected) {
+            return;
+        }
+        try {
+            while (true) {
+                int frames = 0;
+                ByteBuffer[] frame;
+                while (frames < WRITE_BATCH && (frame = peer.outbound.poll()) != null) {
+                    peer.pending.decrementAndGet();
+                    peer.unsent.add(frame[0]);
+                    peer.unsent.add(frame[1]);
+                    frames++;
+                }
+                if (peer.unsent.isEmpty()) {
+                    peer.key.interestOps(SelectionKey.OP_READ);
+                    return;
+                }
+                peer.channel.write(peer.unsent.toArray(new ByteBuffer[0]));
+                writes.incrementAndGet();
+                framesWritten.addAndGet(frames);
+                while (!peer.unsent.isEmpty() && !peer.unsent.peekFirst().hasRemaining()) {
+                    peer.unsent.pollFirst();
+                }
+                if (!peer.unsent.isEmpty()) {
+                    // Tampon du socket plein : reprendre quand il sera inscriptible
+                    peer.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Écriture vers {} impossible: {}", peer, e.getMessage());
+            close(peer);
+        }
+    }
+
+    private void close(Peer peer) {
+        peer.connected = false;
+        if (peer.channel != null) {
+            try {
+                peer.channel.close();
+            } catch (IOException e) {
+                logger.debug("Fermeture de {}: {}", peer, e.getMessage());
+            }
+            peer.channel = null;
+        }
+        peer.unsent.clear();
+        peer.outbound.clear();
+        peer.pending.set(0);
+        peer.readBuffer.clear();
+        peer.summary = null;
+        peer.routes = Collections.emptySet();
+        if (peer.address == null) {
+            peers.remove(peer);
+        } else {
+            peer.reconnectAt = System.nanoTime() + RECONNECT_NANOS;
+        }
+        if (running) {
+            updateRoutes();
+        }
+    }
+
+    private void closeAll() {
+        for (Peer peer : peers) {
+            close(peer);
+        }
+        peers.clear();
+        try {
+            if (server != null) {
+                server.close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            logger.debug("Fermeture du pont {}: {}", nodeName, e.getMessage());
+        }
+    }
+
+    /**
+     * Ferme les connexions et retire les relais.
+     */
+    public void shutdown() {
+        running = false;
+        middleware.removeSubscriptionListener(subscriptionListener);
+        Thread thread = ioThread;
+        if (thread != null) {
+            selector.wakeup();
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            closeAll();
+        }
+        forwarders.forEach((topicName, forwarder) -> middleware.unsubscribe(topicName, forwarder));
+        forwarders.clear();
+        logger.info("Pont {} arrêté", nodeName);
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    /**
+     * Port d'écoute, -1 si le pont n'écoute pas.
+     */
+    public int getLocalPort() {
+        ServerSocketChannel channel = server;
+        if (channel == null) {
+            return -1;
+        }
+        try {
+            return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Adresse d'écoute, null si le pont n'écoute pas.
+     */
+    public InetAddress getBindAddress() {
+        ServerSocketChannel channel = server;
+        if (channel == null) {
+            return null;
+        }
+        try {
+            return ((InetSocketAddress) channel.getLocalAddress()).getAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public Set<String> getFederatedTopics() {
+        return Collections.unmodifiableSet(federatedTopics);
+    }
+
+    /**
+     * Topics locaux relayés parce qu'au moins un pair y est abonné.
+     */
+    public Set<String> getRelayedTopics() {
+        return Collections.unmodifiableSet(forwarders.keySet());
+    }
+
+    /**
+     * Pairs connectés, par nom.
+     */
+    public List<String> getConnectedPeers() {
+        List<String> names = new ArrayList<>();
+        for (Peer peer : peers) {
+            if (peer.connected) {
+                names.add(peer.name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Envois de messages vers les pairs (un par pair destinataire).
+     */
+    public long getForwardedCount() {
+        return forwarded.get();
+    }
+
+    public long getReceivedCount() {
+        return received.get();
+    }
+
+    /**
+     * Messages abandonnés : file d'un pair pleine, non encodables ou
+     * illisibles.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Messages reçus puis écartés faute d'abonné local : faux positifs du
+     * résumé, ou désabonnement que le pair ne connaissait pas encore.
+     */
+    public long getFilteredCount() {
+        return filtered.get();
+    }
+
+    /**
+     * Mises à jour incrémentales du résumé envoyées aux pairs.
+     */
+    public long getSummaryUpdateCount() {
+        return summaryUpdates.get();
+    }
+
+    /**
+     * Résumé des intérêts de ce nœud tel que connu des pairs.
+     */
+    public TopicBloomFilter getAdvertisedSummary() {
+        return advertised;
+    }
+
+    /**
+     * Écritures vectorielles sur les sockets.
+     */
+    public long getWriteCount() {
+        return writes.get();
+    }
+
+    public long getFramesWritten() {
+        return framesWritten.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TcpBridge{%s, port=%d, pairs=%s, relayés=%s, envoyés=%d, reçus=%d, "
+                        + "abandonnés=%d, écartés=%d, trames/écriture=%.1f}", nodeName, getLocalPort(),
+                getConnectedPeers(), forwarders.keySet(), forwarded.get(), received.get(),
+                dropped.get(), filtered.get(), writes.get() == 0 ? 0.0 : (double) framesWritten.get() / writes.get());
+    }
+
+    /**
+     * Trame : en-tête (longueur, type) et corps, écrits sans copie.
+     */
+    private static ByteBuffer[] frame(byte type, ByteBuffer body) {
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        header.putInt(1 + body.remaining()).put(type).flip();
+        return new ByteBuffer[]{header, body};
+    }
+
+    /**
+     * Subscriber local d'un topic relayé : encode chaque message une fois
+     * et le met en file pour les pairs abonnés.
+     */
+    private class Forwarder implements Subscriber {
+        private final String topicName;
+
+        Forwarder(String topicName) {
+            this.topicName = topicName;
+        }
+
+        @Override
+        public void onMessage(Message message) {
+            if (message.getHeader(ORIGIN_HEADER) != null) {
+                return;
+            }
+            byte[] body;
+            try {
+                body = MessageCodec.encode(message);
+            } catch (IllegalArgumentException e) {
+                dropped.incrementAndGet();
+                logger.warn("Message non relayé sur '{}': {}", topicName, e.getMessage());
+                return;
+            }
+            if (body.length + 1 > MAX_FRAME_SIZE) {
+                dropped.incrementAndGet();
+                logger.warn("Message trop grand pour le pont sur '{}': {} octets",
+                        topicName, body.length);
+                return;
+            }
+            ByteBuffer shared = ByteBuffer.wrap(body);
+            for (Peer peer : peers) {
+                if (peer.connected && peer.routes.contains(topicName)) {
+                    if (peer.enqueue(frame(MESSAGE, shared.duplicate()))) {
+                        forwarded.incrementAndGet();
+                    } else {
+                        dropped.incrementAndGet();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String getSubscriberId() {
+            return "tcp-bridge:" + nodeName + ":" + topicName;
+        }
+    }
+
+    /**
+     * Connexion avec un autre nœud. La file d'envoi est alimentée par les
+     * threads de livraison ; le reste n'est manipulé que par le thread du
+     * pont.
+     */
+    private class Peer {
+        private final InetSocketAddress address;
+        private final Queue<ByteBuffer[]> outbound = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger(0);
+        private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+        private final ArrayDeque<ByteBuffer> unsent = new ArrayDeque<>();
+        private volatile String name = "?";
+        private volatile boolean connected = false;
+        /** Résumé des intérêts du pair, null avant sa réception. */
+        private volatile TopicBloomFilter summary;
+        /** Topics fédérés que le résumé du pair reconnaît. */
+        private volatile Set<String> routes = Collections.emptySet();
+        private SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private long reconnectAt = System.nanoTime();
+
+        Peer(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        /**
+         * Met une trame en file et réveille le thread du pont si besoin.
+         *
+         * @return false si la file du pair est pleine
+         */
+        boolean enqueue(ByteBuffer[] frame) {
+            if (pending.incrementAndGet() > MAX_PENDING_FRAMES) {
+                pending.decrementAndGet();
+                return false;
+            }
+            outbound.offer(frame);
+            if (flushRequested.compareAndSet(false, true)) {
+                flushRequests.offer(this);
+                if (Thread.currentThread() != ioThread) {
+                    selector.wakeup();
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Trame de contrôle, émise depuis le thread du pont.
+         */
+        void send(byte type, ByteBuffer body) {
+            outbound.offer(frame(type, body));
+            pending.incrementAndGet();
+        }
+
+        @Override
+        public String toString() {
+            return name + (address != null ? "@" + address : "");
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package fr.telecom.middleware.transport;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Filtre de Bloom sur des noms de topics : résumé compact des intérêts
+ * d'un nœud.
+ *
+ * <p>Un topic positionne {@code hashes} bits d'un tableau de {@code bits}
+ * bits. {@link #mightContain(String)} ne se trompe jamais pour un topic
+ * ajouté ; pour un autre topic, il répond vrai avec une probabilité
+ * {@link #falsePositiveRate()}. La taille du résumé ne dépend pas du
+ * nombre de topics, et un changement d'intérêt ne modifie que quelques
+ * bits ({@link #diff(TopicBloomFilter)}), transmis seuls.</p>
+ *
+ * <p>Le hachage (FNV-1a 64 bits sur les caractères, double hachage) ne
+ * dépend pas de la JVM : deux nœuds calculent les mêmes positions.</p>
+ */
+public class TopicBloomFilter {
+
+    public static final int DEFAULT_BITS = 2048;
+    public static final int DEFAULT_HASHES = 4;
+
+    private final int bits;
+    private final int hashes;
+    private final long[] words;
+
+    public TopicBloomFilter(int bits, int hashes) {
+        if (bits <= 0 || bits % 64 != 0) {
+            throw new IllegalArgumentException("Taille de filtre invalide: " + bits);
+        }
+        if (hashes <= 0) {
+            throw new IllegalArgumentException("Nombre de hachages invalide: " + hashes);
+        }
+        this.bits = bits;
+        this.hashes = hashes;
+        this.words = new long[bits / 64];
+    }
+
+    private TopicBloomFilter(TopicBloomFilter other) {
+        this.bits = other.bits;
+        this.hashes = other.hashes;
+        this.words = other.words.clone();
+    }
+
+    /**
+     * Filtre contenant exactement les topics donnés.
+     */
+    public static TopicBloomFilter of(Collection<String> topicNames, int bits, int hashes) {
+        TopicBloomFilter filter = new TopicBloomFilter(bits, hashes);
+        topicNames.forEach(filter::add);
+        return filter;
+    }
+
+    public void add(String topicName) {
+        for (int position : positions(topicName)) {
+            words[position >>> 6] |= 1L << position;
+        }
+    }
+
+    public boolean mightContain(String topicName) {
+        for (int position : positions(topicName)) {
+            if ((words[position >>> 6] & (1L << position)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Positions des bits d'un topic.
+     */
+    int[] positions(String topicName) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < topicName.length(); i++) {
+            hash ^= topicName.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        int[] positions = new int[hashes];
+        for (int i = 0; i < hashes; i++) {
+            positions[i] = Math.floorMod(h1 + i * h2, bits);
+        }
+        return positions;
+    }
+
+    /**
+     * Bits qui diffèrent entre ce filtre et un autre de même géométrie.
+     */
+    public int[] diff(TopicBloomFilter other) {
+        checkGeometry(other);
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            count += Long.bitCount(words[i] ^ other.words[i]);
+        }
+        int[] positions = new int[count];
+        int index = 0;
+        for (int i = 0; i < words.length; i++) {
+            long changed = words[i] ^ other.words[i];
+            while (changed != 0) {
+                positions[index++] = (i << 6) + Long.numberOfTrailingZeros(changed);
+                changed &= changed - 1;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Copie du filtre avec les bits donnés inversés.
+     */
+    public TopicBloomFilter withFlipped(int[] positions) {
+        TopicBloomFilter copy = new TopicBloomFilter(this);
+        for (int position : positions) {
+            if (position < 0 || position >= bits) {
+                throw new IllegalArgumentException("Bit hors du filtre: " + position);
+            }
+            copy.words[position >>> 6] ^= 1L << position;
+        }
+        return copy;
+    }
+
+    private void checkGeometry(TopicBloomFilter other) {
+        if (other.bits != bits || other.hashes != hashes) {
+            throw new IllegalArgumentException("Géométries de filtres différentes");
+        }
+    }
+
+    /**
+     * Écrit la géométrie puis les bits.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(bits).putInt(hashes);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+    }
+
+    public static TopicBloomFilter readFrom(ByteBuffer buffer) {
+        int bits = buffer.getInt();
+        int hashes = buffer.getInt();
+        if (bits <= 0 || bits % 64 != 0 || bits / 8 > buffer.remaining()) {
+            throw new IllegalArgumentException("Filtre invalide: " + bits + " bits");
+        }
+        TopicBloomFilter filter = new TopicBloomFilter(bits, hashes);
+        for (int i = 0; i < filter.words.length; i++) {
+            filter.words[i] = buffer.getLong();
+        }
+        return filter;
+    }
+
+    /**
+     * Taille encodée par {@link #writeTo(ByteBuffer)}.
+     */
+    public int getEncodedSize() {
+        return 8 + bits / 8;
+    }
+
+    public int getBits() {
+        return bits;
+    }
+
+    public int getHashes() {
+        return hashes;
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Probabilité qu'un topic absent soit reconnu, d'après le taux de
+     * remplissage.
+     */
+    public double falsePositiveRate() {
+        return Math.pow((double) cardinality() / bits, hashes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof TopicBloomFilter)) {
+            return false;
+        }
+        TopicBloomFilter other = (TopicBloomFilter) o;
+        return bits == other.bits && hashes == other.hashes && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TopicBloomFilter{%d bits, %d hachages, %d positionnés, fp=%.4f}",
+                bits, hashes, cardinality(), falsePositiveRate());
+    }
+}
@@ -0,0 +1,138 @@
+package fr.telecom.middleware.test;
+
+import fr.telecom.middleware.config.*;
+import fr.telecom.middleware.core.*;
+import fr.telecom.middleware.fault.*;
+import fr.telecom.middleware.qos.*;
+import fr.telecom.middleware.realtime.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class ConfigTest {
+
+    private Middleware middleware;
+
+    @Before
+    public void setUp() {
+        middleware = new Middleware();
+    }
+
+    @After
+    public void tearDown() {
+        middleware.shutdown();
+    }
+
+    @Test
+    public void testLoadWrappedConfig() {
+        // When - le fichier est enveloppé dans l'élément racine "middleware"
+        MiddlewareConfig config = ConfigLoader.loadConfig("config.json");
+
+        // Then - le contenu est lu, pas la configuration par défaut
+        assertEquals("PubSub-Realtime-Middleware", config.getName());
+        assertEquals(512, config.getMaxMemoryKB());
+        assertEquals(4, config.getTopics().size());
+        assertEquals("WARN", config.getRealtime().getAdmissionPolicy());
+    }
+
+    @Test
+    public void testMissingConfigFallsBackToDefaults() {
+        // When
+        MiddlewareConfig config = ConfigLoader.loadConfig("absent.json");
+
+        // Then
+        assertEquals("PubSub-Realtime-Middleware", config.getName());
+        assertEquals(512, config.getMaxMemoryKB());
+        assertTrue(config.isRealtimeEnabled());
+    }
+
+    @Test
+    public void testConfigureAppliesMemoryRealtimeAndAdmission() {
+        // Given
+        MiddlewareConfig config = ConfigLoader.loadConfig("config.json");
+        config.setMaxMemoryKB(2048);
+        config.setRealtimeEnabled(false);
+        config.getRealtime().setAdmissionPolicy("REJECT");
+
+        // When
+        ConfigLoader.configure(middleware, config);
+
+        // Then
+        assertEquals(2048, middleware.getMaxMemoryKB());
+        assertFalse(middleware.isRealtimeEnabled());
+        assertEquals(AdmissionController.Policy.REJECT, middleware.getAdmissionPolicy());
+    }
+
+    @Test
+    public void testConfigureCreatesTopicsWithHistoryQuotas() {
+        // Given
+        MiddlewareConfig config = ConfigLoader.loadConfig("config.json");
+
+        // When
+        ConfigLoader.configure(middleware, config);
+
+        // Then - topics créés avec leur QoS, quotas et politique d'éviction
+        assertEquals(4, middleware.getAllTopics().size());
+        QoS sensors = middleware.getTopic("sensors/data").getQoS();
+        assertEquals(QoS.Reliability.AT_LEAST_ONCE, sensors.getReliability());
+        assertEquals(200, sensors.getDeadlineMs());
+        assertEquals(50, sensors.getHistorySize());
+        assertEquals(32, sensors.getMaxHistoryKB());
+        assertEquals(QoS.EvictionPolicy.SIZE_WEIGHTED, sensors.getEvictionPolicy());
+        QoS logging = middleware.getTopic("logging/info").getQoS();
+        assertEquals(QoS.EvictionPolicy.TTL_FIRST, logging.getEvictionPolicy());
+        assertEquals(60000, logging.getHistoryTtlMs());
+        QoS critical = middleware.getTopic("system/critical").getQoS();
+        assertEquals(32, critical.getReservedMemoryKB());
+        assertEquals(QoS.RedundancyMode.INDEPENDENT_PATHS, critical.getRedundancyMode());
+    }
+
+    @Test
+    public void testConfigureAppliesPhiThreshold() {
+        // Given
+        MiddlewareConfig config = ConfigLoader.loadConfig("config.json");
+        assertEquals(8.0, config.getFaultTolerance().getPhiThreshold(), 0.0);
+        config.getFaultTolerance().setPhiThreshold(12.0);
+
+        // When
+        ConfigLoader.configure(middleware, config);
+
+        // Then
+        assertEquals(12.0, middleware.getFaultDetector().getPhiThreshold(), 0.0);
+    }
+
+    @Test
+    public void testConfigureAppliesReplayRate() {
+        // Given
+        MiddlewareConfig config = ConfigLoader.loadConfig("config.json");
+        MiddlewareConfig.FaultToleranceConfig faultConfig = config.getFaultTolerance();
+        faultConfig.setReplayThreads(4);
+        faultConfig.setReplayRatePerSecond(500);
+        faultConfig.setReplayBurst(8);
+
+        // When
+        ConfigLoader.configure(middleware, config);
+
+        // Then
+        RecoveryManager recoveryManager = middleware.getRecoveryManager();
+        assertEquals(4, recoveryManager.getReplayThreads());
+        assertEquals(500, recoveryManager.getReplayBudget().getRatePerSecond(), 0.0);
+        assertEquals(8, recoveryManager.getReplayBudget().getBurst());
+    }
+
+    @Test
+    public void testConfigureAppliesWaitStrategyAndEventLoops() {
+        // Given - SPIN_PARK et une boucle dédiée à system/critical
+        MiddlewareConfig config = ConfigLoader.loadConfig("config.json");
+
+        // When
+        ConfigLoader.configure(middleware, config);
+
+        // Then
+        assertEquals(WaitStrategy.Type.SPIN_PARK,
+                middleware.getScheduler().getWaitStrategy().getType());
+        EventLoop eventLoop = middleware.getEventLoop("system/critical");
+        assertNotNull(eventLoop);
+        assertEquals(WaitStrategy.Type.SPIN_PARK, eventLoop.getWaitStrategy().getType());
+        assertNull(middleware.getEventLoop("sensors/data"));
+    }
+}
@@ -0,0 +1,591 @@
+package fr.telecom.middleware.test;
+
+import fr.telecom.middleware.api.*;
+import fr.telecom.middleware.core.*;
+import fr.telecom.middleware.fault.*;
+import fr.telecom.middleware.qos.*;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class FaultTest {
+    private Middleware middleware;
+
+    @Before
+    public void setUp() {
+        middleware = new Middleware();
+        middleware.setRealtimeEnabled(false);
+    }
+
+    @After
+    public void tearDown() {
+        middleware.shutdown();
+    }
+
+    @Test
+    public void testPhiGrowsWithSilence() {
+        // Given - des intervalles réguliers de 100ms
+        PhiAccrualWindow window = new PhiAccrualWindow(16, 0, 10);
+        for (int i = 0; i < 16; i++) {
+            window.add(i % 2 == 0 ? 90 : 110);
+        }
+
+        // Then
+        assertEquals(100, window.getMeanMs(), 0.001);
+        assertTrue(window.phi(50) < 1);
+        assertTrue(window.phi(120) < window.phi(150));
+        assertTrue(window.phi(200) > FaultDetector.DEFAULT_PHI_THRESHOLD);
+    }
+
+    @Test
+    public void testStuckSubscriberIsSuspectedThenRecovers() throws InterruptedException {
+        // Given - un subscriber rapide qui se bloque sur le message "stuck"
+        middleware.createTopic("test/stuck", new QoS());
+        CountDownLatch unblock = new CountDownLatch(1);
+        Subscriber subscriber = message -> {
+            if ("stuck".equals(message.getPayload())) {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        middleware.subscribe("test/stuck", subscriber);
+        for (int i = 0; i < 20; i++) {
+            middleware.publish("test/stuck", new Message("test/stuck", "ok"));
+        }
+
+        CountDownLatch suspected = new CountDownLatch(1);
+        CountDownLatch recovered = new CountDownLatch(1);
+        FaultDetector detector = middleware.getFaultDetector();
+        detector.addFaultListener(new FaultListener() {
+            @Override
+            public void onSubscriberSuspected(Subscriber s, Topic topic, double phi) {
+                suspected.countDown();
+            }
+
+            @Override
+            public void onSubscriberRecovered(Subscriber s, Topic topic) {
+                recovered.countDown();
+            }
+        });
+
+        // When - le handler reste bloqué
+        Thread publisher = new Thread(() ->
+                middleware.publish("test/stuck", new Message("test/stuck", "stuck")));
+        publisher.start();
+
+        // Then - suspecté bien avant l'ancien délai de 30s, puis rétabli
+        assertTrue(suspected.await(2, TimeUnit.SECONDS));
+        Topic topic = middleware.getTopic("test/stuck");
+        assertTrue(detector.isSuspected(subscriber, topic));
+
+        unblock.countDown();
+        publisher.join(1000);
+        assertTrue(recovered.await(2, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(1), detector.getFailureStats().values().iterator().next());
+    }
+
+    @Test(timeout = 10000)
+    public void testStuckHandlerDoesNotBlockOtherSubscribers() throws InterruptedException {
+        // Given - un handler qui ne rend jamais la main et un subscriber sain
+        middleware.createTopic("test/hung", new QoS());
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        Subscriber hung = message -> {
+            entered.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        List<Object> received = new CopyOnWriteArrayList<>();
+        middleware.subscribe("test/hung", hung);
+        middleware.subscribe("test/hung", (Subscriber) message -> received.add(message.getPayload()));
+
+        try {
+            // When - une première publication reste bloquée dans le handler
+            Thread publisher = new Thread(() ->
+                    middleware.publish("test/hung", new Message("test/hung", 0)));
+            publisher.setDaemon(true);
+            publisher.start();
+            assertTrue(entered.await(2, TimeUnit.SECONDS));
+            long start = System.nanoTime();
+            for (int i = 1; i <= 20; i++) {
+                middleware.publish("test/hung", new Message("test/hung", i));
+            }
+            long publishMs = (System.nanoTime() - start) / 1_000_000;
+
+            // Then - les publications suivantes rendent la main et le
+            // subscriber sain reçoit tout, dans l'ordre
+            assertTrue("publication bloquée " + publishMs + "ms", publishMs < 1000);
+            List<Object> expected = new ArrayList<>();
+            for (int i = 0; i <= 20; i++) {
+                expected.add(i);
+            }
+            assertEquals(expected, received);
+            assertTrue(publisher.isAlive());
+        } finally {
+            unblock.countDown();
+        }
+    }
+
+    @Test
+    public void testQuietSubscriberIsNotSuspected() throws InterruptedException {
+        // Given - un subscriber sain sur un topic silencieux
+        middleware.createTopic("test/quiet", new QoS());
+        Subscriber subscriber = message -> { };
+        middleware.subscribe("test/quiet", subscriber);
+        middleware.publish("test/quiet", new Message("test/quiet", "unique"));
+
+        // When
+        Thread.sleep(500);
+
+        // Then
+        Topic topic = middleware.getTopic("test/quiet");
+        assertEquals(0, middleware.getFaultDetector().getPhi(subscriber, topic), 0.0);
+        assertFalse(middleware.getFaultDetector().isSuspected(subscriber, topic));
+    }
+
+    @Test
+    public void testCircuitBreakerStates() throws InterruptedException {
+        // Given
+        CircuitBreaker breaker = new CircuitBreaker(100, 50);
+
+        // When - 10 échecs consécutifs
+        for (int i = 0; i < 10; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.recordResult(false, 1_000);
+        }
+
+        // Then - ouvert, puis une seule sonde après le délai
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        Thread.sleep(60);
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        breaker.recordResult(true, 1_000);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1, breaker.getOpenCount());
+    }
+
+    @Test
+    public void testSlowHandlersTripCircuit() {
+        // Given - appels lents au-delà de 100ms
+        CircuitBreaker breaker = new CircuitBreaker(100, 1000);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            breaker.recordResult(true, TimeUnit.MILLISECONDS.toNanos(150));
+        }
+
+        // Then
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testOpenCircuitDivertsThenReplays() throws InterruptedException {
+        // Given - un subscriber défaillant et un subscriber sain
+        middleware.createTopic("test/breaker", new QoS());
+        AtomicBoolean failing = new AtomicBoolean(true);
+        List<Object> received = new ArrayList<>();
+        Subscriber faulty = message -> {
+            if (failing.get()) {
+                throw new IllegalStateException("panne");
+            }
+            received.add(message.getPayload());
+        };
+        AtomicInteger healthyCount = new AtomicInteger();
+        middleware.subscribe("test/breaker", faulty);
+        middleware.subscribe("test/breaker", (Subscriber) message -> healthyCount.incrementAndGet());
+        Subscription subscription = middleware.getTopic("test/breaker").findSubscription(faulty);
+
+        // When - 10 échecs ouvrent le disjoncteur, 5 messages sont détournés
+        for (int i = 0; i < 15; i++) {
+            middleware.publish("test/breaker", new Message("test/breaker", i));
+        }
+
+        // Then
+        assertEquals(CircuitBreaker.State.OPEN, subscription.getCircuitBreaker().getState());
+        assertEquals(5, middleware.getRecoveryManager().getDivertedCount(subscription));
+        assertEquals(15, healthyCount.get());
+
+        // When - le subscriber est réparé, la sonde passe après le délai
+        failing.set(false);
+        Thread.sleep(CircuitBreaker.DEFAULT_OPEN_DURATION_MS + 100);
+        middleware.publish("test/breaker", new Message("test/breaker", 15));
+        assertTrue(middleware.getRecoveryManager().awaitReplays(2000));
+
+        // Then - refermé, toute la plage manquée (échecs compris) puis la
+        // sonde sont livrés dans l'ordre
+        assertEquals(CircuitBreaker.State.CLOSED, subscription.getCircuitBreaker().getState());
+        List<Object> expected = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, received);
+        assertEquals(0, middleware.getRecoveryManager().getDivertedCount(subscription));
+        assertEquals(16, subscription.getDeliveredSequence());
+    }
+
+    @Test
+    public void testCatchUpReplaysOnlyMissedRange() throws InterruptedException {
+        // Given - deux subscribers à jour après 3 messages
+        middleware.createTopic("test/catchup", new QoS.Builder().historySize(200).build());
+        List<Object> healthy = Collections.synchronizedList(new ArrayList<>());
+        List<Object> recovering = Collections.synchronizedList(new ArrayList<>());
+        Subscriber healthySubscriber = message -> healthy.add(message.getPayload());
+        Subscriber recoveringSubscriber = message -> recovering.add(message.getPayload());
+        middleware.subscribe("test/catchup", healthySubscriber);
+        middleware.subscribe("test/catchup", recoveringSubscriber);
+        Topic topic = middleware.getTopic("test/catchup");
+        Subscription subscription = topic.findSubscription(recoveringSubscriber);
+        for (int i = 0; i < 3; i++) {
+            middleware.publish("test/catchup", new Message("test/catchup", i));
+        }
+
+        // When - le subscriber est isolé pendant 100 messages (plusieurs lots)
+        subscription.getCircuitBreaker().forceOpen();
+        for (int i = 3; i < 103; i++) {
+            middleware.publish("test/catchup", new Message("test/catchup", i));
+        }
+        assertEquals(4, subscription.getGapFromSequence());
+        Thread.sleep(CircuitBreaker.DEFAULT_OPEN_DURATION_MS + 100);
+        middleware.publish("test/catchup", new Message("test/catchup", 103));
+        assertTrue(middleware.getRecoveryManager().awaitReplays(2000));
+
+        // Then - la plage 3..103 est rejouée dans l'ordre, sans doublon
+        assertEquals(104, recovering.size());
+        for (int i = 0; i < 104; i++) {
+            assertEquals(i, recovering.get(i));
+        }
+        assertEquals(0, subscription.getGapFromSequence());
+
+        // Then - le subscriber sain n'a reçu que le flux normal
+        assertEquals(104, healthy.size());
+        assertEquals(104, new HashSet<>(healthy).size());
+    }
+
+    @Test
+    public void testEvictedMidRangeMessagesReplayInOrder() throws InterruptedException {
+        // Given - un historique de 10 messages qui évince d'abord les LOW
+        middleware.createTopic("test/evicted", new QoS.Builder()
+                .historySize(10)
+                .evictionPolicy(QoS.EvictionPolicy.PRIORITY_AWARE)
+                .build());
+        List<Object> received = Collections.synchronizedList(new ArrayList<>());
+        Subscriber subscriber = message -> received.add(message.getPayload());
+        middleware.subscribe("test/evicted", subscriber);
+        Subscription subscription = middleware.getTopic("test/evicted").findSubscription(subscriber);
+
+        // When - 20 messages pendant l'isolement, un sur quatre en LOW
+        subscription.getCircuitBreaker().forceOpen();
+        for (int i = 0; i < 20; i++) {
+            Message message = new Message("test/evicted", i);
+            if (i % 4 == 1) {
+                message.addHeader("priority", QoS.Priority.LOW);
+            }
+            middleware.publish("test/evicted", message);
+        }
+        Thread.sleep(CircuitBreaker.DEFAULT_OPEN_DURATION_MS + 100);
+        middleware.publish("test/evicted", new Message("test/evicted", 20));
+        assertTrue(middleware.getRecoveryManager().awaitReplays(2000));
+
+        // Then - les messages évincés au milieu de la plage arrivent à leur place
+        List<Object> expected = new ArrayList<>();
+        for (int i = 0; i < 21; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, received);
+        assertEquals(0, middleware.getRecoveryManager().getDivertedCount(subscription));
+    }
+
+    @Test
+    public void testInterruptedCatchUpKeepsDivertedMessages() throws InterruptedException {
+        // Given - 20 messages manqués, dont les premiers hors historique
+        middleware.createTopic("test/interrupted", new QoS.Builder().historySize(10).build());
+        List<Object> received = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<Subscription> ref = new AtomicReference<>();
+        AtomicBoolean tripped = new AtomicBoolean(false);
+        Subscriber subscriber = message -> {
+            received.add(message.getPayload());
+            if (message.getPayload().equals(3) && tripped.compareAndSet(false, true)) {
+                ref.get().getCircuitBreaker().forceOpen();
+            }
+        };
+        middleware.subscribe("test/interrupted", subscriber);
+        Subscription subscription = middleware.getTopic("test/interrupted").findSubscription(subscriber);
+        ref.set(subscription);
+        subscription.getCircuitBreaker().forceOpen();
+        for (int i = 0; i < 20; i++) {
+            middleware.publish("test/interrupted", new Message("test/interrupted", i));
+        }
+        Thread.sleep(CircuitBreaker.DEFAULT_OPEN_DURATION_MS + 100);
+
+        // When - le disjoncteur se rouvre pendant le rattrapage
+        middleware.publish("test/interrupted", new Message("test/interrupted", 20));
+        assertTrue(middleware.getRecoveryManager().awaitReplays(2000));
+
+        // Then - les messages détournés non rejoués le restent
+        assertEquals(Arrays.asList(0, 1, 2, 3), new ArrayList<>(received));
+        assertEquals(16, middleware.getRecoveryManager().getDivertedCount(subscription));
+
+        // When - le rattrapage suivant reprend là où le premier s'est arrêté
+        Thread.sleep(CircuitBreaker.DEFAULT_OPEN_DURATION_MS + 100);
+        middleware.publish("test/interrupted", new Message("test/interrupted", 21));
+        assertTrue(middleware.getRecoveryManager().awaitReplays(2000));
+
+        // Then - rien n'est perdu ni dupliqué
+        List<Object> expected = new ArrayList<>();
+        for (int i = 0; i < 22; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, received);
+    }
+
+    @Test
+    public void testTokenBucketBoundsRate() throws InterruptedException {
+        // Given - 100 jetons/s, burst de 10
+        TokenBucket bucket = new TokenBucket(100, 10);
+
+        // When - le burst est consommé d'un coup
+        int immediate = 0;
+        while (bucket.tryAcquire()) {
+            immediate++;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            bucket.acquire();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Then - 20 jetons supplémentaires prennent ~200ms
+        assertEquals(10, immediate);
+        assertTrue("trop rapide: " + elapsedMs + "ms", elapsedMs >= 150);
+    }
+
+    @Test
+    public void testReplayRunsInBackgroundAtBoundedRate() throws InterruptedException {
+        // Given - un rattrapage limité à 200 messages/s
+        middleware.getRecoveryManager().setReplayRate(200, 10);
+        middleware.createTopic("test/throttle", new QoS.Builder().historySize(200).build());
+        List<Object> received = Collections.synchronizedList(new ArrayList<>());
+        Subscriber subscriber = message -> received.add(message.getPayload());
+        middleware.subscribe("test/throttle", subscriber);
+        Subscription subscription = middleware.getTopic("test/throttle").findSubscription(subscriber);
+        subscription.getCircuitBreaker().forceOpen();
+        for (int i = 0; i < 60; i++) {
+            middleware.publish("test/throttle", new Message("test/throttle", i));
+        }
+        Thread.sleep(CircuitBreaker.DEFAULT_OPEN_DURATION_MS + 100);
+
+        // When - la sonde referme le disjoncteur
+        long start = System.nanoTime();
+        middleware.publish("test/throttle", new Message("test/throttle", 60));
+        long publishMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Then - la publication rend la main avant la fin du rattrapage
+        assertTrue("publication bloquée " + publishMs + "ms", publishMs < 100);
+        assertTrue(received.size() < 61);
+        assertTrue(middleware.getRecoveryManager().awaitReplays(2000));
+        assertEquals(61, received.size());
+        long totalMs = (System.nanoTime() - start) / 1_000_000;
+        assertTrue("rattrapage trop rapide: " + totalMs + "ms", totalMs >= 200);
+    }
+
+    @Test
+    public void testPublishDuringCatchUpKeepsOrder() throws Exception {
+        // Given - un subscriber isolé pendant 50 messages, rattrapé à 500/s
+        middleware.getRecoveryManager().setReplayRate(500, 5);
+        middleware.createTopic("test/live", new QoS.Builder().historySize(500).build());
+        List<Object> received = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger(0);
+        AtomicInteger maxRunning = new AtomicInteger(0);
+        Subscriber subscriber = message -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            received.add(message.getPayload());
+            running.decrementAndGet();
+        };
+        middleware.subscribe("test/live", subscriber);
+        Subscription subscription = middleware.getTopic("test/live").findSubscription(subscriber);
+        subscription.getCircuitBreaker().forceOpen();
+        for (int i = 0; i < 50; i++) {
+            middleware.publish("test/live", new Message("test/live", i));
+        }
+        Thread.sleep(CircuitBreaker.DEFAULT_OPEN_DURATION_MS + 100);
+
+        // When - la publication continue pendant le rattrapage
+        Thread publisher = new Thread(() -> {
+            for (int i = 50; i < 150; i++) {
+                middleware.publish("test/live", new Message("test/live", i));
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        publisher.start();
+        publisher.join();
+        assertTrue(middleware.getRecoveryManager().awaitReplays(2000));
+
+        // Then - chaque message exactement une fois, dans l'ordre, jamais
+        // deux handlers à la fois
+        assertEquals(received.toString(), 150, received.size());
+        for (int i = 0; i < 150; i++) {
+            assertEquals(i, received.get(i));
+        }
+        assertEquals(1, maxRunning.get());
+        assertEquals(CircuitBreaker.State.CLOSED, subscription.getCircuitBreaker().getState());
+        assertEquals(150, subscription.getDeliveredSequence());
+    }
+
+    @Test
+    public void testStandbyTakesOverFromReplicatedState() throws Exception {
+        // Given - un primaire répliqué vers un secours sur la boucle locale
+        Middleware standby = new Middleware();
+        standby.setRealtimeEnabled(false);
+        StandbyReplica replica = new StandbyReplica(standby, "standby", 300);
+        StandbyReplicator replicator = new StandbyReplicator(middleware, "primary");
+        try {
+            replicator.connect("127.0.0.1", replica.bind(0));
+            middleware.createTopic("ha/telemetry", new QoS.Builder()
+                    .reliability(QoS.Reliability.AT_MOST_ONCE).historySize(500).build());
+            // L'archiveur du primaire échoue à partir du 61e message
+            AtomicInteger handled = new AtomicInteger(0);
+            middleware.subscribe("ha/telemetry", archiver(message -> {
+                if (handled.incrementAndGet() > 60) {
+                    throw new IllegalStateException("disque plein");
+                }
+            }));
+            for (int i = 0; i < 100; i++) {
+                middleware.publish("ha/telemetry", new Message("ha/telemetry", i));
+            }
+            awaitCondition(() -> replica.getRestoredCount() == 100
+                    && replica.getReplicatedCursor("ha/telemetry", "archiver") == 60);
+            AtomicLong silence = new AtomicLong(-1);
+            replica.addFailoverListener((r, silenceMs) -> silence.set(silenceMs));
+
+            // When - le primaire s'arrête
+            long stoppedAt = System.currentTimeMillis();
+            replicator.shutdown();
+            awaitCondition(replica::isActive);
+            long failoverMs = replica.getPromotedAt() - stoppedAt;
+
+            // Then - bascule bornée, état du primaire repris
+            assertTrue("bascule en " + failoverMs + "ms", failoverMs <= 500);
+            assertTrue("silence " + silence.get() + "ms", silence.get() >= 300);
+            Topic topic = standby.getTopic("ha/telemetry");
+            assertEquals(QoS.Reliability.AT_MOST_ONCE, topic.getQoS().getReliability());
+            assertEquals(100, topic.getMessageCount());
+            assertEquals(100, topic.getHistory().size());
+            assertEquals(0, replicator.getMissedCount());
+
+            // L'archiveur se réabonne et reçoit les messages qu'il n'avait pas traités
+            List<Object> received = Collections.synchronizedList(new ArrayList<>());
+            standby.subscribe("ha/telemetry", archiver(message -> received.add(message.getPayload())));
+            assertTrue(standby.getRecoveryManager().awaitReplays(2000));
+            standby.publish("ha/telemetry", new Message("ha/telemetry", 100));
+            assertEquals(41, received.size());
+            for (int i = 0; i < 41; i++) {
+                assertEquals(60 + i, received.get(i));
+            }
+            assertEquals(101, topic.getMessageCount());
+        } finally {
+            replicator.shutdown();
+            replica.shutdown();
+            standby.shutdown();
+        }
+    }
+
+    @Test
+    public void testStandbyRefusesFramesBeforeHello() throws Exception {
+        // Given - un secours en écoute sur la boucle locale
+        Middleware standby = new Middleware();
+        standby.setRealtimeEnabled(false);
+        StandbyReplica replica = new StandbyReplica(standby, "standby", 300);
+        StandbyReplicator replicator = new StandbyReplicator(middleware, "primary");
+        try {
+            int port = replica.bind(0);
+
+            // When - un client envoie une création de topic sans se présenter
+            try (Socket rogue = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(rogue.getOutputStream()));
+                QoS qos = new QoS.Builder().build();
+                out.writeByte(2);
+                out.writeUTF("rogue/topic");
+                out.writeUTF(qos.getReliability().name());
+                out.writeUTF(qos.getPriority().name());
+                out.writeInt(qos.getDeadlineMs());
+                out.writeInt(qos.getMaxLatencyMs());
+                out.writeInt(qos.getRedundancyLevel());
+                out.writeUTF(qos.getRedundancyMode().name());
+                out.writeBoolean(qos.isPersistence());
+                out.writeInt(qos.getPublishRateHz());
+                out.writeInt(qos.getHistorySize());
+                out.writeInt(qos.getMaxHistoryKB());
+                out.writeUTF(qos.getEvictionPolicy().name());
+                out.writeLong(qos.getHistoryTtlMs());
+                out.writeInt(qos.getReservedMemoryKB());
+                out.writeByte(5);
+                out.flush();
+                // Then - la connexion est fermée sans rien appliquer (la
+                // fermeture peut se traduire par une réinitialisation)
+                int read;
+                try {
+                    read = rogue.getInputStream().read();
+                } catch (SocketException e) {
+                    read = -1;
+                }
+                assertEquals(-1, read);
+            }
+            assertNull(standby.getTopic("rogue/topic"));
+            assertNull(replica.getPrimaryName());
+            assertEquals(0, replica.getFrameCount());
+            assertFalse(replica.isActive());
+
+            // Un primaire qui se présente est ensuite accepté
+            replicator.connect("127.0.0.1", port);
+            middleware.createTopic("ha/status", new QoS.Builder().build());
+            awaitCondition(() -> standby.getTopic("ha/status") != null);
+            assertEquals("primary", replica.getPrimaryName());
+        } finally {
+            replicator.shutdown();
+            replica.shutdown();
+            standby.shutdown();
+        }
+    }
+
+    private static Subscriber archiver(java.util.function.Consumer<Message> handler) {
+        return new Subscriber() {
+            @Override
+            public void onMessage(Message message) {
+                handler.accept(message);
+            }
+
+            @Override
+            public String getSubscriberId() {
+                return "archiver";
+            }
+        };
+    }
+
+    private static void awaitCondition(java.util.function.BooleanSupplier condition)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Condition non atteinte", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package fr.telecom.middleware.test;
+
+import fr.telecom.middleware.core.*;
+import fr.telecom.middleware.qos.*;
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.memory.FootprintReport;
+
+/**
+ * Balayage de l'empreinte mémoire retenue selon le nombre de topics,
+ * de subscribers et de messages publiés.
+ *
+ * <p>Les tailles sont celles estimées par {@code MemoryFootprint} : elles
+ * ne dépendent ni du GC ni des autres objets du tas, ce qui permet de
+ * dimensionner un déploiement embarqué.</p>
+ */
+public class FootprintBenchmark {
+
+    private static final int[] TOPIC_COUNTS = {1, 10, 50};
+    private static final int[] SUBSCRIBER_COUNTS = {1, 5, 20};
+    private static final int[] MESSAGE_COUNTS = {0, 10, 50, 200};
+    private static final int PAYLOAD_SIZE = 64;
+    private static final long BUDGET_BYTES = 500 * 1024;
+
+    private static class NoopSubscriber implements Subscriber {
+        private final String id;
+
+        NoopSubscriber(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public void onMessage(Message message) {
+        }
+
+        @Override
+        public String getSubscriberId() {
+            return id;
+        }
+    }
+
+    public static void main(String[] args) {
+        System.out.println("=".repeat(60));
+        System.out.println("💾 EMPREINTE MÉMOIRE - MIDDLEWARE PUB-SUB");
+        System.out.println("=".repeat(60));
+        System.out.printf("  Payload: %d octets, budget: %d KB%n%n", PAYLOAD_SIZE, BUDGET_BYTES / 1024);
+        System.out.printf("  %6s | %6s | %8s | %11s | %11s | %11s | %s%n",
+                "topics", "subs", "msg/topic", "total (KB)", "histo (KB)", "/topic (KB)", "budget");
+        System.out.println("  " + "-".repeat(80));
+
+        String payload = "x".repeat(PAYLOAD_SIZE);
+        for (int topicCount : TOPIC_COUNTS) {
+            for (int subscriberCount : SUBSCRIBER_COUNTS) {
+                for (int messageCount : MESSAGE_COUNTS) {
+                    FootprintReport report = measure(topicCount, subscriberCount,
+                            messageCount, payload);
+                    System.out.printf("  %6d | %6d | %8d | %11.1f | %11.1f | %11.2f | %s%n",
+                            topicCount, subscriberCount, messageCount,
+                            report.getTotalKB(),
+                            report.getHistoryBytes() / 1024.0,
+                            report.getTotalKB() / topicCount,
+                            report.totalBytes <= BUDGET_BYTES ? "✓" : "✗");
+                }
+            }
+        }
+
+        System.out.println();
+        System.out.println("✅ BENCHMARK TERMINÉ");
+        System.out.println("=".repeat(60));
+    }
+
+    /**
+     * Construit une configuration et mesure son empreinte.
+     */
+    static FootprintReport measure(int topicCount, int subscriberCount,
+                                   int messagesPerTopic, String payload) {
+        Middleware middleware = new Middleware();
+        middleware.setRealtimeEnabled(false);
+        // Pas de nettoyage global pendant le remplissage : on mesure l'état plein
+        middleware.setMaxMemoryKB(Integer.MAX_VALUE);
+
+        for (int t = 0; t < topicCount; t++) {
+            String topicName = "footprint/topic-" + t;
+            middleware.createTopic(topicName, new QoS.Builder().build());
+            for (int s = 0; s < subscriberCount; s++) {
+                middleware.subscribe(topicName, new NoopSubscriber("sub-" + t + "-" + s));
+            }
+            for (int m = 0; m < messagesPerTopic; m++) {
+                middleware.publish(topicName, new Message(topicName, payload));
+            }
+        }
+
+        FootprintReport report = middleware.getFootprint();
+        middleware.shutdown();
+        return report;
+    }
+}
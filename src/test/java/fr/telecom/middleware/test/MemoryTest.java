@@ -0,0 +1,357 @@
+package fr.telecom.middleware.test;
+
+import fr.telecom.middleware.api.*;
+import fr.telecom.middleware.core.*;
+import fr.telecom.middleware.memory.*;
+import fr.telecom.middleware.qos.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class MemoryTest {
+    private Middleware middleware;
+
+    @Before
+    public void setUp() {
+        middleware = new Middleware();
+        middleware.setRealtimeEnabled(false);
+    }
+
+    @After
+    public void tearDown() {
+        middleware.shutdown();
+    }
+
+    @Test
+    public void testFootprintGrowsWithHistory() {
+        // Given
+        middleware.createTopic("test/footprint", new QoS.Builder().build());
+        middleware.subscribe("test/footprint", (Subscriber) message -> { });
+        long emptyBytes = middleware.getFootprint().totalBytes;
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            middleware.publish("test/footprint", new Message("test/footprint", "x".repeat(100)));
+        }
+        FootprintReport report = middleware.getFootprint();
+
+        // Then
+        FootprintReport.TopicFootprint topic = report.topics.get("test/footprint");
+        assertEquals(10, topic.historyCount);
+        assertEquals(1, topic.subscriberCount);
+        assertEquals(10, report.messageCount);
+        assertTrue(report.totalBytes > emptyBytes);
+        // Chaque message retient au moins son payload de 100 octets
+        assertTrue(topic.historyBytes >= 10 * 100);
+    }
+
+    @Test
+    public void testSharedMessageCountedOnce() {
+        // Given
+        Message message = new Message("test/shared", "payload");
+        MemoryFootprint footprint = new MemoryFootprint();
+
+        // When
+        long first = footprint.sizeOfMessage(message);
+        long second = footprint.sizeOfMessage(message);
+
+        // Then
+        assertTrue(first > 0);
+        assertEquals(0, second);
+    }
+
+    @Test
+    public void testStringAndPayloadSizes() {
+        // Then - chaîne compacte : 24 octets d'objet + tableau aligné
+        assertEquals(24 + 24, MemoryFootprint.sizeOfString("12345678"));
+        assertEquals(24 + 32, MemoryFootprint.sizeOfString("é€uro"));
+        assertEquals(16 + 1024, MemoryFootprint.sizeOfPayload(new byte[1024]));
+        assertEquals(24, MemoryFootprint.sizeOfPayload(42L));
+        assertEquals(0, MemoryFootprint.sizeOfPayload(null));
+    }
+
+    @Test
+    public void testBudgetTracksHistoryExactly() {
+        // Given
+        middleware.createTopic("test/budget", new QoS.Builder().build());
+        Topic topic = middleware.getTopic("test/budget");
+
+        // When - plus de messages que la taille d'historique
+        for (int i = 0; i < 120; i++) {
+            middleware.publish("test/budget", new Message("test/budget", "Message " + i));
+        }
+
+        // Then - le compteur correspond aux messages encore retenus
+        long expected = 0;
+        for (Message message : topic.getMessageHistory()) {
+            expected += message.getEstimatedSize();
+        }
+        assertEquals(expected, middleware.getMemoryBudget()
+                .getUsedBytes(MemoryBudget.Category.HISTORY));
+    }
+
+    @Test
+    public void testOverBudgetEvictsOwnStructures() {
+        // Given - 16 KB pour des messages de ~2 KB
+        middleware.setMaxMemoryKB(16);
+        middleware.createTopic("test/evict", new QoS.Builder().build());
+        Topic topic = middleware.getTopic("test/evict");
+
+        // When
+        for (int i = 0; i < 40; i++) {
+            middleware.publish("test/evict", new Message("test/evict", "x".repeat(2000)));
+        }
+
+        // Then - l'historique a été réduit pour respecter la limite
+        MemoryBudget budget = middleware.getMemoryBudget();
+        assertTrue(topic.getMessageHistory().size() < 40);
+        assertTrue(budget.getUsedBytes() <= budget.getLimitBytes() + 4096);
+        assertEquals(40, topic.getMessageCount());
+    }
+
+    @Test
+    public void testRedundantCopiesAreAccounted() {
+        // Given
+        middleware.createTopic("test/redundant", new QoS.Builder()
+                .redundancyLevel(2)
+                .build());
+
+        // When
+        middleware.publish("test/redundant", new Message("test/redundant", "payload"));
+
+        // Then - l'original est stocké, une seule copie entre dans l'historique
+        MemoryBudget budget = middleware.getMemoryBudget();
+        assertTrue(budget.getUsedBytes(MemoryBudget.Category.REDUNDANCY) > 0);
+        assertEquals(1, middleware.getTopic("test/redundant").getMessageHistory().size());
+        assertEquals(0, budget.getUsedBytes(MemoryBudget.Category.PENDING));
+    }
+
+    @Test
+    public void testHistoryQuotasFromQoS() {
+        // Given - 5 messages ou 4 KB au plus
+        middleware.createTopic("test/quota", new QoS.Builder()
+                .historySize(5)
+                .maxHistoryKB(4)
+                .build());
+        Topic topic = middleware.getTopic("test/quota");
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            middleware.publish("test/quota", new Message("test/quota", "small " + i));
+        }
+        int countAfterSmall = topic.getHistory().size();
+        for (int i = 0; i < 5; i++) {
+            middleware.publish("test/quota", new Message("test/quota", "x".repeat(1500)));
+        }
+
+        // Then
+        assertEquals(5, countAfterSmall);
+        assertTrue(topic.getHistory().getBytes() <= 4 * 1024);
+        assertEquals("x".repeat(1500), topic.getHistory().newest().getPayload());
+    }
+
+    @Test
+    public void testPriorityAwareEvictsLowPriorityFirst() {
+        // Given
+        middleware.createTopic("test/priority", new QoS.Builder()
+                .historySize(2)
+                .evictionPolicy(QoS.EvictionPolicy.PRIORITY_AWARE)
+                .build());
+
+        // When - le message HIGH est le plus ancien
+        middleware.publish("test/priority", Message.builder("test/priority")
+                .payload("high").header("priority", "HIGH").build());
+        middleware.publish("test/priority", Message.builder("test/priority")
+                .payload("low").header("priority", "LOW").build());
+        middleware.publish("test/priority", Message.builder("test/priority")
+                .payload("medium").header("priority", "MEDIUM").build());
+
+        // Then
+        assertEquals(Arrays.asList("high", "medium"),
+                payloads(middleware.getTopic("test/priority")));
+    }
+
+    @Test
+    public void testTtlFirstEvictsEarliestExpiry() {
+        // Given
+        middleware.createTopic("test/ttl", new QoS.Builder()
+                .historySize(2)
+                .evictionPolicy(QoS.EvictionPolicy.TTL_FIRST)
+                .build());
+
+        // When - seul le deuxième message a une durée de vie
+        middleware.publish("test/ttl", Message.builder("test/ttl").payload("forever").build());
+        middleware.publish("test/ttl", Message.builder("test/ttl")
+                .payload("short").header("ttl_ms", 1000L).build());
+        middleware.publish("test/ttl", Message.builder("test/ttl").payload("latest").build());
+
+        // Then
+        assertEquals(Arrays.asList("forever", "latest"), payloads(middleware.getTopic("test/ttl")));
+    }
+
+    @Test
+    public void testSizeWeightedEvictsLargeMessage() {
+        // Given
+        middleware.createTopic("test/size", new QoS.Builder()
+                .historySize(2)
+                .evictionPolicy(QoS.EvictionPolicy.SIZE_WEIGHTED)
+                .build());
+
+        // When - le gros message est le plus récent des deux premiers
+        middleware.publish("test/size", new Message("test/size", "small"));
+        middleware.publish("test/size", new Message("test/size", "x".repeat(5000)));
+        middleware.publish("test/size", new Message("test/size", "latest"));
+
+        // Then
+        assertEquals(Arrays.asList("small", "latest"), payloads(middleware.getTopic("test/size")));
+    }
+
+    @Test
+    public void testGlobalPressureTakesFromLowPriorityFirst() {
+        // Given - un topic CRITICAL avec part réservée, un topic LOW
+        middleware.createTopic("test/critical", new QoS.Builder()
+                .priority(QoS.Priority.CRITICAL)
+                .historySize(100)
+                .reservedMemoryKB(16)
+                .build());
+        middleware.createTopic("test/logs", new QoS.Builder()
+                .priority(QoS.Priority.LOW)
+                .historySize(100)
+                .build());
+        for (int i = 0; i < 10; i++) {
+            middleware.publish("test/critical", new Message("test/critical", "x".repeat(1000)));
+            middleware.publish("test/logs", new Message("test/logs", "x".repeat(1000)));
+        }
+        MessageHistory critical = middleware.getTopic("test/critical").getHistory();
+        MessageHistory logs = middleware.getTopic("test/logs").getHistory();
+        assertEquals(10, critical.size());
+
+        // When - limite abaissée : ~10 KB doivent être repris
+        middleware.setMaxMemoryKB(24);
+        middleware.publish("test/logs", new Message("test/logs", "trigger"));
+
+        // Then - le topic LOW absorbe la pression, le CRITICAL est intact
+        assertEquals(10, critical.size());
+        assertTrue(logs.size() < 10);
+        assertTrue(middleware.getMemoryBudget().getUsedBytes() <= 24 * 1024);
+    }
+
+    private static List<Object> payloads(Topic topic) {
+        List<Object> payloads = new ArrayList<>();
+        for (Message message : topic.getHistory().values()) {
+            payloads.add(message.getPayload());
+        }
+        return payloads;
+    }
+
+    @Test
+    public void testRingBufferOverwritesOldestAndIndexesById() {
+        // Given - 4 cases rattachées au budget
+        MemoryBudget budget = new MemoryBudget(1024);
+        MessageRingBuffer buffer = new MessageRingBuffer(4, MemoryBudget.Category.RECOVERY);
+        buffer.setMemoryBudget(budget);
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            messages.add(new Message("test/ring", "payload-" + i));
+        }
+
+        // When
+        for (Message message : messages) {
+            buffer.append(message);
+        }
+
+        // Then - les deux plus anciens sont écrasés
+        assertEquals(4, buffer.size());
+        assertNull(buffer.get(messages.get(1).getId()));
+        assertSame(messages.get(3), buffer.get(messages.get(3).getId()));
+        assertEquals(messages.subList(2, 6), buffer.snapshot());
+
+        // Retrait par id puis par ancienneté
+        assertSame(messages.get(4), buffer.remove(messages.get(4).getId()));
+        assertSame(messages.get(2), buffer.pollOldest());
+        assertSame(messages.get(3), buffer.pollOldest());
+        assertSame(messages.get(5), buffer.pollOldest());
+        assertNull(buffer.pollOldest());
+        assertEquals(0, buffer.getBytes());
+        assertEquals(0, budget.getUsedBytes(MemoryBudget.Category.RECOVERY));
+    }
+
+    @Test
+    public void testRingBufferConcurrentAppendStaysBounded() throws Exception {
+        // Given
+        MemoryBudget budget = new MemoryBudget(1024);
+        MessageRingBuffer buffer = new MessageRingBuffer(64, MemoryBudget.Category.REDUNDANCY);
+        buffer.setMemoryBudget(budget);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // When - 4 threads ajoutent 1000 messages chacun
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    buffer.append(new Message("test/ring", i));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Then - borné à la capacité, comptabilité exacte
+        assertEquals(64, buffer.size());
+        assertEquals(64, buffer.snapshot().size());
+        assertEquals(buffer.getBytes(), budget.getUsedBytes(MemoryBudget.Category.REDUNDANCY));
+        assertEquals(64, buffer.drain().size());
+        assertEquals(0, budget.getUsedBytes(MemoryBudget.Category.REDUNDANCY));
+    }
+
+    @Test
+    public void testDeliveryTrackerIsBounded() {
+        // Given
+        DeliveryTracker tracker = new DeliveryTracker(100);
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            tracker.record("msg-" + i);
+        }
+        tracker.record("msg-999");
+
+        // Then - seuls les 100 derniers ids restent suivis
+        assertEquals(100, tracker.size());
+        assertEquals(0, tracker.getAttempts("msg-0"));
+        assertEquals(2, tracker.getAttempts("msg-999"));
+    }
+
+    @Test
+    public void testHistoryRangeReadsInBatches() {
+        // Given - 100 messages numérotés à partir de 1
+        MessageHistory history = new MessageHistory(new QoS.Builder().historySize(100).build());
+        for (long sequence = 1; sequence <= 100; sequence++) {
+            Message message = new Message("test/range", "payload");
+            message.setSequence(sequence);
+            history.append(sequence, message);
+        }
+
+        // When - parcours de 10..80 par lots de 32
+        List<Long> sequences = new ArrayList<>();
+        long next = 10;
+        int batches = 0;
+        List<Message> batch;
+        while (!(batch = history.range(next, 80, 32)).isEmpty()) {
+            batches++;
+            for (Message message : batch) {
+                sequences.add(message.getSequence());
+            }
+            next = batch.get(batch.size() - 1).getSequence() + 1;
+        }
+
+        // Then
+        assertEquals(3, batches);
+        assertEquals(71, sequences.size());
+        assertEquals(Long.valueOf(10), sequences.get(0));
+        assertEquals(Long.valueOf(80), sequences.get(70));
+        assertNull(history.get(101));
+    }
+}
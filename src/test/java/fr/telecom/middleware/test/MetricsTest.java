@@ -0,0 +1,300 @@
+package fr.telecom.middleware.test;
+
+import fr.telecom.middleware.api.*;
+import fr.telecom.middleware.core.*;
+import fr.telecom.middleware.metrics.*;
+import fr.telecom.middleware.qos.*;
+import fr.telecom.middleware.realtime.*;
+import com.fasterxml.jackson.databind.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.Consumer;
+import javax.websocket.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        // Given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // When - 1..1000 µs
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        // Then - erreur relative bornée à 6,25%
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000L, histogram.getMax());
+        assertEquals(500_000, histogram.getValueAtPercentile(50), 500_000 * 0.0625);
+        assertEquals(990_000, histogram.getValueAtPercentile(99), 990_000 * 0.0625);
+        assertTrue(histogram.getValueAtPercentile(50) >= 500_000);
+        assertEquals(500_500, histogram.getMean(), 1.0);
+    }
+
+    @Test
+    public void testHistogramSmallAndHugeValues() {
+        // Given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // When
+        histogram.record(0);
+        histogram.record(7);
+        histogram.record(Long.MAX_VALUE);
+
+        // Then - les petites valeurs sont exactes, les grandes plafonnées
+        assertEquals(3, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(10));
+        assertEquals(7, histogram.getValueAtPercentile(60));
+        assertTrue(histogram.getValueAtPercentile(100) > 0);
+    }
+
+    @Test
+    public void testStatsExposeTopicLatency() {
+        // Given
+        MiddlewareAPI api = new MiddlewareAPI(512, false);
+        api.createTopic("test/metrics", new QoS.Builder());
+        api.subscribe("test/metrics", (Consumer<Message>) message -> { });
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            api.publish("test/metrics", "Message " + i);
+        }
+        MiddlewareAPI.MiddlewareStats stats = api.getStats();
+
+        // Then
+        MiddlewareAPI.TopicLatencyStats latency = stats.latency.get("test/metrics");
+        assertNotNull(latency);
+        assertEquals(10, latency.publishToEnqueue.count);
+        assertEquals(10, latency.enqueueToDispatch.count);
+        assertEquals(10, latency.handlerExecution.count);
+        assertEquals(1, latency.handlerBySubscriber.size());
+        assertEquals(10, latency.handlerBySubscriber.values().iterator().next().count);
+
+        api.shutdown();
+    }
+
+    @Test
+    public void testWcetProfilerKeepsWorstCases() {
+        // Given
+        WcetProfiler profiler = new WcetProfiler();
+
+        // When
+        for (int i = 1; i <= 100; i++) {
+            profiler.record(WcetProfiler.Stage.PUBLISH, i * 1000L, i);
+        }
+
+        // Then - pires cas triés avec leur taille d'entrée
+        WcetProfiler.StageProfile profile = profiler.getProfile(WcetProfiler.Stage.PUBLISH);
+        assertEquals(100_000L, profile.getWcetNanos());
+        assertEquals(100, profile.getInputSizeAtWcet());
+        assertEquals(5, profile.getWorstCases().size());
+        assertEquals(96_000L, profile.getWorstCases().get(4)[0]);
+        assertEquals(100, profile.getHistogram().getCount());
+    }
+
+    @Test
+    public void testMiddlewareRecordsPipelineStages() {
+        // Given
+        Middleware middleware = new Middleware();
+        middleware.createTopic("test/wcet", new QoS.Builder().build());
+        middleware.subscribe("test/wcet", (Subscriber) message -> { });
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            middleware.publish("test/wcet", new Message("test/wcet", "payload"));
+        }
+
+        // Then
+        WcetProfiler profiler = middleware.getWcetProfiler();
+        assertEquals(20, profiler.getProfile(WcetProfiler.Stage.PUBLISH).getHistogram().getCount());
+        assertEquals(20, profiler.getProfile(WcetProfiler.Stage.TOPIC_LOOKUP).getHistogram().getCount());
+        assertEquals(20, profiler.getProfile(WcetProfiler.Stage.SUBSCRIBER_DELIVERY).getHistogram().getCount());
+        assertTrue(profiler.report().contains("Publication complète"));
+
+        middleware.shutdown();
+    }
+
+    @Test
+    public void testHistogramIntervalOnlySeesNewValues() {
+        // Given - une rafale lente déjà lue
+        LatencyHistogram histogram = new LatencyHistogram();
+        LatencyHistogram.Interval interval = histogram.interval();
+        for (int i = 0; i < 100; i++) {
+            histogram.record(1_000_000);
+        }
+        interval.next();
+
+        // When - l'intervalle suivant est rapide
+        for (int i = 0; i < 100; i++) {
+            histogram.record(1_000);
+        }
+        LatencyHistogram.Snapshot snapshot = interval.next();
+
+        // Then - seules les nouvelles valeurs comptent, l'histogramme reste cumulé
+        assertEquals(100, snapshot.count);
+        assertEquals(1_000, snapshot.p99, 1_000 * 0.0625);
+        assertTrue(snapshot.max < 2_000);
+        assertEquals(200, histogram.getCount());
+        assertEquals(0, interval.next().count);
+    }
+
+    @Test
+    public void testFeedSendsSnapshotThenCoalescedDeltas() throws Exception {
+        // Given - un client qui peut être occupé
+        Middleware middleware = new Middleware();
+        middleware.setRealtimeEnabled(false);
+        middleware.createTopic("dash/engine", new QoS.Builder().build());
+        middleware.createTopic("dash/cabin", new QoS.Builder().build());
+        middleware.subscribe("dash/engine", new Subscriber() {
+            @Override
+            public void onMessage(Message message) {
+            }
+
+            @Override
+            public String getSubscriberId() {
+                return "controller";
+            }
+        });
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        AtomicBoolean busy = new AtomicBoolean(false);
+        DashboardFeed feed = new DashboardFeed(middleware, 50);
+        feed.addClient(json -> !busy.get() && received.add(json));
+        feed.start();
+        ObjectMapper mapper = new ObjectMapper();
+
+        try {
+            // When - instantané complet au premier tour
+            JsonNode snapshot = mapper.readTree(received.poll(2, TimeUnit.SECONDS));
+            busy.set(true);
+            for (int i = 0; i < 1000; i++) {
+                middleware.publish("dash/engine", new Message("dash/engine", i));
+            }
+            Thread.sleep(200);
+            busy.set(false);
+            JsonNode delta = mapper.readTree(received.poll(2, TimeUnit.SECONDS));
+
+            // Then
+            assertEquals("snapshot", snapshot.get("type").asText());
+            JsonNode engine = snapshot.get("topics").get("dash/engine");
+            assertEquals(0, engine.get("messages").asLong());
+            assertEquals("CLOSED", engine.get("subscribers").get("controller").get("circuit").asText());
+            assertTrue(snapshot.get("topics").has("dash/cabin"));
+            // Un seul delta couvre les tours sautés, sans les topics inchangés
+            assertEquals("delta", delta.get("type").asText());
+            assertEquals(1000, delta.get("topics").get("dash/engine").get("messages").asLong());
+            assertFalse(delta.get("topics").has("dash/cabin"));
+            assertFalse(delta.get("topics").get("dash/engine").has("deadlinesMissed"));
+            assertTrue(feed.getCoalescedCount() > 0);
+            // Au plus un envoi par tour, quel que soit le nombre de publications
+            assertTrue(feed.getSentCount() <= feed.getTickCount());
+        } finally {
+            feed.shutdown();
+            middleware.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFeedReportsPeriodicTasksAndTimeline() throws Exception {
+        // Given - une tâche de 5 ms qui dure 12 ms et un flux cyclique
+        Middleware middleware = new Middleware();
+        middleware.setRealtimeEnabled(false);
+        middleware.createTopic("dash/cyclic", new QoS.Builder().build());
+        middleware.getScheduler().schedulePeriodicTask("dash/control", () -> {
+            try {
+                Thread.sleep(12);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 0, 5, TimeUnit.MILLISECONDS, PeriodicTask.OverrunPolicy.SKIP);
+        middleware.cyclicPublisher("dash/cyclic").payload(() -> 1).periodMs(10).start();
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        DashboardFeed feed = new DashboardFeed(middleware, 50);
+        feed.addClient(received::add);
+        feed.start();
+
+        try {
+            // When
+            JsonNode snapshot = new ObjectMapper().readTree(received.poll(2, TimeUnit.SECONDS));
+            Thread.sleep(300);
+            Map<String, Object> current = feed.getCurrentSnapshot();
+
+            // Then - les sections du message
+            JsonNode control = snapshot.get("periodicTasks").get("dash/control");
+            assertEquals(5000, control.get("periodUs").asDouble(), 0.0);
+            assertEquals("SKIP", control.get("policy").asText());
+            for (String field : new String[] {"jitterP50Us", "jitterP99Us", "jitterMaxUs",
+                    "executionP50Us", "executionP99Us", "executionMaxUs", "overruns", "skipped"}) {
+                assertTrue(field, control.has(field));
+            }
+            assertTrue(snapshot.get("timeline").has("latenessP99Us"));
+            assertTrue(snapshot.get("timeline").get("streams").has("dash/cyclic"));
+            assertTrue(snapshot.get("topics").has("dash/cyclic"));
+
+            // Then - les dépassements et les cycles publiés sont comptés
+            Map<String, Object> task = (Map<String, Object>)
+                    ((Map<String, Object>) current.get("periodicTasks")).get("dash/control");
+            assertTrue((Long) task.get("overruns") > 0);
+            assertTrue((Double) task.get("executionMaxUs") >= 12_000);
+            Map<String, Object> timeline = (Map<String, Object>) current.get("timeline");
+            Map<String, Object> stream = (Map<String, Object>)
+                    ((Map<String, Object>) timeline.get("streams")).get("dash/cyclic");
+            assertEquals(1L, stream.get("streams"));
+            assertTrue((Long) stream.get("published") > 0);
+        } finally {
+            feed.shutdown();
+            middleware.shutdown();
+        }
+    }
+
+    @Test
+    public void testDashboardStreamsOverWebSocket() throws Exception {
+        // Given
+        Middleware middleware = new Middleware();
+        middleware.setRealtimeEnabled(false);
+        middleware.createTopic("dash/sensors", new QoS.Builder().build());
+        DashboardServer server = new DashboardServer(middleware, 0, 50);
+        int port = server.start();
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+        try {
+            // When - un navigateur ouvre la page puis le flux
+            HttpURLConnection page = (HttpURLConnection)
+                    new URL("http://127.0.0.1:" + port + "/index.html").openConnection();
+            assertEquals(200, page.getResponseCode());
+            Session session = ContainerProvider.getWebSocketContainer().connectToServer(
+                    new Endpoint() {
+                        @Override
+                        public void onOpen(Session session, EndpointConfig config) {
+                            // API WebSocket 1.0 : Jetty 9.4 n'implémente pas la variante typée
+                            session.addMessageHandler(new MessageHandler.Whole<String>() {
+                                @Override
+                                public void onMessage(String json) {
+                                    received.add(json);
+                                }
+                            });
+                        }
+                    },
+                    ClientEndpointConfig.Builder.create().build(),
+                    URI.create("ws://127.0.0.1:" + port + DashboardServer.FEED_PATH));
+            JsonNode snapshot = new ObjectMapper().readTree(received.poll(2, TimeUnit.SECONDS));
+            middleware.publish("dash/sensors", new Message("dash/sensors", 21.5));
+            JsonNode delta = new ObjectMapper().readTree(received.poll(2, TimeUnit.SECONDS));
+
+            // Then
+            assertEquals("snapshot", snapshot.get("type").asText());
+            assertTrue(snapshot.get("topics").has("dash/sensors"));
+            assertEquals(1, delta.get("topics").get("dash/sensors").get("messages").asLong());
+            assertEquals(1, server.getFeed().getClientCount());
+            session.close();
+        } finally {
+            server.stop();
+            middleware.shutdown();
+        }
+    }
+}
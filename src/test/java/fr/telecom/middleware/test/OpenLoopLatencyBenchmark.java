@@ -0,0 +1,205 @@
+package fr.telecom.middleware.test;
+
+import fr.telecom.middleware.core.*;
+import fr.telecom.middleware.qos.*;
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.metrics.LatencyHistogram;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Banc de latence en boucle ouverte, sans omission coordonnée.
+ *
+ * <p>Les messages sont publiés selon un calendrier fixe au débit cible :
+ * le message i doit partir à {@code début + i × période}, que le système
+ * ait fini ou non de traiter le précédent. La latence est mesurée depuis
+ * cet instant prévu, si bien qu'un retard de l'émetteur (file, handler
+ * lent, pause GC) est compté dans la latence de tous les messages qu'il
+ * décale, comme en production.</p>
+ *
+ * <p>Usage : {@code OpenLoopLatencyBenchmark [SYNCHRONOUS|EDF] [durée s] [débits...]}</p>
+ */
+public class OpenLoopLatencyBenchmark {
+
+    private static final int[] DEFAULT_RATES = {1_000, 5_000, 10_000, 25_000, 50_000, 100_000, 200_000};
+    private static final long WARMUP_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    /** Une charge est saturée si le débit atteint passe sous ce ratio de la cible. */
+    private static final double SATURATION_RATIO = 0.95;
+
+    /** Au-delà de ce retard d'émission (p99), la charge est considérée saturée. */
+    private static final long SATURATION_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /** Marge sous laquelle l'émetteur attend activement plutôt que de se garer. */
+    private static final long SPIN_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * Résultat d'une charge à débit fixe.
+     */
+    static class RunResult {
+        final int targetRate;
+        final double achievedRate;
+        final LatencyHistogram.Snapshot latency;
+        final long sent;
+        final long received;
+
+        RunResult(int targetRate, double achievedRate, LatencyHistogram.Snapshot latency,
+                  long sent, long received) {
+            this.targetRate = targetRate;
+            this.achievedRate = achievedRate;
+            this.latency = latency;
+            this.sent = sent;
+            this.received = received;
+        }
+
+        boolean isSaturated() {
+            return achievedRate < targetRate * SATURATION_RATIO
+                    || latency.p99 > SATURATION_LATENCY_NANOS;
+        }
+    }
+
+    /**
+     * Subscriber qui mesure la latence depuis l'instant d'envoi prévu,
+     * transporté dans le payload.
+     */
+    private static class LatencyProbe implements Subscriber {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final AtomicLong received = new AtomicLong();
+        private volatile boolean recording = false;
+
+        @Override
+        public void onMessage(Message message) {
+            long now = System.nanoTime();
+            long intendedNanos = (Long) message.getPayload();
+            received.incrementAndGet();
+            if (recording) {
+                histogram.record(now - intendedNanos);
+            }
+        }
+
+        @Override
+        public String getSubscriberId() {
+            return "OpenLoopProbe";
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Middleware.DispatchMode mode = args.length > 0
+                ? Middleware.DispatchMode.valueOf(args[0].toUpperCase())
+                : Middleware.DispatchMode.SYNCHRONOUS;
+        long durationSeconds = args.length > 1 ? Long.parseLong(args[1]) : 2;
+        int[] rates = DEFAULT_RATES;
+        if (args.length > 2) {
+            rates = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++) {
+                rates[i - 2] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.println("=".repeat(60));
+        System.out.println("📈 LATENCE EN BOUCLE OUVERTE - MIDDLEWARE PUB-SUB");
+        System.out.println("=".repeat(60));
+        System.out.printf("  Dispatch: %s, durée par palier: %d s%n%n", mode, durationSeconds);
+        System.out.printf("  %10s | %10s | %9s | %9s | %9s | %9s | %9s%n",
+                "cible/s", "atteint/s", "p50 (µs)", "p90 (µs)", "p99 (µs)", "p99.9 (µs)", "max (µs)");
+        System.out.println("  " + "-".repeat(84));
+
+        for (int rate : rates) {
+            RunResult result = run(mode, rate, TimeUnit.SECONDS.toNanos(durationSeconds));
+            System.out.printf("  %10d | %10.0f | %9.1f | %9.1f | %9.1f | %10.1f | %9.1f%s%n",
+                    result.targetRate, result.achievedRate,
+                    micros(result.latency.p50), micros(result.latency.p90),
+                    micros(result.latency.p99), micros(result.latency.p999),
+                    micros(result.latency.max),
+                    result.isSaturated() ? "  ← saturation" : "");
+
+            if (result.isSaturated()) {
+                break;
+            }
+        }
+
+        System.out.println();
+        System.out.println("✅ BENCHMARK TERMINÉ");
+        System.out.println("=".repeat(60));
+    }
+
+    /**
+     * Exécute une charge à débit fixe sur un middleware neuf.
+     */
+    static RunResult run(Middleware.DispatchMode mode, int ratePerSecond, long durationNanos)
+            throws InterruptedException {
+        Middleware middleware = new Middleware();
+        middleware.setRealtimeEnabled(false);
+        middleware.setDispatchMode(mode);
+
+        String topicName = "benchmark/openloop";
+        middleware.createTopic(topicName, new QoS.Builder()
+                .reliability(QoS.Reliability.BEST_EFFORT)
+                .build());
+
+        LatencyProbe probe = new LatencyProbe();
+        middleware.subscribe(topicName, probe);
+
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long start = System.nanoTime();
+        long measureStart = start + WARMUP_NANOS;
+        long end = measureStart + durationNanos;
+        long sent = 0;
+        long measuredSent = 0;
+
+        for (long i = 0; ; i++) {
+            long intended = start + i * periodNanos;
+            if (intended - end >= 0) {
+                break;
+            }
+            if (!probe.recording && intended - measureStart >= 0) {
+                probe.recording = true;
+            }
+
+            waitUntil(intended);
+
+            // Instant prévu, et non instant réel : un émetteur en retard
+            // publie immédiatement et le retard compte dans la latence
+            middleware.publish(topicName, new Message(topicName, intended));
+            sent++;
+            if (probe.recording) {
+                measuredSent++;
+            }
+        }
+        long finishedSending = System.nanoTime();
+
+        // Laisser les livraisons en attente se terminer
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (probe.received.get() < sent && System.nanoTime() - drainDeadline < 0) {
+            Thread.sleep(1);
+        }
+
+        double achievedRate = measuredSent
+                / ((finishedSending - measureStart) / (double) TimeUnit.SECONDS.toNanos(1));
+        RunResult result = new RunResult(ratePerSecond, achievedRate,
+                probe.histogram.snapshot(), sent, probe.received.get());
+
+        middleware.shutdown();
+        return result;
+    }
+
+    /**
+     * Attend l'instant prévu : garé tant que la marge est large, puis en
+     * attente active pour ne pas subir la granularité du scheduler OS.
+     */
+    private static void waitUntil(long targetNanos) {
+        long remaining;
+        while ((remaining = targetNanos - System.nanoTime()) > 0) {
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private static double micros(double nanos) {
+        return nanos / 1000.0;
+    }
+}
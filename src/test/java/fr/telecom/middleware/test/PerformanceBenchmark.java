@@ -3,6 +3,9 @@ package fr.telecom.middleware.test;
 import fr.telecom.middleware.core.*;
 import fr.telecom.middleware.qos.*;
 import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.memory.FootprintReport;
+import fr.telecom.middleware.metrics.LatencyHistogram;
+import fr.telecom.middleware.metrics.WcetProfiler;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -53,6 +56,7 @@ public class PerformanceBenchmark {
         testMemoryUsage();
         testConcurrentAccess();
         testDeadlinePerformance();
+        printWCETSummary();
 
         System.out.println();
         System.out.println("✅ BENCHMARKS TERMINÉS");
@@ -88,6 +92,7 @@ public class PerformanceBenchmark {
         long totalLatency = 0;
         long maxLatency = 0;
         long minLatency = Long.MAX_VALUE;
+        LatencyHistogram histogram = new LatencyHistogram();
 
         System.out.printf("  Exécution de %d publications...%n", iterations);
 
@@ -98,20 +103,14 @@ public class PerformanceBenchmark {
 
             middleware.publish(topicName, msg);
 
-            // Attendre la réception (avec timeout pour éviter boucle infinie)
-            int timeout = 0;
-            while (received.get() <= i && timeout < 100) {
-                Thread.sleep(1);
-                timeout++;
-            }
-
-            if (timeout >= 100) {
-                System.out.printf("    ⚠️ Timeout sur le message %d%n", i);
+            // Livraison synchrone : le message est reçu au retour de publish
+            long end = System.nanoTime();
+            if (received.get() <= i) {
+                System.out.printf("    ⚠️ Message %d non livré%n", i);
                 continue;
             }
-
-            long end = System.nanoTime();
             long latencyMicros = (end - start) / 1000;
+            histogram.record(end - start);
 
             totalLatency += latencyMicros;
             maxLatency = Math.max(maxLatency, latencyMicros);
@@ -129,7 +128,21 @@ public class PerformanceBenchmark {
         System.out.printf("    Latence moyenne: %.2f µs%n", avgLatency);
         System.out.printf("    Latence minimum: %d µs%n", minLatency);
         System.out.printf("    Latence maximum: %d µs%n", maxLatency);
-        System.out.printf("    95e percentile: <%.0f µs%n", avgLatency * 1.5);
+        System.out.printf("    95e percentile: %d µs%n",
+                histogram.getValueAtPercentile(95) / 1000);
+        System.out.printf("    99e percentile: %d µs%n",
+                histogram.getValueAtPercentile(99) / 1000);
+
+        System.out.println("    (temps de service en boucle fermée ; la latence sous charge");
+        System.out.println("     est mesurée par OpenLoopLatencyBenchmark)");
+
+        Topic topic = middleware.getTopic(topicName);
+        System.out.printf("    Publication → file: %s%n",
+                topic.getMetrics().getPublishToEnqueue().snapshot());
+        System.out.printf("    File → dispatch:    %s%n",
+                topic.getMetrics().getEnqueueToDispatch().snapshot());
+        System.out.printf("    Handler:            %s%n",
+                topic.getMetrics().getHandlerExecution().snapshot());
 
         middleware.shutdown();
         System.out.println();
@@ -215,13 +228,7 @@ public class PerformanceBenchmark {
         System.out.println("3. 💾 UTILISATION MÉMOIRE");
         System.out.println("-".repeat(40));
 
-        Runtime runtime = Runtime.getRuntime();
-
-        // Mesure avant création
-        runtime.gc();
-        long memoryBefore = runtime.totalMemory() - runtime.freeMemory();
-
-        System.out.println("  Création de 10 middlewares et topics..."); // Réduit de 100 à 10
+        System.out.println("  Création de 10 middlewares et topics...");
 
         // Création de plusieurs instances
         List<Middleware> middlewares = new ArrayList<>();
@@ -233,36 +240,40 @@ public class PerformanceBenchmark {
 
             Topic topic = mw.createTopic("test/memory-" + i,
                     new QoS.Builder().build());
+            mw.subscribe("test/memory-" + i, new TestSubscriber());
 
             middlewares.add(mw);
             topics.add(topic);
 
             // Publier quelques messages
-            for (int j = 0; j < 5; j++) { // Réduit de 10 à 5
+            for (int j = 0; j < 5; j++) {
                 Message msg = new Message("test/memory-" + i, "Test message " + j);
                 mw.publish("test/memory-" + i, msg);
             }
         }
 
-        // Mesure après création
-        runtime.gc();
-        long memoryAfter = runtime.totalMemory() - runtime.freeMemory();
-        long memoryUsed = memoryAfter - memoryBefore;
+        // Empreinte retenue estimée, indépendante du GC
+        long totalBytes = 0;
+        long historyBytes = 0;
+        for (Middleware mw : middlewares) {
+            FootprintReport footprint = mw.getFootprint();
+            totalBytes += footprint.totalBytes;
+            historyBytes += footprint.getHistoryBytes();
+        }
 
         System.out.printf("%n  📊 RÉSULTATS:%n");
-        System.out.printf("    Mémoire avant: %d KB%n", memoryBefore / 1024);
-        System.out.printf("    Mémoire après: %d KB%n", memoryAfter / 1024);
-        System.out.printf("    Mémoire utilisée: %d KB%n", memoryUsed / 1024);
+        System.out.printf("    Empreinte estimée totale: %.1f KB%n", totalBytes / 1024.0);
+        System.out.printf("    Dont historiques: %.1f KB%n", historyBytes / 1024.0);
         System.out.printf("    Par middleware: %.2f KB%n",
-                memoryUsed / (1024.0 * middlewares.size()));
-        System.out.printf("    Par topic: %.2f KB%n",
-                memoryUsed / (1024.0 * topics.size()));
+                totalBytes / (1024.0 * middlewares.size()));
+        System.out.printf("    Détail: %s%n", middlewares.get(0).getFootprint());
 
         long totalMessages = 0;
         for (Topic topic : topics) {
             totalMessages += topic.getMessageCount();
         }
         System.out.printf("    Total messages: %d%n", totalMessages);
+        System.out.println("    (balayage complet: FootprintBenchmark)");
 
         // Nettoyage
         middlewares.forEach(Middleware::shutdown);
@@ -433,31 +444,68 @@ public class PerformanceBenchmark {
     }
 
     /**
-     * Méthode utilitaire pour afficher le résumé WCET.
+     * Mesure et affiche le résumé WCET des étapes du pipeline.
      */
-    private static void printWCETSummary() {
+    private static void printWCETSummary() throws Exception {
         System.out.println("6. 📋 RÉSUMÉ WCET (WORST-CASE EXECUTION TIME)");
         System.out.println("-".repeat(40));
 
-        System.out.println("  📊 TEMPS D'EXÉCUTION MAXIMAUX:");
-        System.out.println("    Opération                  | WCET (µs) | Mémoire (KB)");
-        System.out.println("    ---------------------------|-----------|-------------");
-        System.out.println("    Création Middleware        |    500    |     50      ");
-        System.out.println("    Création Topic             |    100    |     10      ");
-        System.out.println("    Publication simple         |     50    |      2      ");
-        System.out.println("    Publication avec QoS       |    200    |      5      ");
-        System.out.println("    Vérification deadline      |     10    |      1      ");
-        System.out.println("    Distribution (1 sub)       |    100    |      3      ");
-        System.out.println("    Distribution (10 subs)     |   1000    |     20      ");
-        System.out.println("    Redondance (x3)            |    300    |     12      ");
-        System.out.println("    Détection de panne         |    500    |     15      ");
-
-        System.out.println("\n  🎯 OBJECTIFS ATTEINTS:");
-        System.out.println("    ✓ Footprint mémoire < 500KB");
-        System.out.println("    ✓ Latence publication < 100µs");
-        System.out.println("    ✓ Distribution < 1ms (95th)");
-        System.out.println("    ✓ Support deadlines < 10ms");
-        System.out.println("    ✓ Détection panne < 10s");
+        Middleware middleware = new Middleware();
+        middleware.setRealtimeEnabled(true);
+
+        middleware.createTopic("wcet/simple", new QoS.Builder().build());
+        middleware.createTopic("wcet/fanout", new QoS.Builder().build());
+        middleware.createTopic("wcet/deadline", new QoS.Builder()
+                .deadlineMs(10)
+                .priority(QoS.Priority.HIGH)
+                .build());
+        middleware.createTopic("wcet/redundant", new QoS.Builder()
+                .redundancyLevel(3)
+                .build());
+
+        middleware.subscribe("wcet/simple", new TestSubscriber());
+        for (int i = 0; i < 10; i++) {
+            middleware.subscribe("wcet/fanout", new TestSubscriber());
+        }
+        middleware.subscribe("wcet/deadline", new TestSubscriber());
+        middleware.subscribe("wcet/redundant", new TestSubscriber());
+
+        int iterations = 2000;
+        String[] topics = {"wcet/simple", "wcet/fanout", "wcet/deadline", "wcet/redundant"};
+        System.out.printf("  Mesure sur %d publications par topic...%n%n", iterations);
+
+        for (int i = 0; i < iterations; i++) {
+            String payload = "x".repeat(i % 512);
+            for (String topicName : topics) {
+                middleware.publish(topicName, new Message(topicName, payload));
+            }
+        }
+
+        // Laisser expirer d'éventuelles deadlines non complétées
+        Thread.sleep(100);
+
+        WcetProfiler profiler = middleware.getWcetProfiler();
+        System.out.println("  📊 TEMPS D'EXÉCUTION MESURÉS:");
+        System.out.print(profiler.report());
+
+        LatencyHistogram publish = profiler.getProfile(WcetProfiler.Stage.PUBLISH).getHistogram();
+        LatencyHistogram delivery = profiler.getProfile(WcetProfiler.Stage.SUBSCRIBER_DELIVERY).getHistogram();
+        long missed = middleware.getDeadlineMonitor().getMissedDeadlinesStats()
+                .getOrDefault("wcet/deadline", 0L);
+
+        System.out.println("\n  🎯 OBJECTIFS:");
+        printObjective("Latence publication < 100µs (p99)",
+                publish.getValueAtPercentile(99) < 100_000);
+        printObjective("Livraison < 1ms (95th)",
+                delivery.getValueAtPercentile(95) < 1_000_000);
+        printObjective(String.format("Deadlines 10ms respectées (%d manquées)", missed),
+                missed == 0);
+
+        middleware.shutdown();
         System.out.println();
     }
-}
\ No newline at end of file
+
+    private static void printObjective(String label, boolean met) {
+        System.out.printf("    %s %s%n", met ? "✓" : "✗", label);
+    }
+}
@@ -1,6 +1,11 @@
 package fr.telecom.middleware.test;
 
+import fr.telecom.middleware.api.Message;
+import fr.telecom.middleware.core.*;
 import fr.telecom.middleware.qos.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.*;
 import static org.junit.Assert.*;
 
@@ -112,4 +117,165 @@ public class QoSTest {
         assertEquals(3, QoS.Priority.HIGH.getValue());
         assertEquals(4, QoS.Priority.CRITICAL.getValue());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRedundantCopiesRunHandlerOnce() {
+        // Given - redondance 3, deux subscribers
+        Topic topic = new Topic("test/redundant", new QoS.Builder()
+                .redundancyLevel(3)
+                .build());
+        List<Message> received = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger secondCount = new AtomicInteger();
+        topic.addSubscriber((Subscriber) received::add);
+        topic.addSubscriber((Subscriber) message -> secondCount.incrementAndGet());
+        Message original = new Message("test/redundant", new byte[256]);
+
+        // When
+        new RedundancyManager().sendWithRedundancy(topic, original);
+
+        // Then - l'original est livré une fois, les copies sont écartées
+        assertEquals(1, received.size());
+        assertSame(original, received.get(0));
+        assertEquals(1, secondCount.get());
+        assertEquals(1, topic.getMessageCount());
+        assertEquals(1, topic.getMessageHistory().size());
+
+        RedundancyGroup group = original.getRedundancyGroup();
+        assertEquals(4, group.getArrivals());
+        assertEquals(6, group.getSuppressedCount());
+    }
+
+    @Test
+    public void testRedundantEnvelopeSharesPayloadAndRetriesFailure() {
+        // Given - un subscriber qui échoue sur la première copie
+        Topic topic = new Topic("test/retry", new QoS.Builder()
+                .redundancyLevel(2)
+                .build());
+        List<Message> received = new ArrayList<>();
+        topic.addSubscriber((Subscriber) message -> {
+            if (message.getRedundancyIndex() == 0) {
+                throw new IllegalStateException("chemin en panne");
+            }
+            received.add(message);
+        });
+        Message original = new Message("test/retry", "payload");
+
+        // When
+        new RedundancyManager().sendWithRedundancy(topic, original);
+
+        // Then - la copie 1 prend le relais, sans copier le message
+        assertEquals(1, received.size());
+        Message copy = received.get(0);
+        assertEquals(1, copy.getRedundancyIndex());
+        assertEquals(original.getId(), copy.getId());
+        assertSame(original.getPayload(), copy.getPayload());
+        assertEquals(original.getEstimatedSize(), copy.getEstimatedSize());
+    }
+
+    @Test
+    public void testIndependentPathMasksStuckPath() throws InterruptedException {
+        // Given - le chemin 0 reste bloqué dans le handler du premier subscriber
+        Topic topic = new Topic("test/paths", new QoS.Builder()
+                .redundancyLevel(1)
+                .redundancyMode(QoS.RedundancyMode.INDEPENDENT_PATHS)
+                .build());
+        CountDownLatch unblock = new CountDownLatch(1);
+        BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+        topic.addSubscriber((Subscriber) message -> {
+            if (message.getRedundancyIndex() == 0) {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        topic.addSubscriber((Subscriber) received::add);
+        RedundancyManager redundancyManager = new RedundancyManager();
+
+        try {
+            // When
+            redundancyManager.sendWithRedundancy(topic, new Message("test/paths", "payload"));
+
+            // Then - la copie du chemin 1 atteint le second subscriber
+            Message first = received.poll(2, TimeUnit.SECONDS);
+            assertNotNull(first);
+            assertEquals(1, first.getRedundancyIndex());
+
+            unblock.countDown();
+            assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+            assertEquals(1, topic.getMessageCount());
+            assertEquals(2, redundancyManager.getDeliveryPaths().size());
+        } finally {
+            unblock.countDown();
+            redundancyManager.shutdown();
+        }
+    }
+
+    @Test
+    public void testRedundantDeadlineWaitsForBlockedPath() throws InterruptedException {
+        // Given - le chemin 0 reste bloqué dans le handler du premier subscriber
+        Topic topic = new Topic("test/paths", new QoS.Builder()
+                .redundancyLevel(1)
+                .redundancyMode(QoS.RedundancyMode.INDEPENDENT_PATHS)
+                .build());
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        AtomicInteger concurrent = new AtomicInteger(0);
+        AtomicInteger maxConcurrent = new AtomicInteger(0);
+        List<Object> firstReceived = new CopyOnWriteArrayList<>();
+        topic.addSubscriber((Subscriber) message -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            entered.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            firstReceived.add(message.getPayload());
+            concurrent.decrementAndGet();
+        });
+        BlockingQueue<Message> secondReceived = new LinkedBlockingQueue<>();
+        topic.addSubscriber((Subscriber) secondReceived::add);
+        RedundancyManager redundancyManager = new RedundancyManager();
+        Message first = new Message("test/paths", 1);
+        first.attachDeadline(new Deadline("test/paths", first, 5000));
+        Message second = new Message("test/paths", 2);
+        second.attachDeadline(new Deadline("test/paths", second, 5000));
+
+        try {
+            // When
+            redundancyManager.sendWithRedundancy(topic, first);
+            assertTrue(entered.await(2, TimeUnit.SECONDS));
+            redundancyManager.sendWithRedundancy(topic, second);
+
+            // Then - le second subscriber reçoit tout, avec les séquences
+            // du topic, mais la deadline attend le subscriber bloqué
+            Message received = secondReceived.poll(2, TimeUnit.SECONDS);
+            assertNotNull(received);
+            assertEquals(1, received.getSequence());
+            received = secondReceived.poll(2, TimeUnit.SECONDS);
+            assertNotNull(received);
+            assertEquals(2, received.getSequence());
+            assertFalse(first.getDeadline().isResolved());
+            assertFalse(second.getDeadline().isResolved());
+
+            // When - le subscriber bloqué repart
+            unblock.countDown();
+
+            // Then - livré dans l'ordre, jamais en parallèle, deadlines complétées
+            long limit = System.currentTimeMillis() + 2000;
+            while (!second.getDeadline().isResolved() && System.currentTimeMillis() < limit) {
+                Thread.sleep(10);
+            }
+            assertTrue(first.getDeadline().isMet());
+            assertTrue(second.getDeadline().isMet());
+            assertEquals(Arrays.asList(1, 2), firstReceived);
+            assertEquals(1, maxConcurrent.get());
+            assertNull(secondReceived.poll(100, TimeUnit.MILLISECONDS));
+        } finally {
+            unblock.countDown();
+            redundancyManager.shutdown();
+        }
+    }
+}
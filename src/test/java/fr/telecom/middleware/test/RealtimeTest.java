@@ -1,11 +1,15 @@
 package fr.telecom.middleware.test;
 
+import fr.telecom.middleware.core.*;
 import fr.telecom.middleware.realtime.*;
+import fr.telecom.middleware.memory.MemoryBudget;
 import fr.telecom.middleware.qos.*;
 import fr.telecom.middleware.api.Message;
 import org.junit.*;
 import static org.junit.Assert.*;
-import java.util.concurrent.TimeUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 public class RealtimeTest {
     private DeadlineMonitor deadlineMonitor;
@@ -41,6 +45,313 @@ public class RealtimeTest {
         assertNotNull(deadlineMonitor);
     }
 
+    @Test
+    public void testDeadlineCompletedOnDelivery() throws InterruptedException {
+        // Given
+        Middleware middleware = new Middleware();
+        middleware.setRealtimeEnabled(true);
+        middleware.createTopic("test/deadline", new QoS.Builder()
+                .deadlineMs(50)
+                .build());
+        middleware.subscribe("test/deadline", message -> { });
+
+        Message message = Message.builder("test/deadline")
+                .payload("Test")
+                .build();
+
+        // When
+        middleware.publish("test/deadline", message);
+        Thread.sleep(100); // Au-delà de la deadline
+
+        // Then - la livraison a complété la deadline, aucune alerte
+        DeadlineMonitor monitor = middleware.getDeadlineMonitor();
+        assertNotNull(message.getDeadline());
+        assertTrue(message.getDeadline().isMet());
+        assertTrue(message.getDeadline().getCompletionLatencyNanos() >= 0);
+        assertEquals(Long.valueOf(1), monitor.getMetDeadlinesStats().get("test/deadline"));
+        assertEquals(Long.valueOf(0), monitor.getMissedDeadlinesStats().get("test/deadline"));
+        assertEquals(0, monitor.getActiveDeadlineCount());
+
+        middleware.shutdown();
+    }
+
+    @Test
+    public void testDeadlineMissedWhenNoHandlerSucceeds() {
+        // Given - un seul abonné, dont le handler échoue
+        Middleware middleware = new Middleware();
+        middleware.createTopic("test/failing", new QoS.Builder()
+                .deadlineMs(50)
+                .build());
+        middleware.subscribe("test/failing", message -> {
+            throw new IllegalStateException("panne");
+        });
+
+        Message message = Message.builder("test/failing")
+                .payload("Test")
+                .build();
+
+        // When
+        middleware.publish("test/failing", message);
+
+        // Then - résolue tout de suite, comme manquée et non respectée
+        DeadlineMonitor monitor = middleware.getDeadlineMonitor();
+        assertTrue(message.getDeadline().isResolved());
+        assertFalse(message.getDeadline().isMet());
+        assertEquals(Long.valueOf(0), monitor.getMetDeadlinesStats().get("test/failing"));
+        assertEquals(Long.valueOf(1), monitor.getMissedDeadlinesStats().get("test/failing"));
+
+        middleware.shutdown();
+    }
+
+    @Test
+    public void testDeadlineRunsFromLateRelease() throws InterruptedException {
+        // Given - une libération cyclique qui a pris 40 ms de retard sur
+        // une deadline de 50 ms, et un handler de 20 ms
+        Middleware middleware = new Middleware();
+        middleware.createTopic("test/late", new QoS.Builder().deadlineMs(50).build());
+        middleware.subscribe("test/late", message -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Topic topic = middleware.getTopic("test/late");
+        Message message = Message.builder("test/late").payload("cycle").build();
+        long releaseNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(40);
+
+        // When
+        DeadlineMonitor monitor = middleware.getDeadlineMonitor();
+        assertTrue(monitor.checkPublishDeadline(topic, message, 50, releaseNanos));
+        assertTrue(message.getDeadline().getRemainingTimeMs() <= 10);
+        topic.publish(message);
+
+        // Then - manquée : échue 10 ms après la publication, bien que la
+        // livraison n'ait pris que 20 ms
+        assertTrue(message.getDeadline().isResolved());
+        assertFalse(message.getDeadline().isMet());
+        assertTrue(message.getDeadline().isExpired());
+        assertEquals(Long.valueOf(1), monitor.getMissedDeadlinesStats().get("test/late"));
+
+        middleware.shutdown();
+    }
+
+    @Test(timeout = 5000)
+    public void testEdfDispatchOrdersByDeadline() throws Exception {
+        // Given - un seul thread, bloqué sur la première livraison
+        Scheduler scheduler = new Scheduler();
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(4);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        EdfDispatcher dispatcher = new EdfDispatcher(scheduler, 1, (topic, message) -> {
+            if ("blocker".equals(message.getPayload())) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            order.add((String) message.getPayload());
+            done.countDown();
+        });
+        dispatcher.start();
+
+        Topic lax = new Topic("test/lax", new QoS.Builder().maxLatencyMs(1000).build());
+        Topic tight = new Topic("test/tight", new QoS.Builder().deadlineMs(30).build());
+
+        // When - rafale : le topic laxiste arrive avant le topic contraint
+        dispatcher.submit(lax, new Message("test/lax", "blocker"));
+        Thread.sleep(50);
+        dispatcher.submit(lax, new Message("test/lax", "lax-1"));
+        dispatcher.submit(lax, new Message("test/lax", "lax-2"));
+        dispatcher.submit(tight, new Message("test/tight", "tight"));
+        gate.countDown();
+        done.await();
+
+        // Then - l'échéance la plus proche est servie en premier
+        assertEquals(Arrays.asList("blocker", "tight", "lax-1", "lax-2"), order);
+
+        dispatcher.shutdown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testEdfDispatchMode() throws InterruptedException {
+        // Given
+        Middleware middleware = new Middleware();
+        middleware.setDispatchMode(Middleware.DispatchMode.EDF);
+        middleware.createTopic("test/edf", new QoS.Builder()
+                .deadlineMs(50)
+                .build());
+
+        List<Message> received = new CopyOnWriteArrayList<>();
+        middleware.subscribe("test/edf", received::add);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            middleware.publish("test/edf", new Message("test/edf", "Message " + i));
+        }
+        Thread.sleep(200);
+
+        // Then
+        assertEquals(10, received.size());
+        assertEquals(0, middleware.getEdfDispatcher().getPendingCount());
+        assertEquals(Long.valueOf(10),
+                middleware.getDeadlineMonitor().getMetDeadlinesStats().get("test/edf"));
+
+        middleware.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testEdfDispatchKeepsOrderWithinTopic() throws InterruptedException {
+        // Given - plusieurs threads EDF et deux topics de même échéance
+        Middleware middleware = new Middleware();
+        middleware.setDispatchMode(Middleware.DispatchMode.EDF);
+        Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(1000);
+        for (String name : Arrays.asList("test/edf-a", "test/edf-b")) {
+            middleware.createTopic(name, new QoS.Builder().deadlineMs(1000).build());
+            List<Integer> order = new CopyOnWriteArrayList<>();
+            received.put(name, order);
+            middleware.subscribe(name, message -> {
+                Thread.yield();
+                order.add((Integer) message.getPayload());
+                done.countDown();
+            });
+        }
+
+        // When
+        for (int i = 0; i < 500; i++) {
+            middleware.publish("test/edf-a", new Message("test/edf-a", i));
+            middleware.publish("test/edf-b", new Message("test/edf-b", i));
+        }
+        done.await();
+
+        // Then - ordre de publication respecté dans chaque topic
+        for (List<Integer> order : received.values()) {
+            assertEquals(500, order.size());
+            for (int i = 0; i < order.size(); i++) {
+                assertEquals(Integer.valueOf(i), order.get(i));
+            }
+        }
+        assertEquals(0, middleware.getEdfDispatcher().getPendingCount());
+
+        middleware.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testEdfDrainsSingleTopicBacklog() throws InterruptedException {
+        // Given - un arriéré de 20 000 livraisons sur un seul topic,
+        // accumulé derrière un handler bloqué
+        Scheduler scheduler = new Scheduler();
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(20_000);
+        List<Integer> order = new ArrayList<>();
+        EdfDispatcher dispatcher = new EdfDispatcher(scheduler, 2, (topic, message) -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Thread.yield();
+            order.add((Integer) message.getPayload());
+            done.countDown();
+        });
+        dispatcher.setMaxPendingPerTopic(20_000);
+        dispatcher.start();
+        Topic topic = new Topic("test/backlog", new QoS.Builder().deadlineMs(1000).build());
+        for (int i = 0; i < 20_000; i++) {
+            dispatcher.submit(topic, new Message("test/backlog", i));
+        }
+
+        // When
+        long start = System.nanoTime();
+        gate.countDown();
+        done.await();
+        long drainMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then - vidé dans l'ordre, sans réinsérer l'arriéré à chaque livraison
+        assertTrue("arriéré vidé en " + drainMs + "ms", drainMs < 5000);
+        for (int i = 0; i < order.size(); i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+        assertEquals(0, dispatcher.getPendingCount());
+
+        dispatcher.shutdown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testEdfRejectsSubmitAfterShutdown() {
+        // Given - un middleware arrêté dont le dispatch EDF a servi
+        Middleware middleware = new Middleware();
+        middleware.setRealtimeEnabled(false);
+        middleware.createTopic("test/late", new QoS());
+        middleware.publishDetached("test/late", new Message("test/late", "avant"));
+        middleware.shutdown();
+        EdfDispatcher dispatcher = middleware.getEdfDispatcher();
+
+        // When - un flux détaché publie encore
+        boolean accepted = dispatcher.submit(middleware.getTopic("test/late"),
+                new Message("test/late", "après"));
+        middleware.publishDetached("test/late", new Message("test/late", "après"));
+
+        // Then - rien n'est retenu pour des threads qui ne tournent plus
+        assertFalse(accepted);
+        assertEquals(0, dispatcher.getPendingCount());
+        assertEquals(2, dispatcher.getDroppedCount());
+        assertEquals(0, middleware.getMemoryBudget().getUsedBytes(MemoryBudget.Category.PENDING));
+    }
+
+    @Test
+    public void testAdmissionControlRejectsOverload() {
+        // Given
+        Middleware middleware = new Middleware();
+        middleware.setAdmissionPolicy(AdmissionController.Policy.REJECT);
+
+        QoS feasible = new QoS.Builder()
+                .deadlineMs(100)
+                .publishRateHz(10)
+                .build();
+
+        // 20 kHz : période de 50µs, inférieure au coût d'un seul handler
+        QoS overload = new QoS.Builder()
+                .deadlineMs(1)
+                .publishRateHz(20000)
+                .build();
+
+        // When
+        Topic accepted = middleware.createTopic("test/feasible", feasible);
+        Topic rejected = middleware.createTopic("test/overload", overload);
+
+        // Then
+        assertNotNull(accepted);
+        assertNull(rejected);
+        assertNull(middleware.getTopic("test/overload"));
+        assertTrue(middleware.checkSchedulability().schedulable);
+
+        middleware.shutdown();
+    }
+
+    @Test
+    public void testAdmissionControlWarnsByDefault() {
+        // Given
+        Middleware middleware = new Middleware();
+
+        // When
+        Topic topic = middleware.createTopic("test/overload", new QoS.Builder()
+                .deadlineMs(1)
+                .publishRateHz(20000)
+                .build());
+
+        // Then - accepté, mais l'analyse signale la surcharge
+        assertNotNull(topic);
+        assertFalse(middleware.checkSchedulability().schedulable);
+
+        middleware.shutdown();
+    }
+
     @Test(timeout = 5000)
     public void testSchedulerBasicOperations() throws Exception {
         // Given
@@ -78,6 +389,39 @@ public class RealtimeTest {
         assertTrue("Devrait avoir exécuté plusieurs fois", executionCount[0] >= 4);
     }
 
+    @Test
+    public void testCancellingPeriodicFutureStopsTask() throws Exception {
+        // Given
+        Scheduler scheduler = new Scheduler();
+        AtomicInteger executions = new AtomicInteger(0);
+        ScheduledFuture<?> future = scheduler.scheduleRealtimeAtFixedRate(
+                executions::incrementAndGet, 0, 10, TimeUnit.MILLISECONDS);
+        Thread.sleep(50);
+
+        // When
+        assertTrue(future.cancel(false));
+        int executed = executions.get();
+        Thread.sleep(50);
+
+        // Then - plus d'activation, le futur est annulé
+        try {
+            assertTrue(executed > 0);
+            assertTrue(executions.get() <= executed + 1);
+            assertTrue(future.isCancelled());
+            assertTrue(future.isDone());
+            assertFalse(future.cancel(false));
+            assertTrue(future instanceof PeriodicTask);
+            try {
+                future.get(10, TimeUnit.MILLISECONDS);
+                fail("Une tâche périodique annulée n'a pas de résultat");
+            } catch (CancellationException expected) {
+                // attendu
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
     @Test
     public void testAsyncExecution() throws Exception {
         // Given
@@ -105,4 +449,286 @@ public class RealtimeTest {
         // Then
         assertFalse(scheduler.isRunning());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testEventLoopRunsTasksInOrderWithEachStrategy() throws InterruptedException {
+        Scheduler scheduler = new Scheduler();
+        try {
+            for (WaitStrategy.Type type : WaitStrategy.Type.values()) {
+                // Given - une boucle inactive depuis un moment
+                EventLoop loop = scheduler.startEventLoop("Test-" + type, WaitStrategies.forType(type));
+                Thread.sleep(20);
+                List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+                CountDownLatch done = new CountDownLatch(1);
+
+                // When
+                for (int i = 0; i < 100; i++) {
+                    int index = i;
+                    assertTrue(loop.execute(() -> executed.add(index)));
+                }
+                loop.execute(done::countDown);
+
+                // Then - réveillée, elle exécute tout dans l'ordre
+                assertTrue(type + " non réveillée", done.await(1, TimeUnit.SECONDS));
+                assertEquals(100, executed.size());
+                for (int i = 0; i < 100; i++) {
+                    assertEquals(Integer.valueOf(i), executed.get(i));
+                }
+                assertEquals(type, loop.getWaitStrategy().getType());
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testDedicatedEventLoopDeliversInPublicationOrder() throws InterruptedException {
+        // Given - un topic servi par sa propre boucle en attente active
+        Middleware middleware = new Middleware();
+        middleware.setRealtimeEnabled(false);
+        middleware.setWaitStrategy(WaitStrategy.Type.SPIN_YIELD);
+        middleware.createTopic("test/loop", new QoS());
+        EventLoop loop = middleware.dedicateEventLoop("test/loop");
+        List<Object> received = Collections.synchronizedList(new ArrayList<>());
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch done = new CountDownLatch(50);
+        middleware.subscribe("test/loop", (Subscriber) message -> {
+            received.add(message.getPayload());
+            threads.add(Thread.currentThread().getName());
+            done.countDown();
+        });
+
+        // When
+        for (int i = 0; i < 50; i++) {
+            middleware.publish("test/loop", new Message("test/loop", i));
+        }
+
+        // Then - livré hors du thread de publication, dans l'ordre
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(Collections.singleton("Topic-Loop-test/loop"), threads);
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, received.get(i));
+        }
+        assertNull(middleware.dedicateEventLoop("test/unknown"));
+        assertSame(loop, middleware.dedicateEventLoop("test/loop"));
+        middleware.shutdown();
+    }
+
+    @Test
+    public void testPeriodicTaskTracksJitterAndExecution() throws InterruptedException {
+        // Given
+        Scheduler scheduler = new Scheduler();
+
+        // When - 10 activations d'une tâche de 1ms toutes les 20ms
+        PeriodicTask task = scheduler.schedulePeriodicTask("control", () -> {
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1);
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+        }, 0, 20, TimeUnit.MILLISECONDS, PeriodicTask.OverrunPolicy.SKIP);
+        Thread.sleep(210);
+        scheduler.shutdown();
+
+        // Then
+        PeriodicTask.Stats stats = scheduler.getPeriodicTaskStats().get("control");
+        assertTrue(stats.releases >= 9 && stats.releases <= 12);
+        assertEquals(0, stats.overruns);
+        assertTrue(stats.executionTime.p50 >= TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(stats.releases, stats.releaseJitter.count);
+    }
+
+    @Test
+    public void testOverrunPolicies() throws InterruptedException {
+        // Given - une tâche de 50ms sur une période de 20ms, selon chaque politique
+        Scheduler scheduler = new Scheduler();
+        List<Long> notified = new CopyOnWriteArrayList<>();
+        scheduler.addOverrunListener((task, overrunNanos, missed) -> notified.add(missed));
+        Runnable slow = () -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        // When
+        PeriodicTask skip = scheduler.schedulePeriodicTask("skip", slow, 0, 20,
+                TimeUnit.MILLISECONDS, PeriodicTask.OverrunPolicy.SKIP);
+        PeriodicTask catchUp = scheduler.schedulePeriodicTask("catch-up", slow, 0, 20,
+                TimeUnit.MILLISECONDS, PeriodicTask.OverrunPolicy.CATCH_UP);
+        PeriodicTask notify = scheduler.schedulePeriodicTask("notify", slow, 0, 20,
+                TimeUnit.MILLISECONDS, PeriodicTask.OverrunPolicy.NOTIFY);
+        Thread.sleep(330);
+        scheduler.shutdown();
+
+        // Then - chaque exécution déborde
+        assertTrue(skip.getOverrunCount() >= 3);
+        assertTrue(skip.getSkippedReleaseCount() >= 2 * skip.getOverrunCount());
+        assertEquals(0, catchUp.getSkippedReleaseCount());
+        // Rattrapage : le retard de démarrage s'accumule
+        assertTrue(catchUp.getReleaseJitter().getMax() > TimeUnit.MILLISECONDS.toNanos(60));
+        assertTrue(skip.getReleaseJitter().getMax() < catchUp.getReleaseJitter().getMax());
+        assertEquals(notify.getOverrunCount(), notified.size());
+        assertTrue(notified.size() >= 3);
+        assertNull(scheduler.getPeriodicTask("unknown"));
+    }
+
+    @Test
+    public void testReleaseTimelineSpreadsPhases() {
+        // Given - une ligne de temps non démarrée, tick de 1ms
+        ReleaseTimeline timeline = new ReleaseTimeline(ReleaseTimeline.DEFAULT_TICK_NANOS);
+
+        // When - 4 flux de 4ms sans phase imposée, puis un flux à phase fixe
+        Set<Long> phases = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            phases.add(timeline.register("stream-" + i, TimeUnit.MILLISECONDS.toNanos(4),
+                    ReleaseTimeline.AUTO_PHASE, (cycle, release) -> { }).getPhaseNanos());
+        }
+        ReleaseTimeline.Release fixed = timeline.register("fixed", TimeUnit.MILLISECONDS.toNanos(4),
+                TimeUnit.MILLISECONDS.toNanos(6), (cycle, release) -> { });
+
+        // Then - chaque phase est occupée une fois, la phase imposée est réduite
+        assertEquals(4, phases.size());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(2), fixed.getPhaseNanos());
+        assertEquals(5, timeline.getReleaseCount());
+        fixed.cancel();
+        assertEquals(4, timeline.getReleaseCount());
+    }
+
+    @Test
+    public void testCyclicPublishersShareOneTimeline() throws InterruptedException {
+        // Given
+        Middleware middleware = new Middleware();
+        middleware.setRealtimeEnabled(false);
+        middleware.createTopic("test/cyclic", new QoS());
+        Map<Object, List<Long>> cyclesByStream = new ConcurrentHashMap<>();
+        middleware.subscribe("test/cyclic", (Subscriber) message ->
+                cyclesByStream.computeIfAbsent(message.getPayload(), k -> new CopyOnWriteArrayList<>())
+                        .add((Long) message.getHeader(CyclicPublisher.CYCLE_HEADER)));
+        int threadsBefore = Thread.activeCount();
+
+        // When - 200 flux de 20ms
+        List<CyclicPublisher> streams = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int stream = i;
+            streams.add(middleware.cyclicPublisher("test/cyclic")
+                    .periodMs(20)
+                    .payload(() -> stream)
+                    .start());
+        }
+        Thread.sleep(250);
+        streams.forEach(CyclicPublisher::stop);
+
+        // Then - une seule ligne de temps, pas un thread par flux, et des
+        // cycles contigus pour chaque flux
+        long timelines = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("Release-Timeline"))
+                .count();
+        assertEquals(1, timelines);
+        assertTrue(Thread.activeCount() - threadsBefore < 10);
+        assertEquals(200, cyclesByStream.size());
+        for (List<Long> cycles : cyclesByStream.values()) {
+            assertTrue(cycles.size() >= 8);
+            for (int k = 1; k < cycles.size(); k++) {
+                assertTrue(cycles.get(k) > cycles.get(k - 1));
+            }
+        }
+        // Flux étalés sur les 20 phases de la période
+        Set<Long> phases = new HashSet<>();
+        streams.forEach(stream -> phases.add(stream.getPhaseNanos()));
+        assertEquals(20, phases.size());
+        middleware.shutdown();
+    }
+
+    @Test
+    public void testBlockedHandlerDoesNotStallTimeline() throws InterruptedException {
+        // Given - un flux dont le handler reste bloqué et un flux normal
+        Middleware middleware = new Middleware();
+        middleware.setRealtimeEnabled(false);
+        middleware.createTopic("test/stuck-cyclic", new QoS());
+        middleware.createTopic("test/fast-cyclic", new QoS());
+        CountDownLatch unblock = new CountDownLatch(1);
+        middleware.subscribe("test/stuck-cyclic", message -> {
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        AtomicInteger fastCycles = new AtomicInteger(0);
+        middleware.subscribe("test/fast-cyclic", message -> fastCycles.incrementAndGet());
+
+        try {
+            // When
+            middleware.cyclicPublisher("test/stuck-cyclic").periodMs(10).payload(() -> "x").start();
+            middleware.cyclicPublisher("test/fast-cyclic").periodMs(10).payload(() -> "y").start();
+            Thread.sleep(250);
+
+            // Then - la ligne de temps continue de libérer les deux flux
+            ReleaseTimeline timeline = middleware.getScheduler().getReleaseTimeline();
+            assertTrue("cycles: " + fastCycles.get(), fastCycles.get() >= 10);
+            assertTrue(timeline.getFiredCount() >= 20);
+        } finally {
+            unblock.countDown();
+            middleware.shutdown();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBlockedTopicsKeepBoundedEdfQueues() throws InterruptedException {
+        // Given - deux topics dont les handlers bloquent les deux threads EDF
+        Middleware middleware = new Middleware();
+        middleware.setRealtimeEnabled(false);
+        middleware.getEdfDispatcher().setMaxPendingPerTopic(100);
+        CountDownLatch blocked = new CountDownLatch(2);
+        CountDownLatch unblock = new CountDownLatch(1);
+        Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+        for (String name : Arrays.asList("test/stuck-a", "test/stuck-b")) {
+            middleware.createTopic(name, new QoS());
+            List<Integer> order = new CopyOnWriteArrayList<>();
+            received.put(name, order);
+            middleware.subscribe(name, message -> {
+                if (order.isEmpty()) {
+                    blocked.countDown();
+                    try {
+                        unblock.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                order.add((Integer) message.getPayload());
+            });
+        }
+        EdfDispatcher dispatcher = middleware.getEdfDispatcher();
+
+        try {
+            // When - un arriéré bien plus grand que la borne
+            for (String name : received.keySet()) {
+                middleware.publishDetached(name, new Message(name, 0));
+            }
+            assertTrue(blocked.await(2, TimeUnit.SECONDS));
+            for (int i = 1; i <= 500; i++) {
+                for (String name : received.keySet()) {
+                    middleware.publishDetached(name, new Message(name, i));
+                }
+            }
+
+            // Then - 100 livraisons retenues par topic, le reste abandonné
+            assertEquals(200, dispatcher.getPendingCount());
+            assertEquals(800, dispatcher.getDroppedCount());
+            unblock.countDown();
+            for (List<Integer> order : received.values()) {
+                while (order.size() < 101) {
+                    Thread.sleep(10);
+                }
+                for (int i = 0; i <= 100; i++) {
+                    assertEquals(Integer.valueOf(i), order.get(i));
+                }
+            }
+            assertEquals(0, dispatcher.getPendingCount());
+        } finally {
+            unblock.countDown();
+            middleware.shutdown();
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package fr.telecom.middleware.test;
+
+import fr.telecom.middleware.api.*;
+import fr.telecom.middleware.core.*;
+import fr.telecom.middleware.qos.*;
+import fr.telecom.middleware.transport.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class TransportTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Middleware sender;
+    private Middleware receiver;
+
+    @Before
+    public void setUp() {
+        sender = new Middleware();
+        sender.setRealtimeEnabled(false);
+        receiver = new Middleware();
+        receiver.setRealtimeEnabled(false);
+    }
+
+    @After
+    public void tearDown() {
+        sender.shutdown();
+        receiver.shutdown();
+    }
+
+    @Test
+    public void testCodecRoundTrip() throws Exception {
+        // Given
+        Message message = Message.builder("ipc/codec")
+                .payload(new ArrayList<>(Arrays.asList(1, 2, 3)))
+                .header("rpm", 3200)
+                .header("speed", 87.5)
+                .header("unit", "km/h")
+                .header("valid", true)
+                .header("raw", new byte[]{1, 2, 3})
+                .build();
+
+        // When
+        byte[] encoded = MessageCodec.encode(message);
+        Message decoded = MessageCodec.decode(encoded);
+
+        // Then
+        assertEquals(message.getId(), decoded.getId());
+        assertEquals(message.getTopic(), decoded.getTopic());
+        assertEquals(message.getPublishTimestamp(), decoded.getPublishTimestamp());
+        assertEquals(Arrays.asList(1, 2, 3), decoded.getPayload());
+        assertEquals(3200, decoded.getHeader("rpm"));
+        assertEquals(87.5, decoded.getHeader("speed"));
+        assertEquals("km/h", decoded.getHeader("unit"));
+        assertEquals(true, decoded.getHeader("valid"));
+        assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) decoded.getHeader("raw"));
+        assertEquals(message.getId(), decoded.getHeader("message_id"));
+        // Plus compact que la sérialisation Java du message
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(message);
+        }
+        assertTrue(encoded.length < serialized.size() / 2);
+    }
+
+    @Test
+    public void testCodecRejectsUnlistedSerializedTypes() throws Exception {
+        // Given - un objet sérialisable hors de la liste blanche
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(new File("gadget"));
+        }
+        byte[] object = serialized.toByteArray();
+        try {
+            MessageCodec.encode(new Message("ipc/codec", new File("gadget")));
+            fail("Payload hors liste blanche encodé");
+        } catch (IllegalArgumentException expected) {
+            // Refusé dès l'encodage
+        }
+
+        // When - un pair forge la trame : payload en octets, type réécrit
+        byte[] encoded = MessageCodec.encode(new Message("ipc/codec", object));
+        int lengthBytes = object.length < 128 ? 1 : 2;
+        int typeIndex = encoded.length - object.length - lengthBytes - 1;
+        assertEquals(7, encoded[typeIndex]);
+        encoded[typeIndex] = 8;
+
+        // Then - la désérialisation est refusée
+        try {
+            MessageCodec.decode(encoded);
+            fail("Objet hors liste blanche désérialisé");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().startsWith("Désérialisation impossible"));
+        }
+    }
+
+    @Test
+    public void testBridgeListensOnLoopbackByDefault() throws Exception {
+        // Given
+        TcpBridge bridge = new TcpBridge(receiver, "receiver");
+
+        // When
+        bridge.bind(0);
+
+        // Then
+        assertTrue(bridge.getBindAddress().isLoopbackAddress());
+        bridge.shutdown();
+    }
+
+    @Test
+    public void testSlowReaderSkipsOverwrittenMessages() throws Exception {
+        // Given - un anneau de 16 cases et un lecteur dans un autre "processus"
+        Path file = folder.getRoot().toPath().resolve("ring.ring");
+        try (SharedMemoryRing writer = SharedMemoryRing.create(file, 16, 256);
+             SharedMemoryRing mapped = SharedMemoryRing.open(file)) {
+            SharedMemoryRing.Reader reader = mapped.reader();
+
+            // When - l'écrivain fait plus d'un tour sans attendre le lecteur
+            for (int i = 1; i <= 21; i++) {
+                writer.write(new Message("ipc/ring", i));
+            }
+            List<Object> payloads = new ArrayList<>();
+            Message message;
+            while ((message = reader.poll()) != null) {
+                payloads.add(message.getPayload());
+            }
+
+            // Then - les 5 plus anciens sont perdus, le reste arrive dans l'ordre
+            assertEquals(5, reader.getLostCount());
+            assertEquals(16, payloads.size());
+            assertEquals(6, payloads.get(0));
+            assertEquals(21, payloads.get(15));
+            assertEquals(21, mapped.getCursor());
+        }
+    }
+
+    @Test
+    public void testTopicBridgedBetweenMiddlewares() throws Exception {
+        // Given - deux middlewares qui partagent un répertoire d'anneaux
+        Path directory = folder.getRoot().toPath();
+        sender.createTopic("ipc/sensors", new QoS.Builder().build());
+        receiver.createTopic("ipc/sensors", new QoS.Builder().build());
+        SharedMemoryTransport exporter = new SharedMemoryTransport(sender, directory, "sender",
+                SharedMemoryRing.DEFAULT_SLOT_COUNT, SharedMemoryRing.DEFAULT_SLOT_SIZE);
+        SharedMemoryTransport importer = new SharedMemoryTransport(receiver, directory, "receiver",
+                SharedMemoryRing.DEFAULT_SLOT_COUNT, SharedMemoryRing.DEFAULT_SLOT_SIZE);
+        // Chaque côté exporte et importe : les messages importés ne reviennent pas
+        importer.importTopic("ipc/sensors");
+        exporter.exportTopic("ipc/sensors");
+        importer.exportTopic("ipc/sensors");
+        exporter.importTopic("ipc/sensors");
+        Thread.sleep(300);
+
+        List<Message> sent = new CopyOnWriteArrayList<>();
+        sender.subscribe("ipc/sensors", (Subscriber) sent::add);
+        BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+        receiver.subscribe("ipc/sensors", (Subscriber) received::add);
+
+        // When
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Message message = Message.builder("ipc/sensors").payload(i).header("index", i).build();
+            ids.add(message.getId());
+            sender.publish("ipc/sensors", message);
+        }
+
+        // Then
+        for (int i = 0; i < 100; i++) {
+            Message message = received.poll(2, TimeUnit.SECONDS);
+            assertNotNull("Message " + i + " non reçu", message);
+            assertEquals(ids.get(i), message.getId());
+            assertEquals(i, message.getPayload());
+            assertEquals("sender", message.getHeader(SharedMemoryTransport.ORIGIN_HEADER));
+        }
+        Thread.sleep(200);
+        assertEquals(100, sent.size());
+        assertEquals(100, exporter.getExportedCount());
+        assertEquals(0, importer.getExportedCount());
+        assertEquals(100, importer.getImportedCount());
+        assertEquals(0, importer.getLostCount());
+
+        exporter.shutdown();
+        importer.shutdown();
+    }
+
+    @Test
+    public void testBlockedImportSubscriberDoesNotStallReader() throws Exception {
+        // Given - deux topics importés, l'abonné de l'un reste bloqué
+        Path directory = folder.getRoot().toPath();
+        for (Middleware node : Arrays.asList(sender, receiver)) {
+            node.createTopic("ipc/slow", new QoS.Builder().build());
+            node.createTopic("ipc/fast", new QoS.Builder().build());
+        }
+        SharedMemoryTransport exporter = new SharedMemoryTransport(sender, directory, "sender",
+                SharedMemoryRing.DEFAULT_SLOT_COUNT, SharedMemoryRing.DEFAULT_SLOT_SIZE);
+        SharedMemoryTransport importer = new SharedMemoryTransport(receiver, directory, "receiver",
+                SharedMemoryRing.DEFAULT_SLOT_COUNT, SharedMemoryRing.DEFAULT_SLOT_SIZE);
+        exporter.exportTopic("ipc/slow");
+        exporter.exportTopic("ipc/fast");
+        importer.importTopic("ipc/slow");
+        importer.importTopic("ipc/fast");
+        Thread.sleep(300);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        receiver.subscribe("ipc/slow", (Subscriber) message -> {
+            blocked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        BlockingQueue<Message> fast = new LinkedBlockingQueue<>();
+        receiver.subscribe("ipc/fast", (Subscriber) fast::add);
+
+        try {
+            // When
+            sender.publish("ipc/slow", new Message("ipc/slow", "bloquant"));
+            assertTrue(blocked.await(2, TimeUnit.SECONDS));
+            for (int i = 0; i < 10; i++) {
+                sender.publish("ipc/fast", new Message("ipc/fast", i));
+            }
+
+            // Then - le lecteur continue de vider l'autre anneau
+            for (int i = 0; i < 10; i++) {
+                Message message = fast.poll(2, TimeUnit.SECONDS);
+                assertNotNull("Message " + i + " non reçu", message);
+                assertEquals(i, message.getPayload());
+            }
+            assertEquals(0, importer.getLostCount());
+        } finally {
+            release.countDown();
+            exporter.shutdown();
+            importer.shutdown();
+        }
+    }
+
+    @Test
+    public void testRingFilesAreDistinctPerTopic() throws Exception {
+        // Given - des noms de topic qui se confondaient dans les noms de fichier
+        Path directory = folder.getRoot().toPath();
+        List<String> names = Arrays.asList("ipc/a", "ipc_a", "ipc", "ipc@b", "ipc/*");
+        for (Middleware node : Arrays.asList(sender, receiver)) {
+            for (String name : names) {
+                node.createTopic(name, new QoS.Builder().build());
+            }
+        }
+        SharedMemoryTransport exporter = new SharedMemoryTransport(sender, directory, "sender",
+                SharedMemoryRing.DEFAULT_SLOT_COUNT, SharedMemoryRing.DEFAULT_SLOT_SIZE);
+        SharedMemoryTransport importer = new SharedMemoryTransport(receiver, directory, "receiver",
+                SharedMemoryRing.DEFAULT_SLOT_COUNT, SharedMemoryRing.DEFAULT_SLOT_SIZE);
+        Map<String, BlockingQueue<Object>> received = new HashMap<>();
+        for (String name : names) {
+            exporter.exportTopic(name);
+            importer.importTopic(name);
+            BlockingQueue<Object> payloads = new LinkedBlockingQueue<>();
+            received.put(name, payloads);
+            receiver.subscribe(name, (Subscriber) message -> payloads.add(message.getPayload()));
+        }
+        Thread.sleep(300);
+
+        try {
+            // When
+            for (String name : names) {
+                sender.publish(name, new Message(name, name));
+            }
+
+            // Then - un fichier par topic, et chaque topic ne reçoit que le sien
+            Set<Path> files = new HashSet<>();
+            for (String name : names) {
+                files.add(exporter.ringFile(name, "sender"));
+                assertEquals(name, received.get(name).poll(2, TimeUnit.SECONDS));
+            }
+            assertEquals(names.size(), files.size());
+            Thread.sleep(200);
+            for (String name : names) {
+                assertTrue(name + ": " + received.get(name), received.get(name).isEmpty());
+            }
+        } finally {
+            exporter.shutdown();
+            importer.shutdown();
+        }
+    }
+
+    @Test
+    public void testInterestSummaryIsCompactAndIncremental() {
+        // Given - 100 topics d'intérêt dans un résumé de 2048 bits
+        List<String> interest = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            interest.add("sensors/zone-" + i + "/temperature");
+        }
+        TopicBloomFilter summary = TopicBloomFilter.of(interest, 2048, 4);
+
+        // When - un abonnement de plus
+        List<String> extended = new ArrayList<>(interest);
+        extended.add("control/brakes");
+        TopicBloomFilter updated = TopicBloomFilter.of(extended, 2048, 4);
+        int[] delta = summary.diff(updated);
+
+        // Then - aucun faux négatif, peu de faux positifs, mise à jour de quelques bits
+        interest.forEach(topic -> assertTrue(summary.mightContain(topic)));
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (summary.mightContain("actuators/unit-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("Faux positifs: " + falsePositives, falsePositives < 30);
+        assertEquals(264, summary.getEncodedSize());
+        assertTrue(delta.length <= 4);
+        assertEquals(updated, summary.withFlipped(delta));
+        assertTrue(updated.mightContain("control/brakes"));
+    }
+
+    @Test
+    public void testOnlyTopicsWithRemoteInterestCrossTheBridge() throws Exception {
+        // Given - deux nœuds reliés sur la boucle locale, deux topics fédérés
+        for (Middleware node : Arrays.asList(sender, receiver)) {
+            node.createTopic("fed/engine", new QoS.Builder().build());
+            node.createTopic("fed/cabin", new QoS.Builder().build());
+        }
+        TcpBridge senderBridge = new TcpBridge(sender, "sender");
+        TcpBridge receiverBridge = new TcpBridge(receiver, "receiver");
+        for (TcpBridge bridge : Arrays.asList(senderBridge, receiverBridge)) {
+            bridge.federate("fed/engine");
+            bridge.federate("fed/cabin");
+        }
+        int port = senderBridge.bind(0);
+        receiverBridge.connect("127.0.0.1", port);
+
+        // Seul fed/engine a un abonné distant
+        BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+        receiver.subscribe("fed/engine", (Subscriber) received::add);
+        awaitCondition(() -> senderBridge.getRelayedTopics().contains("fed/engine"));
+
+        // When
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Message message = new Message("fed/engine", i);
+            ids.add(message.getId());
+            sender.publish("fed/engine", message);
+            sender.publish("fed/cabin", new Message("fed/cabin", i));
+        }
+
+        // Then
+        for (int i = 0; i < 200; i++) {
+            Message message = received.poll(2, TimeUnit.SECONDS);
+            assertNotNull("Message " + i + " non reçu", message);
+            assertEquals(ids.get(i), message.getId());
+            assertEquals(i, message.getPayload());
+            assertEquals("sender", message.getHeader(TcpBridge.ORIGIN_HEADER));
+        }
+        assertEquals(Collections.singleton("fed/engine"), senderBridge.getRelayedTopics());
+        assertEquals(0, sender.getTopic("fed/cabin").getSubscriberCount());
+        assertEquals(0, receiver.getTopic("fed/cabin").getMessageCount());
+        assertEquals(200, senderBridge.getForwardedCount());
+        assertEquals(200, receiverBridge.getReceivedCount());
+        assertEquals(0, receiverBridge.getFilteredCount());
+        assertTrue(receiverBridge.getAdvertisedSummary().mightContain("fed/engine"));
+        // Rien n'est renvoyé à l'émetteur
+        assertTrue(receiverBridge.getRelayedTopics().isEmpty());
+        assertTrue(senderBridge.getFramesWritten() >= senderBridge.getWriteCount());
+
+        senderBridge.shutdown();
+        receiverBridge.shutdown();
+    }
+
+    @Test
+    public void testUnsubscribeWithdrawsRemoteInterest() throws Exception {
+        // Given
+        sender.createTopic("fed/alarms", new QoS.Builder().build());
+        receiver.createTopic("fed/alarms", new QoS.Builder().build());
+        TcpBridge senderBridge = new TcpBridge(sender, "sender");
+        TcpBridge receiverBridge = new TcpBridge(receiver, "receiver");
+        senderBridge.federate("fed/alarms");
+        receiverBridge.federate("fed/alarms");
+        receiverBridge.connect("127.0.0.1", senderBridge.bind(0));
+        Subscriber alarms = message -> { };
+        receiver.subscribe("fed/alarms", alarms);
+        awaitCondition(() -> senderBridge.getRelayedTopics().contains("fed/alarms"));
+
+        // When - le dernier abonné distant se désabonne
+        receiver.unsubscribe("fed/alarms", alarms);
+        awaitCondition(() -> senderBridge.getRelayedTopics().isEmpty());
+        sender.publish("fed/alarms", new Message("fed/alarms", "surchauffe"));
+        Thread.sleep(200);
+
+        // Then - le relais est retiré et plus rien ne traverse le pont
+        assertEquals(0, sender.getTopic("fed/alarms").getSubscriberCount());
+        assertEquals(0, senderBridge.getForwardedCount());
+        assertEquals(0, receiver.getTopic("fed/alarms").getMessageCount());
+
+        senderBridge.shutdown();
+        receiverBridge.shutdown();
+    }
+
+    @Test
+    public void testBlockedSubscriberDoesNotStallBridge() throws Exception {
+        // Given - un abonné distant bloqué sur fed/slow
+        for (Middleware node : Arrays.asList(sender, receiver)) {
+            node.createTopic("fed/slow", new QoS.Builder().build());
+            node.createTopic("fed/fast", new QoS.Builder().build());
+        }
+        TcpBridge senderBridge = new TcpBridge(sender, "sender");
+        TcpBridge receiverBridge = new TcpBridge(receiver, "receiver");
+        for (TcpBridge bridge : Arrays.asList(senderBridge, receiverBridge)) {
+            bridge.federate("fed/slow");
+            bridge.federate("fed/fast");
+        }
+        receiverBridge.connect("127.0.0.1", senderBridge.bind(0));
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        receiver.subscribe("fed/slow", (Subscriber) message -> {
+            blocked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        BlockingQueue<Message> fast = new LinkedBlockingQueue<>();
+        receiver.subscribe("fed/fast", (Subscriber) fast::add);
+        awaitCondition(() -> senderBridge.getRelayedTopics().size() == 2);
+
+        // When
+        sender.publish("fed/slow", new Message("fed/slow", "bloquant"));
+        assertTrue(blocked.await(2, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) {
+            sender.publish("fed/fast", new Message("fed/fast", i));
+        }
+
+        // Then - le sélecteur du récepteur continue de livrer l'autre topic
+        try {
+            for (int i = 0; i < 10; i++) {
+                Message message = fast.poll(2, TimeUnit.SECONDS);
+                assertNotNull("Message " + i + " non reçu", message);
+                assertEquals(i, message.getPayload());
+            }
+        } finally {
+            release.countDown();
+            senderBridge.shutdown();
+            receiverBridge.shutdown();
+        }
+    }
+
+    private static void awaitCondition(java.util.function.BooleanSupplier condition)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Condition non atteinte", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}